@@ -0,0 +1,35 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.ImplementedBy;
+import exceptions.InternalServerException;
+
+/**
+ * Orders the builds of a tenant.  Builds in the same lane (tenant and version) replace the same images and
+ * containers, so they run one at a time in arrival order.  A build that is identical to one already queued
+ * or running in the lane is not run again, its caller waits for the result of the first one.
+ */
+@ImplementedBy(BuildCoordinatorImpl.class)
+public interface BuildCoordinator {
+
+    interface Build {
+        String run() throws InternalServerException;
+    }
+
+    /***
+     * Run the build in its lane, or join an identical build that is already queued or running
+     * @param tenant owner of the lane, queue depth is reported per tenant
+     * @param lane version (or other resource) the build replaces
+     * @param requestKey builds with the same key produce the same result
+     * @param build the build
+     * @return result of the build, the same for every coalesced caller
+     * @throws InternalServerException if the build failed, every coalesced caller gets the failure
+     */
+    String run(String tenant, String lane, String requestKey, Build build) throws InternalServerException;
+
+    /***
+     * @param tenant tenant
+     * @return queued, running and coalesced builds of the tenant, in total and per lane
+     */
+    ObjectNode getQueueStats(String tenant);
+}
@@ -0,0 +1,176 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Singleton;
+import exceptions.InternalServerException;
+import play.Logger;
+import play.libs.Json;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * One fair lock per lane keeps the arrival order.  Lanes are only created and dropped inside compute, so two
+ * callers of the same lane always share the lock, and a lane nobody is in anymore is forgotten.
+ */
+@Singleton
+public class BuildCoordinatorImpl implements BuildCoordinator {
+
+    private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public String run(String tenant, String lane, String requestKey, Build build) throws InternalServerException {
+        String key = tenant + "/" + lane;
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> joined = new AtomicReference<>();
+        Lane entry = lanes.compute(key, (laneKey, current) -> {
+            Lane next = current == null ? new Lane(tenant, lane) : current;
+            synchronized (next) {
+                next.callers++;
+                joined.set(next.pending.putIfAbsent(requestKey, result));
+                if (joined.get() != null)
+                    next.waiting++;
+                else
+                    next.queued++;
+            }
+            return next;
+        });
+
+        Counters tenantCounters = getCounters(tenant);
+        try {
+            if (joined.get() != null) {
+                Logger.debug("Join the running build of " + requestKey + " in " + key);
+                tenantCounters.coalesced.incrementAndGet();
+                try {
+                    return await(joined.get());
+                } finally {
+                    synchronized (entry) {
+                        entry.waiting--;
+                    }
+                }
+            }
+            tenantCounters.builds.incrementAndGet();
+            return runInLane(entry, requestKey, result, build);
+        } finally {
+            lanes.compute(key, (laneKey, current) -> {
+                synchronized (entry) {
+                    return --entry.callers == 0 ? null : entry;
+                }
+            });
+        }
+    }
+
+    @Override
+    public ObjectNode getQueueStats(String tenant) {
+        List<Lane> tenantLanes = lanes.values().stream()
+                .filter(lane -> lane.tenant.equals(tenant))
+                .collect(Collectors.toList());
+        Counters tenantCounters = getCounters(tenant);
+
+        ObjectNode stats = Json.newObject();
+        ObjectNode laneStats = Json.newObject();
+        int queued = 0, running = 0, waiting = 0;
+        for (Lane lane : tenantLanes) {
+            synchronized (lane) {
+                ObjectNode node = laneStats.putObject(lane.name);
+                node.put("queued", lane.queued);
+                node.put("running", lane.running);
+                node.put("waiting", lane.waiting);
+                queued += lane.queued;
+                running += lane.running;
+                waiting += lane.waiting;
+            }
+        }
+        stats.put("tenant", tenant);
+        stats.put("depth", queued + running);
+        stats.put("queued", queued);
+        stats.put("running", running);
+        stats.put("waiting", waiting);
+        stats.put("builds", tenantCounters.builds.get());
+        stats.put("coalesced", tenantCounters.coalesced.get());
+        stats.set("lanes", laneStats);
+        return stats;
+    }
+
+    private String runInLane(Lane lane, String requestKey, CompletableFuture<String> result, Build build)
+            throws InternalServerException {
+        try {
+            try {
+                lane.lock.lockInterruptibly();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InternalServerException("Interrupted while waiting for the build.");
+            } finally {
+                synchronized (lane) {
+                    lane.queued--;
+                    if (lane.lock.isHeldByCurrentThread())
+                        lane.running++;
+                }
+            }
+
+            try {
+                String id = build.run();
+                result.complete(id);
+                return id;
+            } finally {
+                synchronized (lane) {
+                    lane.running--;
+                    lane.pending.remove(requestKey, result);
+                }
+                lane.lock.unlock();
+            }
+        } catch (InternalServerException | RuntimeException e) {
+            result.completeExceptionally(e);
+            synchronized (lane) {
+                lane.pending.remove(requestKey, result);
+            }
+            throw e;
+        }
+    }
+
+    private String await(CompletableFuture<String> future) throws InternalServerException {
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException("Interrupted while waiting for the build.");
+        } catch (ExecutionException ee) {
+            throw new InternalServerException(ee.getCause().getLocalizedMessage());
+        }
+    }
+
+    private Counters getCounters(String tenant) {
+        return counters.computeIfAbsent(tenant, key -> new Counters());
+    }
+
+    private static final class Counters {
+        private final AtomicLong builds = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+    }
+
+    private static final class Lane {
+        private final String tenant;
+        private final String name;
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final Map<String, CompletableFuture<String>> pending = new HashMap<>();
+        private int callers;
+        private int queued;
+        private int running;
+        private int waiting;
+
+        private Lane(String tenant, String name) {
+            this.tenant = tenant;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package clients;
+
+/**
+ * Gets told which phase an environment build is in and what docker build is doing.
+ */
+public interface BuildListener {
+
+    String CONFIGURATION = "configuration";
+    String CLUSTER = "cluster";
+    String ORIGIN = "origin";
+    String DOCKERFILE = "dockerfile";
+    String IMAGE = "image";
+    String CONTAINER = "container";
+
+    BuildListener NONE = new BuildListener() {
+        @Override
+        public void phase(String phase) {
+        }
+
+        @Override
+        public void progress(String message) {
+        }
+    };
+
+    /***
+     * A new phase started, the previous one is done
+     * @param phase one of the phase constants
+     */
+    void phase(String phase);
+
+    /***
+     * Progress inside the current phase (e.g. docker build output)
+     * @param message progress message
+     */
+    void progress(String message);
+}
@@ -1,7 +1,9 @@
 package clients;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
+import com.spotify.docker.client.DockerCertificates;
 import exceptions.InternalServerException;
 import exceptions.NotFoundException;
 import factories.ICarinaFactory;
@@ -16,31 +18,50 @@ import play.libs.ws.WSClient;
 import play.libs.ws.WSResponse;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 /**
  * Created by dimi5963 on 2/29/16.
+ *
+ * Creating a cluster takes minutes.  createCluster hands back a promise right away and checks the status on the
+ * shared scheduler with a growing delay, until the cluster is active, errors out or the provisioning deadline
+ * passes.
  */
 public class CarinaClient implements ICarinaClient {
+
+    private static final long REQUEST_TIMEOUT_MILLIS = 30000;
+
     @Inject
     WSClient wsClient;
 
     private final IClusterFactory clusterFactory;
     private final ICarinaFactory carinaFactory;
+    private final DockerClientCache dockerClientCache;
+    private final ClusterExecutors clusterExecutors;
 
 
     @Inject
-    public CarinaClient(IClusterFactory clusterFactory, ICarinaFactory carinaFactory){
+    public CarinaClient(IClusterFactory clusterFactory, ICarinaFactory carinaFactory,
+                        DockerClientCache dockerClientCache, ClusterExecutors clusterExecutors){
         this.clusterFactory = clusterFactory;
         this.carinaFactory = carinaFactory;
+        this.dockerClientCache = dockerClientCache;
+        this.clusterExecutors = clusterExecutors;
     }
 
     @Override
-    public boolean createCluster(String clusterName, User user) throws InternalServerException, InterruptedException {
+    public F.Promise<Boolean> createCluster(String clusterName, User user) throws InternalServerException {
         if(user == null || clusterName == null)
             throw new InternalServerException("Required parameters were no provided.");
-        Logger.debug("Create cluster " + clusterName + " with " + user.token);
+        Logger.debug("Create cluster " + clusterName + " for " + user.username);
         CarinaRequest carinaRequest = new CarinaRequest(clusterName, false, user.username);
 
         String carinaUserUrl = clusterFactory.getCarinaUserUrl(user.username);
@@ -48,9 +69,13 @@ public class CarinaClient implements ICarinaClient {
         if(carinaUserUrl == null)
             throw new InternalServerException("Carina user url is misconfigured.");
 
-        F.Promise<String> statusPromise = wsClient.url(carinaUserUrl)
+        long deadline = System.nanoTime() +
+                TimeUnit.SECONDS.toNanos(clusterFactory.getClusterProvisionDeadlineSeconds());
+
+        return wsClient.url(carinaUserUrl)
                 .setHeader("x-auth-token", user.token)
                 .setHeader("x-content-type", "application/json")
+                .setRequestTimeout(REQUEST_TIMEOUT_MILLIS)
                 .post(Json.toJson(carinaRequest)).map(
                         new F.Function<WSResponse, String>() {
                             @Override
@@ -75,33 +100,77 @@ public class CarinaClient implements ICarinaClient {
                                                 "Please try again later.");
                             }
                         }
-                );
-
-        String status = statusPromise.get(30000);
-        //TODO: convert to akka.  Don't block current thread
-        if(status.equals("error"))
-            throw new InternalServerException("Cluster ended up in error state");
+                ).flatMap(status -> {
+                    F.RedeemablePromise<Boolean> provisioned = F.RedeemablePromise.empty();
+                    onClusterStatus(clusterName, user, status, 0, deadline, provisioned);
+                    return provisioned;
+                });
+    }
 
-        while(!status.equals("active") && !status.equals("error")){
-            JsonNode statusNode = getCluster(clusterName, user);
-            if(statusNode != null) {
-                status = statusNode.asText();
-            } else {
-                throw new InternalServerException("Unable to get status");
-            }
-            if (status.equals("error")){
-                throw new InternalServerException("Cluster ended up in error state");
-            } else if(status.equals("active")){
+    /***
+     * One step of the provisioning state machine.  Anything but active or error schedules the next status
+     * check, so no thread waits for the cluster in between.
+     */
+    private void onClusterStatus(String clusterName, User user, String status, int attempt, long deadline,
+                                 F.RedeemablePromise<Boolean> provisioned) {
+        switch (status) {
+            case "active":
+                Logger.debug("Cluster " + clusterName + " is active after " + attempt + " status checks");
+                provisioned.success(true);
+                return;
+            case "error":
+                provisioned.failure(new InternalServerException("Cluster ended up in error state"));
+                return;
+            default:
                 break;
-            }
-            Thread.sleep(1000);
         }
-        return true;
+        long remainingNanos = deadline - System.nanoTime();
+        if(remainingNanos <= 0) {
+            provisioned.failure(new InternalServerException("Cluster is still " + status + " after " +
+                    clusterFactory.getClusterProvisionDeadlineSeconds() + " seconds"));
+            return;
+        }
+        long delayMillis = Math.min(getBackoffMillis(attempt), TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+        Logger.debug("Cluster " + clusterName + " is " + status + ".  Check again in " + delayMillis + " ms");
+        clusterExecutors.getScheduler().schedule(() -> {
+            F.Promise<JsonNode> statusPromise;
+            try {
+                statusPromise = getClusterStatus(clusterName, user);
+            } catch (InternalServerException | RuntimeException e) {
+                provisioned.failure(e);
+                return;
+            }
+            statusPromise.onRedeem(statusNode -> {
+                if(statusNode != null)
+                    onClusterStatus(clusterName, user, statusNode.asText(), attempt + 1, deadline, provisioned);
+                else
+                    provisioned.failure(new InternalServerException("Unable to get status"));
+            });
+            statusPromise.onFailure(provisioned::failure);
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /***
+     * Exponential backoff with equal jitter: half of the delay is fixed, the other half random, so the status
+     * checks of clusters created together spread out instead of hitting carina in lockstep.
+     */
+    long getBackoffMillis(int attempt) {
+        long initialMillis = Math.max(1, clusterFactory.getClusterProvisionInitialBackoffMillis());
+        long maxMillis = Math.max(initialMillis, clusterFactory.getClusterProvisionMaxBackoffMillis());
+        long backoffMillis = Math.min(maxMillis, initialMillis << Math.min(attempt, 30));
+        long halfMillis = backoffMillis / 2;
+        return backoffMillis - halfMillis + ThreadLocalRandom.current().nextLong(halfMillis + 1);
     }
 
     @Override
     public Cluster getClusterWithZip(User user, String clusterName)
             throws NotFoundException, InternalServerException{
+        return getClusterWithZipAsync(user, clusterName).get(REQUEST_TIMEOUT_MILLIS * 2);
+    }
+
+    @Override
+    public F.Promise<Cluster> getClusterWithZipAsync(User user, String clusterName)
+            throws InternalServerException{
         if(user == null || clusterName == null)
             throw new InternalServerException("Required parameters were not provided.");
         String carinaZipUrl = clusterFactory.getCarinaZipUrl(user.username, clusterName);
@@ -110,7 +179,8 @@ public class CarinaClient implements ICarinaClient {
         Logger.error("Get cluster zip from " + carinaZipUrl + " for " + clusterName);
         return wsClient.url(carinaZipUrl)
                 .setHeader("x-auth-token", user.token)
-                .get().map(response -> {
+                .setRequestTimeout(REQUEST_TIMEOUT_MILLIS)
+                .get().flatMap(response -> {
                     Logger.debug("getClusterZip::response for " + user);
                     Logger.debug("getClusterZip::body: " + response.getStatus() + " " + response.getBody());
                     switch (response.getStatus()) {
@@ -121,6 +191,7 @@ public class CarinaClient implements ICarinaClient {
                                     .setHeader("x-auth-token", user.token)
                                     .setHeader("Accept", "application/zip")
                                     .setHeader("Content-disposition", "attachment; filename=" + clusterName + ".zip")
+                                    .setRequestTimeout(REQUEST_TIMEOUT_MILLIS)
                                     .get().map(
                                             new F.Function<WSResponse, Cluster>() {
                                                 @Override
@@ -129,9 +200,12 @@ public class CarinaClient implements ICarinaClient {
                                                     switch (innerResponse.getStatus()) {
                                                         case 200:
                                                             try {
-                                                                return unzip(
+                                                                Cluster cluster = unzip(
                                                                         innerResponse.getBodyAsStream(),
                                                                         clusterName, user);
+                                                                //certs were rewritten.  drop the stale client
+                                                                dockerClientCache.invalidate(cluster);
+                                                                return cluster;
                                                             } catch (InternalServerException | IOException e) {
                                                                 e.printStackTrace();
                                                                 Logger.error(e.getMessage());
@@ -142,37 +216,47 @@ public class CarinaClient implements ICarinaClient {
                                                     }
                                                 }
                                             }
-                                    ).recover(
-                                            new F.Function<Throwable, Cluster>() {
-                                                //no cluster by this name exists.  Empty all the things
-                                                @Override
-                                                public Cluster apply(Throwable throwable) throws Throwable {
-                                                    throw throwable;
-                                                }
-                                            }
-                                    ).get(30000);
+                                    );
                         case 404:
                             throw new NotFoundException("Cluster zip does not exist.");
                         default:
                             throw new InternalServerException("Could not retrieve cluster zip.");
                     }
-                }).recover(
-                        new F.Function<Throwable, Cluster>() {
-                            //no cluster by this name exists.  Empty all the things
-                            @Override
-                            public Cluster apply(Throwable throwable) throws Throwable {
-                                throw throwable;
-                            }
-                        }
-                ).get(30000);
+                });
+    }
+
+    @Override
+    public boolean isMissingCertificates(Cluster cluster) {
+        return cluster.getDockerCertificates() == null && cluster.getCert_directory() != null &&
+                !carinaFactory.hasDockerCertificates(Paths.get(cluster.getCert_directory()));
+    }
+
+    @Override
+    public Date getCertificateExpiry(Cluster cluster) {
+        if(cluster.getCertificatesExpireAt() == null && cluster.getCert_directory() != null &&
+                carinaFactory.hasDockerCertificates(Paths.get(cluster.getCert_directory()))) {
+            try {
+                cluster.setCertificatesExpireAt(
+                        carinaFactory.getCertificateExpiry(Paths.get(cluster.getCert_directory())));
+            } catch (InternalServerException ise) {
+                Logger.warn("Certificate expiry of " + cluster + " is unknown: " + ise.getLocalizedMessage());
+            }
+        }
+        return cluster.getCertificatesExpireAt();
     }
 
     @Override
     public JsonNode getCluster(String clusterName, User user) throws InternalServerException {
+        return getClusterStatus(clusterName, user).get(REQUEST_TIMEOUT_MILLIS);
+    }
+
+    @Override
+    public F.Promise<JsonNode> getClusterStatus(String clusterName, User user) throws InternalServerException {
         if(user == null || clusterName == null)
             throw new InternalServerException("Required parameters were not provided.");
-        F.Promise<JsonNode> result = wsClient.url(clusterFactory.getCarinaClusterUrl(user.username, clusterName))
+        return wsClient.url(clusterFactory.getCarinaClusterUrl(user.username, clusterName))
                 .setHeader("x-auth-token", user.token)
+                .setRequestTimeout(REQUEST_TIMEOUT_MILLIS)
                 .get().map(response -> {
                     Logger.debug("response for " + user);
                     Logger.debug("body: " + response.getStatus() + " " + response.getBody());
@@ -184,16 +268,7 @@ public class CarinaClient implements ICarinaClient {
                         default:
                             throw new InternalServerException("Didn't expect that!");
                     }
-                }).recover(
-                        new F.Function<Throwable, JsonNode>() {
-                            //Everything is down!
-                            @Override
-                            public JsonNode apply(Throwable throwable) throws Throwable {
-                                throw throwable;
-                            }
-                        }
-                );
-        return result.get(30000);
+                });
     }
 
     private Cluster unzip(InputStream responseStream, String clusterName, User user)
@@ -203,17 +278,13 @@ public class CarinaClient implements ICarinaClient {
         reposeCluster.setName(clusterName);
         reposeCluster.setUser(user.id);
 
-        Reader reader = null;
-        StringWriter writer = new StringWriter();
-        ZipInputStream unzippedResponse = null;
-        String charset = "UTF-8";
-        try {
-            unzippedResponse = new ZipInputStream(responseStream);
-            reader = new InputStreamReader(unzippedResponse, charset);
+        boolean inMemory = clusterFactory.isClusterCertificatesInMemory();
+        Map<String, byte[]> certificates = new HashMap<>();
+        try (ZipInputStream unzippedResponse = new ZipInputStream(responseStream)) {
             ZipEntry file = unzippedResponse.getNextEntry();
-            Logger.debug("Zip file: " + file.getName());
 
             while(file != null){
+                Logger.debug("Zip file: " + file.getName());
                 Logger.debug("Check if file has a directory");
                 int fileTokens = file.getName().split("/").length;
                 String fileName = file.getName().split("/")[fileTokens - 1];
@@ -221,52 +292,68 @@ public class CarinaClient implements ICarinaClient {
                 if(fileName == null)
                     throw new InternalServerException("Invalid files in response: " + file.getName());
 
-                try {
-                    writer = new StringWriter();
+                //keys and certificates are kept byte for byte, no charset round trip
+                byte[] data = ByteStreams.toByteArray(unzippedResponse);
 
-                    char[] buffer = new char[10240];
-                    for (int length = 0; (length = reader.read(buffer)) > 0; ) {
-                        writer.write(buffer, 0, length);
-                    }
-
-                    Logger.debug("Create temporary directory and store creds in it");
-                    reposeCluster.setCert_directory(
-                            carinaFactory.getCarinaDirectoryWithCluster(user.tenant,
-                                    directoryName).toString());
-                    switch(fileName){
-                        case "ca.pem":
-                        case "cert.pem":
-                        case "key.pem":
-                        case "ca-key.pem":
-                            carinaFactory.createFileInCarina(file, writer, user);
-                            break;
-                        case "docker.env":
-                            carinaFactory.createFileInCarina(file, writer, user);
-                            String[] dockerEnv = writer.toString().split("\\n");
-                            for(String s: dockerEnv){
-                                if(s.trim().startsWith("export DOCKER_HOST")){
-                                    reposeCluster.setUri(s.trim().split("=")[1].replace("tcp", "https"));
-                                    break;
-                                }
+                reposeCluster.setCert_directory(
+                        carinaFactory.getCarinaDirectoryWithCluster(user.tenant,
+                                directoryName).toString());
+                switch(fileName){
+                    case "ca.pem":
+                    case "cert.pem":
+                    case "key.pem":
+                        certificates.put(fileName, data);
+                        if(!inMemory)
+                            carinaFactory.createFileInCarina(file, data, user);
+                        break;
+                    case "ca-key.pem":
+                        if(!inMemory)
+                            carinaFactory.createFileInCarina(file, data, user);
+                        break;
+                    case "docker.env":
+                        if(!inMemory)
+                            carinaFactory.createFileInCarina(file, data, user);
+                        String[] dockerEnv = new String(data, StandardCharsets.UTF_8).split("\\n");
+                        for(String s: dockerEnv){
+                            if(s.trim().startsWith("export DOCKER_HOST")){
+                                reposeCluster.setUri(s.trim().split("=")[1].replace("tcp", "https"));
+                                break;
                             }
-                            break;
-                        default:
-                            Logger.error("Invalid file found: " + file.getName());
-                            break;
-                    }
-                } finally {
-                    writer.close();
-                    writer = null;
+                        }
+                        break;
+                    default:
+                        Logger.error("Invalid file found: " + file.getName());
+                        break;
                 }
                 file = unzippedResponse.getNextEntry();
             }
-
-
-        } finally {
-            unzippedResponse.closeEntry();
-            unzippedResponse.close();
-            reader.close();
+        }
+        reposeCluster.setDockerCertificates(loadDockerCertificates(reposeCluster, certificates, inMemory));
+        if(certificates.containsKey("cert.pem")) {
+            try {
+                reposeCluster.setCertificatesExpireAt(carinaFactory.getCertificateExpiry(certificates.get("cert.pem")));
+            } catch (InternalServerException ise) {
+                Logger.warn("Certificate expiry of " + reposeCluster + " is unknown: " + ise.getLocalizedMessage());
+            }
         }
         return reposeCluster;
     }
+
+    /***
+     * Parse the certificates once, while we have them, so the cluster's docker clients don't read them again.
+     * Written certificates that can't be parsed are reported when the docker client is built.
+     */
+    private DockerCertificates loadDockerCertificates(Cluster cluster, Map<String, byte[]> certificates,
+                                                      boolean inMemory) throws InternalServerException {
+        if(inMemory)
+            return carinaFactory.createDockerCertificates(certificates);
+        if(certificates.isEmpty() || cluster.getCert_directory() == null)
+            return null;
+        try {
+            return carinaFactory.createDockerCertificates(Paths.get(cluster.getCert_directory()));
+        } catch (InternalServerException ise) {
+            Logger.warn("Certificates of " + cluster + " are not usable: " + ise.getLocalizedMessage());
+            return null;
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package clients;
+
+import com.google.inject.ImplementedBy;
+import models.Cluster;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+@ImplementedBy(ClusterExecutorsImpl.class)
+public interface ClusterExecutors {
+
+    /***
+     * Bounded executor dedicated to container stats calls for the cluster.  Keyed by the user and cluster uri,
+     * so every user's cluster has its own.  Keeps slow docker stats reads off of the play request threads.
+     * @param cluster Cluster model
+     * @return ExecutorService shared by all stats calls for this cluster
+     */
+    ExecutorService getStatsExecutor(Cluster cluster);
+
+    /***
+     * Bounded executor for image builds and container creation that run outside of a request
+     * (e.g. refilling the warm pool).
+     * @param cluster Cluster model
+     * @return ExecutorService shared by all background builds for this cluster
+     */
+    ExecutorService getBuildExecutor(Cluster cluster);
+
+    /***
+     * Bounded executor for test requests of a batch that run concurrently against repose instances, and for
+     * load tests that wait for their run.
+     * @param cluster Cluster model
+     * @return ExecutorService shared by all test batches and load tests for this cluster
+     */
+    ExecutorService getTestExecutor(Cluster cluster);
+
+    /***
+     * Bounded executor for environment build jobs submitted through the api.  A job waits on the
+     * cluster executors, so it gets its own pool.
+     * @return ExecutorService shared by all build jobs
+     */
+    ExecutorService getJobExecutor();
+
+    /***
+     * Shared scheduler for delayed and periodic work.  Tasks should hand blocking docker calls off
+     * to one of the cluster executors instead of running them on the scheduler threads.
+     * @return ScheduledExecutorService
+     */
+    ScheduledExecutorService getScheduler();
+
+    /***
+     * Shut down the stats, build and test executors of a cluster that went away or moved to another uri.
+     * The next call for the cluster gets new ones.
+     * @param cluster Cluster model
+     */
+    void evict(Cluster cluster);
+
+    void shutdown();
+}
@@ -0,0 +1,140 @@
+package clients;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import factories.IClusterFactory;
+import models.Cluster;
+import play.Logger;
+import play.inject.ApplicationLifecycle;
+import play.libs.F;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Singleton
+public class ClusterExecutorsImpl implements ClusterExecutors {
+
+    private static final long IDLE_THREAD_SECONDS = 60;
+
+    private final IClusterFactory clusterFactory;
+    private final ConcurrentMap<String, ExecutorService> statsExecutors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ExecutorService> buildExecutors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ExecutorService> testExecutors = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler =
+            Executors.newScheduledThreadPool(2, daemonThreadFactory("docker-scheduler"));
+    private ExecutorService jobExecutor;
+
+    @Inject
+    public ClusterExecutorsImpl(IClusterFactory clusterFactory, ApplicationLifecycle lifecycle) {
+        this(clusterFactory);
+        lifecycle.addStopHook(() -> {
+            shutdown();
+            return F.Promise.pure(null);
+        });
+    }
+
+    public ClusterExecutorsImpl(IClusterFactory clusterFactory) {
+        this.clusterFactory = clusterFactory;
+    }
+
+    @Override
+    public ExecutorService getStatsExecutor(Cluster cluster) {
+        return statsExecutors.computeIfAbsent(cluster.getKey(), key -> {
+            int parallelism = Math.max(1, clusterFactory.getStatsParallelism(cluster.getName()));
+            Logger.debug("Create stats executor for " + key + " with " + parallelism + " threads");
+            return newPool(parallelism, "docker-stats-" + cluster.getName());
+        });
+    }
+
+    @Override
+    public ExecutorService getBuildExecutor(Cluster cluster) {
+        return buildExecutors.computeIfAbsent(cluster.getKey(), key -> {
+            int parallelism = Math.max(1, clusterFactory.getBuildParallelism());
+            Logger.debug("Create build executor for " + key + " with " + parallelism + " threads");
+            return newPool(parallelism, "docker-build-" + cluster.getName());
+        });
+    }
+
+    @Override
+    public ExecutorService getTestExecutor(Cluster cluster) {
+        return testExecutors.computeIfAbsent(cluster.getKey(), key -> {
+            int parallelism = Math.max(1, clusterFactory.getTestParallelism());
+            Logger.debug("Create test executor for " + key + " with " + parallelism + " threads");
+            return newPool(parallelism, "docker-test-" + cluster.getName());
+        });
+    }
+
+    @Override
+    public void evict(Cluster cluster) {
+        String key = cluster.getKey();
+        Logger.debug("Shut down the executors of " + key);
+        shutdown(statsExecutors.remove(key));
+        shutdown(buildExecutors.remove(key));
+        shutdown(testExecutors.remove(key));
+    }
+
+    @Override
+    public synchronized ExecutorService getJobExecutor() {
+        if (jobExecutor == null) {
+            int parallelism = Math.max(1, clusterFactory.getBuildJobParallelism());
+            Logger.debug("Create build job executor with " + parallelism + " threads");
+            jobExecutor = Executors.newFixedThreadPool(parallelism, daemonThreadFactory("build-job"));
+        }
+        return jobExecutor;
+    }
+
+    @Override
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        scheduler.shutdownNow();
+        statsExecutors.values().forEach(ExecutorService::shutdownNow);
+        statsExecutors.clear();
+        buildExecutors.values().forEach(ExecutorService::shutdownNow);
+        buildExecutors.clear();
+        testExecutors.values().forEach(ExecutorService::shutdownNow);
+        testExecutors.clear();
+        if (jobExecutor != null) {
+            jobExecutor.shutdownNow();
+            jobExecutor = null;
+        }
+    }
+
+    /***
+     * Calls already running finish, the health probe that evicts the cluster may be one of them
+     */
+    private static void shutdown(ExecutorService executor) {
+        if (executor != null)
+            executor.shutdown();
+    }
+
+    /***
+     * Fixed size pool whose threads go away while the cluster is idle
+     */
+    private static ExecutorService newPool(int parallelism, String prefix) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+                IDLE_THREAD_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreadFactory(prefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package clients;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import factories.IClusterFactory;
+import play.Logger;
+
+/**
+ * Picks the ICarinaClient implementation from docker.cluster.provider.  Anything other than local is carina.
+ */
+public class ClusterProvider implements Provider<ICarinaClient> {
+
+    public static final String CARINA = "carina";
+    public static final String LOCAL = "local";
+
+    private final IClusterFactory clusterFactory;
+    private final Provider<CarinaClient> carinaClient;
+    private final Provider<LocalDockerClient> localDockerClient;
+
+    @Inject
+    public ClusterProvider(IClusterFactory clusterFactory, Provider<CarinaClient> carinaClient,
+                           Provider<LocalDockerClient> localDockerClient) {
+        this.clusterFactory = clusterFactory;
+        this.carinaClient = carinaClient;
+        this.localDockerClient = localDockerClient;
+    }
+
+    @Override
+    public ICarinaClient get() {
+        String provider = clusterFactory.getClusterProvider();
+        if(LOCAL.equalsIgnoreCase(provider))
+            return localDockerClient.get();
+        if(provider != null && !CARINA.equalsIgnoreCase(provider))
+            Logger.warn("Unknown cluster provider " + provider + ", using " + CARINA);
+        return carinaClient.get();
+    }
+}
@@ -0,0 +1,54 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.ImplementedBy;
+import exceptions.InternalServerException;
+import models.Cluster;
+import models.Container;
+import models.User;
+
+import java.util.List;
+
+@ImplementedBy(ContainerStateCacheImpl.class)
+public interface ContainerStateCache {
+
+    /***
+     * Lists the tenant's repose containers from docker
+     */
+    interface Loader {
+        List<Container> load() throws InternalServerException;
+    }
+
+    /***
+     * The tenant's repose containers from memory.  The first call for a tenant lists them with the loader,
+     * after that they are resynced in the background until nobody asked for them for a while.
+     * If the last resync failed (e.g. the cluster was unreachable) the containers are listed again right away.
+     * @param cluster Cluster model
+     * @param user User model
+     * @param loader lists the tenant's containers
+     * @return copies of the cached containers
+     * @throws InternalServerException if the containers had to be listed and that failed
+     */
+    List<Container> getContainers(Cluster cluster, User user, Loader loader) throws InternalServerException;
+
+    /***
+     * Record a status change we made ourselves (start/stop) without waiting for the next resync
+     * @param cluster Cluster model
+     * @param containerId container id
+     * @param started whether the container is running now
+     */
+    void update(Cluster cluster, String containerId, boolean started);
+
+    /***
+     * Resync the tenant's containers in the background (e.g. after containers were created or removed)
+     * @param cluster Cluster model
+     * @param user User model
+     */
+    void resync(Cluster cluster, User user);
+
+    /***
+     * @param cluster Cluster model
+     * @return tenants cached, resyncs, failed resyncs, hits, misses and staleness of the oldest tenant
+     */
+    ObjectNode getStats(Cluster cluster);
+}
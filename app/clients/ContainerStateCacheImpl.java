@@ -0,0 +1,208 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import exceptions.InternalServerException;
+import factories.IClusterFactory;
+import models.Cluster;
+import models.Container;
+import models.ContainerStatus;
+import models.User;
+import play.Logger;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * The docker client we use has no events api, so instead of following the event stream every tenant that
+ * was asked for gets a background resync loop.  Status changes we make ourselves are written through.
+ */
+@Singleton
+public class ContainerStateCacheImpl implements ContainerStateCache {
+
+    private final ClusterExecutors clusterExecutors;
+    private final IClusterFactory clusterFactory;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    @Inject
+    public ContainerStateCacheImpl(ClusterExecutors clusterExecutors, IClusterFactory clusterFactory) {
+        this.clusterExecutors = clusterExecutors;
+        this.clusterFactory = clusterFactory;
+    }
+
+    @Override
+    public List<Container> getContainers(Cluster cluster, User user, Loader loader) throws InternalServerException {
+        String key = getKey(cluster, user.tenant);
+        boolean[] created = {false};
+        Entry entry = entries.computeIfAbsent(key, entryKey -> {
+            created[0] = true;
+            return new Entry(entryKey, cluster, loader);
+        });
+        entry.lastRead = System.currentTimeMillis();
+        if (created[0])
+            schedule(entry);
+
+        Counters clusterCounters = getCounters(cluster);
+        if (entry.containers == null || entry.failed) {
+            clusterCounters.misses.incrementAndGet();
+            synchronized (entry) {
+                if (entry.containers == null || entry.failed)
+                    sync(entry);
+            }
+        } else {
+            clusterCounters.hits.incrementAndGet();
+        }
+
+        return entry.containers.stream().map(this::copy).collect(Collectors.toList());
+    }
+
+    @Override
+    public void update(Cluster cluster, String containerId, boolean started) {
+        String prefix = cluster.getKey() + "/";
+        entries.values().forEach(entry -> {
+            if (!entry.key.startsWith(prefix) || entry.containers == null)
+                return;
+            synchronized (entry) {
+                entry.containers = entry.containers.stream()
+                        .map(container -> container.getId().equals(containerId) ?
+                                new Container(container.getName(), started, started ? "Up" : "Exited",
+                                        container.getVersion(), container.getId()) :
+                                container)
+                        .collect(Collectors.toList());
+            }
+        });
+    }
+
+    @Override
+    public void resync(Cluster cluster, User user) {
+        Entry entry = entries.get(getKey(cluster, user.tenant));
+        if (entry != null)
+            clusterExecutors.getStatsExecutor(cluster).execute(() -> backgroundSync(entry));
+    }
+
+    @Override
+    public ObjectNode getStats(Cluster cluster) {
+        String prefix = cluster.getKey() + "/";
+        long now = System.currentTimeMillis();
+        List<Entry> clusterEntries = entries.values().stream()
+                .filter(entry -> entry.key.startsWith(prefix))
+                .collect(Collectors.toList());
+        Counters clusterCounters = getCounters(cluster);
+
+        ObjectNode stats = Json.newObject();
+        stats.put("tenants", clusterEntries.size());
+        stats.put("containers", clusterEntries.stream()
+                .mapToInt(entry -> entry.containers == null ? 0 : entry.containers.size()).sum());
+        stats.put("hits", clusterCounters.hits.get());
+        stats.put("misses", clusterCounters.misses.get());
+        stats.put("resyncs", clusterCounters.resyncs.get());
+        stats.put("resyncFailures", clusterCounters.failures.get());
+        stats.put("maxStalenessMillis", clusterEntries.stream()
+                .filter(entry -> entry.lastSync > 0)
+                .mapToLong(entry -> now - entry.lastSync).max().orElse(0L));
+        stats.put("resyncIntervalMillis", clusterFactory.getContainerCacheResyncMillis());
+        return stats;
+    }
+
+    private void schedule(Entry entry) {
+        if (entry.closed)
+            return;
+        entry.next = clusterExecutors.getScheduler().schedule(
+                () -> clusterExecutors.getStatsExecutor(entry.cluster).execute(() -> {
+                    if (System.currentTimeMillis() - entry.lastRead >
+                            TimeUnit.MINUTES.toMillis(clusterFactory.getContainerCacheIdleMinutes())) {
+                        Logger.debug("Nobody asked for " + entry.key + " in a while.  Stop resyncing.");
+                        entries.remove(entry.key, entry);
+                        entry.close();
+                        return;
+                    }
+                    backgroundSync(entry);
+                    schedule(entry);
+                }),
+                clusterFactory.getContainerCacheResyncMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void backgroundSync(Entry entry) {
+        if (entry.closed)
+            return;
+        try {
+            synchronized (entry) {
+                sync(entry);
+            }
+        } catch (InternalServerException | RuntimeException e) {
+            Logger.warn("Unable to resync containers for " + entry.key + ": " + e.getLocalizedMessage());
+        }
+    }
+
+    private void sync(Entry entry) throws InternalServerException {
+        Counters clusterCounters = getCounters(entry.cluster);
+        clusterCounters.resyncs.incrementAndGet();
+        try {
+            List<Container> containers = entry.loader.load();
+            entry.containers = containers == null ?
+                    Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(containers));
+            entry.lastSync = System.currentTimeMillis();
+            entry.failed = false;
+        } catch (InternalServerException | RuntimeException e) {
+            clusterCounters.failures.incrementAndGet();
+            entry.failed = true;
+            throw e;
+        }
+    }
+
+    private Container copy(Container container) {
+        return new Container(container.getName(),
+                container.getContainerStatus() == ContainerStatus.STARTED,
+                container.getMessage(), container.getVersion(), container.getId());
+    }
+
+    private Counters getCounters(Cluster cluster) {
+        return counters.computeIfAbsent(cluster.getKey(), key -> new Counters());
+    }
+
+    private String getKey(Cluster cluster, String tenant) {
+        return cluster.getKey() + "/" + tenant;
+    }
+
+    private static final class Counters {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong resyncs = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final Cluster cluster;
+        private final Loader loader;
+        private volatile List<Container> containers;
+        private volatile long lastSync;
+        private volatile long lastRead;
+        private volatile boolean failed;
+        private volatile ScheduledFuture<?> next;
+        private volatile boolean closed;
+
+        private Entry(String key, Cluster cluster, Loader loader) {
+            this.key = key;
+            this.cluster = cluster;
+            this.loader = loader;
+        }
+
+        private void close() {
+            closed = true;
+            if (next != null)
+                next.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.inject.ImplementedBy;
+import models.Cluster;
+
+import java.util.function.BiConsumer;
+
+@ImplementedBy(ContainerStatsStreamImpl.class)
+public interface ContainerStatsStream {
+
+    String FULL = "stats";
+    String DELTA = "delta";
+    String ERROR = "error";
+
+    /***
+     * Subscribe to container stats.  All subscribers of the same container share one upstream poll.
+     * The listener first gets the full stats (FULL) and afterwards only the fields that changed (DELTA).
+     * If the container can't be read anymore the listener gets ERROR and the upstream is closed.
+     * @param cluster Cluster model
+     * @param containerId container id
+     * @param listener called with frame type and json payload
+     */
+    void subscribe(Cluster cluster, String containerId, BiConsumer<String, JsonNode> listener);
+
+    void unsubscribe(Cluster cluster, String containerId, BiConsumer<String, JsonNode> listener);
+
+    int getSubscriberCount(Cluster cluster, String containerId);
+}
@@ -0,0 +1,201 @@
+package clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.spotify.docker.client.DockerException;
+import exceptions.InternalServerException;
+import factories.IClusterFactory;
+import factories.IContainerFactory;
+import models.Cluster;
+import play.Logger;
+import play.libs.Json;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * The docker client we use can only take stats snapshots, so the upstream "subscription" is a single
+ * poll loop per container that is shared by every viewer of that container.
+ */
+@Singleton
+public class ContainerStatsStreamImpl implements ContainerStatsStream {
+
+    private final DockerClientCache dockerClientCache;
+    private final IContainerFactory<
+            com.spotify.docker.client.messages.Container,
+            com.spotify.docker.client.messages.ContainerStats> containerFactory;
+    private final ClusterExecutors clusterExecutors;
+    private final IClusterFactory clusterFactory;
+
+    private final ConcurrentMap<String, Upstream> upstreams = new ConcurrentHashMap<>();
+
+    @Inject
+    public ContainerStatsStreamImpl(DockerClientCache dockerClientCache,
+                                    IContainerFactory<
+                                            com.spotify.docker.client.messages.Container,
+                                            com.spotify.docker.client.messages.ContainerStats> containerFactory,
+                                    ClusterExecutors clusterExecutors,
+                                    IClusterFactory clusterFactory) {
+        this.dockerClientCache = dockerClientCache;
+        this.containerFactory = containerFactory;
+        this.clusterExecutors = clusterExecutors;
+        this.clusterFactory = clusterFactory;
+    }
+
+    @Override
+    public void subscribe(Cluster cluster, String containerId, BiConsumer<String, JsonNode> listener) {
+        String key = getKey(cluster, containerId);
+        boolean[] created = {false};
+        Upstream upstream = upstreams.compute(key, (upstreamKey, existing) -> {
+            if (existing == null) {
+                existing = new Upstream(key, cluster, containerId);
+                created[0] = true;
+            }
+            synchronized (existing) {
+                existing.listeners.add(listener);
+                //late subscribers start from the last full picture
+                if (existing.snapshot != null)
+                    notify(listener, FULL, existing.snapshot);
+            }
+            return existing;
+        });
+
+        if (created[0]) {
+            Logger.debug("Open stats stream for " + key);
+            schedule(upstream, 0);
+        }
+    }
+
+    @Override
+    public void unsubscribe(Cluster cluster, String containerId, BiConsumer<String, JsonNode> listener) {
+        upstreams.computeIfPresent(getKey(cluster, containerId), (upstreamKey, upstream) -> {
+            upstream.listeners.remove(listener);
+            if (!upstream.listeners.isEmpty())
+                return upstream;
+            Logger.debug("No more subscribers.  Close stats stream for " + upstreamKey);
+            upstream.close();
+            return null;
+        });
+    }
+
+    @Override
+    public int getSubscriberCount(Cluster cluster, String containerId) {
+        Upstream upstream = upstreams.get(getKey(cluster, containerId));
+        return upstream == null ? 0 : upstream.listeners.size();
+    }
+
+    private void schedule(Upstream upstream, long delay) {
+        if (upstream.closed)
+            return;
+        upstream.next = clusterExecutors.getScheduler().schedule(
+                () -> clusterExecutors.getStatsExecutor(upstream.cluster).execute(() -> poll(upstream)),
+                delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(Upstream upstream) {
+        if (upstream.closed)
+            return;
+        try {
+            JsonNode current;
+            try (DockerClientCache.Lease lease = dockerClientCache.lease(upstream.cluster)) {
+                current = Json.toJson(
+                        containerFactory.translateContainerStats(lease.client().stats(upstream.containerId)));
+            }
+            synchronized (upstream) {
+                JsonNode previous = upstream.snapshot;
+                upstream.snapshot = current;
+                if (previous == null) {
+                    publish(upstream, FULL, current);
+                } else {
+                    ObjectNode delta = diff(previous, current);
+                    if (delta.size() > 0)
+                        publish(upstream, DELTA, delta);
+                }
+            }
+            schedule(upstream, clusterFactory.getStatsStreamIntervalMillis());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (InternalServerException | DockerException | RuntimeException e) {
+            Logger.error("Unable to stream stats for " + upstream.key + ": " + e.getLocalizedMessage());
+            upstreams.remove(upstream.key, upstream);
+            upstream.close();
+            ObjectNode error = Json.newObject();
+            error.put("message", e.getLocalizedMessage());
+            synchronized (upstream) {
+                publish(upstream, ERROR, error);
+            }
+        }
+    }
+
+    private void publish(Upstream upstream, String type, JsonNode payload) {
+        upstream.listeners.forEach(listener -> notify(listener, type, payload));
+    }
+
+    private void notify(BiConsumer<String, JsonNode> listener, String type, JsonNode payload) {
+        try {
+            listener.accept(type, payload);
+        } catch (RuntimeException e) {
+            Logger.warn("Stats subscriber failed: " + e.getLocalizedMessage());
+        }
+    }
+
+    /***
+     * Compact delta between two stats documents.  Only changed fields are kept, nested objects are
+     * compared field by field, arrays are replaced as a whole and removed fields are sent as null.
+     * @param previous last stats sent
+     * @param current latest stats
+     * @return ObjectNode with changed fields only
+     */
+    static ObjectNode diff(JsonNode previous, JsonNode current) {
+        ObjectNode delta = Json.newObject();
+        current.fields().forEachRemaining(field -> {
+            JsonNode before = previous.get(field.getKey());
+            JsonNode after = field.getValue();
+            if (before != null && before.isObject() && after.isObject()) {
+                ObjectNode nested = diff(before, after);
+                if (nested.size() > 0)
+                    delta.set(field.getKey(), nested);
+            } else if (!after.equals(before)) {
+                delta.set(field.getKey(), after);
+            }
+        });
+        previous.fieldNames().forEachRemaining(name -> {
+            if (!current.has(name))
+                delta.putNull(name);
+        });
+        return delta;
+    }
+
+    private String getKey(Cluster cluster, String containerId) {
+        return cluster.getUri() + "/" + containerId;
+    }
+
+    private static final class Upstream {
+        private final String key;
+        private final Cluster cluster;
+        private final String containerId;
+        private final Set<BiConsumer<String, JsonNode>> listeners = new CopyOnWriteArraySet<>();
+        private volatile JsonNode snapshot;
+        private volatile ScheduledFuture<?> next;
+        private volatile boolean closed;
+
+        private Upstream(String key, Cluster cluster, String containerId) {
+            this.key = key;
+            this.cluster = cluster;
+            this.containerId = containerId;
+        }
+
+        private void close() {
+            closed = true;
+            if (next != null)
+                next.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package clients;
+
+import com.google.inject.ImplementedBy;
+import com.spotify.docker.client.DockerClient;
+import exceptions.InternalServerException;
+import models.Cluster;
+
+@ImplementedBy(DockerClientCacheImpl.class)
+public interface DockerClientCache {
+
+    /***
+     * Lease a shared docker client for the cluster.  Clients are keyed by cluster uri and cert directory
+     * so that connections and TLS sessions are reused across calls.  The cluster's parsed certificates are
+     * used if it has them, otherwise they are read from the cert directory.
+     * @param cluster Cluster model
+     * @return Lease on the shared client.  Close the lease, not the client, when done with it.
+     * @throws InternalServerException if certificates can't be loaded
+     */
+    Lease lease(Cluster cluster) throws InternalServerException;
+
+    /***
+     * Drop the client for the cluster (e.g. when certificates were rotated).  It is closed once the calls that
+     * leased it are done.
+     * @param cluster Cluster model
+     */
+    void invalidate(Cluster cluster);
+
+    void invalidateAll();
+
+    long size();
+
+    /***
+     * A client in use.  A client that idled out or was invalidated while leased is only closed when its last
+     * lease is.
+     */
+    interface Lease extends AutoCloseable {
+
+        DockerClient client();
+
+        @Override
+        void close();
+    }
+}
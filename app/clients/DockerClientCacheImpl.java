@@ -0,0 +1,198 @@
+package clients;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.spotify.docker.client.DefaultDockerClient;
+import com.spotify.docker.client.DockerCertificates;
+import com.spotify.docker.client.DockerClient;
+import exceptions.InternalServerException;
+import factories.IClusterFactory;
+import models.Cluster;
+import play.Logger;
+import play.inject.ApplicationLifecycle;
+import play.libs.F;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builds, tests and stats streams can hold a client for longer than the idle timeout, and a certificate refresh
+ * invalidates clients that are in use.  Clients are leased, so dropping one from the cache never closes it under
+ * a call that is still using it.
+ */
+@Singleton
+public class DockerClientCacheImpl implements DockerClientCache {
+
+    private final LoadingCache<ClusterKey, SharedClient> clients;
+
+    @Inject
+    public DockerClientCacheImpl(IClusterFactory clusterFactory, ApplicationLifecycle lifecycle) {
+        this(clusterFactory.getDockerClientIdleMinutes());
+        lifecycle.addStopHook(() -> {
+            invalidateAll();
+            return F.Promise.pure(null);
+        });
+    }
+
+    public DockerClientCacheImpl(long idleMinutes) {
+        this.clients = CacheBuilder.newBuilder()
+                .expireAfterAccess(idleMinutes, TimeUnit.MINUTES)
+                .removalListener((RemovalListener<ClusterKey, SharedClient>) notification -> {
+                    Logger.debug("Drop docker client for " + notification.getKey() +
+                            " because " + notification.getCause());
+                    notification.getValue().retire();
+                })
+                .build(new CacheLoader<ClusterKey, SharedClient>() {
+                    @Override
+                    public SharedClient load(ClusterKey key) throws Exception {
+                        Logger.debug("Build docker client for " + key);
+                        return new SharedClient(key, buildClient(key.uri, key.certDirectory, key.dockerCertificates));
+                    }
+                });
+    }
+
+    @Override
+    public Lease lease(Cluster cluster) throws InternalServerException {
+        if(cluster == null || cluster.getUri() == null)
+            throw new InternalServerException("Cluster is not provisioned.");
+        try {
+            while(true) {
+                SharedClient client = clients.get(new ClusterKey(cluster));
+                //a client retired between the lookup and here is closed, the next lookup builds a new one
+                if(client.acquire())
+                    return new SharedLease(client);
+            }
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Logger.error("Unable to create docker client for " + cluster + ": " + e.getCause());
+            throw new InternalServerException(e.getCause().getLocalizedMessage());
+        }
+    }
+
+    DockerClient buildClient(String uri, String certDirectory, DockerCertificates dockerCertificates)
+            throws Exception {
+        DefaultDockerClient.Builder builder = DefaultDockerClient.builder().uri(URI.create(uri));
+        if (dockerCertificates != null)
+            builder.dockerCertificates(dockerCertificates);
+        else if (certDirectory != null)
+            builder.dockerCertificates(new DockerCertificates(Paths.get(certDirectory)));
+        return builder.build();
+    }
+
+    @Override
+    public void invalidate(Cluster cluster) {
+        if(cluster != null && cluster.getUri() != null)
+            clients.invalidate(new ClusterKey(cluster));
+    }
+
+    @Override
+    public void invalidateAll() {
+        clients.invalidateAll();
+    }
+
+    @Override
+    public long size() {
+        clients.cleanUp();
+        return clients.size();
+    }
+
+    /***
+     * Counts the leases on a client.  Once the cache drops it, the last lease to go closes it.
+     */
+    private static final class SharedClient {
+        private final ClusterKey key;
+        private final DockerClient client;
+        private int leases;
+        private boolean retired;
+        private boolean closed;
+
+        private SharedClient(ClusterKey key, DockerClient client) {
+            this.key = key;
+            this.client = client;
+        }
+
+        private synchronized boolean acquire() {
+            if (closed)
+                return false;
+            leases++;
+            return true;
+        }
+
+        private synchronized void release() {
+            leases--;
+            closeIfUnused();
+        }
+
+        private synchronized void retire() {
+            retired = true;
+            closeIfUnused();
+        }
+
+        private void closeIfUnused() {
+            if (retired && leases == 0 && !closed) {
+                Logger.debug("Close docker client for " + key);
+                closed = true;
+                client.close();
+            }
+        }
+    }
+
+    private static final class SharedLease implements Lease {
+        private final SharedClient client;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private SharedLease(SharedClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public DockerClient client() {
+            return client.client;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true))
+                client.release();
+        }
+    }
+
+    private static final class ClusterKey {
+        private final String uri;
+        private final String certDirectory;
+        //parsed with the cluster's credentials, if any.  Not part of the key
+        private final DockerCertificates dockerCertificates;
+
+        private ClusterKey(Cluster cluster) {
+            this.uri = cluster.getUri();
+            this.certDirectory = cluster.getCert_directory();
+            this.dockerCertificates = cluster.getDockerCertificates();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ClusterKey)) return false;
+            ClusterKey that = (ClusterKey) o;
+            return uri.equals(that.uri) && Objects.equals(certDirectory, that.certDirectory);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uri, certDirectory);
+        }
+
+        @Override
+        public String toString() {
+            return uri + " (" + certDirectory + ")";
+        }
+    }
+}
@@ -1,22 +1,68 @@
 package clients;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.google.inject.ImplementedBy;
+import com.google.inject.ProvidedBy;
 import exceptions.InternalServerException;
 import exceptions.NotFoundException;
 import models.Cluster;
 import models.User;
+import play.libs.F;
+
+import java.util.Date;
 
 /**
  * Created by dimi5963 on 2/29/16.
+ *
+ * Provides the docker cluster every user's repose instances run on.  docker.cluster.provider picks carina, which
+ * provisions a swarm cluster per user, or local, which hands out the local docker daemon right away.
  */
-@ImplementedBy(CarinaClient.class)
+@ProvidedBy(ClusterProvider.class)
 public interface ICarinaClient {
 
-    boolean createCluster(String clusterName, User user) throws InternalServerException, InterruptedException;
+    /***
+     * Create the cluster and wait for it to become active without holding a thread.  The status is checked with
+     * exponential backoff until docker.cluster.provision.deadline.seconds.
+     * @param clusterName cluster name
+     * @param user User model
+     * @return promise of true once the cluster is active.  Fails with InternalServerException if the cluster ends
+     * up in error state or is not active by the deadline.
+     * @throws InternalServerException if parameters are missing or carina is misconfigured
+     */
+    F.Promise<Boolean> createCluster(String clusterName, User user) throws InternalServerException;
 
     Cluster getClusterWithZip(User user, String clusterName)
             throws NotFoundException, InternalServerException;
 
+    /***
+     * Download the cluster credentials.  Fails with NotFoundException if carina has no zip for the cluster.
+     * @param user User model
+     * @param clusterName cluster name
+     * @return promise of the cluster with its certificate directory and docker uri
+     * @throws InternalServerException if parameters are missing or carina is misconfigured
+     */
+    F.Promise<Cluster> getClusterWithZipAsync(User user, String clusterName) throws InternalServerException;
+
+    /***
+     * A cluster read from the database has no parsed certificates.  With docker.cluster.certs.in.memory the
+     * files aren't on disk either, so the credentials have to be downloaded again.
+     * @param cluster Cluster model
+     * @return true if the cluster's certificates are neither parsed nor on disk
+     */
+    boolean isMissingCertificates(Cluster cluster);
+
+    /***
+     * @param cluster Cluster model
+     * @return when the cluster's client certificate expires, null if it has none or it can't be read
+     */
+    Date getCertificateExpiry(Cluster cluster);
+
     JsonNode getCluster(String clusterName, User user) throws InternalServerException;
+
+    /***
+     * @param clusterName cluster name
+     * @param user User model
+     * @return promise of the cluster status node.  Fails with NotFoundException if there is no such cluster.
+     * @throws InternalServerException if parameters are missing
+     */
+    F.Promise<JsonNode> getClusterStatus(String clusterName, User user) throws InternalServerException;
 }
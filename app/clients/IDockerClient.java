@@ -1,11 +1,14 @@
 package clients;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.ImplementedBy;
 import exceptions.InternalServerException;
 import models.*;
 
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * Created by dimi5963 on 2/29/16.
@@ -15,20 +18,78 @@ public interface IDockerClient {
 
     List<Container> getReposeContainers(Cluster cluster, User user) throws InternalServerException;
 
-    boolean startReposeInstance(Cluster cluster, String containerId) throws InternalServerException;
+    /***
+     * Start the user's repose instance.  Like every call that takes a container id, fails with
+     * InternalServerException unless the container is a repose instance labeled with the user's tenant,
+     * since users of the local provider share one docker daemon.
+     * @param cluster Cluster model
+     * @param user User model, must own the container
+     * @param containerId container id
+     * @return true once started
+     */
+    boolean startReposeInstance(Cluster cluster, User user, String containerId) throws InternalServerException;
 
-    boolean stopReposeInstance(Cluster cluster, String containerId) throws InternalServerException;
+    boolean stopReposeInstance(Cluster cluster, User user, String containerId) throws InternalServerException;
 
-    ContainerStats getReposeInstanceStats(Cluster cluster, String containerId) throws InternalServerException;
+    ContainerStats getReposeInstanceStats(Cluster cluster, User user, String containerId)
+            throws InternalServerException;
+
+    void subscribeReposeInstanceStats(Cluster cluster, User user, String containerId,
+                                      BiConsumer<String, JsonNode> listener) throws InternalServerException;
+
+    void unsubscribeReposeInstanceStats(Cluster cluster, String containerId, BiConsumer<String, JsonNode> listener);
 
-    List<Configuration> getConfigurationsForInstance(Cluster cluster, String containerId) throws InternalServerException;
+    List<Configuration> getConfigurationsForInstance(Cluster cluster, User user, String containerId,
+                                                     Set<String> names) throws InternalServerException;
 
-    String createOriginInstance(Cluster cluster, User user, String versionId) throws InternalServerException;
+    boolean reconfigureReposeInstance(Cluster cluster, User user, String containerId,
+                                      List<Configuration> configurationList) throws InternalServerException;
+
+    String createOriginInstance(Cluster cluster, User user, String versionId, BuildListener listener)
+            throws InternalServerException;
 
     String createReposeInstance(Cluster cluster, User user, String versionId,
-                                List<Configuration> configurationList)
+                                List<Configuration> configurationList, BuildListener listener)
             throws InternalServerException;
 
-    ObjectNode executeTestAgainstRepose(Cluster cluster, String containerId,
+    ObjectNode getWarmPoolStats(Cluster cluster);
+
+    ObjectNode getContainerCacheStats(Cluster cluster);
+
+    ObjectNode executeTestAgainstRepose(Cluster cluster, User user, String containerId,
                                         TestRequest testRequest, ObjectNode response) throws InternalServerException;
+
+    /***
+     * Run a batch of test requests against one repose instance.  The container and its port are looked up
+     * and the logs are copied out once for the whole batch.
+     * @param cluster Cluster model
+     * @param user User model, must own the container
+     * @param containerId container id
+     * @param testRequests test requests
+     * @param responses one node per test request.  Gets the response and the log entries tagged with the
+     *                  request's transaction id.
+     * @param concurrency how many requests run at the same time, 1 runs them in sequence
+     * @return concurrency, timings, the responses and the logs that carry none of the transaction ids
+     * @throws InternalServerException if the container can't be reached or the logs can't be read
+     */
+    ObjectNode executeTestsAgainstRepose(Cluster cluster, User user, String containerId,
+                                         List<TestRequest> testRequests, List<ObjectNode> responses, int concurrency)
+            throws InternalServerException;
+
+    /***
+     * Load test one repose instance with copies of a test request.  Wire logging is turned off for the run,
+     * so the logs of a load test are not collected.
+     * @param cluster Cluster model
+     * @param user User model, must own the container
+     * @param containerId container id
+     * @param testRequest request template
+     * @param concurrency most requests in flight at a time
+     * @param rate requests per second, 0 sends the next request as soon as one finishes
+     * @param durationMillis how long to send requests
+     * @return throughput, error and status code counts and latency percentiles
+     * @throws InternalServerException if the container can't be reached
+     */
+    ObjectNode executeLoadTestAgainstRepose(Cluster cluster, User user, String containerId,
+                                            TestRequest testRequest, int concurrency, int rate, long durationMillis)
+            throws InternalServerException;
 }
@@ -0,0 +1,29 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.ImplementedBy;
+import exceptions.InternalServerException;
+import models.TestRequest;
+
+/**
+ * Drives a repose instance with copies of one test request for a while.  Requests are sent without blocking
+ * a thread per request, so the concurrency is not limited by a thread pool.
+ */
+@ImplementedBy(LoadTestRunnerImpl.class)
+public interface LoadTestRunner {
+
+    /***
+     * Run the load test and wait for it to finish
+     * @param testRequest request template
+     * @param ip repose host
+     * @param port repose port
+     * @param concurrency most requests in flight at a time
+     * @param rate requests per second to send.  0 sends the next request as soon as one finishes.
+     * @param durationMillis how long to send requests
+     * @param timeoutMillis timeout of every request
+     * @return sent, completed, errors, dropped, throughput, statusCodes and latencyMicros percentiles
+     * @throws InternalServerException if interrupted
+     */
+    ObjectNode run(TestRequest testRequest, String ip, String port, int concurrency, int rate,
+                   long durationMillis, long timeoutMillis) throws InternalServerException;
+}
@@ -0,0 +1,162 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import exceptions.InternalServerException;
+import models.LatencyHistogram;
+import models.TestRequest;
+import play.Logger;
+import play.libs.F;
+import play.libs.Json;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Without a rate every one of the concurrency slots sends its next request when the previous one finishes.
+ * With a rate the scheduler sends on a fixed period, and a tick that finds every slot taken is dropped instead
+ * of queued, so a slow instance shows up as dropped requests and not as an ever growing backlog.
+ */
+@Singleton
+public class LoadTestRunnerImpl implements LoadTestRunner {
+
+    private final TestClient testClient;
+    private final ClusterExecutors clusterExecutors;
+
+    @Inject
+    public LoadTestRunnerImpl(TestClient testClient, ClusterExecutors clusterExecutors) {
+        this.testClient = testClient;
+        this.clusterExecutors = clusterExecutors;
+    }
+
+    @Override
+    public ObjectNode run(TestRequest testRequest, String ip, String port, int concurrency, int rate,
+                          long durationMillis, long timeoutMillis) throws InternalServerException {
+        Logger.debug("Load test " + ip + ":" + port + " with concurrency " + concurrency + " and rate " + rate +
+                " for " + durationMillis + " ms");
+        long start = System.nanoTime();
+        Run run = new Run(testRequest, ip, port, concurrency, timeoutMillis,
+                start + TimeUnit.MILLISECONDS.toNanos(durationMillis));
+        try {
+            if (rate <= 0) {
+                for (int slot = 0; slot < concurrency; slot++) {
+                    run.inFlight.acquire();
+                    sendNext(run);
+                }
+            } else {
+                ScheduledFuture<?> ticker = clusterExecutors.getScheduler().scheduleAtFixedRate(() -> tick(run),
+                        0, Math.max(1, TimeUnit.SECONDS.toNanos(1) / rate), TimeUnit.NANOSECONDS);
+                try {
+                    ticker.get(durationMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException te) {
+                    //the ticker runs until cancelled, this is the normal way out
+                } catch (ExecutionException ee) {
+                    Logger.warn("Load test ticker failed: " + ee.getCause().getLocalizedMessage());
+                } finally {
+                    ticker.cancel(false);
+                }
+            }
+            //let the requests in flight finish
+            if (!run.inFlight.tryAcquire(concurrency, timeoutMillis + 1000, TimeUnit.MILLISECONDS))
+                Logger.warn("Load test requests still in flight after the timeout");
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException("Load test was interrupted.");
+        }
+        return toJson(run, concurrency, rate, System.nanoTime() - start);
+    }
+
+    private void sendNext(Run run) {
+        if (System.nanoTime() >= run.end) {
+            run.inFlight.release();
+            return;
+        }
+        send(run, () -> sendNext(run));
+    }
+
+    private void tick(Run run) {
+        if (System.nanoTime() >= run.end)
+            return;
+        if (run.inFlight.tryAcquire())
+            send(run, run.inFlight::release);
+        else
+            run.dropped.incrementAndGet();
+    }
+
+    private void send(Run run, Runnable next) {
+        long sentAt = System.nanoTime();
+        run.sent.incrementAndGet();
+        F.Promise<Integer> response;
+        try {
+            response = testClient.sendTestRequest(run.testRequest, run.ip, run.port, run.timeoutMillis);
+        } catch (RuntimeException e) {
+            //could not even send it, give the slot up instead of spinning on the same failure
+            Logger.warn("Unable to send load test request: " + e.getLocalizedMessage());
+            run.errors.incrementAndGet();
+            run.inFlight.release();
+            return;
+        }
+        response.onRedeem(status -> {
+            run.latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+            run.statusCodes.computeIfAbsent(status, code -> new AtomicLong()).incrementAndGet();
+            run.completed.incrementAndGet();
+            next.run();
+        });
+        response.onFailure(throwable -> {
+            run.errors.incrementAndGet();
+            next.run();
+        });
+    }
+
+    private ObjectNode toJson(Run run, int concurrency, int rate, long elapsedNanos) {
+        ObjectNode result = Json.newObject();
+        result.put("concurrency", concurrency);
+        result.put("rate", rate);
+        result.put("durationMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        result.put("sent", run.sent.get());
+        result.put("completed", run.completed.get());
+        result.put("errors", run.errors.get());
+        result.put("dropped", run.dropped.get());
+        result.put("unfinished", run.sent.get() - run.completed.get() - run.errors.get());
+        result.put("throughput", elapsedNanos == 0 ? 0 :
+                Math.round(run.completed.get() * 100.0 * TimeUnit.SECONDS.toNanos(1) / elapsedNanos) / 100.0);
+        ObjectNode statusCodes = result.putObject("statusCodes");
+        Map<Integer, AtomicLong> sortedStatusCodes = new TreeMap<>(run.statusCodes);
+        sortedStatusCodes.forEach((status, count) -> statusCodes.put(String.valueOf(status), count.get()));
+        result.set("latencyMicros", run.latencies.toJson());
+        return result;
+    }
+
+    private static final class Run {
+        private final TestRequest testRequest;
+        private final String ip;
+        private final String port;
+        private final long timeoutMillis;
+        private final long end;
+        private final Semaphore inFlight;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final ConcurrentMap<Integer, AtomicLong> statusCodes = new ConcurrentHashMap<>();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        private Run(TestRequest testRequest, String ip, String port, int concurrency, long timeoutMillis, long end) {
+            this.testRequest = testRequest;
+            this.ip = ip;
+            this.port = port;
+            this.timeoutMillis = timeoutMillis;
+            this.end = end;
+            this.inFlight = new Semaphore(concurrency);
+        }
+    }
+}
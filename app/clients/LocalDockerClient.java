@@ -0,0 +1,86 @@
+package clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.inject.Inject;
+import exceptions.InternalServerException;
+import exceptions.NotFoundException;
+import factories.IClusterFactory;
+import models.Cluster;
+import models.User;
+import play.Logger;
+import play.libs.F;
+import play.libs.Json;
+
+import java.util.Date;
+
+/**
+ * Hands out the docker daemon at docker.local.uri as every user's cluster.  There is nothing to provision or
+ * download, so the cluster is always active and the credentials are docker.local.cert.path, if any.
+ */
+public class LocalDockerClient implements ICarinaClient {
+
+    private static final String ACTIVE = "active";
+
+    private final IClusterFactory clusterFactory;
+
+    @Inject
+    public LocalDockerClient(IClusterFactory clusterFactory) {
+        this.clusterFactory = clusterFactory;
+    }
+
+    @Override
+    public F.Promise<Boolean> createCluster(String clusterName, User user) throws InternalServerException {
+        checkParameters(clusterName, user);
+        Logger.debug("Cluster " + clusterName + " is the local docker daemon, nothing to create");
+        return F.Promise.pure(true);
+    }
+
+    @Override
+    public Cluster getClusterWithZip(User user, String clusterName)
+            throws NotFoundException, InternalServerException {
+        return getLocalCluster(user, clusterName);
+    }
+
+    @Override
+    public F.Promise<Cluster> getClusterWithZipAsync(User user, String clusterName) throws InternalServerException {
+        return F.Promise.pure(getLocalCluster(user, clusterName));
+    }
+
+    private Cluster getLocalCluster(User user, String clusterName) throws InternalServerException {
+        checkParameters(clusterName, user);
+        Cluster reposeCluster = new Cluster();
+        reposeCluster.setName(clusterName);
+        reposeCluster.setUser(user.id);
+        reposeCluster.setUri(clusterFactory.getLocalDockerUri());
+        reposeCluster.setCert_directory(clusterFactory.getLocalDockerCertPath());
+        Logger.debug("Local cluster " + reposeCluster);
+        return reposeCluster;
+    }
+
+    @Override
+    public boolean isMissingCertificates(Cluster cluster) {
+        //the local certificates are managed outside of the playground
+        return false;
+    }
+
+    @Override
+    public Date getCertificateExpiry(Cluster cluster) {
+        return null;
+    }
+
+    @Override
+    public JsonNode getCluster(String clusterName, User user) throws InternalServerException {
+        return getClusterStatus(clusterName, user).get(0);
+    }
+
+    @Override
+    public F.Promise<JsonNode> getClusterStatus(String clusterName, User user) throws InternalServerException {
+        checkParameters(clusterName, user);
+        return F.Promise.pure(Json.toJson(ACTIVE));
+    }
+
+    private void checkParameters(String clusterName, User user) throws InternalServerException {
+        if(user == null || clusterName == null)
+            throw new InternalServerException("Required parameters were not provided.");
+    }
+}
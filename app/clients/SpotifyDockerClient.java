@@ -1,15 +1,23 @@
 package clients;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import com.spotify.docker.client.*;
 import com.spotify.docker.client.messages.*;
 import exceptions.InternalServerException;
+import exceptions.NotFoundException;
+import factories.ArchiveFactory;
+import factories.ConfigurationFactory;
 import factories.ICarinaFactory;
+import factories.IClusterFactory;
 import factories.IContainerFactory;
+import factories.ImageFactory;
+import factories.LogFactory;
 import factories.TestFactory;
+import models.BuildContext;
 import models.Cluster;
 import models.Configuration;
 import models.TestRequest;
@@ -17,18 +25,32 @@ import models.User;
 import org.joda.time.DateTime;
 import play.libs.Json;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.net.URI;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.function.Predicate;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static play.Logger.*;
 
@@ -37,12 +59,34 @@ import static play.Logger.*;
  */
 public class SpotifyDockerClient implements IDockerClient {
 
+    private static final String REPOSE_CONFIG_DIRECTORY = "/etc/repose";
+    private static final String REPOSE_LOG_DIRECTORY = "/var/log/repose";
+    private static final List<String> REPOSE_LOGS =
+            Arrays.asList("current.log", "http-debug.log", "intra-filter.log", "error.log");
+
+    private static final String ORIGIN_IMAGE = "repose-origin";
+    private static final List<String> ORIGIN_FILES = Arrays.asList("Dockerfile", "backend.js", "package.json");
+
     private final IContainerFactory<
             com.spotify.docker.client.messages.Container,
             com.spotify.docker.client.messages.ContainerStats> containerFactory;
     private final ICarinaFactory carinaFactory;
     private final TestClient testClient;
     private final TestFactory testFactory;
+    private final DockerClientCache dockerClientCache;
+    private final ClusterExecutors clusterExecutors;
+    private final IClusterFactory clusterFactory;
+    private final ContainerStatsStream containerStatsStream;
+    private final ArchiveFactory archiveFactory;
+    private final ImageFactory imageFactory;
+    private final WarmPool warmPool;
+    private final ConfigurationFactory configurationFactory;
+    private final ContainerStateCache containerStateCache;
+    private final BuildCoordinator buildCoordinator;
+    private final LogFactory logFactory;
+    private final LoadTestRunner loadTestRunner;
+    //names of the warm containers being started, builds leave them alone until they are in the pool
+    private final Set<String> startingWarmContainers = ConcurrentHashMap.newKeySet();
 
     @Inject
     public SpotifyDockerClient(IContainerFactory<
@@ -50,15 +94,40 @@ public class SpotifyDockerClient implements IDockerClient {
             com.spotify.docker.client.messages.ContainerStats> containerFactory,
                                ICarinaFactory carinaFactory,
                                TestClient testClient,
-                               TestFactory testFactory){
+                               TestFactory testFactory,
+                               DockerClientCache dockerClientCache,
+                               ClusterExecutors clusterExecutors,
+                               IClusterFactory clusterFactory,
+                               ContainerStatsStream containerStatsStream,
+                               ArchiveFactory archiveFactory,
+                               ImageFactory imageFactory,
+                               WarmPool warmPool,
+                               ConfigurationFactory configurationFactory,
+                               ContainerStateCache containerStateCache,
+                               BuildCoordinator buildCoordinator,
+                               LogFactory logFactory,
+                               LoadTestRunner loadTestRunner){
         this.containerFactory = containerFactory;
         this.carinaFactory = carinaFactory;
         this.testClient = testClient;
         this.testFactory = testFactory;
+        this.dockerClientCache = dockerClientCache;
+        this.clusterExecutors = clusterExecutors;
+        this.clusterFactory = clusterFactory;
+        this.containerStatsStream = containerStatsStream;
+        this.archiveFactory = archiveFactory;
+        this.imageFactory = imageFactory;
+        this.warmPool = warmPool;
+        this.configurationFactory = configurationFactory;
+        this.containerStateCache = containerStateCache;
+        this.buildCoordinator = buildCoordinator;
+        this.logFactory = logFactory;
+        this.loadTestRunner = loadTestRunner;
     }
 
     /***
-     * Return list of container models that have repose names
+     * Return list of the user's repose container models.  The containers come from the container state cache,
+     * only their stats are read from the cluster.
      * @param cluster Cluster model
      * @param user User model
      * @return List of Container models
@@ -66,21 +135,17 @@ public class SpotifyDockerClient implements IDockerClient {
     @Override
     public List<models.Container> getReposeContainers(Cluster cluster, User user) throws InternalServerException {
         debug("Retrieve repose containers for " + cluster);
-        final com.spotify.docker.client.DockerClient docker;
-        try {
-            docker = DefaultDockerClient.builder()
-                    .uri(URI.create(cluster.getUri()))
-                    .dockerCertificates(new DockerCertificates(Paths.get(cluster.getCert_directory())))
-                    .build();
-            List<com.spotify.docker.client.messages.Container> containerList =
-                    docker.listContainers(com.spotify.docker.client.DockerClient.ListContainersParam.allContainers());
-            List<models.Container> reposeInstanceList = containerFactory.translateContainers(containerList, user);
-            for(models.Container reposeInstance: reposeInstanceList)
-                reposeInstance.setContainerStats(getReposeInstanceStats(cluster, reposeInstance.getId()));
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            final com.spotify.docker.client.DockerClient docker = lease.client();
+            List<models.Container> reposeInstanceList =
+                    containerStateCache.getContainers(cluster, user, () -> listReposeContainers(cluster, user));
+            //idle warm containers are not anybody's instance yet
+            reposeInstanceList.removeIf(reposeInstance -> warmPool.isIdle(cluster, reposeInstance.getId()));
+            fetchContainerStats(cluster, docker, reposeInstanceList);
 
             return reposeInstanceList;
 
-        } catch (DockerCertificateException | InterruptedException | DockerException e) {
+        } catch (InterruptedException e) {
             error("Unable to retrieve containers: " + e.getLocalizedMessage());
             e.printStackTrace();
             throw new InternalServerException(e.getLocalizedMessage());
@@ -88,214 +153,502 @@ public class SpotifyDockerClient implements IDockerClient {
 
     }
 
+    private List<models.Container> listReposeContainers(Cluster cluster, User user) throws InternalServerException {
+        debug("List repose containers for " + user.tenant + " on " + cluster);
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            List<com.spotify.docker.client.messages.Container> containerList =
+                    lease.client().listContainers(
+                            com.spotify.docker.client.DockerClient.ListContainersParam.allContainers(),
+                            labelFilter(getLabels(user, null, IContainerFactory.ROLE_REPOSE)));
+            return containerFactory.translateContainers(containerList, user);
+        } catch (InterruptedException | DockerException e) {
+            error("Unable to retrieve containers: " + e.getLocalizedMessage());
+            throw new InternalServerException(e.getLocalizedMessage());
+        }
+    }
+
     @Override
-    public boolean startReposeInstance(Cluster cluster, String containerId) throws InternalServerException {
-        final com.spotify.docker.client.DockerClient docker;
-        try {
-            docker = DefaultDockerClient.builder()
-                    .uri(URI.create(cluster.getUri()))
-                    .dockerCertificates(new DockerCertificates(Paths.get(cluster.getCert_directory())))
-                    .build();
+    public boolean startReposeInstance(Cluster cluster, User user, String containerId)
+            throws InternalServerException {
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            final com.spotify.docker.client.DockerClient docker = lease.client();
+            inspectReposeInstance(docker, user, containerId);
             docker.startContainer(containerId);
+            containerStateCache.update(cluster, containerId, true);
             return true;
-        } catch (DockerCertificateException | DockerException | InterruptedException e) {
+        } catch (DockerException | InterruptedException e) {
             e.printStackTrace();
             throw new InternalServerException(e.getMessage());
         }
     }
 
     @Override
-    public boolean stopReposeInstance(Cluster cluster, String containerId) throws InternalServerException {
-        final com.spotify.docker.client.DockerClient docker;
-        try {
-            docker = DefaultDockerClient.builder()
-                    .uri(URI.create(cluster.getUri()))
-                    .dockerCertificates(new DockerCertificates(Paths.get(cluster.getCert_directory())))
-                    .build();
+    public boolean stopReposeInstance(Cluster cluster, User user, String containerId)
+            throws InternalServerException {
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            final com.spotify.docker.client.DockerClient docker = lease.client();
+            inspectReposeInstance(docker, user, containerId);
             docker.stopContainer(containerId, 5);
+            containerStateCache.update(cluster, containerId, false);
             return true;
-        } catch (DockerCertificateException | DockerException | InterruptedException e) {
+        } catch (DockerException | InterruptedException e) {
             e.printStackTrace();
             throw new InternalServerException(e.getMessage());
         }
     }
 
     @Override
-    public models.ContainerStats getReposeInstanceStats(Cluster cluster, String containerId) throws InternalServerException {
-        final com.spotify.docker.client.DockerClient docker;
-        try {
-            docker = DefaultDockerClient.builder()
-                    .uri(URI.create(cluster.getUri()))
-                    .dockerCertificates(new DockerCertificates(Paths.get(cluster.getCert_directory())))
-                    .build();
+    public models.ContainerStats getReposeInstanceStats(Cluster cluster, User user, String containerId)
+            throws InternalServerException {
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            final com.spotify.docker.client.DockerClient docker = lease.client();
+            inspectReposeInstance(docker, user, containerId);
             com.spotify.docker.client.messages.ContainerStats containerStats = docker.stats(containerId);
             return containerFactory.translateContainerStats(containerStats);
-        } catch (DockerCertificateException | InterruptedException | DockerException e) {
+        } catch (InterruptedException | DockerException e) {
             error("Unable to retrieve containers: " + e.getLocalizedMessage());
             e.printStackTrace();
             throw new InternalServerException(e.getLocalizedMessage());
         }
     }
 
-    public List<Configuration> getConfigurationsForInstance(Cluster cluster, String containerId) throws InternalServerException {
-        final com.spotify.docker.client.DockerClient docker;
-        List<Configuration> configurations = new ArrayList<>();
-        try {
-        docker = DefaultDockerClient.builder()
-        .uri(URI.create(cluster.getUri()))
-        .dockerCertificates(new DockerCertificates(Paths.get(cluster.getCert_directory())))
-        .build();
-            List<String> xmlStringList = Arrays.asList(docker.execStart(
-                    executeCommand(containerId, docker,
-                            new String[]{"sh", "-c", "ls *.xml"})).readFully().split("\n"));
-            xmlStringList.forEach(filter -> {
-                        try {
-                            configurations.add(new Configuration(filter, docker.execStart(
-                                    executeCommand(containerId, docker,
-                                            new String[]{"sh", "-c", "cat " + filter})).readFully()));
-                        } catch (DockerException | InterruptedException e) {
-                            e.printStackTrace();
-                            error("Unable to retrieve configuration: " + filter);
-                        }
-                    }
-            );
-        } catch (DockerCertificateException | DockerException | InterruptedException e) {
-            e.printStackTrace();
-            throw new InternalServerException(e.getMessage());
+    @Override
+    public void subscribeReposeInstanceStats(Cluster cluster, User user, String containerId,
+                                             BiConsumer<String, JsonNode> listener) throws InternalServerException {
+        debug("Subscribe to stats for " + containerId);
+        //fail fast on bad certs or somebody else's container instead of on the first poll
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            inspectReposeInstance(lease.client(), user, containerId);
+        } catch (DockerException | InterruptedException e) {
+            error("Unable to subscribe to stats: " + e.getLocalizedMessage());
+            throw new InternalServerException(e.getLocalizedMessage());
         }
-
-        return configurations;
+        containerStatsStream.subscribe(cluster, containerId, listener);
     }
 
     @Override
-    public String createOriginInstance(Cluster cluster, User user, String versionId) throws InternalServerException {
-        final com.spotify.docker.client.DockerClient docker;
+    public void unsubscribeReposeInstanceStats(Cluster cluster, String containerId,
+                                               BiConsumer<String, JsonNode> listener) {
+        debug("Unsubscribe from stats for " + containerId);
+        containerStatsStream.unsubscribe(cluster, containerId, listener);
+    }
 
-        try {
-            docker = DefaultDockerClient.builder()
-                    .uri(URI.create(cluster.getUri()))
-                    .dockerCertificates(new DockerCertificates(Paths.get(cluster.getCert_directory())))
-                    .build();
+    public List<Configuration> getConfigurationsForInstance(Cluster cluster, User user, String containerId,
+                                                            Set<String> names) throws InternalServerException {
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            final com.spotify.docker.client.DockerClient docker = lease.client();
+            inspectReposeInstance(docker, user, containerId);
+            //one copy of the whole config directory instead of an exec per file
+            try (InputStream configArchive = docker.copyContainer(containerId, REPOSE_CONFIG_DIRECTORY)) {
+                Map<String, String> configurations = archiveFactory.readTextFiles(configArchive,
+                        fileName -> fileName.endsWith(".xml") &&
+                                (names == null || names.isEmpty() || names.contains(fileName)));
+                return new TreeMap<>(configurations).entrySet().stream()
+                        .map(configuration -> new Configuration(configuration.getKey(), configuration.getValue()))
+                        .collect(Collectors.toList());
+            }
+        } catch (DockerException | InterruptedException | IOException e) {
+            e.printStackTrace();
+            throw new InternalServerException(e.getMessage());
+        }
+    }
 
-            //write docker file for new image
-            generateOriginDockerfile(user);
+    /***
+     * Push configurations into the running container's /etc/repose and wait for repose to pick them up.
+     * Repose watches its config directory, so there is no need to rebuild the image or restart.
+     * @param cluster Cluster model
+     * @param user User model, must own the container
+     * @param containerId container id
+     * @param configurationList configurations to overwrite
+     * @return true if repose logged the reload before docker.reconfigure.timeout.millis
+     * @throws InternalServerException
+     */
+    @Override
+    public boolean reconfigureReposeInstance(Cluster cluster, User user, String containerId,
+                                             List<Configuration> configurationList) throws InternalServerException {
+        debug("reconfigure repose instance " + containerId);
+        if(configurationList == null || configurationList.isEmpty())
+            throw new InternalServerException("Must provide at least one configuration.");
+        Path configDirectory = null;
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            final com.spotify.docker.client.DockerClient docker = lease.client();
+            inspectReposeInstance(docker, user, containerId);
+            long currentLogOffset = getReposeLogOffsets(containerId, docker).getOrDefault("current.log", 0L);
 
-            //remove all containers with image
-            removeRunningContainers(user, versionId, docker, "repose-origin-");
+            configDirectory = Files.createTempDirectory("repose-reconfigure-");
+            for(Configuration configuration: configurationList) {
+                Files.write(configDirectory.resolve(Paths.get(configuration.getName()).getFileName()),
+                        configuration.getXml().getBytes(StandardCharsets.UTF_8));
+            }
+            docker.copyToContainer(configDirectory, containerId, REPOSE_CONFIG_DIRECTORY);
 
-            //build an image with origin service
-            return buildOriginImage(cluster, user, versionId, docker);
-        } catch (DockerCertificateException | DockerException | InterruptedException e) {
+            return waitForReload(containerId, docker, currentLogOffset,
+                    configurationList.stream().map(Configuration::getName).collect(Collectors.toList()));
+        } catch (DockerException | InterruptedException | IOException e) {
             e.printStackTrace();
             throw new InternalServerException(e.getMessage());
+        } finally {
+            deleteDirectory(configDirectory);
+        }
+    }
+
+    @Override
+    public String createOriginInstance(Cluster cluster, User user, String versionId, BuildListener listener)
+            throws InternalServerException {
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            final com.spotify.docker.client.DockerClient docker = lease.client();
+
+            //one origin image per content, shared by every tenant and version
+            getOriginImage(cluster, user, docker, listener);
+
+            //concurrent requests for the same origin container get the one that was started first
+            return buildCoordinator.run(user.tenant, ORIGIN_IMAGE + "-" + versionId, ORIGIN_IMAGE, () -> {
+                try {
+                    //remove the tenant's origin container for the version
+                    removeRunningContainers(user, versionId, docker, IContainerFactory.ROLE_ORIGIN);
+                    removeNamedContainer(docker, "repose-origin-" + user.tenant + "-" + versionId.replace('.', '-'));
+
+                    listener.phase(BuildListener.CONTAINER);
+                    return startOriginContainer(user, versionId, docker);
+                } catch (DockerException | InterruptedException e) {
+                    e.printStackTrace();
+                    throw new InternalServerException(e.getMessage());
+                }
+            });
         }
     }
 
     @Override
     public String createReposeInstance(Cluster cluster, User user,
-                                       String versionId, List<Configuration> configurationList)
+                                       String versionId, List<Configuration> configurationList,
+                                       BuildListener listener)
             throws InternalServerException {
         debug("create repose instance " + user + " and version: " + versionId);
         if(configurationList == null)
             throw new InternalServerException("Must provide at least core configs.");
-        final com.spotify.docker.client.DockerClient docker;
+        warmPool.recordUsage(cluster, versionId);
+
+        listener.phase(BuildListener.DOCKERFILE);
+        //dockerfile and configs for the new image.  Requests with the same content hash are the same build.
+        BuildContext buildContext = getReposeBuildContext(versionId, configurationList);
+
+        String reposeId;
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            reposeId = buildCoordinator.run(user.tenant, versionId, buildContext.getContentHash(), () ->
+                    claimOrBuildReposeInstance(cluster, user, versionId, configurationList, lease.client(),
+                            buildContext, listener));
+        }
+        containerStateCache.resync(cluster, user);
+        refillWarmPool(cluster, user);
+        return reposeId;
+    }
+
+    /***
+     * Replace the tenant's repose instance for the version with a warm container if there is one,
+     * otherwise build one.  Runs in the tenant's build lane for the version.
+     */
+    private String claimOrBuildReposeInstance(Cluster cluster, User user, String versionId,
+                                              List<Configuration> configurationList, DockerClient docker,
+                                              BuildContext buildContext, BuildListener listener)
+            throws InternalServerException {
         try {
-            docker = DefaultDockerClient.builder()
-                    .uri(URI.create(cluster.getUri()))
-                    .dockerCertificates(new DockerCertificates(Paths.get(cluster.getCert_directory())))
-                    .build();
-            //write our filters to repose config directory
-            writeFiltersToReposeConfigDirectory(user, configurationList);
-
-            //write docker file for new image
-            generateReposeDockerfile(user, versionId);
-
-            //remove all containers with image
-            removeRunningContainers(user, versionId, docker, "repose-");
-
-            //build an image with repose
-            return buildReposeImage(cluster, user, versionId, docker);
-        } catch (DockerCertificateException | DockerException | InterruptedException e) {
+            //take a pre-started container and push the configs into it if there is one
+            String warmContainerId = warmPool.claim(cluster, versionId);
+            if(warmContainerId != null) {
+                try {
+                    listener.phase(BuildListener.CONTAINER);
+                    claimWarmReposeInstance(cluster, user, versionId, configurationList, docker, warmContainerId);
+                    return warmContainerId;
+                } catch (InternalServerException | DockerException ise) {
+                    warn("Unable to use warm container " + warmContainerId + ", build instead: " +
+                            ise.getLocalizedMessage());
+                    removeContainer(docker, warmContainerId);
+                }
+            }
+
+            //remove the tenant's repose containers for the version, except the idle warm ones
+            removeRunningContainers(user, versionId, docker, IContainerFactory.ROLE_REPOSE,
+                    warmPool.getIdle(cluster, versionId));
+            removeNamedContainer(docker, "repose-" + user.tenant + "-" + versionId.replace('.','_'));
+
+            //build an image with repose, unless one with the same content is already there
+            return buildReposeImage(cluster, user, versionId, docker, buildContext, listener);
+        } catch (DockerException | InterruptedException e) {
             e.printStackTrace();
             throw new InternalServerException(e.getMessage());
         }
     }
 
     @Override
-    public ObjectNode executeTestAgainstRepose(Cluster cluster, String containerId, TestRequest testRequest,
-                                               ObjectNode response) throws InternalServerException {
+    public ObjectNode executeTestAgainstRepose(Cluster cluster, User user, String containerId,
+                                               TestRequest testRequest, ObjectNode response)
+            throws InternalServerException {
         debug("test repose instance");
-        final com.spotify.docker.client.DockerClient docker;
-        try {
-            docker = DefaultDockerClient.builder()
-                    .uri(URI.create(cluster.getUri()))
-                    .dockerCertificates(new DockerCertificates(Paths.get(cluster.getCert_directory())))
-                    .build();
-            //clean up logs
-            cleanUpLogs(containerId, docker);
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            final com.spotify.docker.client.DockerClient docker = lease.client();
+            PortBinding portBinding = getReposePortBinding(inspectReposeInstance(docker, user, containerId));
+
+            //remember where the logs end so we only read what this request appended
+            Map<String, Long> logOffsets = getReposeLogOffsets(containerId, docker);
 
             //make a request
-            ContainerInfo containerInfo = docker.inspectContainer(containerId);
-            debug("container info:" + containerInfo);
-            debug("container network port info:" + containerInfo.networkSettings().ports());
-            debug("port stuff: " + containerInfo.networkSettings().ports().get("8080/tcp"));
-            PortBinding portBinding = containerInfo.networkSettings().ports().get("8080/tcp").get(0);
-            debug("container info:" + portBinding.hostIp());
 
             ObjectNode responseNode = testClient.makeTestRequest(testRequest, portBinding.hostIp(), portBinding.hostPort());
 
-            //get the logs out
-            //this will get split up into connection pool and request/response messages
-            List<String> httpDebugLogList = Arrays.asList(docker.execStart(
-                    executeCommand(containerId, docker,
-                            new String[]{"cat", "/var/log/repose/http-debug.log"})).readFully().split("\n"));
+            //read only what the request appended to the logs
+            long logCollectionStart = System.currentTimeMillis();
+            readReposeLogs(containerId, docker, logOffsets, Collections.singletonList(response),
+                    Collections.singletonList(responseNode.path("transId").asText(null)), response);
+            response.put("logCollectionMillis", System.currentTimeMillis() - logCollectionStart);
 
-            Map<String, ?> debugMessageMap = testFactory.generateDebugMessageMap(httpDebugLogList);
+            response.putPOJO("response", responseNode);
+            debug("response: " + response);
+            return response;
+        } catch (DockerException | InterruptedException e) {
+            e.printStackTrace();
+            throw new InternalServerException(e.getMessage());
+        }
+    }
 
-            //if line containers ERROR, start a new entry
-            List<String> errorLogList = Arrays.asList(docker.execStart(
-                    executeCommand(containerId, docker,
-                            new String[]{"cat", "/var/log/repose/error.log"})).readFully().split(Pattern.quote("ERROR")));
-            List<JsonNode> intraFilterLogList = Arrays.asList(docker.execStart(
-                    executeCommand(containerId, docker,
-                            new String[]{"cat", "/var/log/repose/intra-filter.log"})).readFully().split("\n")).
-                    stream().map(entry -> Json.parse(
-                    entry.split(Pattern.quote("TRACE intrafilter-logging - "))[1])).collect(Collectors.toList());
+    @Override
+    public ObjectNode executeTestsAgainstRepose(Cluster cluster, User user, String containerId,
+                                                List<TestRequest> testRequests, List<ObjectNode> responses,
+                                                int concurrency) throws InternalServerException {
+        debug("test repose instance with " + testRequests.size() + " requests");
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            final com.spotify.docker.client.DockerClient docker = lease.client();
+            //look the container up once for the whole batch
+            PortBinding portBinding = getReposePortBinding(inspectReposeInstance(docker, user, containerId));
+            Map<String, Long> logOffsets = getReposeLogOffsets(containerId, docker);
 
+            ObjectNode batch = Json.newObject();
+            int parallelism = Math.max(1, Math.min(concurrency, clusterFactory.getTestParallelism()));
+            batch.put("concurrency", parallelism);
 
-            response.put("current", docker.execStart(
-                    executeCommand(containerId, docker,
-                            new String[]{"cat", "/var/log/repose/current.log"})).readFully());
-            response.putPOJO("error", Json.toJson(errorLogList));
-            response.putPOJO("http-debug", Json.toJson(debugMessageMap));
-            response.putPOJO("intra-filter", Json.toJson(intraFilterLogList));
+            long requestStart = System.currentTimeMillis();
+            String[] transIds = new String[testRequests.size()];
+            IntConsumer runTest = index -> {
+                try {
+                    ObjectNode responseNode = testClient.makeTestRequest(testRequests.get(index),
+                            portBinding.hostIp(), portBinding.hostPort());
+                    transIds[index] = responseNode.path("transId").asText(null);
+                    responses.get(index).putPOJO("response", responseNode);
+                } catch (RuntimeException e) {
+                    warn("Test request " + index + " against " + containerId + " failed: " + e.getLocalizedMessage());
+                    responses.get(index).put("message", e.getLocalizedMessage());
+                }
+            };
+            if(parallelism == 1) {
+                for(int index = 0; index < testRequests.size(); index++)
+                    runTest.accept(index);
+            } else {
+                runConcurrently(cluster, parallelism, testRequests.size(), runTest);
+            }
+            batch.put("requestMillis", System.currentTimeMillis() - requestStart);
 
-            response.putPOJO("response", responseNode);
-            debug("response: " + response);
-            return response;
-        } catch (DockerCertificateException | DockerException | InterruptedException e) {
+            //every request gets the log entries of its transaction id, whether they ran in sequence or not
+            long logCollectionStart = System.currentTimeMillis();
+            readReposeLogs(containerId, docker, logOffsets, responses, Arrays.asList(transIds),
+                    batch.putObject("logs"));
+            batch.put("logCollectionMillis", System.currentTimeMillis() - logCollectionStart);
+
+            batch.putArray("responses").addAll(responses);
+            debug("batch response: " + batch);
+            return batch;
+        } catch (DockerException | InterruptedException e) {
             e.printStackTrace();
             throw new InternalServerException(e.getMessage());
         }
     }
 
-    private String buildOriginImage(Cluster cluster, User user, String versionId, DockerClient docker) throws DockerException, InterruptedException, InternalServerException {
+    @Override
+    public ObjectNode executeLoadTestAgainstRepose(Cluster cluster, User user, String containerId,
+                                                   TestRequest testRequest, int concurrency, int rate,
+                                                   long durationMillis) throws InternalServerException {
+        debug("load test repose instance " + containerId);
+        final PortBinding portBinding;
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            portBinding = getReposePortBinding(inspectReposeInstance(lease.client(), user, containerId));
+        } catch (DockerException | InterruptedException e) {
+            e.printStackTrace();
+            throw new InternalServerException(e.getMessage());
+        }
+
+        //wire logging writes out every byte repose proxies, keep it off for the run and put it back after
+        List<Configuration> loggingConfigurations =
+                getConfigurationsForInstance(cluster, user, containerId, Collections.singleton("log4j2.xml"));
+        boolean wireLoggingDisabled = false;
+        if(!loggingConfigurations.isEmpty()) {
+            try {
+                wireLoggingDisabled = reconfigureReposeInstance(cluster, user, containerId, Collections.singletonList(
+                        new Configuration("log4j2.xml",
+                                configurationFactory.disableWireLogging(loggingConfigurations.get(0).getXml()))));
+            } catch (InternalServerException ise) {
+                warn("Unable to disable wire logging for " + containerId + ": " + ise.getLocalizedMessage());
+            }
+        }
         try {
-            debug("Build image with " + cluster + " at " + DateTime.now());
-            removeAndBuildImage(user, versionId, docker, "repose-origin-",
-                    Paths.get(carinaFactory.getOriginImageDirectory(user.tenant).toString()));
+            ObjectNode result = loadTestRunner.run(testRequest, portBinding.hostIp(), portBinding.hostPort(),
+                    concurrency, rate, durationMillis, clusterFactory.getLoadTestRequestTimeoutMillis());
+            result.put("wireLoggingDisabled", wireLoggingDisabled);
+            return result;
+        } finally {
+            if(!loggingConfigurations.isEmpty()) {
+                try {
+                    reconfigureReposeInstance(cluster, user, containerId, loggingConfigurations);
+                } catch (InternalServerException ise) {
+                    warn("Unable to restore logging for " + containerId + ": " + ise.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    /***
+     * Look the container up and make sure it is one of the user's repose instances.  Every user of the local
+     * provider talks to the same docker daemon, so a container id alone doesn't mean the container is theirs.
+     * @return ContainerInfo of the user's container
+     * @throws InternalServerException if the container is not a repose instance of the user's tenant
+     */
+    private ContainerInfo inspectReposeInstance(DockerClient docker, User user, String containerId)
+            throws DockerException, InterruptedException, InternalServerException {
+        ContainerInfo containerInfo = docker.inspectContainer(containerId);
+        Map<String, String> labels = containerInfo.config() == null ? null : containerInfo.config().labels();
+        if(labels == null || user == null || user.tenant == null ||
+                !user.tenant.equals(labels.get(IContainerFactory.TENANT_LABEL)) ||
+                !IContainerFactory.ROLE_REPOSE.equals(labels.get(IContainerFactory.ROLE_LABEL))) {
+            warn("Container " + containerId + " is not a repose instance of " + (user == null ? null : user.tenant));
+            throw new InternalServerException("Repose instance " + containerId + " not found.");
+        }
+        return containerInfo;
+    }
 
-            ContainerConfig containerConfig = ContainerConfig.builder()
-                    .image("repose-origin-" + user.tenant + "-" + versionId)
-                    .build();
-            //name has underscores because of ip addy
-            ContainerCreation creation = docker.createContainer(containerConfig,
-                    "repose-origin-" + user.tenant + "-" + versionId.replace('.', '-'));
-            final String id = creation.id();
-            docker.startContainer(id);
+    private PortBinding getReposePortBinding(ContainerInfo containerInfo) {
+        debug("container info:" + containerInfo);
+        debug("container network port info:" + containerInfo.networkSettings().ports());
+        debug("port stuff: " + containerInfo.networkSettings().ports().get("8080/tcp"));
+        PortBinding portBinding = containerInfo.networkSettings().ports().get("8080/tcp").get(0);
+        debug("container info:" + portBinding.hostIp());
+        return portBinding;
+    }
 
-            return id;
+    /***
+     * Run the tasks on the cluster's test executor, no more than parallelism at a time.
+     * Every worker takes the next index until there are none left.
+     */
+    private void runConcurrently(Cluster cluster, int parallelism, int size, IntConsumer task)
+            throws InterruptedException, InternalServerException {
+        ExecutorService testExecutor = clusterExecutors.getTestExecutor(cluster);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        for(int worker = 0; worker < Math.min(parallelism, size); worker++) {
+            workers.add(testExecutor.submit(() -> {
+                int index;
+                while((index = next.getAndIncrement()) < size)
+                    task.accept(index);
+            }));
+        }
+        for(Future<?> worker: workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException ee) {
+                throw new InternalServerException(ee.getCause().getLocalizedMessage());
+            }
+        }
+    }
+
+    /***
+     * Fetch stats for all containers on the cluster's stats executor.
+     * The executor is shared with the cluster's other calls, so a container's timeout starts when its stats call
+     * does.  The whole list gets one timeout per wave of the executor's parallelism; calls still queued when that
+     * runs out are given up.
+     * Containers whose stats time out or fail are marked as stats unavailable instead of failing the list.
+     * @param cluster Cluster model
+     * @param docker docker client for the cluster
+     * @param reposeInstanceList containers to populate with stats
+     */
+    private void fetchContainerStats(Cluster cluster, DockerClient docker, List<models.Container> reposeInstanceList)
+            throws InterruptedException {
+        ExecutorService statsExecutor = clusterExecutors.getStatsExecutor(cluster);
+        int parallelism = Math.max(1, clusterFactory.getStatsParallelism(cluster.getName()));
+        long timeout = clusterFactory.getStatsTimeoutMillis();
+        long budgetEnd = System.currentTimeMillis() +
+                timeout * ((reposeInstanceList.size() + parallelism - 1) / parallelism);
+
+        List<Future<models.ContainerStats>> statsFutures = new ArrayList<>();
+        List<AtomicLong> startedAt = new ArrayList<>();
+        for(models.Container reposeInstance: reposeInstanceList) {
+            AtomicLong started = new AtomicLong();
+            startedAt.add(started);
+            statsFutures.add(statsExecutor.submit(() -> {
+                started.set(System.currentTimeMillis());
+                return containerFactory.translateContainerStats(docker.stats(reposeInstance.getId()));
+            }));
+        }
+
+        for(int index = 0; index < reposeInstanceList.size(); index++) {
+            models.Container reposeInstance = reposeInstanceList.get(index);
+            Future<models.ContainerStats> statsFuture = statsFutures.get(index);
+            try {
+                reposeInstance.setContainerStats(
+                        awaitStats(statsFuture, startedAt.get(index), timeout, budgetEnd));
+            } catch (TimeoutException te) {
+                warn("Stats timed out for " + reposeInstance.getId());
+                statsFuture.cancel(true);
+                reposeInstance.setStatsUnavailable(true);
+            } catch (ExecutionException ee) {
+                warn("Unable to retrieve stats for " + reposeInstance.getId() + ": " +
+                        ee.getCause().getLocalizedMessage());
+                reposeInstance.setStatsUnavailable(true);
+            }
+        }
+    }
+
+    private models.ContainerStats awaitStats(Future<models.ContainerStats> statsFuture, AtomicLong startedAt,
+                                             long timeout, long budgetEnd)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        while(true) {
+            long started = startedAt.get();
+            long deadline = started > 0 ? Math.min(started + timeout, budgetEnd) : budgetEnd;
+            long remaining = deadline - System.currentTimeMillis();
+            if(remaining <= 0)
+                throw new TimeoutException();
+            try {
+                return statsFuture.get(Math.min(remaining, timeout), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException te) {
+                //a call that was still queued gets its own timeout once it starts
+                if(started > 0)
+                    throw te;
+            }
+        }
+    }
 
+    /***
+     * Make sure the origin image for the current origin files is on the cluster and tagged as repose-origin.
+     * It is only built when no image carries the content hash of the files yet.
+     * @param cluster Cluster model
+     * @param user User model
+     * @param docker docker client
+     */
+    private void getOriginImage(Cluster cluster, User user, DockerClient docker, BuildListener listener)
+            throws InternalServerException {
+        try {
+            listener.phase(BuildListener.DOCKERFILE);
+            BuildContext buildContext = imageFactory.getOriginBuildContext(ORIGIN_FILES.stream()
+                    .map(carinaFactory::getCarinaOriginFile).collect(Collectors.toList()));
+            //shared by every tenant, so concurrent builds of the same content are coalesced across tenants
+            buildCoordinator.run(ORIGIN_IMAGE, ORIGIN_IMAGE, buildContext.getContentHash(), () -> {
+                try {
+                    if(!reuseImage(docker, ORIGIN_IMAGE, buildContext.getContentHash())) {
+                        listener.phase(BuildListener.IMAGE);
+                        debug("Build origin image with " + cluster + " at " + DateTime.now());
+                        buildImage(docker, ORIGIN_IMAGE, buildContext, listener);
+                    }
+                    return buildContext.getContentHash();
+                } catch (DockerException | InterruptedException | IOException e) {
+                    e.printStackTrace();
+                    throw new InternalServerException(e.getMessage());
+                }
+            });
         } catch (IOException e) {
             error(e.getLocalizedMessage());
             e.printStackTrace();
@@ -303,46 +656,222 @@ public class SpotifyDockerClient implements IDockerClient {
         }
     }
 
-    private String buildReposeImage(Cluster cluster, User user, String versionId, DockerClient docker) throws InternalServerException {
+    private String startOriginContainer(User user, String versionId, DockerClient docker)
+            throws DockerException, InterruptedException {
+        ContainerConfig containerConfig = ContainerConfig.builder()
+                .image(ORIGIN_IMAGE)
+                .labels(getLabels(user, versionId, IContainerFactory.ROLE_ORIGIN))
+                .hostConfig(HostConfig.builder().networkMode(getTenantNetwork(docker, user)).build())
+                .build();
+        //name has underscores because of ip addy
+        ContainerCreation creation = docker.createContainer(containerConfig,
+                "repose-origin-" + user.tenant + "-" + versionId.replace('.', '-'));
+        final String id = creation.id();
+        docker.startContainer(id);
+
+        return id;
+    }
+
+    private String buildReposeImage(Cluster cluster, User user, String versionId, DockerClient docker,
+                                    BuildContext buildContext, BuildListener listener)
+            throws InternalServerException {
         try {
-            debug("Build image with " + cluster + " at " + DateTime.now());
-            removeAndBuildImage(user, versionId, docker, "repose-",
-                    Paths.get(carinaFactory.getReposeImageDirectory(user.tenant).toString()));
+            listener.phase(BuildListener.IMAGE);
+            if(!reuseImage(docker, "repose-" + user.tenant + "-" + versionId, buildContext.getContentHash())) {
+                debug("Build image with " + cluster + " at " + DateTime.now());
+                removeAndBuildImage(user, versionId, docker, "repose-", buildContext, listener);
+            }
 
-            Map<String, List<PortBinding>> portBindings = new HashMap<>();
+            listener.phase(BuildListener.CONTAINER);
+            //reaches the origin by name on the tenant's network
+            return startReposeContainer(docker, "repose-" + user.tenant + "-" + versionId,
+                    "repose-" + user.tenant + "-" + versionId.replace('.','_'),
+                    getLabels(user, versionId, IContainerFactory.ROLE_REPOSE),
+                    getTenantNetwork(docker, user));
 
-            PortBinding randomPort = PortBinding.randomPort("0.0.0.0");
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new InternalServerException(e.getMessage());
+        }
+    }
+
+    private String startReposeContainer(DockerClient docker, String imageName, String containerName,
+                                        Map<String, String> labels, String network) throws DockerException, InterruptedException {
+        Map<String, List<PortBinding>> portBindings = new HashMap<>();
+
+        PortBinding randomPort = PortBinding.randomPort("0.0.0.0");
+
+        portBindings.put("8080/tcp", new ArrayList<PortBinding>() {
+            {
+                add(randomPort);
+            }
+        });
+
+        HostConfig.Builder hostConfigBuilder = HostConfig.builder().portBindings(portBindings).networkMode(network);
 
-            portBindings.put("8080/tcp", new ArrayList<PortBinding>() {
-                {
-                    add(randomPort);
+        ContainerConfig containerConfig = ContainerConfig.builder()
+                .image(imageName)
+                .labels(labels)
+                .hostConfig(hostConfigBuilder.build()).exposedPorts(ImmutableSet.of(randomPort.hostPort()))
+                .build();
+        ContainerCreation creation = docker.createContainer(containerConfig, containerName);
+        final String id = creation.id();
+        docker.startContainer(id);
+        return id;
+    }
+
+    /***
+     * Build (or reuse) an image with only the core configs for the version and start an idle container from it.
+     * The container joins the tenant's network, so it reaches the origin service by name once it is claimed.
+     * @param cluster Cluster model
+     * @param user User model, owner of the cluster
+     * @param versionId repose version
+     * @param containerName name of the container, in startingWarmContainers until the container is in the pool
+     * @return id of the started container
+     */
+    private String createWarmReposeInstance(Cluster cluster, User user, String versionId, String containerName)
+            throws InternalServerException, NotFoundException {
+        debug("create warm repose instance " + user + " and version: " + versionId);
+        List<Configuration> coreConfigurationList =
+                configurationFactory.translateConfigurationsFromJson(user, versionId, Json.newArray());
+        String imageName = "repose-warm-" + user.tenant + "-" + versionId;
+        BuildContext buildContext = getReposeBuildContext(versionId, coreConfigurationList);
+        //every warm container is its own request.  They have a lane of their own, so a refill that builds the image
+        //never holds up the user's next build of the version
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            DockerClient docker = lease.client();
+            return buildCoordinator.run(user.tenant, "warm-" + versionId, containerName, () -> {
+                try {
+                    if(!reuseImage(docker, imageName, buildContext.getContentHash()))
+                        removeAndBuildImage(user, versionId, docker, "repose-warm-", buildContext,
+                                BuildListener.NONE);
+                    return startReposeContainer(docker, imageName, containerName,
+                            getLabels(user, versionId, IContainerFactory.ROLE_REPOSE),
+                            getTenantNetwork(docker, user));
+                } catch (DockerException | InterruptedException | IOException e) {
+                    e.printStackTrace();
+                    throw new InternalServerException(e.getMessage());
                 }
             });
+        }
+    }
 
-            //link by name
-            HostConfig hostConfig = HostConfig.builder().
-                    portBindings(portBindings).
-                    links("repose-origin-" + user.tenant + "-" + versionId.replace('.', '-')).
-                    build();
-
-            ContainerConfig containerConfig = ContainerConfig.builder()
-                    .image("repose-" + user.tenant + "-" + versionId)
-                    .hostConfig(hostConfig).exposedPorts(ImmutableSet.of(randomPort.hostPort()))
-                    .build();
-            ContainerCreation creation = docker.createContainer(containerConfig,
-                    "repose-" + user.tenant + "-" + versionId.replace('.','_'));
-            final String id = creation.id();
-            docker.startContainer(id);
-            return id;
+    /***
+     * Turn an idle warm container into the tenant's repose instance for the version: replace the previous
+     * instance and push the configs.  The origin hostname resolves on the tenant's network.
+     * @throws InternalServerException if repose did not report the reload, the caller builds instead
+     */
+    private void claimWarmReposeInstance(Cluster cluster, User user, String versionId,
+                                         List<Configuration> configurationList,
+                                         DockerClient docker, String containerId)
+            throws InternalServerException, DockerException, InterruptedException {
+        debug("claim warm repose instance " + containerId + " for " + user + " and version: " + versionId);
+        Set<String> keep = new HashSet<>(warmPool.getIdle(cluster, versionId));
+        keep.add(containerId);
+        removeRunningContainers(user, versionId, docker, IContainerFactory.ROLE_REPOSE, keep);
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new InternalServerException(e.getMessage());
+        if(!reconfigureReposeInstance(cluster, user, containerId, configurationList))
+            throw new InternalServerException("Warm container " + containerId + " did not report the reload.");
+    }
+
+    /***
+     * User-defined network shared by the tenant's containers.  Docker resolves container names on it, so repose
+     * reaches the origin service by name after either container restarts or the origin is replaced, which a link
+     * or an /etc/hosts entry doesn't survive.
+     * @return network name
+     */
+    private synchronized String getTenantNetwork(DockerClient docker, User user)
+            throws DockerException, InterruptedException {
+        String networkName = "repose-playground-" + user.tenant;
+        for(Network network: docker.listNetworks()) {
+            if(networkName.equals(network.name()))
+                return networkName;
+        }
+        debug("Create network " + networkName);
+        try {
+            docker.createNetwork(NetworkConfig.builder().name(networkName).checkDuplicate(true).build());
+        } catch (DockerException e) {
+            //another instance of the app created it first
+            if(docker.listNetworks().stream().noneMatch(network -> networkName.equals(network.name())))
+                throw e;
+        }
+        return networkName;
+    }
+
+    /***
+     * Top up the warm pool for the most used versions and remove idle containers of versions that
+     * dropped out.  Runs on the cluster's build executor, never in the request.
+     * @param cluster Cluster model
+     * @param user User model, owner of the cluster
+     */
+    private void refillWarmPool(Cluster cluster, User user) {
+        if(clusterFactory.getWarmPoolSize() <= 0)
+            return;
+        ExecutorService buildExecutor = clusterExecutors.getBuildExecutor(cluster);
+        List<String> trimmed = warmPool.trim(cluster);
+        if(!trimmed.isEmpty()) {
+            buildExecutor.execute(() -> {
+                try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+                    trimmed.forEach(containerId -> removeContainer(lease.client(), containerId));
+                } catch (InternalServerException ise) {
+                    error("Unable to remove warm containers " + trimmed + ": " + ise.getLocalizedMessage());
+                }
+            });
+        }
+        for(String versionId: warmPool.getTargetVersions(cluster)) {
+            while(warmPool.reserve(cluster, versionId)) {
+                buildExecutor.execute(() -> {
+                    String containerName = "repose-" + user.tenant + "-" + versionId.replace('.','_') + "-warm-" +
+                            UUID.randomUUID().toString().substring(0, 8);
+                    startingWarmContainers.add(containerName);
+                    try {
+                        warmPool.add(cluster, versionId,
+                                createWarmReposeInstance(cluster, user, versionId, containerName));
+                    } catch (InternalServerException | NotFoundException e) {
+                        error("Unable to create warm container for " + versionId + ": " + e.getLocalizedMessage());
+                    } finally {
+                        startingWarmContainers.remove(containerName);
+                        warmPool.release(cluster, versionId);
+                    }
+                });
+            }
         }
     }
 
+    @Override
+    public ObjectNode getContainerCacheStats(Cluster cluster) {
+        return containerStateCache.getStats(cluster);
+    }
+
+    @Override
+    public ObjectNode getWarmPoolStats(Cluster cluster) {
+        return warmPool.getStats(cluster);
+    }
+
+    /***
+     * Look for an image labeled with the content hash and make sure it is tagged with the image name
+     * @param docker docker client
+     * @param imageName name the container will be created from
+     * @param contentHash hash of everything that goes into the image
+     * @return true if an image was found and the build can be skipped
+     */
+    private boolean reuseImage(DockerClient docker, String imageName, String contentHash)
+            throws DockerException, InterruptedException {
+        List<Image> images = docker.listImages(DockerClient.ListImagesParam.filter(
+                "label", ImageFactory.CONTENT_HASH_LABEL + "=" + contentHash));
+        if(images.isEmpty()) {
+            debug("No image for " + imageName + " with content hash " + contentHash);
+            return false;
+        }
+        Image image = images.get(0);
+        if(image.repoTags() == null || !image.repoTags().contains(imageName + ":latest"))
+            docker.tag(image.id(), imageName, true);
+        debug("Reuse image " + image.id() + " for " + imageName + " with content hash " + contentHash);
+        return true;
+    }
+
     private void removeAndBuildImage(User user, String versionId, DockerClient docker, String namePrefix,
-                                     Path reposeImageDirectory)
+                                     BuildContext buildContext, BuildListener listener)
             throws DockerException, InterruptedException, IOException {
         try {
             docker.removeImage(namePrefix + user.tenant + "-" + versionId, true, true);
@@ -353,104 +882,356 @@ public class SpotifyDockerClient implements IDockerClient {
             warn("Failed request. " +
                     dre.message() + " " + dre.getLocalizedMessage());
         }
-        docker.build(reposeImageDirectory, namePrefix + user.tenant + "-" + versionId);
+        buildImage(docker, namePrefix + user.tenant + "-" + versionId, buildContext, listener);
     }
 
-    private void removeRunningContainers(User user, String versionId, DockerClient docker, String namePrefix) throws DockerException, InterruptedException {
-        List<Container> containerList = docker.listContainers(
-                DockerClient.ListContainersParam.allContainers());
+    /***
+     * Build an image from an in-memory build context.  docker-client only builds from a directory, so the
+     * context is written once to a private directory that is gone after the build.
+     * @param docker docker client
+     * @param imageName image name
+     * @param buildContext dockerfile and files for the image
+     * @param listener gets the docker build output
+     */
+    private void buildImage(DockerClient docker, String imageName, BuildContext buildContext,
+                            BuildListener listener) throws DockerException, InterruptedException, IOException {
+        Path contextDirectory = Files.createTempDirectory("build-context-");
+        try {
+            for(Map.Entry<String, byte[]> file: buildContext.getFiles().entrySet()) {
+                Path path = contextDirectory.resolve(file.getKey());
+                Files.createDirectories(path.getParent());
+                Files.write(path, file.getValue());
+            }
+            docker.build(contextDirectory, imageName, getProgressHandler(listener));
+        } finally {
+            deleteDirectory(contextDirectory);
+        }
+    }
 
-        Predicate<Container> hasImage =
-                c -> c.image().equals(namePrefix + user.tenant + "-" + versionId);
+    /***
+     * Forward the docker build output (step lines, pull status) to the build listener
+     * @param listener BuildListener
+     * @return ProgressHandler
+     */
+    private ProgressHandler getProgressHandler(BuildListener listener) {
+        return message -> {
+            if(message.error() != null)
+                listener.progress(message.error());
+            else if(message.stream() != null)
+                listener.progress(message.stream().trim());
+            else if(message.status() != null)
+                listener.progress(message.status());
+        };
+    }
 
-        List<Container> containersToRemove =
-                containerList.stream().filter(hasImage).collect(Collectors.toList());
-        containersToRemove.forEach(container1 -> {
-            try {
-                docker.killContainer(container1.id());
-                debug("removed " + container1.id());
-            } catch (DockerException | InterruptedException de) {
-                error("failed to stop " + de.getLocalizedMessage());
-            }
-            try {
-                docker.removeContainer(container1.id());
-                debug("removed " + container1.id());
-            } catch (DockerException | InterruptedException de) {
-                error("failed to stop " + de.getLocalizedMessage());
-            }
-        });
+    private void removeRunningContainers(User user, String versionId, DockerClient docker, String role)
+            throws DockerException, InterruptedException {
+        removeRunningContainers(user, versionId, docker, role, Collections.emptySet());
+    }
+
+    /***
+     * Remove the tenant's containers for the version, except the ones to keep and the warm containers that are
+     * still being started in their own build lane
+     */
+    private void removeRunningContainers(User user, String versionId, DockerClient docker, String role,
+                                         Set<String> keep) throws DockerException, InterruptedException {
+        docker.listContainers(DockerClient.ListContainersParam.allContainers(),
+                labelFilter(getLabels(user, versionId, role))).stream()
+                .filter(container -> !keep.contains(container.id()))
+                .filter(container -> container.names() == null || startingWarmContainers.stream()
+                        .noneMatch(name -> container.names().contains("/" + name)))
+                .forEach(container -> removeContainer(docker, container.id()));
+    }
+
+    private void removeNamedContainer(DockerClient docker, String containerName)
+            throws DockerException, InterruptedException {
+        ObjectNode filters = Json.newObject();
+        filters.putArray("name").add(containerName);
+        //the name filter matches substrings
+        docker.listContainers(DockerClient.ListContainersParam.allContainers(), filterParam(filters)).stream()
+                .filter(container -> container.names() != null &&
+                        container.names().contains("/" + containerName))
+                .forEach(container -> removeContainer(docker, container.id()));
     }
 
-    private void generateReposeDockerfile(User user, String versionId) throws InternalServerException {
+    /***
+     * Labels of the tenant's containers
+     * @param user User model
+     * @param versionId repose version, left out when null
+     * @param role IContainerFactory.ROLE_REPOSE or IContainerFactory.ROLE_ORIGIN
+     * @return label map
+     */
+    private Map<String, String> getLabels(User user, String versionId, String role) {
+        Map<String, String> labels = new TreeMap<>();
+        labels.put(IContainerFactory.TENANT_LABEL, user.tenant);
+        labels.put(IContainerFactory.ROLE_LABEL, role);
+        if(versionId != null)
+            labels.put(IContainerFactory.VERSION_LABEL, versionId);
+        return labels;
+    }
+
+    /***
+     * Filter that only lists containers with all of the labels.  ListContainersParam.withLabel sends one
+     * filters parameter per label and docker only reads one of them, so all labels go in the same one.
+     */
+    private static DockerClient.ListContainersParam labelFilter(Map<String, String> labels) {
+        ObjectNode filters = Json.newObject();
+        ArrayNode values = filters.putArray("label");
+        labels.forEach((name, value) -> values.add(name + "=" + value));
+        return filterParam(filters);
+    }
+
+    private static DockerClient.ListContainersParam filterParam(ObjectNode filters) {
         try {
-            debug("Update repose version in dockerfile");
+            return DockerClient.ListContainersParam.create("filters",
+                    URLEncoder.encode(filters.toString(), StandardCharsets.UTF_8.name()));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-            Files.copy(
-                    carinaFactory.getCarinaReposeFile("Dockerfile"),
-                    carinaFactory.getReposeImageFile(user.tenant, "Dockerfile"),
-                    StandardCopyOption.REPLACE_EXISTING);
+    private void removeContainer(DockerClient docker, String containerId) {
+        try {
+            docker.killContainer(containerId);
+            debug("removed " + containerId);
+        } catch (DockerException | InterruptedException de) {
+            error("failed to stop " + de.getLocalizedMessage());
+        }
+        try {
+            docker.removeContainer(containerId);
+            debug("removed " + containerId);
+        } catch (DockerException | InterruptedException de) {
+            error("failed to stop " + de.getLocalizedMessage());
+        }
+    }
 
+    /***
+     * Repose build context for the version with the configurations
+     * @param versionId repose version
+     * @param configurationList configurations copied into the image
+     * @return BuildContext labeled with the hash of the image content
+     * @throws InternalServerException if the dockerfile template can't be read
+     */
+    private BuildContext getReposeBuildContext(String versionId, List<Configuration> configurationList)
+            throws InternalServerException {
+        try {
+            debug("Generate repose build context for version " + versionId);
+            return imageFactory.getReposeBuildContext(versionId,
+                    Files.readAllLines(carinaFactory.getCarinaReposeFile("Dockerfile")), configurationList);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new InternalServerException(e.getLocalizedMessage());
+        }
+    }
+
+    /***
+     * Record the current size of every repose log.  Logs are never truncated, so concurrent
+     * tests against the same container don't wipe each other's output.
+     * @param containerId container id
+     * @param docker docker client
+     * @return log file name to size in bytes
+     */
+    private Map<String, Long> getReposeLogOffsets(String containerId, DockerClient docker)
+            throws DockerException, InterruptedException {
+        String statOutput = docker.execStart(
+                executeCommand(containerId, docker,
+                        new String[]{"sh", "-c", "stat -c '%s %n' " +
+                                REPOSE_LOGS.stream()
+                                        .map(log -> REPOSE_LOG_DIRECTORY + "/" + log)
+                                        .collect(Collectors.joining(" "))})).readFully();
+        debug("log offsets: " + statOutput);
+        return testFactory.parseLogOffsets(statOutput);
+    }
 
-            List<String> dockerfileLines = Files.readAllLines(
-                    carinaFactory.getReposeImageFile(user.tenant, "Dockerfile"));
-            for(int dockerfileLineCount = 0; dockerfileLineCount < dockerfileLines.size(); dockerfileLineCount ++) {
-                if(dockerfileLines.get(dockerfileLineCount).contains("REPOSE_VERSION")){
-                    dockerfileLines.set(dockerfileLineCount,
-                            dockerfileLines.get(dockerfileLineCount).replace("REPOSE_VERSION", versionId));
+    /***
+     * Read what each repose log appended after its offset and hand every response the entries of its transaction.
+     * One exec tails all logs from their offsets, so only the new bytes leave the container, up to
+     * docker.logs.max.bytes each.  Together with the offsets that makes two execs per test.  A log smaller than its
+     * offset has nothing new that can be told apart.  Each log is
+     * parsed once, line by line straight from the exec output, and its entries go to the transaction they belong
+     * to.  A log without any of the transaction ids (older repose or a logging config without %X{traceGuid})
+     * can't be split up and is parsed whole into unattributed.
+     * @param containerId container id
+     * @param docker docker client
+     * @param logOffsets log file name to byte offset
+     * @param responses get current, error, http-debug and intra-filter of their transaction
+     * @param transIds transaction id of every response, null if its request failed
+     * @param unattributed gets the logs that have none of the transaction ids
+     */
+    private void readReposeLogs(String containerId, DockerClient docker, Map<String, Long> logOffsets,
+                                List<ObjectNode> responses, List<String> transIds, ObjectNode unattributed)
+            throws DockerException, InterruptedException, InternalServerException {
+        responses.forEach(this::putEmptyLogs);
+        putEmptyLogs(unattributed);
+        Set<String> transactions = transIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        try (LogSections logs = tailReposeLogs(containerId, docker, logOffsets)) {
+            for(String fileName: REPOSE_LOGS) {
+                long maxBytes = clusterFactory.getLogMaxBytes(fileName);
+                InputStream log = logs.next(fileName);
+                Map<String, JsonNode> results = "http-debug.log".equals(fileName) ?
+                        readHttpDebugLog(log, maxBytes, transactions) :
+                        readReposeLog(fileName, log, maxBytes, transactions);
+                String logName = fileName.substring(0, fileName.length() - ".log".length());
+                for(int index = 0; index < responses.size(); index++) {
+                    String transId = transIds.get(index);
+                    if(transId != null && results.containsKey(transId))
+                        responses.get(index).set(logName, results.get(transId));
                 }
+                if(results.containsKey(null))
+                    unattributed.set(logName, results.get(null));
             }
-            Files.write(carinaFactory.getReposeImageFile(user.tenant, "Dockerfile"), dockerfileLines);
         } catch (IOException e) {
-            e.printStackTrace();
+            error("Unable to read repose logs: " + e.getLocalizedMessage());
             throw new InternalServerException(e.getLocalizedMessage());
         }
     }
 
-    private void generateOriginDockerfile(User user) throws InternalServerException {
-        for(String file: Arrays.asList("Dockerfile", "backend.js", "package.json")) {
-            try {
-                Files.copy(
-                        carinaFactory.getCarinaOriginFile(file),
-                        carinaFactory.getOriginImageFile(user.tenant, file),
-                        StandardCopyOption.REPLACE_EXISTING);
-            } catch (IOException e) {
-                e.printStackTrace();
-                throw new InternalServerException(e.getLocalizedMessage());
-            }
+    /***
+     * Tail every repose log in one exec.  Each log's bytes after its offset follow a delimiter line with the log's
+     * name, one byte past the cap so the readers can still tell the log was cut off.  A log that is missing or
+     * smaller than its offset comes out empty.
+     */
+    private LogSections tailReposeLogs(String containerId, DockerClient docker, Map<String, Long> logOffsets)
+            throws DockerException, InterruptedException {
+        debug("Read the logs of " + containerId + " starting at " + logOffsets);
+        String delimiter = "repose-log-" + UUID.randomUUID();
+        StringBuilder command = new StringBuilder();
+        for(String fileName: REPOSE_LOGS) {
+            command.append("printf '\\n%s %s\\n' ").append(delimiter).append(' ').append(fileName)
+                    .append("; tail -c +").append(logOffsets.getOrDefault(fileName, 0L) + 1).append(' ')
+                    .append(REPOSE_LOG_DIRECTORY).append('/').append(fileName)
+                    .append(" 2>/dev/null | head -c ").append(clusterFactory.getLogMaxBytes(fileName) + 1)
+                    .append("; ");
+        }
+        command.append("printf '\\n%s\\n' ").append(delimiter);
+        String execId = docker.execCreate(containerId, new String[]{"sh", "-c", command.toString()},
+                DockerClient.ExecCreateParam.attachStdout());
+        return new LogSections(new LogStreamInputStream(docker.execStart(execId)), delimiter);
+    }
 
+    /***
+     * Split current, error or intra-filter log entries by transaction in one pass
+     * @return transaction id to its result, only for the transactions found in the log.  Null maps to the whole
+     * log if none of them was.
+     */
+    private Map<String, JsonNode> readReposeLog(String fileName, InputStream log, long maxBytes,
+                                                Set<String> transactions) throws IOException {
+        Map<String, LogFactory.LineCollector<?>> collectors = new HashMap<>();
+        for(String transId: transactions)
+            collectors.put(transId, newLineCollector(fileName, maxBytes));
+        LogFactory.LineCollector<?> unattributed = newLineCollector(fileName, maxBytes);
+
+        boolean truncated = logFactory.readTransactions(log, maxBytes, collectors, unattributed);
+        Map<String, JsonNode> results = new HashMap<>();
+        collectors.forEach((transId, collector) -> {
+            if(!collector.isEmpty())
+                results.put(transId, Json.toJson(collector.finish(truncated)));
+        });
+        if(results.isEmpty())
+            results.put(null, Json.toJson(unattributed.finish(truncated)));
+        return results;
+    }
+
+    private LogFactory.LineCollector<?> newLineCollector(String fileName, long maxBytes) {
+        switch (fileName) {
+            case "error.log":
+                return logFactory.newErrorEntriesCollector(maxBytes);
+            case "intra-filter.log":
+                return logFactory.newIntraFilterCollector(maxBytes);
+            default:
+                return logFactory.newTextCollector(maxBytes);
         }
     }
 
-    private void writeFiltersToReposeConfigDirectory(User user, List<Configuration> configurationList) {
-        configurationList.forEach(
-                configuration -> {
-                    try {
-                        File file = Paths.get(
-                                carinaFactory.getReposeConfigDirectory(user.tenant).toString(),
-                                configuration.getName()).toFile();
-                        FileWriter fileWriter = new FileWriter(file);
-                        fileWriter.write(configuration.getXml());
-                        fileWriter.close();
-                    } catch (IOException ioe) {
-                        error("Unable to write " + configuration.getName());
-                    }
+    /***
+     * The http debug log gets split up into connection pool and request/response messages of the transaction,
+     * so every transaction found in it gets all of its lines
+     * @return transaction id to its debug messages, only for the transactions found in the log.  Null maps to
+     * the whole log if none of them was.
+     */
+    private Map<String, JsonNode> readHttpDebugLog(InputStream log, long maxBytes, Set<String> transactions)
+            throws IOException {
+        List<String> httpDebugLogList = new ArrayList<>();
+        Set<String> found = new HashSet<>();
+        boolean truncated = logFactory.readLines(log, maxBytes, line -> {
+            httpDebugLogList.add(line);
+            for(String transId: transactions) {
+                if(line.contains(transId))
+                    found.add(transId);
+            }
+        });
+        Map<String, JsonNode> results = new HashMap<>();
+        if(found.isEmpty())
+            found.add(null);
+        for(String transId: found) {
+            ObjectNode debugMessages =
+                    (ObjectNode) Json.toJson(testFactory.generateDebugMessageMap(httpDebugLogList, transId));
+            if (truncated)
+                debugMessages.put("truncated", logFactory.getTruncationMarker(maxBytes));
+            results.put(transId, debugMessages);
+        }
+        return results;
+    }
+
+    private void putEmptyLogs(ObjectNode response) {
+        response.put("current", "");
+        response.set("error", Json.newArray());
+        response.putPOJO("http-debug", Json.toJson(testFactory.generateDebugMessageMap(Collections.emptyList())));
+        response.set("intra-filter", Json.newArray());
+    }
+
+    /***
+     * Poll current.log from the offset until repose mentions one of the pushed configurations
+     * @param containerId container id
+     * @param docker docker client
+     * @param currentLogOffset size of current.log before the configurations were pushed
+     * @param names pushed configuration names
+     * @return true if repose reloaded, false if it timed out
+     */
+    private boolean waitForReload(String containerId, DockerClient docker, long currentLogOffset, List<String> names)
+            throws DockerException, InterruptedException {
+        long deadline = System.currentTimeMillis() + clusterFactory.getReconfigureTimeoutMillis();
+        while(System.currentTimeMillis() < deadline) {
+            Thread.sleep(clusterFactory.getReconfigurePollMillis());
+            try (LogStream currentLog = docker.execStart(
+                    executeCommand(containerId, docker,
+                            new String[]{"sh", "-c", "tail -c +" + (currentLogOffset + 1) + " " +
+                                    REPOSE_LOG_DIRECTORY + "/current.log | head -c " +
+                                    clusterFactory.getLogMaxBytes("current.log")}))) {
+                if(containsAny(currentLog, names)) {
+                    debug("Repose reloaded " + names + " in " + containerId);
+                    return true;
                 }
-        );
+            }
+        }
+        warn("Repose did not report reloading " + names + " in " + containerId);
+        return false;
     }
 
-    private void cleanUpLogs(String containerId, DockerClient docker) throws DockerException, InterruptedException {
-        debug(docker.execStart(
-                executeCommand(containerId, docker,
-                        new String[]{"sh", "-c", "cat /dev/null > /var/log/repose/current.log"})).readFully());
-        debug(docker.execStart(
-                executeCommand(containerId, docker,
-                        new String[]{"sh", "-c", "cat /dev/null > /var/log/repose/http-debug.log"})).readFully());
-        debug(docker.execStart(
-                executeCommand(containerId, docker,
-                        new String[]{"sh", "-c", "cat /dev/null > /var/log/repose/intra-filter.log"})).readFully());
-        debug(docker.execStart(
-                executeCommand(containerId, docker,
-                        new String[]{"sh", "-c", "cat /dev/null > /var/log/repose/error.log"})).readFully());
+    /***
+     * Look for any of the names in the exec output frame by frame, keeping only the tail of the previous frame
+     * in case a name is split between two frames
+     */
+    private boolean containsAny(LogStream logStream, List<String> names) {
+        int carryLength = names.stream().mapToInt(String::length).max().orElse(1) - 1;
+        String carry = "";
+        while(logStream.hasNext()) {
+            String chunk = carry + StandardCharsets.UTF_8.decode(logStream.next().content()).toString();
+            if(names.stream().anyMatch(chunk::contains))
+                return true;
+            carry = chunk.substring(Math.max(0, chunk.length() - carryLength));
+        }
+        return false;
+    }
+
+    private void deleteDirectory(Path directory) {
+        if(directory == null)
+            return;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            warn("Unable to delete " + directory + ": " + e.getLocalizedMessage());
+        }
     }
 
     private String executeCommand(String containerId, DockerClient docker, String[] command)
@@ -460,4 +1241,124 @@ public class SpotifyDockerClient implements IDockerClient {
                 DockerClient.ExecCreateParam.attachStdout(),
                 DockerClient.ExecCreateParam.attachStderr());
     }
+
+    /***
+     * Exec output of several logs, each behind a newline, the delimiter and the log's name.  A reader of one log
+     * only sees that log's bytes, whatever it leaves unread is skipped on the way to the next one.
+     */
+    private static final class LogSections implements Closeable {
+        private final PushbackInputStream output;
+        private final byte[] delimiter;
+        private final byte[] delimiterTail;
+        private InputStream section;
+
+        private LogSections(InputStream output, String delimiter) {
+            this.delimiter = ("\n" + delimiter).getBytes(StandardCharsets.UTF_8);
+            this.delimiterTail = Arrays.copyOfRange(this.delimiter, 1, this.delimiter.length);
+            this.output = new PushbackInputStream(new BufferedInputStream(output), this.delimiter.length);
+            //the output starts with a delimiter, as if an empty log came before the first one
+            this.section = new Section();
+        }
+
+        /***
+         * @return the next log's bytes, empty if the output ended early
+         * @throws IOException if the next log isn't the expected one
+         */
+        private InputStream next(String fileName) throws IOException {
+            while(section.read() != -1) {
+                //skip what the last reader left
+            }
+            StringBuilder name = new StringBuilder();
+            int read;
+            while((read = output.read()) != -1 && read != '\n')
+                name.append((char) read);
+            if(read == -1 || name.length() == 0) {
+                section = new ByteArrayInputStream(new byte[0]);
+                return section;
+            }
+            if(!fileName.equals(name.toString().trim()))
+                throw new IOException("Expected " + fileName + " but got " + name.toString().trim());
+            section = new Section();
+            return section;
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+
+        /***
+         * Bytes up to the next delimiter.  The delimiter has only its leading newline, so a partial match never
+         * hides the start of another one.
+         */
+        private final class Section extends InputStream {
+            private boolean ended;
+
+            @Override
+            public int read() throws IOException {
+                if(ended)
+                    return -1;
+                int read = output.read();
+                if(read == -1) {
+                    ended = true;
+                    return -1;
+                }
+                if(read == '\n') {
+                    byte[] ahead = new byte[delimiterTail.length];
+                    int length = 0;
+                    int count;
+                    while(length < ahead.length && (count = output.read(ahead, length, ahead.length - length)) != -1)
+                        length += count;
+                    if(Arrays.equals(ahead, delimiterTail)) {
+                        ended = true;
+                        return -1;
+                    }
+                    output.unread(ahead, 0, length);
+                }
+                return read;
+            }
+        }
+    }
+
+    /***
+     * Exec output read frame by frame, without holding on to more than the current frame
+     */
+    private static final class LogStreamInputStream extends InputStream {
+        private final LogStream logStream;
+        private ByteBuffer frame = ByteBuffer.allocate(0);
+
+        private LogStreamInputStream(LogStream logStream) {
+            this.logStream = logStream;
+        }
+
+        private boolean nextFrame() {
+            while(!frame.hasRemaining()) {
+                if(!logStream.hasNext())
+                    return false;
+                frame = logStream.next().content();
+            }
+            return true;
+        }
+
+        @Override
+        public int read() {
+            return nextFrame() ? frame.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if(length == 0)
+                return 0;
+            if(!nextFrame())
+                return -1;
+            int read = Math.min(length, frame.remaining());
+            frame.get(buffer, offset, read);
+            return read;
+        }
+
+        @Override
+        public void close() {
+            logStream.close();
+        }
+    }
 }
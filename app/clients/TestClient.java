@@ -3,6 +3,7 @@ package clients;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.ImplementedBy;
 import models.TestRequest;
+import play.libs.F;
 
 /**
  * Created by dimi5963 on 3/6/16.
@@ -10,5 +11,25 @@ import models.TestRequest;
 @ImplementedBy(TestClientImpl.class)
 public interface TestClient {
 
+    String TRANS_ID_HEADER = "x-trans-id";
+
+    /***
+     * Send a test request and wait for the response.  Unless the request has its own x-trans-id, it gets a new
+     * one so the repose log lines of this request can be told apart from the others.
+     * @param testRequest TestRequest model
+     * @param ip repose host
+     * @param port repose port
+     * @return url, response body, headers and status and the transId of the request
+     */
     ObjectNode makeTestRequest(TestRequest testRequest, String ip, String port);
+
+    /***
+     * Send a test request without waiting for it.  Only the status is kept, the body is dropped.
+     * @param testRequest TestRequest model
+     * @param ip repose host
+     * @param port repose port
+     * @param timeoutMillis request timeout
+     * @return promise of the response status, fails if there was no response in time
+     */
+    F.Promise<Integer> sendTestRequest(TestRequest testRequest, String ip, String port, long timeoutMillis);
 }
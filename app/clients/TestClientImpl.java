@@ -10,8 +10,10 @@ import play.libs.F;
 import play.libs.Json;
 import play.libs.ws.WSClient;
 import play.libs.ws.WSRequest;
+import play.libs.ws.WSResponse;
 
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Created by dimi5963 on 3/6/16.
@@ -34,11 +36,14 @@ public class TestClientImpl implements  TestClient {
                 .setMethod(testRequest.getMethod()).setBody(testRequest.getBody());
         Map<String, String> requestHeaders = testRequest.getHeaders();
         requestHeaders.forEach(wsRequest::setHeader);
+        String transId = setTransId(wsRequest, requestHeaders);
 
         F.Promise<ObjectNode> resultPromise = wsRequest.execute().map(
                 wsResponse -> {
                     ObjectNode responseNode = Json.newObject();
 
+                    responseNode.put("transId", transId);
+
                     responseNode.put("url", wsResponse.getUri().toString());
                     responseNode.put("responseBody", wsResponse.getBody());
                     ArrayNode arrayNode = Json.newArray();
@@ -66,4 +71,31 @@ public class TestClientImpl implements  TestClient {
 
         return resultPromise.get(30000);
     }
+
+    @Override
+    public F.Promise<Integer> sendTestRequest(TestRequest testRequest, String ip, String port, long timeoutMillis) {
+        WSRequest wsRequest = wsClient.url(
+                testFactory.getTestUrl(ip, port, testRequest.getUri()))
+                .setMethod(testRequest.getMethod()).setBody(testRequest.getBody())
+                .setRequestTimeout(timeoutMillis);
+        Map<String, String> requestHeaders = testRequest.getHeaders();
+        requestHeaders.forEach(wsRequest::setHeader);
+        setTransId(wsRequest, requestHeaders);
+
+        return wsRequest.execute().map(WSResponse::getStatus);
+    }
+
+    /***
+     * Tag the request with a new transaction id, unless the test already sends its own x-trans-id
+     * @return transaction id repose will log the request with, decoded from the test's own header
+     */
+    private String setTransId(WSRequest wsRequest, Map<String, String> requestHeaders) {
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            if (TRANS_ID_HEADER.equalsIgnoreCase(header.getKey()))
+                return testFactory.getTransId(header.getValue());
+        }
+        String transId = UUID.randomUUID().toString();
+        wsRequest.setHeader(TRANS_ID_HEADER, testFactory.getTransIdHeader(transId));
+        return transId;
+    }
 }
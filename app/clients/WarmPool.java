@@ -0,0 +1,68 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.ImplementedBy;
+import models.Cluster;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bookkeeping for pre-started repose containers.  Only tracks ids and counters, the containers themselves
+ * are created and removed by the docker client.  Every user's cluster has its own pool, even when users
+ * share a docker daemon, since a warm container is labeled with the tenant that will claim it.
+ */
+@ImplementedBy(WarmPoolImpl.class)
+public interface WarmPool {
+
+    /***
+     * Count a build request for the version.  The most used versions get pool targets.
+     * @param cluster Cluster model
+     * @param versionId repose version
+     */
+    void recordUsage(Cluster cluster, String versionId);
+
+    /***
+     * Take an idle container for the version and count the hit or miss
+     * @param cluster Cluster model
+     * @param versionId repose version
+     * @return container id or null if the pool is empty
+     */
+    String claim(Cluster cluster, String versionId);
+
+    /***
+     * Reserve a slot for a new idle container if the version is below its target.
+     * Every successful reserve must be followed by release, after add if the container was created.
+     * @param cluster Cluster model
+     * @param versionId repose version
+     * @return true if a container should be created
+     */
+    boolean reserve(Cluster cluster, String versionId);
+
+    void release(Cluster cluster, String versionId);
+
+    void add(Cluster cluster, String versionId, String containerId);
+
+    boolean isIdle(Cluster cluster, String containerId);
+
+    Set<String> getIdle(Cluster cluster, String versionId);
+
+    /***
+     * @param cluster Cluster model
+     * @return versions that currently have a pool target, most used first
+     */
+    List<String> getTargetVersions(Cluster cluster);
+
+    /***
+     * Forget the idle containers of versions that no longer have a target
+     * @param cluster Cluster model
+     * @return ids of the containers to remove
+     */
+    List<String> trim(Cluster cluster);
+
+    /***
+     * @param cluster Cluster model
+     * @return pool size, per version target/idle/pending/uses and hit/miss counters
+     */
+    ObjectNode getStats(Cluster cluster);
+}
@@ -0,0 +1,166 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import factories.IClusterFactory;
+import models.Cluster;
+import play.libs.Json;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+@Singleton
+public class WarmPoolImpl implements WarmPool {
+
+    private final IClusterFactory clusterFactory;
+
+    private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<>();
+
+    @Inject
+    public WarmPoolImpl(IClusterFactory clusterFactory) {
+        this.clusterFactory = clusterFactory;
+    }
+
+    @Override
+    public void recordUsage(Cluster cluster, String versionId) {
+        Pool pool = getPool(cluster);
+        synchronized (pool) {
+            pool.uses.merge(versionId, 1L, Long::sum);
+        }
+    }
+
+    @Override
+    public String claim(Cluster cluster, String versionId) {
+        Pool pool = getPool(cluster);
+        synchronized (pool) {
+            Deque<String> idle = pool.idle.get(versionId);
+            if (idle == null || idle.isEmpty()) {
+                pool.misses++;
+                return null;
+            }
+            pool.hits++;
+            return idle.poll();
+        }
+    }
+
+    @Override
+    public boolean reserve(Cluster cluster, String versionId) {
+        Pool pool = getPool(cluster);
+        synchronized (pool) {
+            int idle = pool.idle.getOrDefault(versionId, new ArrayDeque<>()).size();
+            int pending = pool.pending.getOrDefault(versionId, 0);
+            if (idle + pending >= getTarget(pool, versionId))
+                return false;
+            pool.pending.put(versionId, pending + 1);
+            return true;
+        }
+    }
+
+    @Override
+    public void release(Cluster cluster, String versionId) {
+        Pool pool = getPool(cluster);
+        synchronized (pool) {
+            pool.pending.computeIfPresent(versionId, (version, pending) -> pending > 1 ? pending - 1 : null);
+        }
+    }
+
+    @Override
+    public void add(Cluster cluster, String versionId, String containerId) {
+        Pool pool = getPool(cluster);
+        synchronized (pool) {
+            pool.idle.computeIfAbsent(versionId, version -> new ArrayDeque<>()).add(containerId);
+        }
+    }
+
+    @Override
+    public boolean isIdle(Cluster cluster, String containerId) {
+        Pool pool = getPool(cluster);
+        synchronized (pool) {
+            return pool.idle.values().stream().anyMatch(idle -> idle.contains(containerId));
+        }
+    }
+
+    @Override
+    public Set<String> getIdle(Cluster cluster, String versionId) {
+        Pool pool = getPool(cluster);
+        synchronized (pool) {
+            return new HashSet<>(pool.idle.getOrDefault(versionId, new ArrayDeque<>()));
+        }
+    }
+
+    @Override
+    public List<String> getTargetVersions(Cluster cluster) {
+        Pool pool = getPool(cluster);
+        synchronized (pool) {
+            return getTargetVersions(pool);
+        }
+    }
+
+    @Override
+    public List<String> trim(Cluster cluster) {
+        Pool pool = getPool(cluster);
+        synchronized (pool) {
+            List<String> targetVersions = getTargetVersions(pool);
+            List<String> removed = new ArrayList<>();
+            pool.idle.entrySet().removeIf(idle -> {
+                if (targetVersions.contains(idle.getKey()))
+                    return false;
+                removed.addAll(idle.getValue());
+                return true;
+            });
+            return removed;
+        }
+    }
+
+    @Override
+    public ObjectNode getStats(Cluster cluster) {
+        Pool pool = getPool(cluster);
+        ObjectNode stats = Json.newObject();
+        synchronized (pool) {
+            stats.put("size", Math.max(0, clusterFactory.getWarmPoolSize()));
+            stats.put("hits", pool.hits);
+            stats.put("misses", pool.misses);
+            ArrayNode versions = stats.putArray("versions");
+            pool.uses.keySet().stream().sorted().forEach(versionId -> {
+                ObjectNode version = versions.addObject();
+                version.put("version", versionId);
+                version.put("target", getTarget(pool, versionId));
+                version.put("idle", pool.idle.getOrDefault(versionId, new ArrayDeque<>()).size());
+                version.put("pending", pool.pending.getOrDefault(versionId, 0));
+                version.put("uses", pool.uses.get(versionId));
+            });
+        }
+        return stats;
+    }
+
+    private int getTarget(Pool pool, String versionId) {
+        return getTargetVersions(pool).contains(versionId) ? Math.max(0, clusterFactory.getWarmPoolSize()) : 0;
+    }
+
+    private List<String> getTargetVersions(Pool pool) {
+        if (clusterFactory.getWarmPoolSize() <= 0)
+            return Collections.emptyList();
+        return pool.uses.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(Math.max(0, clusterFactory.getWarmPoolVersions()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private Pool getPool(Cluster cluster) {
+        return pools.computeIfAbsent(cluster.getKey(), key -> new Pool());
+    }
+
+    private static final class Pool {
+        private final Map<String, Long> uses = new HashMap<>();
+        private final Map<String, Deque<String>> idle = new HashMap<>();
+        private final Map<String, Integer> pending = new HashMap<>();
+        private long hits;
+        private long misses;
+    }
+}
@@ -5,11 +5,10 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
 import exceptions.InternalServerException;
-import exceptions.NotFoundException;
-import factories.ConfigurationFactory;
-import models.ReposeEnvironmentType;
+import models.BuildJob;
 import models.User;
 import play.Logger;
+import play.libs.EventSource;
 import play.libs.Json;
 import play.mvc.Controller;
 import play.mvc.Http;
@@ -17,22 +16,20 @@ import play.mvc.Result;
 import services.*;
 
 import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 
 public class Application extends Controller {
-    private final ConfigurationFactory configurationFactory;
     private final FilterService filterService;
     private final IUserService userService;
-    private final IReposeService reposeService;
+    private final BuildJobService buildJobService;
 
     @Inject
-    public Application(ConfigurationFactory configurationFactory,
-                       FilterService filterService, IUserService userService, IReposeService reposeService){
+    public Application(FilterService filterService, IUserService userService, BuildJobService buildJobService){
 
-        this.configurationFactory = configurationFactory;
         this.filterService = filterService;
         this.userService = userService;
-        this.reposeService = reposeService;
+        this.buildJobService = buildJobService;
     }
 
 
@@ -40,10 +37,10 @@ public class Application extends Controller {
         Logger.debug("Retrieve available repose versions");
 
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
+            Logger.warn("Invalid or expired token");
             return unauthorized();
         } else {
             try{
@@ -64,10 +61,10 @@ public class Application extends Controller {
         Logger.debug("Version id " + id.split(Pattern.quote("."))[0]);
 
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
+            Logger.warn("Invalid or expired token");
             return unauthorized();
         } else {
             try{
@@ -103,10 +100,10 @@ public class Application extends Controller {
         Logger.debug("Get " + componentId + " json representation for version " + id);
 
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
+            Logger.warn("Invalid or expired token");
             return unauthorized();
         } else {
             try{
@@ -125,18 +122,18 @@ public class Application extends Controller {
     }
 
     /**
-     * Build repose instance.
+     * Build repose instance.  The build runs in the background, follow it with buildStatus or streamBuild.
      * @param id version id
-     * @return
+     * @return 202 with the job id
      */
     public Result build(String id)  {
         /**
-         * We build out the repose instance here.
+         * We build out the repose instance in a build job.
          * 1. we convert json payload to proper xmls
          * 2. we create container, log4j, and system-model appropriately
          * 3. we get the cluster for the user
-         * 4. we create a repose instance
-         * 5. we create a repose origin service instance
+         * 4. we create a repose origin service instance
+         * 5. we create a repose instance
          */
         Logger.debug("Let's create a repose instance.");
 
@@ -147,46 +144,143 @@ public class Application extends Controller {
 
         JsonNode jsonRequest = requestBody.asJson();
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
+            Logger.warn("Invalid or expired token");
             return unauthorized();
         } else
         {
             //get user by token.
             User user = userService.findByToken(token);
             if(user != null) {
-                try {
-                    //here, figure out which service to call based on the request (i'll provide the type that will
-                    //be generated based on type of request (if docker file is provided for third party, if request
-                    //to generate identity is provided, if origin docker file or url is provided
-                    //by default take the generated origin type
-                    Logger.debug("Retrieve configuration list from json body");
-                    List<models.Configuration> configurationList =
-                            configurationFactory.translateConfigurationsFromJson(user, id, jsonRequest);
-
-                    String reposeId = reposeService.setUpReposeEnvironment(ReposeEnvironmentType.GENERATED_ORIGIN,
-                            user, id, configurationList);
-                    if(reposeId == null) {
-                        ObjectNode response = JsonNodeFactory.instance.objectNode();
-                        response.put("message", "unable to create repose environment.");
-                        return internalServerError(Json.toJson(response));
-                    } else {
+                //by default take the generated origin type
+                BuildJob job = buildJobService.submit(user, id, jsonRequest);
+                ObjectNode response = JsonNodeFactory.instance.objectNode();
+                response.put("message", "accepted");
+                response.put("job", job.getId());
+                return status(ACCEPTED, Json.toJson(response));
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return unauthorized();
+            }
+        }
+    }
+
+    /**
+     * Status of a build job: phases with timings, and the repose id once it succeeded.
+     * @param id job id
+     * @return
+     */
+    public Result buildStatus(String id) {
+        Logger.debug("Get build job " + id);
+
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(!userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return unauthorized();
+        } else {
+            //get user by token.
+            User user = userService.findByToken(token);
+            if(user != null) {
+                BuildJob job = buildJobService.getJob(user, id);
+                if(job == null)
+                    return notFound();
+                return ok(Json.toJson(job));
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return unauthorized();
+            }
+        }
+    }
+
+    /**
+     * Build queue of the user's tenant: builds queued and running per version, and how many identical
+     * requests were coalesced into a running build.
+     * @return
+     */
+    public Result buildQueue() {
+        Logger.debug("Get build queue");
+
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(!userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return unauthorized();
+        } else {
+            //get user by token.
+            User user = userService.findByToken(token);
+            if(user != null) {
+                return ok(buildJobService.getQueueStats(user));
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return unauthorized();
+            }
+        }
+    }
+
+    /**
+     * Ticket for the build job stream, so an EventSource doesn't have to put the token in the url.
+     * @param id job id
+     * @return ticket good for one stream within 30 seconds
+     */
+    public Result streamBuildTicket(String id) {
+        Logger.debug("Issue a stream ticket for build job " + id);
+
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        String ticket = userService.issueStreamTicket(token, "builds/" + id);
+        if(ticket == null) {
+            Logger.warn("Invalid or expired token");
+            return unauthorized();
+        }
+        ObjectNode response = JsonNodeFactory.instance.objectNode();
+        response.put("ticket", ticket);
+        return ok(response);
+    }
+
+    /**
+     * Server sent events for a build job.  EventSource can't set headers so it passes
+     * a stream ticket as the ticket query parameter instead.
+     * @param id job id
+     * @return
+     */
+    public Result streamBuild(String id) {
+        Logger.debug("Stream build job " + id);
+
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(token == null ? request().getQueryString("ticket") == null : !userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return unauthorized();
+        } else {
+            //get user by token, or by the ticket the token was traded for.
+            User user = token != null ? userService.findByToken(token) :
+                    userService.redeemStreamTicket(request().getQueryString("ticket"), "builds/" + id);
+            if (user != null) {
+                if(buildJobService.getJob(user, id) == null)
+                    return notFound();
+                return ok(EventSource.whenConnected(eventSource -> {
+                    BiConsumer<String, JsonNode> listener = (type, payload) -> {
+                        eventSource.send(EventSource.Event.event(payload).withName(type));
+                        if(BuildJobService.DONE.equals(type) || BuildJobService.FAILED.equals(type))
+                            eventSource.close();
+                    };
+                    eventSource.onDisconnected(() -> buildJobService.unsubscribe(id, listener));
+                    if(!buildJobService.subscribe(user, id, listener)) {
                         ObjectNode response = JsonNodeFactory.instance.objectNode();
-                        response.put("message", "success");
-                        response.put("id", reposeId);
-                        return ok(Json.toJson(response));
+                        response.put("message", "build job " + id + " not found.");
+                        eventSource.send(EventSource.Event.event(response).withName(BuildJobService.FAILED));
+                        eventSource.close();
                     }
-                } catch(NotFoundException nfe){
-                    ObjectNode response = JsonNodeFactory.instance.objectNode();
-                    response.put("message", nfe.getLocalizedMessage());
-                    return badRequest(Json.toJson(response));
-                } catch (InternalServerException ise) {
-                    ObjectNode response = JsonNodeFactory.instance.objectNode();
-                    response.put("message", ise.getLocalizedMessage());
-                    return internalServerError(Json.toJson(response));
-                }
+                }));
             } else {
                 Logger.debug("The only way this could have happened is if token timeout between " +
                         "previous check and now.  Unlikely but possible.");
@@ -195,4 +289,3 @@ public class Application extends Controller {
         }
     }
 }
-
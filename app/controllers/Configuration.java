@@ -1,5 +1,7 @@
 package controllers;
 
+import clients.BuildListener;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
@@ -9,6 +11,7 @@ import factories.ConfigurationFactory;
 import models.ReposeEnvironmentType;
 import models.User;
 import play.Logger;
+import play.libs.F;
 import play.libs.Json;
 import play.mvc.Controller;
 import play.mvc.Http;
@@ -18,7 +21,10 @@ import services.IReposeService;
 import services.IUserService;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by dimi5963 on 3/1/16.
@@ -45,41 +51,38 @@ public class Configuration extends Controller {
      * Retrieve configurations for repose id
      *
      * Retrieval is done in xml form, which can then be either zipped up or sent across wrapped in json object
+     * Optional name query parameter (repeated or comma separated) only returns those configurations,
+     * e.g. ?name=system-model.cfg.xml&name=container.cfg.xml
      * @param id
      * @return
      */
-    public Result configurations(String id){
+    public F.Promise<Result> configurations(String id){
         Logger.debug("In configurations controller");
 
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
-            return unauthorized();
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
         } else
         {
             //get user by token.
             User user = userService.findByToken(token);
             if(user != null) {
 
-                try {
-                    List<models.Configuration> configurationList =
-                            configurationService.getConfigurationsForInstance(user, id);
+                return recoverInternalServerError(configurationService.getConfigurationsForInstance(user, id,
+                        getNames()).map(configurationList -> {
                     if(configurationList != null)
                         return ok(Json.toJson(configurationList));
                     else
                         return ok(Json.toJson(new ArrayList<models.Configuration>()));
-                } catch(InternalServerException ise) {
-                    ObjectNode response = JsonNodeFactory.instance.objectNode();
-                    response.put("message", ise.getLocalizedMessage());
-                    return internalServerError(Json.toJson(response));
-                }
+                }));
 
             } else {
                 Logger.debug("The only way this could have happened is if token timeout between " +
                         "previous check and now.  Unlikely but possible.");
-                return unauthorized();
+                return F.Promise.pure(unauthorized());
             }
         }
     }
@@ -91,16 +94,16 @@ public class Configuration extends Controller {
      * @param id
      * @return
      */
-    public Result uploadReposeConfigs(String id){
+    public F.Promise<Result> uploadReposeConfigs(String id){
         Logger.debug("In upload repose configs controller.  Create repose instance for version " + id);
 
         Http.MultipartFormData configurations = request().body().asMultipartFormData();
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
-            return unauthorized();
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
         } else
         {
             //get user by token.
@@ -114,32 +117,121 @@ public class Configuration extends Controller {
                     List<models.Configuration> configurationList =
                             configurationFactory.translateConfigurationsFromUpload(user, id, configurations);
 
-                    String reposeId = reposeService.setUpReposeEnvironment(ReposeEnvironmentType.GENERATED_ORIGIN,
-                            user, id, configurationList);
-                    if(reposeId == null) {
-                        ObjectNode response = JsonNodeFactory.instance.objectNode();
-                        response.put("message", "unable to create repose environment.");
-                        return internalServerError(Json.toJson(response));
-                    } else {
-                        ObjectNode response = JsonNodeFactory.instance.objectNode();
-                        response.put("message", "success");
-                        response.put("id", reposeId);
-                        return ok(Json.toJson(response));
-                    }
+                    return recoverInternalServerError(reposeService.setUpReposeEnvironmentAsync(
+                            ReposeEnvironmentType.GENERATED_ORIGIN, user, id, configurationList,
+                            BuildListener.NONE).map(reposeId -> {
+                        if(reposeId == null) {
+                            ObjectNode response = JsonNodeFactory.instance.objectNode();
+                            response.put("message", "unable to create repose environment.");
+                            return internalServerError(Json.toJson(response));
+                        } else {
+                            ObjectNode response = JsonNodeFactory.instance.objectNode();
+                            response.put("message", "success");
+                            response.put("id", reposeId);
+                            return ok(Json.toJson(response));
+                        }
+                    }));
                 } catch(NotFoundException nfe){
                     ObjectNode response = JsonNodeFactory.instance.objectNode();
                     response.put("message", nfe.getLocalizedMessage());
-                    return badRequest(Json.toJson(response));
+                    return F.Promise.pure(badRequest(Json.toJson(response)));
                 } catch (InternalServerException ise) {
                     ObjectNode response = JsonNodeFactory.instance.objectNode();
                     response.put("message", ise.getLocalizedMessage());
-                    return internalServerError(Json.toJson(response));
+                    return F.Promise.pure(internalServerError(Json.toJson(response)));
                 }
             } else {
                 Logger.debug("The only way this could have happened is if token timeout between " +
                         "previous check and now.  Unlikely but possible.");
-                return unauthorized();
+                return F.Promise.pure(unauthorized());
             }
         }
     }
+
+    /**
+     * Push changed configurations into a running repose instance
+     *
+     * Body is a json array of configurations, same shape as configurations(id) returns:
+     * [{"name": "ip-user.cfg.xml", "xml": "..."}]
+     * Files are copied into /etc/repose of the running container and repose reloads them on its own,
+     * no image build or restart.  reloaded is false if repose didn't report the reload in time.
+     * @param id container id
+     * @return
+     */
+    public F.Promise<Result> reconfigure(String id){
+        Logger.debug("In reconfigure controller.  Push configurations to " + id);
+
+        Http.RequestBody requestBody = request().body();
+        JsonNode configurations = requestBody == null ? null : requestBody.asJson();
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(!userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
+        } else
+        {
+            //get user by token.
+            User user = userService.findByToken(token);
+            if(user != null) {
+                List<models.Configuration> configurationList = translateConfigurations(configurations);
+                if(configurationList == null) {
+                    ObjectNode response = JsonNodeFactory.instance.objectNode();
+                    response.put("message", "Expected a list of configurations with xml file names and xml.");
+                    return F.Promise.pure(badRequest(Json.toJson(response)));
+                }
+                return recoverInternalServerError(configurationService.reconfigureInstance(user, id,
+                        configurationList).map(reloaded -> {
+                    ObjectNode response = JsonNodeFactory.instance.objectNode();
+                    response.put("message", "success");
+                    response.put("id", id);
+                    response.put("reloaded", reloaded);
+                    return ok(Json.toJson(response));
+                }));
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return F.Promise.pure(unauthorized());
+            }
+        }
+    }
+
+    private List<models.Configuration> translateConfigurations(JsonNode configurations) {
+        if(configurations == null || !configurations.isArray() || configurations.size() == 0)
+            return null;
+        List<models.Configuration> configurationList = new ArrayList<>();
+        for(JsonNode configuration: configurations) {
+            String name = configuration.path("name").asText();
+            //plain file names only, nothing outside of /etc/repose
+            if(!name.matches("[\\w.-]+\\.xml") || !configuration.path("xml").isTextual())
+                return null;
+            configurationList.add(new models.Configuration(name, configuration.get("xml").asText()));
+        }
+        return configurationList;
+    }
+
+    private Set<String> getNames() {
+        Set<String> names = new HashSet<>();
+        Map<String, String[]> queryString = request().queryString();
+        if(queryString != null && queryString.get("name") != null) {
+            for(String name: queryString.get("name"))
+                for(String fileName: name.split(","))
+                    if(!fileName.trim().isEmpty())
+                        names.add(fileName.trim());
+        }
+        return names;
+    }
+
+    /***
+     * A failed lookup comes back as 500 with its message, like a thrown InternalServerException
+     */
+    private static F.Promise<Result> recoverInternalServerError(F.Promise<Result> result) {
+        return result.recover(throwable -> {
+            if(!(throwable instanceof InternalServerException))
+                throw throwable;
+            ObjectNode response = JsonNodeFactory.instance.objectNode();
+            response.put("message", throwable.getLocalizedMessage());
+            return internalServerError(Json.toJson(response));
+        });
+    }
 }
@@ -32,7 +32,7 @@ public class Login extends Controller {
     }
 
     public Result index() {
-        Logger.debug("Retrieve the user for " + request().getHeader("Token"));
+        Logger.debug("Retrieve the user for the token");
         String token = request().getHeader("Token");
         Logger.debug("The return user is " +
                 userService.findByToken(token));
@@ -43,7 +43,7 @@ public class Login extends Controller {
         } else {
             User user = userService.findByToken(token);
             if(user != null) {
-                Logger.debug("User is authorized: " + user.toString() + " for " + token);
+                Logger.debug("User is authorized: " + user.toString());
                 return ok(Json.toJson(user));
             } else {
                 Logger.debug("The only way this could have happened is if token timeout between " +
@@ -1,21 +1,24 @@
 package controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
 import exceptions.InternalServerException;
 import models.Container;
-import models.ContainerStats;
 import models.User;
 import play.Logger;
+import play.libs.EventSource;
+import play.libs.F;
 import play.libs.Json;
 import play.mvc.Controller;
 import play.mvc.Result;
+import play.mvc.Results;
 import services.IReposeService;
 import services.IUserService;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.function.BiConsumer;
 
 public class Repose extends Controller {
 
@@ -38,38 +41,41 @@ public class Repose extends Controller {
      *           3. Download cluster zip and put it into /tmp/{tenant}/ directory
      *           4. Parse docker.env and get the DOCKER_HOST location
      *           5. Use docker client to retrieve all running repose containers
+     *           The cluster may have to be provisioned first, so the result is a promise.
      * @return Result list of container models
      */
-    public Result list() {
+    public F.Promise<Result> list() {
         Logger.debug("Get repose list");
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
-            return unauthorized();
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
         } else
         {
             //get user by token.
             User user = userService.findByToken(token);
             if(user != null) {
-                Logger.debug("User is authorized: " + user.toString() + " for " + token);
+                Logger.debug("User is authorized: " + user.toString());
                 try{
-                    List<Container> containerList = reposeService.getReposeList(user);
-                    if(containerList != null)
-                        return ok(Json.toJson(containerList));
-                    else
-                        return ok(Json.toJson(new ArrayList<Container>()));
+                    //a first-time user waits for the cluster to be provisioned.  don't hold a thread for it
+                    return recoverInternalServerError(reposeService.getReposeList(user).map(containerList -> {
+                        if(containerList != null)
+                            return ok(Json.toJson(containerList));
+                        else
+                            return ok(Json.toJson(new ArrayList<Container>()));
+                    }));
                 } catch(InternalServerException ise) {
                     ObjectNode response = JsonNodeFactory.instance.objectNode();
                     response.put("message", ise.getLocalizedMessage());
-                    return internalServerError(Json.toJson(response));
+                    return F.Promise.pure(internalServerError(Json.toJson(response)));
                 }
 
             } else {
                 Logger.debug("The only way this could have happened is if token timeout between " +
                         "previous check and now.  Unlikely but possible.");
-                return unauthorized();
+                return F.Promise.pure(unauthorized());
             }
         }
     }
@@ -79,36 +85,32 @@ public class Repose extends Controller {
      * @param id id of the container
      * @return
      */
-    public Result stop(String id) {
+    public F.Promise<Result> stop(String id) {
         Logger.debug("Stop repose instance");
 
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
-            return unauthorized();
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
         } else {
             //get user by token.
             User user = userService.findByToken(token);
             if(user != null) {
-                try{
+                return recoverInternalServerError(reposeService.stopReposeInstance(user, id).map(stopped -> {
                     ObjectNode response = JsonNodeFactory.instance.objectNode();
-                    if (reposeService.stopReposeInstance(user, id))
+                    if (stopped)
                         response.put("message", "success");
                     else
                         response.put("message", "failed to stop");
                     return ok(Json.toJson(response));
-                } catch(InternalServerException ise) {
-                    ObjectNode response = JsonNodeFactory.instance.objectNode();
-                    response.put("message", ise.getLocalizedMessage());
-                    return internalServerError(Json.toJson(response));
-                }
+                }));
 
             } else {
                 Logger.debug("The only way this could have happened is if token timeout between " +
                         "previous check and now.  Unlikely but possible.");
-                return unauthorized();
+                return F.Promise.pure(unauthorized());
             }
         }
     }
@@ -118,37 +120,33 @@ public class Repose extends Controller {
      * @param id id of the container
      * @return Result repose container id
      */
-    public Result start(String id) {
+    public F.Promise<Result> start(String id) {
         Logger.debug("Start repose instance");
 
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
-            return unauthorized();
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
         } else {
             //get user by token.
             User user = userService.findByToken(token);
             if (user != null) {
 
-                try {
+                return recoverInternalServerError(reposeService.startReposeInstance(user, id).map(started -> {
                     ObjectNode response = JsonNodeFactory.instance.objectNode();
-                    if (reposeService.startReposeInstance(user, id))
+                    if (started)
                         response.put("message", "success");
                     else
                         response.put("message", "failed to start");
                     return ok(Json.toJson(response));
-                } catch (InternalServerException ise) {
-                    ObjectNode response = JsonNodeFactory.instance.objectNode();
-                    response.put("message", ise.getLocalizedMessage());
-                    return internalServerError(Json.toJson(response));
-                }
+                }));
 
             } else {
                 Logger.debug("The only way this could have happened is if token timeout between " +
                         "previous check and now.  Unlikely but possible.");
-                return unauthorized();
+                return F.Promise.pure(unauthorized());
             }
 
         }
@@ -159,22 +157,21 @@ public class Repose extends Controller {
      * @param id
      * @return Result stats array
      */
-    public Result stats(String id) {
+    public F.Promise<Result> stats(String id) {
         Logger.debug("Return repose instance stats");
 
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
-            return unauthorized();
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
         } else {
             //get user by token.
             User user = userService.findByToken(token);
             if (user != null) {
 
-                try {
-                    ContainerStats stats = reposeService.getInstanceStats(user, id);
+                return recoverInternalServerError(reposeService.getInstanceStats(user, id).map(stats -> {
                     if(stats != null)
                         return ok(Json.toJson(stats));
                     else {
@@ -182,21 +179,200 @@ public class Repose extends Controller {
                         response.put("message", "No stats found.");
                         return ok(Json.toJson(response));
                     }
+                }));
 
-                } catch (InternalServerException ise) {
-                    ObjectNode response = JsonNodeFactory.instance.objectNode();
-                    response.put("message", ise.getLocalizedMessage());
-                    return internalServerError(Json.toJson(response));
-                }
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return F.Promise.pure(unauthorized());
+            }
+
+        }
+    }
+
+    /***
+     * Warm pool of pre-started repose containers on the user's cluster.
+     * Returns pool size, per version target/idle/pending/uses and hit/miss counters.
+     * @return Result warm pool stats
+     */
+    public F.Promise<Result> pool() {
+        Logger.debug("Return warm pool stats");
+
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(!userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
+        } else {
+            //get user by token.
+            User user = userService.findByToken(token);
+            if (user != null) {
+                return recoverInternalServerError(reposeService.getWarmPoolStats(user).map(Results::ok));
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return F.Promise.pure(unauthorized());
+            }
+        }
+    }
+
+    /***
+     * Container state cache for the user's cluster.
+     * Returns cached tenants and containers, hit/miss and resync counters and the staleness of the oldest tenant.
+     * @return Result container cache stats
+     */
+    public F.Promise<Result> cache() {
+        Logger.debug("Return container cache stats");
 
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(!userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
+        } else {
+            //get user by token.
+            User user = userService.findByToken(token);
+            if (user != null) {
+                return recoverInternalServerError(reposeService.getContainerCacheStats(user).map(Results::ok));
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return F.Promise.pure(unauthorized());
+            }
+        }
+    }
+
+    /***
+     * Cluster cache shared by all users.
+     * Returns cached clusters, hit/miss and load counters, hit rate and average load time.
+     * @return Result cluster cache stats
+     */
+    public Result clusterCache() {
+        Logger.debug("Return cluster cache stats");
+
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(!userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return unauthorized();
+        } else {
+            //get user by token.
+            User user = userService.findByToken(token);
+            if (user != null) {
+                return ok(reposeService.getClusterCacheStats());
             } else {
                 Logger.debug("The only way this could have happened is if token timeout between " +
                         "previous check and now.  Unlikely but possible.");
                 return unauthorized();
             }
+        }
+    }
+
+    /***
+     * Health of the clusters in use, shared by all users.
+     * Returns every cluster's last probe, probe latency percentiles, certificate expiry and credential refreshes.
+     * @return Result cluster health
+     */
+    public Result clusterHealth() {
+        Logger.debug("Return cluster health");
 
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(!userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return unauthorized();
+        } else {
+            //get user by token.
+            User user = userService.findByToken(token);
+            if (user != null) {
+                return ok(reposeService.getClusterHealth(user));
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return unauthorized();
+            }
         }
     }
-}
 
+    /***
+     * Repose stats stream ticket lets an EventSource open the stats stream of the instance without the token
+     * @param id id of the container
+     * @return Result with the ticket, good for one stream within 30 seconds
+     */
+    public Result streamStatsTicket(String id) {
+        Logger.debug("Issue a stats stream ticket");
+
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        String ticket = userService.issueStreamTicket(token, "repose/stats/" + id);
+        if(ticket == null) {
+            Logger.warn("Invalid or expired token");
+            return unauthorized();
+        }
+        ObjectNode response = JsonNodeFactory.instance.objectNode();
+        response.put("ticket", ticket);
+        return ok(response);
+    }
 
+    /***
+     * Repose stats stream will push running instance's stats as server sent events.
+     * The first "stats" event has the full stats, the following "delta" events only have the fields that changed.
+     * All viewers of the same instance share one upstream stats poll.
+     * EventSource can't set headers, so it passes a stream ticket in the ticket query parameter instead.
+     * @param id id of the container
+     * @return Result event stream
+     */
+    public Result streamStats(String id) {
+        Logger.debug("Stream repose instance stats");
+
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(token == null ? request().getQueryString("ticket") == null : !userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return unauthorized();
+        } else {
+            //get user by token, or by the ticket the token was traded for.
+            User user = token != null ? userService.findByToken(token) :
+                    userService.redeemStreamTicket(request().getQueryString("ticket"), "repose/stats/" + id);
+            if (user != null) {
+                return ok(EventSource.whenConnected(eventSource -> {
+                    BiConsumer<String, JsonNode> listener = (type, stats) -> {
+                        eventSource.send(EventSource.Event.event(stats).withName(type));
+                        if("error".equals(type))
+                            eventSource.close();
+                    };
+                    eventSource.onDisconnected(() -> reposeService.unsubscribeInstanceStats(user, id, listener));
+                    reposeService.subscribeInstanceStats(user, id, listener).onFailure(throwable -> {
+                        ObjectNode response = JsonNodeFactory.instance.objectNode();
+                        response.put("message", throwable.getLocalizedMessage());
+                        eventSource.send(EventSource.Event.event(response).withName("error"));
+                        eventSource.close();
+                    });
+                }));
+            } else {
+                Logger.debug("Stream ticket is unknown, used or expired, or the token timed out between " +
+                        "previous check and now.");
+                return unauthorized();
+            }
+
+        }
+    }
+
+    /***
+     * A failed service promise comes back as 500 with its message, like a thrown InternalServerException
+     */
+    private static F.Promise<Result> recoverInternalServerError(F.Promise<Result> result) {
+        return result.recover(throwable -> {
+            if(!(throwable instanceof InternalServerException))
+                throw throwable;
+            ObjectNode response = JsonNodeFactory.instance.objectNode();
+            response.put("message", throwable.getLocalizedMessage());
+            return internalServerError(Json.toJson(response));
+        });
+    }
+}
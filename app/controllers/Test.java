@@ -7,6 +7,7 @@ import com.google.inject.Inject;
 import exceptions.InternalServerException;
 import models.User;
 import play.Logger;
+import play.libs.F;
 import play.libs.Json;
 import play.mvc.Controller;
 import play.mvc.Http;
@@ -31,51 +32,134 @@ public class Test extends Controller {
 
     /***
      * Repose test will do the following:
-     * 1. empty current.log, http-debug.log, intra-filter.log
+     * 1. record the size of current.log, http-debug.log, intra-filter.log, error.log
      * 2. make a request based on json to running repose node (get by {id})
      * 3. put response in response json
-     * 4. put current.log in current json
-     * 5. put http-debug.log in http json
-     * 6. put intra-filter.log in intra-filter json
-     * 7. return all the jsons
+     * 4. put current.log appended since step 1 in current json
+     * 5. put http-debug.log appended since step 1 in http json
+     * 6. put intra-filter.log appended since step 1 in intra-filter json
+     * 7. put time spent copying the logs out in logCollectionMillis
+     * 8. return all the jsons
      *
      * @param id container id
      * @return Result test result
      */
-    public Result test(String id){
+    public F.Promise<Result> test(String id){
         Logger.debug("In test controller.  Get test form: " + id);
         Http.RequestBody request = request().body();
         if(request == null)
-            return badRequest("Not a proper request.");
+            return F.Promise.pure(badRequest("Not a proper request."));
         JsonNode requestBody = request.asJson();
         String token = request().getHeader("Token");
-        Logger.debug("Check the user for " + token);
+        Logger.debug("Check the user");
         //check if expired
         if(!userService.isValid(token)) {
-            Logger.warn("Invalid user: " + token);
-            return unauthorized();
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
         } else {
             //get user by token.
             User user = userService.findByToken(token);
             if (user != null) {
-                Logger.debug("User is authorized: " + user.toString() + " for " + token);
-                try {
-                    ObjectNode result = testService.testReposeInstance(user, id, requestBody);
+                Logger.debug("User is authorized: " + user.toString());
+                return recoverInternalServerError(testService.testReposeInstance(user, id, requestBody).map(result -> {
                     if(result == null)
                         return ok();
                     return ok(Json.toJson(result));
-                } catch (InternalServerException ise) {
-                    ObjectNode response = JsonNodeFactory.instance.objectNode();
-                    response.put("message", ise.getLocalizedMessage());
-                    return internalServerError(Json.toJson(response));
-                }
+                }));
 
             } else {
                 Logger.debug("The only way this could have happened is if token timeout between " +
                         "previous check and now.  Unlikely but possible.");
-                return unauthorized();
+                return F.Promise.pure(unauthorized());
             }
         }
     }
 
+    /***
+     * Run several test requests against the repose instance in one call.  The container is looked up and the
+     * logs are copied out once for the whole batch.
+     *
+     * Body is an array of test requests, or {"requests": [...], "concurrency": n}.  Every response gets the
+     * log entries tagged with its x-trans-id, in sequence (the default) or not.
+     *
+     * @param id container id
+     * @return Result batch result
+     */
+    public F.Promise<Result> batch(String id){
+        Logger.debug("In test controller.  Get test batch: " + id);
+        Http.RequestBody request = request().body();
+        if(request == null)
+            return F.Promise.pure(badRequest("Not a proper request."));
+        JsonNode requestBody = request.asJson();
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(!userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
+        } else {
+            //get user by token.
+            User user = userService.findByToken(token);
+            if (user != null) {
+                Logger.debug("User is authorized: " + user.toString());
+                return recoverInternalServerError(testService.testReposeInstanceBatch(user, id, requestBody)
+                        .map(result -> ok(Json.toJson(result))));
+
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return F.Promise.pure(unauthorized());
+            }
+        }
+    }
+
+    /**
+     * Load test a repose instance.  Copies of one test request are sent for a while and the result has
+     * the throughput, error and status code counts and latency percentiles.  No logs are collected.
+     *
+     * Body is {"request": {...}, "concurrency": n, "rate": r, "durationSeconds": d}.
+     *
+     * @param id container id
+     * @return Result load test result
+     */
+    public F.Promise<Result> load(String id){
+        Logger.debug("In test controller.  Get load test: " + id);
+        Http.RequestBody request = request().body();
+        if(request == null)
+            return F.Promise.pure(badRequest("Not a proper request."));
+        JsonNode requestBody = request.asJson();
+        String token = request().getHeader("Token");
+        Logger.debug("Check the user");
+        //check if expired
+        if(!userService.isValid(token)) {
+            Logger.warn("Invalid or expired token");
+            return F.Promise.pure(unauthorized());
+        } else {
+            //get user by token.
+            User user = userService.findByToken(token);
+            if (user != null) {
+                Logger.debug("User is authorized: " + user.toString());
+                return recoverInternalServerError(testService.loadTestReposeInstance(user, id, requestBody)
+                        .map(result -> ok(Json.toJson(result))));
+
+            } else {
+                Logger.debug("The only way this could have happened is if token timeout between " +
+                        "previous check and now.  Unlikely but possible.");
+                return F.Promise.pure(unauthorized());
+            }
+        }
+    }
+
+    /***
+     * A failed test comes back as 500 with its message, like a thrown InternalServerException
+     */
+    private static F.Promise<Result> recoverInternalServerError(F.Promise<Result> result) {
+        return result.recover(throwable -> {
+            if(!(throwable instanceof InternalServerException))
+                throw throwable;
+            ObjectNode response = JsonNodeFactory.instance.objectNode();
+            response.put("message", throwable.getLocalizedMessage());
+            return internalServerError(Json.toJson(response));
+        });
+    }
 }
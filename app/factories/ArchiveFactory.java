@@ -0,0 +1,22 @@
+package factories;
+
+import com.google.inject.ImplementedBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.function.Predicate;
+
+@ImplementedBy(ArchiveFactoryImpl.class)
+public interface ArchiveFactory {
+
+    /***
+     * Read the regular files whose name passes the filter out of a tar stream (e.g. docker copy of a directory).
+     * Entries that don't pass are skipped without being buffered.
+     * @param archive tar stream.  Caller closes it.
+     * @param fileNameFilter tested against the file name (without directories)
+     * @return file name (without directories) to file content
+     * @throws IOException if the stream is not a valid tar
+     */
+    Map<String, String> readTextFiles(InputStream archive, Predicate<String> fileNameFilter) throws IOException;
+}
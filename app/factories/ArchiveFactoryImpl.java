@@ -0,0 +1,35 @@
+package factories;
+
+import com.google.common.io.ByteStreams;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static play.Logger.debug;
+
+public class ArchiveFactoryImpl implements ArchiveFactory {
+
+    @Override
+    public Map<String, String> readTextFiles(InputStream archive, Predicate<String> fileNameFilter) throws IOException {
+        Map<String, String> files = new HashMap<>();
+        TarArchiveInputStream tarInputStream = new TarArchiveInputStream(archive);
+        TarArchiveEntry entry;
+        while ((entry = tarInputStream.getNextTarEntry()) != null) {
+            if (!entry.isFile())
+                continue;
+            String fileName = Paths.get(entry.getName()).getFileName().toString();
+            if (!fileNameFilter.test(fileName))
+                continue;
+            debug("Read " + entry.getName() + " from archive");
+            files.put(fileName, new String(ByteStreams.toByteArray(tarInputStream), StandardCharsets.UTF_8));
+        }
+        return files;
+    }
+}
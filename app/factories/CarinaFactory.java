@@ -1,14 +1,24 @@
 package factories;
 
+import com.spotify.docker.client.DockerCertificateException;
+import com.spotify.docker.client.DockerCertificates;
+import exceptions.InternalServerException;
 import models.User;
 import play.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 
 /**
@@ -16,14 +26,17 @@ import java.util.zip.ZipEntry;
  */
 public class CarinaFactory implements ICarinaFactory {
 
+    private static final List<String> CERTIFICATE_FILES = Arrays.asList(
+            DockerCertificates.DEFAULT_CA_CERT_NAME,
+            DockerCertificates.DEFAULT_CLIENT_CERT_NAME,
+            DockerCertificates.DEFAULT_CLIENT_KEY_NAME);
+
     @Override
-    public boolean createFileInCarina(ZipEntry file, StringWriter data, User user) {
+    public boolean createFileInCarina(ZipEntry file, byte[] data, User user) {
         try {
-            String parentDirectories = file.getName().substring(0, file.getName().lastIndexOf("/"));
-            if(!Files.isDirectory(getCarinaDirectory(user.tenant).resolve(Paths.get(parentDirectories)))){
-                Files.createDirectories(getCarinaDirectory(user.tenant).resolve(Paths.get(parentDirectories)));
-            }
-            return Files.write(getCarinaDirectory(user.tenant).resolve(file.getName()), Arrays.asList(data.toString().split("\n"))) != null;
+            Path carinaFile = getCarinaDirectory(user.tenant).resolve(file.getName());
+            Files.createDirectories(carinaFile.getParent());
+            return Files.write(carinaFile, data) != null;
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -31,64 +44,95 @@ public class CarinaFactory implements ICarinaFactory {
     }
 
     @Override
-    public Path getCarinaDirectory(String tenant) {
-        return Paths.get("/tmp", tenant);
+    public boolean hasDockerCertificates(Path certDirectory) {
+        return CERTIFICATE_FILES.stream().allMatch(name -> Files.isRegularFile(certDirectory.resolve(name)));
     }
 
     @Override
-    public Path getCarinaDirectoryWithCluster(String tenant, String cluster) {
-        return getCarinaDirectory(tenant).resolve(cluster);
+    public DockerCertificates createDockerCertificates(Path certDirectory) throws InternalServerException {
+        try {
+            return new DockerCertificates(certDirectory);
+        } catch (DockerCertificateException | RuntimeException e) {
+            //a key that isn't a PEM key pair fails with a ClassCastException
+            Logger.error("Unable to load certificates from " + certDirectory + ": " + e.getLocalizedMessage());
+            throw new InternalServerException("Unable to load cluster certificates.");
+        }
     }
 
     @Override
-    public Path getCarinaOriginFile(String file) {
-        return play.Play.application().path().toPath().resolve("carina").
-                resolve("origin-image").resolve(file);
+    public DockerCertificates createDockerCertificates(Map<String, byte[]> certificates)
+            throws InternalServerException {
+        //DockerCertificates only reads files.  They live for as long as it takes to parse them
+        Path certDirectory = null;
+        try {
+            certDirectory = Files.createTempDirectory("carina-certs");
+            for (String name : CERTIFICATE_FILES) {
+                byte[] data = certificates.get(name);
+                if (data == null)
+                    throw new InternalServerException("Cluster credentials have no " + name);
+                Files.write(certDirectory.resolve(name), data);
+            }
+            return createDockerCertificates(certDirectory);
+        } catch (IOException e) {
+            Logger.error("Unable to parse cluster certificates: " + e.getLocalizedMessage());
+            throw new InternalServerException("Unable to load cluster certificates.");
+        } finally {
+            if (certDirectory != null)
+                delete(certDirectory);
+        }
     }
 
     @Override
-    public Path getOriginImageFile(String tenant, String file) throws IOException {
-        return getOriginImageDirectory(tenant).resolve(file);
+    public Date getCertificateExpiry(byte[] certificate) throws InternalServerException {
+        try (InputStream certificateStream = new ByteArrayInputStream(certificate)) {
+            return ((X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(certificateStream)).getNotAfter();
+        } catch (CertificateException | IOException | ClassCastException e) {
+            Logger.error("Unable to parse cluster certificate: " + e.getLocalizedMessage());
+            throw new InternalServerException("Unable to read the cluster certificate expiry.");
+        }
     }
 
     @Override
-    public Path getOriginImageDirectory(String tenant) throws IOException {
+    public Date getCertificateExpiry(Path certDirectory) throws InternalServerException {
         try {
-            return Files.createDirectories(getCarinaDirectory(tenant).resolve("origin_image"));
+            return getCertificateExpiry(Files.readAllBytes(
+                    certDirectory.resolve(DockerCertificates.DEFAULT_CLIENT_CERT_NAME)));
         } catch (IOException e) {
-            Logger.error("Unable to create origin image directory " + e.getLocalizedMessage());
-            throw e;
+            Logger.error("Unable to read cluster certificate: " + e.getLocalizedMessage());
+            throw new InternalServerException("Unable to read the cluster certificate expiry.");
         }
     }
 
-    @Override
-    public Path getReposeConfigDirectory(String tenant) throws IOException {
+    private void delete(Path certDirectory) {
         try {
-            return Files.createDirectories(getReposeImageDirectory(tenant).resolve("repose_config"));
+            for (String name : CERTIFICATE_FILES)
+                Files.deleteIfExists(certDirectory.resolve(name));
+            Files.deleteIfExists(certDirectory);
         } catch (IOException e) {
-            Logger.error("Unable to create repose config directory " + e.getLocalizedMessage());
-            throw e;
+            Logger.warn("Unable to delete " + certDirectory + ": " + e.getLocalizedMessage());
         }
     }
 
     @Override
-    public Path getReposeImageDirectory(String tenant) throws IOException {
-        try {
-            return Files.createDirectories(getCarinaDirectory(tenant).resolve("repose_image"));
-        } catch (IOException e) {
-            Logger.error("Unable to create repose image directory " + e.getLocalizedMessage());
-            throw e;
-        }
+    public Path getCarinaDirectory(String tenant) {
+        return Paths.get("/tmp", tenant);
     }
 
     @Override
-    public Path getCarinaReposeFile(String file){
+    public Path getCarinaDirectoryWithCluster(String tenant, String cluster) {
+        return getCarinaDirectory(tenant).resolve(cluster);
+    }
+
+    @Override
+    public Path getCarinaOriginFile(String file) {
         return play.Play.application().path().toPath().resolve("carina").
-                resolve("repose-image").resolve(file);
+                resolve("origin-image").resolve(file);
     }
 
     @Override
-    public Path getReposeImageFile(String tenant, String file) throws IOException {
-        return getReposeImageDirectory(tenant).resolve(file);
+    public Path getCarinaReposeFile(String file){
+        return play.Play.application().path().toPath().resolve("carina").
+                resolve("repose-image").resolve(file);
     }
 }
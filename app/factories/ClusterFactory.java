@@ -29,4 +29,172 @@ public class ClusterFactory implements IClusterFactory {
     public String getCarinaClusterUrl(String username, String clusterName) {
         return getCarinaEndpoint() + username + "/" + clusterName;
     }
+
+    @Override
+    public long getDockerClientIdleMinutes() {
+        return play.Play.application().configuration().getLong("docker.client.idle.minutes", 10L);
+    }
+
+    @Override
+    public int getStatsParallelism(String clusterName) {
+        //cluster specific setting wins over the default one
+        return play.Play.application().configuration().getInt("docker.stats.cluster." + clusterName + ".parallelism",
+                play.Play.application().configuration().getInt("docker.stats.parallelism", 4));
+    }
+
+    @Override
+    public long getStatsTimeoutMillis() {
+        return play.Play.application().configuration().getLong("docker.stats.timeout.millis", 5000L);
+    }
+
+    @Override
+    public long getStatsStreamIntervalMillis() {
+        return play.Play.application().configuration().getLong("docker.stats.stream.interval.millis", 2000L);
+    }
+
+    @Override
+    public long getReconfigureTimeoutMillis() {
+        return play.Play.application().configuration().getLong("docker.reconfigure.timeout.millis", 30000L);
+    }
+
+    @Override
+    public long getReconfigurePollMillis() {
+        return play.Play.application().configuration().getLong("docker.reconfigure.poll.millis", 1000L);
+    }
+
+    @Override
+    public int getBuildParallelism() {
+        return play.Play.application().configuration().getInt("docker.build.parallelism", 2);
+    }
+
+    @Override
+    public int getWarmPoolSize() {
+        return play.Play.application().configuration().getInt("docker.warm.pool.size", 0);
+    }
+
+    @Override
+    public int getWarmPoolVersions() {
+        return play.Play.application().configuration().getInt("docker.warm.pool.versions", 2);
+    }
+
+    @Override
+    public int getBuildJobParallelism() {
+        return play.Play.application().configuration().getInt("docker.build.jobs.parallelism", 4);
+    }
+
+    @Override
+    public long getBuildJobRetentionMinutes() {
+        return play.Play.application().configuration().getLong("docker.build.jobs.retention.minutes", 60L);
+    }
+
+    @Override
+    public long getContainerCacheResyncMillis() {
+        return play.Play.application().configuration().getLong("docker.container.cache.resync.millis", 30000L);
+    }
+
+    @Override
+    public long getContainerCacheIdleMinutes() {
+        return play.Play.application().configuration().getLong("docker.container.cache.idle.minutes", 10L);
+    }
+
+    @Override
+    public long getLogMaxBytes(String logName) {
+        return play.Play.application().configuration().getLong("docker.logs." + logName + ".max.bytes",
+                play.Play.application().configuration().getLong("docker.logs.max.bytes", 1048576L));
+    }
+
+    @Override
+    public int getTestParallelism() {
+        return play.Play.application().configuration().getInt("docker.test.parallelism", 4);
+    }
+
+    @Override
+    public int getTestBatchMaxRequests() {
+        return play.Play.application().configuration().getInt("docker.test.batch.max.requests", 100);
+    }
+
+    @Override
+    public long getLoadTestMaxDurationSeconds() {
+        return play.Play.application().configuration().getLong("docker.loadtest.max.duration.seconds", 60L);
+    }
+
+    @Override
+    public int getLoadTestMaxConcurrency() {
+        return play.Play.application().configuration().getInt("docker.loadtest.max.concurrency", 50);
+    }
+
+    @Override
+    public int getLoadTestMaxRate() {
+        return play.Play.application().configuration().getInt("docker.loadtest.max.rate", 1000);
+    }
+
+    @Override
+    public long getLoadTestRequestTimeoutMillis() {
+        return play.Play.application().configuration().getLong("docker.loadtest.request.timeout.millis", 10000L);
+    }
+
+    @Override
+    public long getClusterCacheTtlMinutes() {
+        return play.Play.application().configuration().getLong("docker.cluster.cache.ttl.minutes", 10L);
+    }
+
+    @Override
+    public long getClusterCacheMaxSize() {
+        return play.Play.application().configuration().getLong("docker.cluster.cache.max.size", 1000L);
+    }
+
+    @Override
+    public long getClusterProvisionInitialBackoffMillis() {
+        return play.Play.application().configuration().getLong("docker.cluster.provision.backoff.initial.millis", 1000L);
+    }
+
+    @Override
+    public long getClusterProvisionMaxBackoffMillis() {
+        return play.Play.application().configuration().getLong("docker.cluster.provision.backoff.max.millis", 15000L);
+    }
+
+    @Override
+    public long getClusterProvisionDeadlineSeconds() {
+        return play.Play.application().configuration().getLong("docker.cluster.provision.deadline.seconds", 600L);
+    }
+
+    @Override
+    public boolean isClusterCertificatesInMemory() {
+        return play.Play.application().configuration().getBoolean("docker.cluster.certs.in.memory", false);
+    }
+
+    @Override
+    public String getClusterProvider() {
+        return play.Play.application().configuration().getString("docker.cluster.provider", "carina");
+    }
+
+    @Override
+    public String getLocalDockerUri() {
+        return play.Play.application().configuration().getString("docker.local.uri", "unix:///var/run/docker.sock");
+    }
+
+    @Override
+    public String getLocalDockerCertPath() {
+        return play.Play.application().configuration().getString("docker.local.cert.path");
+    }
+
+    @Override
+    public long getClusterHealthIntervalMillis() {
+        return play.Play.application().configuration().getLong("docker.cluster.health.interval.millis", 60000L);
+    }
+
+    @Override
+    public long getClusterHealthIdleMinutes() {
+        return play.Play.application().configuration().getLong("docker.cluster.health.idle.minutes", 30L);
+    }
+
+    @Override
+    public int getClusterHealthFailureThreshold() {
+        return play.Play.application().configuration().getInt("docker.cluster.health.failures", 2);
+    }
+
+    @Override
+    public long getClusterCertificateRefreshHours() {
+        return play.Play.application().configuration().getLong("docker.cluster.certs.refresh.before.hours", 24L);
+    }
 }
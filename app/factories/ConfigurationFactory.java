@@ -34,4 +34,13 @@ public interface ConfigurationFactory {
     String generateSystemModelXml(List<Configuration> filterNames,
                                   int majorVersion, User user,
                                   String versionId) throws InternalServerException;
+
+    /***
+     * Turn off org.apache.http.wire in a log4j2.xml.  Wire logging writes every byte of every request, which is
+     * what the test results are built from, but under load it is what slows repose down.
+     * @param loggingXml log4j2.xml content
+     * @return log4j2.xml with the wire logger set to off
+     * @throws InternalServerException if it can't be parsed or has no Loggers
+     */
+    String disableWireLogging(String loggingXml) throws InternalServerException;
 }
@@ -153,6 +153,39 @@ public class ConfigurationFactoryImpl implements ConfigurationFactory {
         return xmlFactory.convertDocumentToString(document);
     }
 
+    @Override
+    public String disableWireLogging(String loggingXml) throws InternalServerException {
+        Document document;
+        try {
+            document = this.documentBuilder.parse(new InputSource(new StringReader(loggingXml)));
+        } catch (SAXException | IOException e) {
+            Logger.error("Unable to parse logging configuration");
+            throw new InternalServerException("Unable to parse logging configuration");
+        }
+
+        NodeList loggersList = document.getElementsByTagName("Loggers");
+        if(loggersList.getLength() == 0)
+            throw new InternalServerException("Logging configuration has no loggers");
+
+        //update the wire logger if there is one, otherwise add it
+        NodeList loggerList = document.getElementsByTagName("Logger");
+        for(int loggerId = 0; loggerId < loggerList.getLength(); loggerId ++ ){
+            Element logger = (Element) loggerList.item(loggerId);
+            if("org.apache.http.wire".equals(logger.getAttribute("name"))) {
+                logger.setAttribute("level", "off");
+                return xmlFactory.convertDocumentToString(document);
+            }
+        }
+        loggersList.item(0).appendChild(xmlFactory.addElement(document, "Logger", new HashMap<String, String>() {
+            {
+                put("name", "org.apache.http.wire");
+                put("level", "off");
+            }
+        }, Optional.<Element>empty()));
+
+        return xmlFactory.convertDocumentToString(document);
+    }
+
     @Override
     public String generateContainerXml(int majorVersion) throws InternalServerException{
         //get new doc builder
@@ -219,7 +252,7 @@ public class ConfigurationFactoryImpl implements ConfigurationFactory {
             appenders.appendChild(consoleAppender);
 
             Element patternLayout = document.createElement("PatternLayout");
-            patternLayout.setAttribute("pattern", "%d %-4r [%t] %-5p %c - %m%n");
+            patternLayout.setAttribute("pattern", "%d %-4r [%t] [%X{traceGuid}] %-5p %c - %m%n");
             consoleAppender.appendChild(patternLayout);
 
             appenders.appendChild(xmlFactory.addElement(document, "RollingFile", new HashMap<String, String>() {
@@ -232,7 +265,7 @@ public class ConfigurationFactoryImpl implements ConfigurationFactory {
                 {
                     add(xmlFactory.addElement(document, "PatternLayout", new HashMap<String, String>() {
                         {
-                            put("pattern", "%d %-4r [%t] %-5p %c - %m%n");
+                            put("pattern", "%d %-4r [%t] [%X{traceGuid}] %-5p %c - %m%n");
                         }
                     }, Optional.empty()));
                     add(xmlFactory.addElement(document, "Policies", new HashMap<>(),
@@ -266,7 +299,7 @@ public class ConfigurationFactoryImpl implements ConfigurationFactory {
                 {
                     add(xmlFactory.addElement(document, "PatternLayout", new HashMap<String, String>() {
                         {
-                            put("pattern", "%d %-4r [%t] %-5p %c - %m%n");
+                            put("pattern", "%d %-4r [%t] [%X{traceGuid}] %-5p %c - %m%n");
                         }
                     }, Optional.empty()));
                     add(xmlFactory.addElement(document, "Policies", new HashMap<>(),
@@ -300,7 +333,7 @@ public class ConfigurationFactoryImpl implements ConfigurationFactory {
                 {
                     add(xmlFactory.addElement(document, "PatternLayout", new HashMap<String, String>() {
                         {
-                            put("pattern", "%d %-4r [%t] %-5p %c - %m%n");
+                            put("pattern", "%d %-4r [%t] [%X{traceGuid}] %-5p %c - %m%n");
                         }
                     }, Optional.empty()));
                     add(xmlFactory.addElement(document, "Policies", new HashMap<>(),
@@ -334,7 +367,7 @@ public class ConfigurationFactoryImpl implements ConfigurationFactory {
                 {
                     add(xmlFactory.addElement(document, "PatternLayout", new HashMap<String, String>() {
                         {
-                            put("pattern", "%d %-4r [%t] %-5p %c - %m%n");
+                            put("pattern", "%d %-4r [%t] [%X{traceGuid}] %-5p %c - %m%n");
                         }
                     }, Optional.empty()));
                     add(xmlFactory.addElement(document, "Policies", new HashMap<>(),
@@ -1,11 +1,13 @@
 package factories;
 
 import com.google.inject.ImplementedBy;
+import com.spotify.docker.client.DockerCertificates;
+import exceptions.InternalServerException;
 import models.User;
 
-import java.io.IOException;
-import java.io.StringWriter;
 import java.nio.file.Path;
+import java.util.Date;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 
 /**
@@ -14,23 +16,56 @@ import java.util.zip.ZipEntry;
 @ImplementedBy(CarinaFactory.class)
 public interface ICarinaFactory {
 
-    boolean createFileInCarina(ZipEntry file, StringWriter data, User user);
+    /***
+     * Write a file of the cluster credentials zip under the tenant's carina directory, byte for byte
+     * @param file zip entry, its name is the path under the carina directory
+     * @param data content of the entry
+     * @param user User model
+     * @return true if the file was written
+     */
+    boolean createFileInCarina(ZipEntry file, byte[] data, User user);
 
-    Path getCarinaDirectory(String tenant);
+    /***
+     * @param certDirectory directory with ca.pem, cert.pem and key.pem
+     * @return true if all three are there
+     */
+    boolean hasDockerCertificates(Path certDirectory);
 
-    Path getCarinaDirectoryWithCluster(String tenant, String cluster);
+    /***
+     * Parse the ca, client certificate and key into the key stores of a docker client
+     * @param certDirectory directory with ca.pem, cert.pem and key.pem
+     * @return DockerCertificates
+     * @throws InternalServerException if the files are missing or invalid
+     */
+    DockerCertificates createDockerCertificates(Path certDirectory) throws InternalServerException;
 
-    Path getCarinaOriginFile(String file);
+    /***
+     * Parse the ca, client certificate and key without keeping them on disk
+     * @param certificates content of ca.pem, cert.pem and key.pem by file name
+     * @return DockerCertificates
+     * @throws InternalServerException if one is missing or invalid
+     */
+    DockerCertificates createDockerCertificates(Map<String, byte[]> certificates) throws InternalServerException;
+
+    /***
+     * @param certificate content of a pem encoded X.509 certificate
+     * @return when the certificate stops being valid
+     * @throws InternalServerException if it isn't a certificate
+     */
+    Date getCertificateExpiry(byte[] certificate) throws InternalServerException;
 
-    Path getOriginImageFile(String tenant, String file) throws IOException;
+    /***
+     * @param certDirectory directory with cert.pem
+     * @return when the client certificate stops being valid
+     * @throws InternalServerException if the file is missing or isn't a certificate
+     */
+    Date getCertificateExpiry(Path certDirectory) throws InternalServerException;
 
-    Path getOriginImageDirectory(String tenant) throws IOException;
+    Path getCarinaDirectory(String tenant);
 
-    Path getReposeConfigDirectory(String tenant) throws IOException;
+    Path getCarinaDirectoryWithCluster(String tenant, String cluster);
 
-    Path getReposeImageDirectory(String tenant) throws IOException;
+    Path getCarinaOriginFile(String file);
 
     Path getCarinaReposeFile(String file);
-
-    Path getReposeImageFile(String tenant, String file) throws IOException;
 }
@@ -18,4 +18,70 @@ public interface IClusterFactory {
 
     String getCarinaClusterUrl(String username, String clusterName);
 
+    long getDockerClientIdleMinutes();
+
+    int getStatsParallelism(String clusterName);
+
+    long getStatsTimeoutMillis();
+
+    long getStatsStreamIntervalMillis();
+
+    long getReconfigureTimeoutMillis();
+
+    long getReconfigurePollMillis();
+
+    int getBuildParallelism();
+
+    int getWarmPoolSize();
+
+    int getWarmPoolVersions();
+
+    int getBuildJobParallelism();
+
+    long getBuildJobRetentionMinutes();
+
+    long getContainerCacheResyncMillis();
+
+    long getContainerCacheIdleMinutes();
+
+    long getLogMaxBytes(String logName);
+
+    int getTestParallelism();
+
+    int getTestBatchMaxRequests();
+
+    long getLoadTestMaxDurationSeconds();
+
+    int getLoadTestMaxConcurrency();
+
+    int getLoadTestMaxRate();
+
+    long getLoadTestRequestTimeoutMillis();
+
+    long getClusterCacheTtlMinutes();
+
+    long getClusterCacheMaxSize();
+
+    long getClusterProvisionInitialBackoffMillis();
+
+    long getClusterProvisionMaxBackoffMillis();
+
+    long getClusterProvisionDeadlineSeconds();
+
+    boolean isClusterCertificatesInMemory();
+
+    String getClusterProvider();
+
+    String getLocalDockerUri();
+
+    String getLocalDockerCertPath();
+
+    long getClusterHealthIntervalMillis();
+
+    long getClusterHealthIdleMinutes();
+
+    int getClusterHealthFailureThreshold();
+
+    long getClusterCertificateRefreshHours();
+
 }
@@ -13,8 +13,17 @@ import java.util.List;
 @ImplementedBy(SpotifyContainerFactory.class)
 public interface IContainerFactory<ContainerGeneric, ContainerStatsGeneric> {
 
+    //labels on the containers we start, so docker can filter them for us
+    String TENANT_LABEL = "repose-playground.tenant";
+    String VERSION_LABEL = "repose-playground.version";
+    String ROLE_LABEL = "repose-playground.role";
+
+    String ROLE_REPOSE = "repose";
+    String ROLE_ORIGIN = "origin";
+
     /***
-     * Translate containers from Docker containers to Container models
+     * Translate containers from Docker containers to Container models.
+     * Only the user's repose containers are kept, tenant and version are read from the container labels.
      * @param dockerContainerList docker containers
      * @param user User model
      * @return List of Container models
@@ -0,0 +1,46 @@
+package factories;
+
+import com.google.inject.ImplementedBy;
+import models.BuildContext;
+import models.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+@ImplementedBy(ImageFactoryImpl.class)
+public interface ImageFactory {
+
+    String CONTENT_HASH_LABEL = "repose-playground.content-hash";
+
+    /***
+     * Hash everything that goes into a repose image.  Same version, dockerfile and configurations
+     * (in any order) give the same hash, so an image labeled with it can be reused instead of rebuilt.
+     * @param versionId repose version
+     * @param dockerfileLines generated dockerfile, without the content hash label
+     * @param configurationList configurations copied into the image
+     * @return hex encoded sha-256
+     */
+    String getReposeImageHash(String versionId, List<String> dockerfileLines,
+                              List<Configuration> configurationList);
+
+    /***
+     * Repose image build context: the dockerfile template with the version filled in and the content hash,
+     * role and version labels added, and the configurations under repose_config/
+     * @param versionId repose version
+     * @param dockerfileTemplate dockerfile lines with REPOSE_VERSION placeholders
+     * @param configurationList configurations copied into the image
+     * @return BuildContext
+     */
+    BuildContext getReposeBuildContext(String versionId, List<String> dockerfileTemplate,
+                                       List<Configuration> configurationList);
+
+    /***
+     * Origin service image build context.  The origin image is the same for every tenant and version,
+     * so one image per content hash can be shared by all origin containers.
+     * @param files build context files, in a stable order.  One of them has to be the Dockerfile.
+     * @return BuildContext with the content hash and role labels added to the dockerfile
+     * @throws IOException if a file can't be read
+     */
+    BuildContext getOriginBuildContext(List<Path> files) throws IOException;
+}
@@ -0,0 +1,85 @@
+package factories;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import models.BuildContext;
+import models.Configuration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class ImageFactoryImpl implements ImageFactory {
+
+    private static final String DOCKERFILE = "Dockerfile";
+    private static final String REPOSE_CONFIG_DIRECTORY = "repose_config";
+
+    @Override
+    public String getReposeImageHash(String versionId, List<String> dockerfileLines,
+                                     List<Configuration> configurationList) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        putString(hasher, versionId);
+        dockerfileLines.forEach(line -> putString(hasher, line));
+        configurationList.stream()
+                .sorted(Comparator.comparing(Configuration::getName))
+                .forEach(configuration -> {
+                    putString(hasher, configuration.getName());
+                    putString(hasher, configuration.getXml());
+                });
+        return hasher.hash().toString();
+    }
+
+    @Override
+    public BuildContext getReposeBuildContext(String versionId, List<String> dockerfileTemplate,
+                                              List<Configuration> configurationList) {
+        List<String> dockerfileLines = dockerfileTemplate.stream()
+                .map(line -> line.replace("REPOSE_VERSION", versionId))
+                .collect(Collectors.toList());
+        String contentHash = getReposeImageHash(versionId, dockerfileLines, configurationList);
+        dockerfileLines.add("LABEL " + CONTENT_HASH_LABEL + "=" + contentHash);
+        //images are shared between tenants with the same content, so no tenant label here
+        dockerfileLines.add("LABEL " + IContainerFactory.ROLE_LABEL + "=" + IContainerFactory.ROLE_REPOSE +
+                " " + IContainerFactory.VERSION_LABEL + "=" + versionId);
+
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put(DOCKERFILE, getLines(dockerfileLines));
+        configurationList.forEach(configuration -> files.put(
+                REPOSE_CONFIG_DIRECTORY + "/" + Paths.get(configuration.getName()).getFileName(),
+                configuration.getXml().getBytes(StandardCharsets.UTF_8)));
+        return new BuildContext(contentHash, files);
+    }
+
+    @Override
+    public BuildContext getOriginBuildContext(List<Path> files) throws IOException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        Map<String, byte[]> contextFiles = new LinkedHashMap<>();
+        for (Path file : files) {
+            byte[] content = Files.readAllBytes(file);
+            putString(hasher, file.getFileName().toString());
+            hasher.putInt(content.length).putBytes(content);
+            contextFiles.put(file.getFileName().toString(), content);
+        }
+        String contentHash = hasher.hash().toString();
+
+        List<String> dockerfileLines = new ArrayList<>(Arrays.asList(
+                new String(contextFiles.getOrDefault(DOCKERFILE, new byte[0]), StandardCharsets.UTF_8).split("\n")));
+        dockerfileLines.add("LABEL " + CONTENT_HASH_LABEL + "=" + contentHash);
+        dockerfileLines.add("LABEL " + IContainerFactory.ROLE_LABEL + "=" + IContainerFactory.ROLE_ORIGIN);
+        contextFiles.put(DOCKERFILE, getLines(dockerfileLines));
+        return new BuildContext(contentHash, contextFiles);
+    }
+
+    private byte[] getLines(List<String> lines) {
+        return (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void putString(Hasher hasher, String value) {
+        //length prefix so "ab" + "c" doesn't hash the same as "a" + "bc"
+        String content = value == null ? "" : value;
+        hasher.putInt(content.length()).putString(content, StandardCharsets.UTF_8);
+    }
+}
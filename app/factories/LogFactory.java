@@ -0,0 +1,92 @@
+package factories;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.inject.ImplementedBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads repose logs line by line from a stream and stops at a byte cap, so a chatty filter chain can't make us
+ * hold whole log files in memory.  Whatever was cut off is replaced with a truncation marker.
+ *
+ * Repose tags what it logs while handling a request with the request's x-trans-id.  readTransactions hands every
+ * transaction only the log entries with its id, so tests running at the same time don't see each other's lines.
+ */
+@ImplementedBy(LogFactoryImpl.class)
+public interface LogFactory {
+
+    String INTRA_FILTER_PREFIX = "TRACE intrafilter-logging - ";
+
+    /***
+     * Builds one reader's result out of the lines it is handed, so one pass over a log can feed every
+     * transaction's share of it
+     * @param <T> result type
+     */
+    interface LineCollector<T> extends Consumer<String> {
+
+        /***
+         * @return true if it wasn't handed any line
+         */
+        boolean isEmpty();
+
+        /***
+         * @param truncated whether the log was longer than the cap
+         * @return result of the lines so far, with the truncation marker at the end if the log was cut off
+         */
+        T finish(boolean truncated);
+    }
+
+    /***
+     * @param maxBytes cap that was hit
+     * @return marker that takes the place of the truncated part of a log
+     */
+    String getTruncationMarker(long maxBytes);
+
+    /***
+     * Hand the log to the consumer one line at a time, up to maxBytes
+     * @param log log stream.  Caller closes it.
+     * @param maxBytes most bytes to read
+     * @param lineConsumer gets every line without the line break
+     * @return true if the log was longer than maxBytes
+     * @throws IOException if the stream can't be read
+     */
+    boolean readLines(InputStream log, long maxBytes, Consumer<String> lineConsumer) throws IOException;
+
+    /***
+     * @param maxBytes cap for the truncation marker
+     * @return collector of the log text, every line followed by a line break
+     */
+    LineCollector<String> newTextCollector(long maxBytes);
+
+    /***
+     * @param maxBytes cap for the truncation marker
+     * @return collector of error entries.  Every ERROR starts a new entry, the last one is the truncation marker
+     * if the log was longer than the cap.
+     */
+    LineCollector<List<String>> newErrorEntriesCollector(long maxBytes);
+
+    /***
+     * @param maxBytes cap for the truncation marker
+     * @return collector of the json message of every intra-filter line.  Lines without a message or with malformed
+     * json are skipped, the last message is {"truncated": marker} if the log was longer than the cap.
+     */
+    LineCollector<List<JsonNode>> newIntraFilterCollector(long maxBytes);
+
+    /***
+     * Read the log once, up to maxBytes, and hand the lines of every transaction's entries to its consumer.
+     * If none of the transaction ids shows up (older repose or a logging config without %X{traceGuid}) the log
+     * can't be split up and every line goes to unattributed instead.
+     * @param log log stream.  Caller closes it.
+     * @param maxBytes most bytes to read
+     * @param transConsumers transaction id to the consumer of its lines
+     * @param unattributed gets every line if the log has none of the transaction ids
+     * @return true if the log was longer than maxBytes
+     * @throws IOException if the stream can't be read
+     */
+    boolean readTransactions(InputStream log, long maxBytes, Map<String, ? extends Consumer<String>> transConsumers,
+                             Consumer<String> unattributed) throws IOException;
+}
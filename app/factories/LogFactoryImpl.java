@@ -0,0 +1,200 @@
+package factories;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import play.libs.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static play.Logger.debug;
+
+public class LogFactoryImpl implements LogFactory {
+
+    private static final Pattern ERROR = Pattern.compile(Pattern.quote("ERROR"));
+    //every entry starts with the %d date of the logging pattern
+    private static final Pattern ENTRY_START = Pattern.compile("^\\d{4}-\\d{2}-\\d{2} ");
+
+    @Override
+    public String getTruncationMarker(long maxBytes) {
+        return "... truncated after " + maxBytes + " bytes";
+    }
+
+    @Override
+    public boolean readLines(InputStream log, long maxBytes, Consumer<String> lineConsumer) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(ByteStreams.limit(log, maxBytes), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null)
+            lineConsumer.accept(line);
+        return log.read() != -1;
+    }
+
+    @Override
+    public LineCollector<String> newTextCollector(long maxBytes) {
+        return new TextCollector(maxBytes);
+    }
+
+    @Override
+    public LineCollector<List<String>> newErrorEntriesCollector(long maxBytes) {
+        return new ErrorEntriesCollector(maxBytes);
+    }
+
+    @Override
+    public LineCollector<List<JsonNode>> newIntraFilterCollector(long maxBytes) {
+        return new IntraFilterCollector(maxBytes);
+    }
+
+    @Override
+    public boolean readTransactions(InputStream log, long maxBytes,
+                                    Map<String, ? extends Consumer<String>> transConsumers,
+                                    Consumer<String> unattributed) throws IOException {
+        AtomicReference<Consumer<String>> entryConsumer = new AtomicReference<>();
+        //held back until a transaction id shows up, so never more than maxBytes
+        List<String> heldBack = new ArrayList<>();
+        AtomicBoolean attributed = new AtomicBoolean();
+        boolean truncated = readLines(log, maxBytes, line -> {
+            if (ENTRY_START.matcher(line).find()) {
+                entryConsumer.set(null);
+                for (Map.Entry<String, ? extends Consumer<String>> transConsumer : transConsumers.entrySet()) {
+                    if (line.contains(transConsumer.getKey())) {
+                        entryConsumer.set(transConsumer.getValue());
+                        break;
+                    }
+                }
+                if (entryConsumer.get() != null && !attributed.getAndSet(true))
+                    heldBack.clear();
+            }
+            if (entryConsumer.get() != null)
+                entryConsumer.get().accept(line);
+            else if (!attributed.get())
+                heldBack.add(line);
+        });
+        if (!attributed.get())
+            heldBack.forEach(unattributed);
+        return truncated;
+    }
+
+    private abstract class Collector<T> implements LineCollector<T> {
+        protected final long maxBytes;
+        private boolean empty = true;
+
+        private Collector(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void accept(String line) {
+            empty = false;
+            collect(line);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return empty;
+        }
+
+        protected abstract void collect(String line);
+    }
+
+    private class TextCollector extends Collector<String> {
+        private final StringBuilder text = new StringBuilder();
+
+        private TextCollector(long maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        protected void collect(String line) {
+            text.append(line).append('\n');
+        }
+
+        @Override
+        public String finish(boolean truncated) {
+            return truncated ? text + getTruncationMarker(maxBytes) : text.toString();
+        }
+    }
+
+    private class ErrorEntriesCollector extends Collector<List<String>> {
+        private final List<String> entries = new ArrayList<>();
+        private final StringBuilder entry = new StringBuilder();
+
+        private ErrorEntriesCollector(long maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        protected void collect(String line) {
+            //every ERROR starts a new entry
+            String[] parts = ERROR.split(line, -1);
+            entry.append(parts[0]);
+            for (int index = 1; index < parts.length; index++) {
+                entries.add(entry.toString());
+                entry.setLength(0);
+                entry.append(parts[index]);
+            }
+            entry.append('\n');
+        }
+
+        @Override
+        public List<String> finish(boolean truncated) {
+            List<String> result = new ArrayList<>(entries);
+            if (entry.length() > 0 || result.isEmpty())
+                result.add(entry.toString());
+            if (truncated)
+                result.add(getTruncationMarker(maxBytes));
+            return result;
+        }
+    }
+
+    private class IntraFilterCollector extends Collector<List<JsonNode>> {
+        private final ObjectMapper mapper = Json.mapper();
+        private final List<JsonNode> entries = new ArrayList<>();
+        private int skipped;
+
+        private IntraFilterCollector(long maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        protected void collect(String line) {
+            int start = line.indexOf(INTRA_FILTER_PREFIX);
+            if (start < 0) {
+                skipped++;
+                return;
+            }
+            try (JsonParser parser = mapper.getFactory().createParser(
+                    line.substring(start + INTRA_FILTER_PREFIX.length()))) {
+                JsonNode entry = mapper.readTree(parser);
+                if (entry == null)
+                    skipped++;
+                else
+                    entries.add(entry);
+            } catch (IOException e) {
+                skipped++;
+            }
+        }
+
+        @Override
+        public List<JsonNode> finish(boolean truncated) {
+            if (skipped > 0)
+                debug("Skipped " + skipped + " intra-filter lines without a json message");
+            List<JsonNode> result = new ArrayList<>(entries);
+            if (truncated)
+                result.add(Json.newObject().put("truncated", getTruncationMarker(maxBytes)));
+            return result;
+        }
+    }
+}
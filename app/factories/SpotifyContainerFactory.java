@@ -4,7 +4,9 @@ import models.*;
 import play.Logger;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -27,19 +29,18 @@ public class SpotifyContainerFactory implements IContainerFactory<
         List<Container> containerList = new ArrayList<>();
         if(dockerContainerList != null){
             dockerContainerList.forEach(container -> {
-                String[] containerNameTokens = String.join("", container.names()).split(Pattern.quote("/"));
-                String containerName = containerNameTokens[containerNameTokens.length - 1];
-
-                Logger.debug("Name: " + containerName);
-                if(containerName.startsWith("repose-" + user.tenant)) {
+                Map<String, String> labels =
+                        container.labels() == null ? Collections.emptyMap() : container.labels();
+                if(user.tenant.equals(labels.get(TENANT_LABEL)) && ROLE_REPOSE.equals(labels.get(ROLE_LABEL))) {
                     String reposeName = String.join(" ", container.names());
                     String[] reposeNames = reposeName.split(Pattern.quote("/"));
+                    Logger.debug("Name: " + reposeNames[reposeNames.length - 1]);
                     containerList.add(
                             new Container(
                                     reposeNames[reposeNames.length - 1],
                                     container.status().trim().startsWith("Up"),
                                     container.status(),
-                                    reposeNames[reposeNames.length - 1].split(Pattern.quote("-"))[2],
+                                    labels.get(VERSION_LABEL),
                                     container.id()));
                 }
 
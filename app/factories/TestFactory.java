@@ -17,5 +17,36 @@ public interface TestFactory {
 
     Map<String, ?> generateDebugMessageMap(List<String> httpDebugLogList);
 
+    /***
+     * Same as generateDebugMessageMap(httpDebugLogList), only for the lines tagged with the transaction id
+     * @param httpDebugLogList http-debug.log lines
+     * @param transId x-trans-id of the test request, null for every line
+     * @return connection pool messages and external requests of the transaction
+     */
+    Map<String, ?> generateDebugMessageMap(List<String> httpDebugLogList, String transId);
+
     String getTestUrl(String ip, String port, String uri);
+
+    /***
+     * Encode the transaction id the way repose writes its x-trans-id header, base64 of
+     * {"requestId": transId, "origin": null}.  Repose logs the request id of a header it can decode.
+     * @param transId transaction id
+     * @return x-trans-id header value
+     */
+    String getTransIdHeader(String transId);
+
+    /***
+     * Decode an x-trans-id header the way repose does before it logs it.  A header that isn't base64 json with
+     * a requestId is logged as it is.
+     * @param transIdHeader x-trans-id header value
+     * @return transaction id repose logs the request with
+     */
+    String getTransId(String transIdHeader);
+
+    /***
+     * Parse "size path" lines (output of stat -c '%s %n') into log file offsets
+     * @param statOutput stat output.  Lines that don't start with a size (e.g. errors) are skipped
+     * @return log file name to size in bytes
+     */
+    Map<String, Long> parseLogOffsets(String statOutput);
 }
@@ -2,13 +2,19 @@ package factories;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import models.TestRequest;
 import play.Logger;
+import play.libs.Json;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static play.Logger.debug;
 
@@ -140,10 +146,60 @@ public class TestFactoryImpl implements TestFactory {
         return debugMessageMap;
     }
 
+    @Override
+    public Map<String, ?> generateDebugMessageMap(List<String> httpDebugLogList, String transId) {
+        if(httpDebugLogList == null || transId == null)
+            return generateDebugMessageMap(httpDebugLogList);
+        return generateDebugMessageMap(httpDebugLogList.stream()
+                .filter(entry -> entry.contains(transId))
+                .collect(Collectors.toList()));
+    }
+
     @Override
     public String getTestUrl(String ip, String port, String uri) {
         return "http://" + ip + ":" + port + uri;
     }
 
+    @Override
+    public String getTransIdHeader(String transId) {
+        ObjectNode tracingHeader = Json.newObject();
+        tracingHeader.put("requestId", transId);
+        tracingHeader.putNull("origin");
+        return Base64.getEncoder().encodeToString(tracingHeader.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getTransId(String transIdHeader) {
+        if(transIdHeader == null)
+            return null;
+        try {
+            JsonNode tracingHeader = Json.parse(
+                    new String(Base64.getDecoder().decode(transIdHeader.trim()), StandardCharsets.UTF_8));
+            JsonNode requestId = tracingHeader.path("requestId");
+            if(requestId.isTextual())
+                return requestId.asText();
+        } catch (RuntimeException e) {
+            debug("x-trans-id " + transIdHeader + " is not a tracing header, repose logs it as it is");
+        }
+        return transIdHeader;
+    }
+
+    @Override
+    public Map<String, Long> parseLogOffsets(String statOutput) {
+        Map<String, Long> logOffsets = new HashMap<>();
+        if(statOutput == null)
+            return logOffsets;
+
+        for (String entry : statOutput.split("\n")) {
+            String[] tokens = entry.trim().split(" ", 2);
+            if (tokens.length == 2 && tokens[0].matches("\\d+")) {
+                logOffsets.put(Paths.get(tokens[1].trim()).getFileName().toString(), Long.parseLong(tokens[0]));
+            } else {
+                debug("Skip offset entry: " + entry);
+            }
+        }
+        return logOffsets;
+    }
+
 
 }
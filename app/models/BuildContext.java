@@ -0,0 +1,27 @@
+package models;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Everything docker needs to build an image, held in memory: file path in the context to its content,
+ * and the content hash the image is labeled with.
+ */
+public class BuildContext {
+
+    private final String contentHash;
+    private final Map<String, byte[]> files;
+
+    public BuildContext(String contentHash, Map<String, byte[]> files) {
+        this.contentHash = contentHash;
+        this.files = Collections.unmodifiableMap(files);
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public Map<String, byte[]> getFiles() {
+        return files;
+    }
+}
@@ -0,0 +1,77 @@
+package models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class BuildJob {
+
+    public enum Status { PENDING, RUNNING, SUCCEEDED, FAILED }
+
+    private final String id;
+    private final String username;
+    private final String version;
+    private final long created;
+    private volatile Status status = Status.PENDING;
+    private volatile String reposeId;
+    private volatile String message;
+    private final List<BuildPhase> phases = new CopyOnWriteArrayList<>();
+
+    public BuildJob(String id, String username, String version, long created) {
+        this.id = id;
+        this.username = username;
+        this.version = version;
+        this.created = created;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public String getUsername() {
+        return username;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getReposeId() {
+        return reposeId;
+    }
+
+    public void setReposeId(String reposeId) {
+        this.reposeId = reposeId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public List<BuildPhase> getPhases() {
+        return phases;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+}
@@ -0,0 +1,38 @@
+package models;
+
+public class BuildPhase {
+
+    private String name;
+    private long started;
+    private Long durationMillis;
+    private String progress;
+
+    public BuildPhase(String name, long started) {
+        this.name = name;
+        this.started = started;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public Long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(Long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public String getProgress() {
+        return progress;
+    }
+
+    public void setProgress(String progress) {
+        this.progress = progress;
+    }
+}
@@ -1,10 +1,14 @@
 package models;
 
 import com.avaje.ebean.Model;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.spotify.docker.client.DockerCertificates;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Transient;
+import java.util.Date;
 
 /**
  * Created by dimi5963 on 11/28/15.
@@ -26,14 +30,38 @@ public class Cluster extends Model {
     @Column(nullable = false)
     public Long user;
 
+    //parsed once when the credentials are downloaded.  Not stored, a cluster read from the database has none
+    @Transient
+    @JsonIgnore
+    public DockerCertificates dockerCertificates;
+
+    //expiry of the client certificate, read along with the certificates
+    @Transient
+    @JsonIgnore
+    public Date certificatesExpireAt;
+
     public void setUri(String uri) { this.uri = uri; }
     public void setCert_directory(String cert_directory) { this.cert_directory = cert_directory; }
     public void setUser(Long user) { this.user = user; }
     public void setName(String name) { this.name = name; }
+    public void setDockerCertificates(DockerCertificates dockerCertificates) {
+        this.dockerCertificates = dockerCertificates;
+    }
+    public void setCertificatesExpireAt(Date certificatesExpireAt) { this.certificatesExpireAt = certificatesExpireAt; }
 
     public String getName() { return name; }
     public String getUri() { return uri; }
     public String getCert_directory() { return cert_directory; }
+    public DockerCertificates getDockerCertificates() { return dockerCertificates; }
+    public Date getCertificatesExpireAt() { return certificatesExpireAt; }
+
+    /***
+     * Key of the user's cluster in the warm pool, the container state cache and the cluster executors.
+     * Every user of the local provider gets the same uri, so the user is part of it.
+     * @return user and uri, or name if there is no uri yet
+     */
+    @JsonIgnore
+    public String getKey() { return user + "@" + (uri != null ? uri : name); }
 
     public static final Finder<Long, Cluster> find = new Finder<Long, Cluster>(
             Long.class, Cluster.class);
@@ -11,6 +11,7 @@ public class Container {
     private String version;
     private String id;
     private ContainerStats containerStats;
+    private boolean statsUnavailable;
 
 
     public Container(String name, boolean isStarted, String message, String version, String id) {
@@ -48,4 +49,12 @@ public class Container {
     public void setContainerStats(ContainerStats containerStats) {
         this.containerStats = containerStats;
     }
+
+    public boolean isStatsUnavailable() {
+        return statsUnavailable;
+    }
+
+    public void setStatsUnavailable(boolean statsUnavailable) {
+        this.statsUnavailable = statsUnavailable;
+    }
 }
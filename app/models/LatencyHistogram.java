@@ -0,0 +1,102 @@
+package models;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import play.libs.Json;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram.  Values below 128 get their own bucket, above that
+ * every power of two is split into 64 buckets, so a percentile is never off by more than 1/64 of its value.
+ * Recording is lock free and the memory is fixed no matter how many values are recorded.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 128;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    //values up to 2^40 (about 12 days in microseconds), larger ones are counted as the largest
+    private static final int MAX_SHIFT = 33;
+    private static final long HIGHEST_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS + MAX_SHIFT * HALF_SUB_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long clamped = Math.max(0, Math.min(value, HIGHEST_VALUE));
+        counts.incrementAndGet(getIndex(clamped));
+        totalCount.incrementAndGet();
+        sum.addAndGet(clamped);
+        min.accumulateAndGet(clamped, Math::min);
+        max.accumulateAndGet(clamped, Math::max);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMin() {
+        return totalCount.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /***
+     * @param percentile 0 to 100
+     * @return highest value that is equivalent to the value at the percentile, never more than the max
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0)
+            return 0;
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int index = 0; index < counts.length(); index++) {
+            seen += counts.get(index);
+            if (seen >= target)
+                return Math.min(getHighestEquivalentValue(index), getMax());
+        }
+        return getMax();
+    }
+
+    public ObjectNode toJson() {
+        ObjectNode node = Json.newObject();
+        node.put("count", getTotalCount());
+        node.put("min", getMin());
+        node.put("mean", Math.round(getMean()));
+        node.put("p50", getValueAtPercentile(50));
+        node.put("p75", getValueAtPercentile(75));
+        node.put("p90", getValueAtPercentile(90));
+        node.put("p95", getValueAtPercentile(95));
+        node.put("p99", getValueAtPercentile(99));
+        node.put("p99_9", getValueAtPercentile(99.9));
+        node.put("max", getMax());
+        return node;
+    }
+
+    static int getIndex(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        //shift so that the value lands in [64, 128)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) ((value >> shift) - HALF_SUB_BUCKETS);
+    }
+
+    static long getHighestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long lowest = ((index - SUB_BUCKETS) % HALF_SUB_BUCKETS + (long) HALF_SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -104,7 +104,6 @@ public class User extends Model {
         return "User: " +
                 "id => " + id +
                 ", username => " + username +
-                ", token => " + token +
                 ", tenant => " + tenant +
                 ", expires => " + expireDate;
     }
@@ -22,4 +22,14 @@ public class ClusterRepository implements IClusterRepository {
     public void save(Cluster cluster) {
         cluster.save();
     }
+
+    @Override
+    public void update(Cluster cluster) {
+        cluster.update();
+    }
+
+    @Override
+    public void delete(Cluster cluster) {
+        cluster.delete();
+    }
 }
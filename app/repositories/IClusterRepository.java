@@ -12,4 +12,8 @@ public interface IClusterRepository {
     Cluster findByUserandName(Long userId, String name);
 
     void save(Cluster cluster);
+
+    void update(Cluster cluster);
+
+    void delete(Cluster cluster);
 }
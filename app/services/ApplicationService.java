@@ -1,5 +1,6 @@
 package services;
 
+import clients.BuildListener;
 import com.google.inject.ImplementedBy;
 import exceptions.InternalServerException;
 import models.Cluster;
@@ -14,10 +15,12 @@ import java.util.List;
 @ImplementedBy(DockerApplicationService.class)
 public interface ApplicationService {
 
-    String createReposeInstance(Cluster cluster, User user, List<Configuration> configurationList, String versionId)
+    String createReposeInstance(Cluster cluster, User user, List<Configuration> configurationList, String versionId,
+                                BuildListener listener)
             throws InternalServerException;
 
-    String createOriginInstance(Cluster cluster, User user, String versionId) throws InternalServerException;
+    String createOriginInstance(Cluster cluster, User user, String versionId, BuildListener listener)
+            throws InternalServerException;
 
     String createThirdPartyInstance(Cluster cluster, User user, String versionId) throws InternalServerException;
 
@@ -0,0 +1,53 @@
+package services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.ImplementedBy;
+import models.BuildJob;
+import models.User;
+
+import java.util.function.BiConsumer;
+
+@ImplementedBy(BuildJobServiceImpl.class)
+public interface BuildJobService {
+
+    String STATUS = "status";
+    String PHASE = "phase";
+    String PROGRESS = "progress";
+    String DONE = "done";
+    String FAILED = "failed";
+
+    /***
+     * Start building a repose environment in the background
+     * @param user User model
+     * @param versionId repose version
+     * @param request filter json, same as the synchronous build took
+     * @return BuildJob in PENDING state
+     */
+    BuildJob submit(User user, String versionId, JsonNode request);
+
+    /***
+     * @param user User model
+     * @param jobId job id
+     * @return BuildJob or null if there is no such job for the user (or it expired)
+     */
+    BuildJob getJob(User user, String jobId);
+
+    /***
+     * Follow a job.  The listener first gets STATUS with the whole job, then PHASE (all phases with timings)
+     * and PROGRESS events, and finally DONE or FAILED with the whole job.
+     * @param user User model
+     * @param jobId job id
+     * @param listener called with event type and json payload
+     * @return false if there is no such job for the user
+     */
+    boolean subscribe(User user, String jobId, BiConsumer<String, JsonNode> listener);
+
+    void unsubscribe(String jobId, BiConsumer<String, JsonNode> listener);
+
+    /***
+     * @param user User model
+     * @return depth of the user's tenant build queue, in total and per version
+     */
+    ObjectNode getQueueStats(User user);
+}
@@ -0,0 +1,190 @@
+package services;
+
+import clients.BuildCoordinator;
+import clients.BuildListener;
+import clients.ClusterExecutors;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import exceptions.InternalServerException;
+import exceptions.NotFoundException;
+import factories.ConfigurationFactory;
+import factories.IClusterFactory;
+import models.*;
+import play.Logger;
+import play.libs.Json;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+@Singleton
+public class BuildJobServiceImpl implements BuildJobService {
+
+    private final IReposeService reposeService;
+    private final ConfigurationFactory configurationFactory;
+    private final ClusterExecutors clusterExecutors;
+    private final BuildCoordinator buildCoordinator;
+
+    private final Cache<String, BuildJob> jobs;
+    private final ConcurrentMap<String, Set<BiConsumer<String, JsonNode>>> subscribers = new ConcurrentHashMap<>();
+
+    @Inject
+    public BuildJobServiceImpl(IReposeService reposeService, ConfigurationFactory configurationFactory,
+                               ClusterExecutors clusterExecutors, IClusterFactory clusterFactory,
+                               BuildCoordinator buildCoordinator) {
+        this.reposeService = reposeService;
+        this.configurationFactory = configurationFactory;
+        this.clusterExecutors = clusterExecutors;
+        this.buildCoordinator = buildCoordinator;
+        this.jobs = CacheBuilder.newBuilder()
+                .expireAfterWrite(clusterFactory.getBuildJobRetentionMinutes(), TimeUnit.MINUTES)
+                .build();
+    }
+
+    @Override
+    public BuildJob submit(User user, String versionId, JsonNode request) {
+        BuildJob job = new BuildJob(UUID.randomUUID().toString(), user.username, versionId,
+                System.currentTimeMillis());
+        jobs.put(job.getId(), job);
+        Logger.debug("Submit build job " + job.getId() + " for " + user + " and version " + versionId);
+        clusterExecutors.getJobExecutor().execute(() -> run(job, user, versionId, request));
+        return job;
+    }
+
+    @Override
+    public BuildJob getJob(User user, String jobId) {
+        BuildJob job = jobs.getIfPresent(jobId);
+        if (job == null || !job.getUsername().equals(user.username))
+            return null;
+        return job;
+    }
+
+    @Override
+    public boolean subscribe(User user, String jobId, BiConsumer<String, JsonNode> listener) {
+        BuildJob job = getJob(user, jobId);
+        if (job == null)
+            return false;
+        synchronized (job) {
+            notify(listener, STATUS, Json.toJson(job));
+            if (job.isFinished())
+                notify(listener, job.getStatus() == BuildJob.Status.SUCCEEDED ? DONE : FAILED, Json.toJson(job));
+            else
+                subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArraySet<>()).add(listener);
+        }
+        return true;
+    }
+
+    @Override
+    public void unsubscribe(String jobId, BiConsumer<String, JsonNode> listener) {
+        subscribers.computeIfPresent(jobId, (id, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
+    @Override
+    public ObjectNode getQueueStats(User user) {
+        return buildCoordinator.getQueueStats(user.tenant);
+    }
+
+    private void run(BuildJob job, User user, String versionId, JsonNode request) {
+        JobListener listener = new JobListener(job);
+        try {
+            job.setStatus(BuildJob.Status.RUNNING);
+            listener.phase(BuildListener.CONFIGURATION);
+            List<Configuration> configurationList =
+                    configurationFactory.translateConfigurationsFromJson(user, versionId, request);
+
+            String reposeId = reposeService.setUpReposeEnvironment(ReposeEnvironmentType.GENERATED_ORIGIN,
+                    user, versionId, configurationList, listener);
+            listener.endPhase();
+            if (reposeId == null) {
+                finish(job, BuildJob.Status.FAILED, null, "unable to create repose environment.");
+            } else {
+                finish(job, BuildJob.Status.SUCCEEDED, reposeId, "success");
+            }
+        } catch (NotFoundException | InternalServerException | RuntimeException e) {
+            Logger.error("Build job " + job.getId() + " failed: " + e.getLocalizedMessage());
+            listener.endPhase();
+            finish(job, BuildJob.Status.FAILED, null, e.getLocalizedMessage());
+        }
+    }
+
+    private void finish(BuildJob job, BuildJob.Status status, String reposeId, String message) {
+        synchronized (job) {
+            job.setReposeId(reposeId);
+            job.setMessage(message);
+            job.setStatus(status);
+            publish(job, status == BuildJob.Status.SUCCEEDED ? DONE : FAILED, Json.toJson(job));
+            subscribers.remove(job.getId());
+        }
+        Logger.debug("Build job " + job.getId() + " " + status);
+    }
+
+    private void publish(BuildJob job, String type, JsonNode payload) {
+        Set<BiConsumer<String, JsonNode>> listeners = subscribers.get(job.getId());
+        if (listeners != null)
+            listeners.forEach(listener -> notify(listener, type, payload));
+    }
+
+    private void notify(BiConsumer<String, JsonNode> listener, String type, JsonNode payload) {
+        try {
+            listener.accept(type, payload);
+        } catch (RuntimeException e) {
+            Logger.warn("Build job subscriber failed: " + e.getLocalizedMessage());
+        }
+    }
+
+    /***
+     * Records phase timings on the job and passes phases and docker build progress on to the subscribers
+     */
+    private final class JobListener implements BuildListener {
+        private final BuildJob job;
+        private BuildPhase current;
+
+        private JobListener(BuildJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void phase(String phase) {
+            synchronized (job) {
+                endPhase();
+                current = new BuildPhase(phase, System.currentTimeMillis());
+                job.getPhases().add(current);
+                publish(job, PHASE, Json.toJson(job.getPhases()));
+            }
+        }
+
+        @Override
+        public void progress(String message) {
+            if (message == null || message.trim().isEmpty())
+                return;
+            synchronized (job) {
+                ObjectNode progress = Json.newObject();
+                if (current != null) {
+                    current.setProgress(message.trim());
+                    progress.put("phase", current.getName());
+                }
+                progress.put("message", message.trim());
+                publish(job, PROGRESS, progress);
+            }
+        }
+
+        private void endPhase() {
+            synchronized (job) {
+                if (current != null && current.getDurationMillis() == null)
+                    current.setDurationMillis(System.currentTimeMillis() - current.getStarted());
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package services;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.ImplementedBy;
+import exceptions.InternalServerException;
+import models.Cluster;
+import models.User;
+
+/**
+ * Keeps an eye on the clusters users are working with.  Every docker.cluster.health.interval.millis each cluster's
+ * docker daemon is pinged and its client certificate expiry checked.  Credentials are downloaded again before they
+ * expire or once the pings keep failing, so a recycled cluster is picked up in the background instead of by the
+ * next user request.
+ */
+@ImplementedBy(ClusterHealthServiceImpl.class)
+public interface ClusterHealthService {
+
+    /***
+     * Start probing the cluster if it isn't yet and remember the user whose token refreshes its credentials.
+     * A cluster nobody checked for docker.cluster.health.idle.minutes isn't probed anymore.
+     * @param cluster Cluster model
+     * @param user User model
+     * @return the cluster to hand out.  Once the probes refreshed the credentials it's a new instance that
+     * replaces the given one in the cluster cache.
+     * @throws InternalServerException if the last probes found the cluster unhealthy or gone, so the caller
+     * fails fast instead of deep inside a docker call
+     */
+    Cluster check(Cluster cluster, User user) throws InternalServerException;
+
+    /***
+     * @param user User model
+     * @return the user's probed clusters with healthy, gone, probes, failures, refreshes, lastProbeMicros,
+     * lastProbedAt, certificatesExpireAt, lastError and probe latencyMicros percentiles
+     */
+    ObjectNode getHealth(User user);
+}
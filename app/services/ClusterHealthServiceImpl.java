@@ -0,0 +1,407 @@
+package services;
+
+import clients.ClusterExecutors;
+import clients.DockerClientCache;
+import clients.ICarinaClient;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.spotify.docker.client.DockerException;
+import exceptions.InternalServerException;
+import exceptions.NotFoundException;
+import factories.IClusterFactory;
+import models.Cluster;
+import models.LatencyHistogram;
+import models.User;
+import play.Logger;
+import play.libs.F;
+import play.libs.Json;
+import repositories.IClusterRepository;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Every probed cluster reschedules itself on the shared scheduler and pings on the cluster's stats executor, like
+ * the container cache resync.  A ping that fails docker.cluster.health.failures times in a row marks the cluster
+ * unhealthy, unless fresh credentials bring it back.  Fresh credentials come with a new cluster instance that
+ * check hands out in place of the cached one.  A cluster carina no longer has is deleted, so the next lookup
+ * provisions a new one.
+ */
+@Singleton
+public class ClusterHealthServiceImpl implements ClusterHealthService {
+
+    private static final long REFRESH_TIMEOUT_MILLIS = 60000;
+    private static final String GONE = "cluster is gone.  It is provisioned again on the next request";
+
+    private final ICarinaClient carinaClient;
+    private final IClusterRepository clusterRepository;
+    private final DockerClientCache dockerClientCache;
+    private final ClusterExecutors clusterExecutors;
+    private final IClusterFactory clusterFactory;
+    //ClusterService checks every cluster here, so it can only be looked up once both exist
+    private final Provider<IClusterService> clusterService;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Inject
+    public ClusterHealthServiceImpl(ICarinaClient carinaClient, IClusterRepository clusterRepository,
+                                    DockerClientCache dockerClientCache, ClusterExecutors clusterExecutors,
+                                    IClusterFactory clusterFactory, Provider<IClusterService> clusterService) {
+        this.carinaClient = carinaClient;
+        this.clusterRepository = clusterRepository;
+        this.dockerClientCache = dockerClientCache;
+        this.clusterExecutors = clusterExecutors;
+        this.clusterFactory = clusterFactory;
+        this.clusterService = clusterService;
+    }
+
+    @Override
+    public Cluster check(Cluster cluster, User user) throws InternalServerException {
+        if(cluster == null || user == null || cluster.getUri() == null)
+            return cluster;
+        boolean[] created = {false};
+        Cluster[] current = {cluster};
+        Entry entry = entries.compute(getKey(cluster), (key, existing) -> {
+            if(existing != null && existing.isFor(cluster)) {
+                current[0] = existing.use(cluster);
+                return existing;
+            }
+            //a cluster that was provisioned again starts over
+            if(existing != null)
+                existing.close();
+            created[0] = true;
+            return new Entry(key, cluster);
+        });
+        //a token that is still good
+        entry.user = user;
+        entry.lastSeen = System.currentTimeMillis();
+        if(created[0])
+            schedule(entry);
+        if(!entry.healthy)
+            throw new InternalServerException("Cluster " + cluster.getName() + " is unhealthy: " + entry.lastError);
+        return current[0];
+    }
+
+    @Override
+    public ObjectNode getHealth(User user) {
+        ObjectNode health = Json.newObject();
+        health.put("intervalMillis", clusterFactory.getClusterHealthIntervalMillis());
+        ArrayNode clusters = health.putArray("clusters");
+        if(user == null)
+            return health;
+        Map<String, Entry> sortedEntries = new TreeMap<>(entries);
+        sortedEntries.values().stream()
+                .filter(entry -> Objects.equals(entry.cluster.user, user.id))
+                .forEach(entry -> clusters.add(toJson(entry)));
+        return health;
+    }
+
+    /***
+     * Probe the cluster right away.  The ping runs on the calling thread, a credential refresh on the cluster's
+     * stats executor.
+     */
+    F.Promise<Void> probe(Cluster cluster) {
+        Entry entry = entries.get(getKey(cluster));
+        return entry != null ? probe(entry) : F.Promise.pure(null);
+    }
+
+    private void schedule(Entry entry) {
+        if(entry.closed)
+            return;
+        try {
+            entry.next = clusterExecutors.getScheduler().schedule(
+                    () -> clusterExecutors.getStatsExecutor(entry.cluster).execute(() -> {
+                        if(entry.closed)
+                            return;
+                        if(System.currentTimeMillis() - entry.lastSeen >
+                                TimeUnit.MINUTES.toMillis(clusterFactory.getClusterHealthIdleMinutes())) {
+                            Logger.debug("Nobody asked for " + entry.key + " in a while.  Stop probing it.");
+                            entries.remove(entry.key, entry);
+                            entry.close();
+                            return;
+                        }
+                        probe(entry).onRedeem(ignored -> {
+                            if(!entry.gone)
+                                schedule(entry);
+                        });
+                    }),
+                    clusterFactory.getClusterHealthIntervalMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ree) {
+            Logger.debug("Not probing " + entry.key + ", shutting down");
+        }
+    }
+
+    /***
+     * Ping the cluster and, if that keeps failing or the certificates are about to expire, download the
+     * credentials again.  The download doesn't hold the stats executor, the rest of the probe continues on it
+     * once the credentials are in.
+     */
+    private F.Promise<Void> probe(Entry entry) {
+        Cluster cluster = entry.cluster;
+        String error = ping(entry, cluster);
+        entry.failures = error == null ? 0 : entry.failures + 1;
+        boolean failing = entry.failures >= Math.max(1, clusterFactory.getClusterHealthFailureThreshold());
+        if(!failing && !isExpiring(cluster)) {
+            finish(entry, error, false);
+            return F.Promise.pure(null);
+        }
+
+        F.RedeemablePromise<Void> done = F.RedeemablePromise.empty();
+        F.Promise<Cluster> refresh = downloadCredentials(entry, cluster);
+        refresh.onRedeem(refreshed -> continueOnStatsExecutor(cluster, done, () -> {
+            if(refreshed == null) {
+                credentialsNotRefreshed(entry, error, failing,
+                        new InternalServerException("Unable to download cluster certificates."));
+                return;
+            }
+            Cluster replacement = replace(entry, cluster, refreshed);
+            if(error == null) {
+                finish(entry, null, failing);
+                return;
+            }
+            String retryError = ping(entry, replacement);
+            if(retryError == null)
+                entry.failures = 0;
+            finish(entry, retryError, retryError != null);
+        }));
+        refresh.onFailure(throwable -> continueOnStatsExecutor(cluster, done, () -> {
+            Throwable cause = throwable;
+            //promises box errors
+            while(cause instanceof ExecutionException && cause.getCause() != null)
+                cause = cause.getCause();
+            if(cause instanceof NotFoundException) {
+                Logger.warn("Cluster " + entry.key + " is gone: " + cause.getLocalizedMessage());
+                delete(entry, cluster);
+                entry.gone = true;
+                entry.healthy = false;
+                entry.lastError = GONE;
+                return;
+            }
+            credentialsNotRefreshed(entry, error, failing, cause);
+        }));
+        return done;
+    }
+
+    private void credentialsNotRefreshed(Entry entry, String error, boolean failing, Throwable cause) {
+        Logger.warn("Unable to refresh the credentials of " + entry.key + ": " + cause.getLocalizedMessage());
+        finish(entry, error != null ? error : "unable to refresh credentials: " + cause.getLocalizedMessage(),
+                failing);
+    }
+
+    private void finish(Entry entry, String error, boolean failing) {
+        if(failing)
+            Logger.warn("Cluster " + entry.key + " is unhealthy: " + error);
+        entry.lastError = error;
+        entry.healthy = !failing;
+    }
+
+    /***
+     * Run the rest of the probe on the cluster's stats executor, so probes of one cluster never overlap
+     */
+    private void continueOnStatsExecutor(Cluster cluster, F.RedeemablePromise<Void> done, Runnable task) {
+        try {
+            clusterExecutors.getStatsExecutor(cluster).execute(() -> {
+                try {
+                    task.run();
+                    done.success(null);
+                } catch (RuntimeException e) {
+                    Logger.error("Probe of " + getKey(cluster) + " failed: " + e.getLocalizedMessage());
+                    done.failure(e);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            Logger.debug("Not finishing the probe of " + getKey(cluster) + ", shutting down");
+            done.failure(ree);
+        }
+    }
+
+    private String ping(Entry entry, Cluster cluster) {
+        long start = System.nanoTime();
+        String error = null;
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            lease.client().ping();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            error = "probe was interrupted";
+        } catch (DockerException | InternalServerException | RuntimeException e) {
+            error = String.valueOf(e.getLocalizedMessage());
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        entry.latencies.record(micros);
+        entry.lastProbeMicros = micros;
+        entry.lastProbedAt = System.currentTimeMillis();
+        entry.probes.incrementAndGet();
+        return error;
+    }
+
+    private boolean isExpiring(Cluster cluster) {
+        Date expiry = carinaClient.getCertificateExpiry(cluster);
+        return expiry != null && expiry.getTime() - System.currentTimeMillis() <
+                TimeUnit.HOURS.toMillis(clusterFactory.getClusterCertificateRefreshHours());
+    }
+
+    /***
+     * Download the credentials again.  A download that doesn't come back within REFRESH_TIMEOUT_MILLIS fails,
+     * so a hanging carina can't stop the probes.
+     */
+    private F.Promise<Cluster> downloadCredentials(Entry entry, Cluster cluster) {
+        Logger.debug("Refresh the credentials of " + entry.key);
+        F.RedeemablePromise<Cluster> download = F.RedeemablePromise.empty();
+        try {
+            download.tryCompleteWith(carinaClient.getClusterWithZipAsync(entry.user, cluster.getName()));
+        } catch (InternalServerException ise) {
+            download.failure(ise);
+            return download;
+        }
+        try {
+            ScheduledFuture<?> deadline = clusterExecutors.getScheduler().schedule(
+                    () -> download.tryCompleteWith(F.Promise.throwing(new InternalServerException(
+                            "Timed out downloading cluster certificates."))),
+                    REFRESH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if(deadline != null)
+                download.onRedeem(refreshed -> deadline.cancel(false));
+        } catch (RejectedExecutionException ree) {
+            Logger.debug("No deadline for the credentials of " + entry.key + ", shutting down");
+        }
+        return download;
+    }
+
+    /***
+     * Move the cluster over to the fresh credentials.  The cached cluster isn't touched, lookups get a new
+     * instance from check and swap it into the cluster cache.  A cluster that moved is saved with its new uri.
+     */
+    private Cluster replace(Entry entry, Cluster cluster, Cluster refreshed) {
+        boolean moved = !Objects.equals(cluster.getUri(), refreshed.getUri()) ||
+                !Objects.equals(cluster.getCert_directory(), refreshed.getCert_directory());
+        Cluster replacement = new Cluster();
+        replacement.id = cluster.id;
+        replacement.setUser(cluster.user);
+        replacement.setName(cluster.getName());
+        replacement.setUri(refreshed.getUri());
+        replacement.setCert_directory(refreshed.getCert_directory());
+        replacement.setDockerCertificates(refreshed.getDockerCertificates());
+        replacement.setCertificatesExpireAt(refreshed.getCertificatesExpireAt());
+        if(moved)
+            clusterRepository.update(replacement);
+        entries.computeIfPresent(entry.key, (key, existing) -> {
+            if(existing == entry)
+                entry.replace(replacement);
+            return existing;
+        });
+        //the old docker client holds on to the old certificates
+        dockerClientCache.invalidate(cluster);
+        if(moved)
+            clusterExecutors.evict(cluster);
+        entry.refreshes.incrementAndGet();
+        return replacement;
+    }
+
+    /***
+     * Forget the cluster everywhere, so the next lookup provisions a new one instead of failing on this one
+     */
+    private void delete(Entry entry, Cluster cluster) {
+        dockerClientCache.invalidate(cluster);
+        clusterExecutors.evict(cluster);
+        try {
+            clusterRepository.delete(cluster);
+        } catch (RuntimeException e) {
+            Logger.error("Unable to delete " + cluster + ": " + e.getLocalizedMessage());
+        }
+        clusterService.get().invalidate(cluster.getName(), entry.user);
+    }
+
+    private ObjectNode toJson(Entry entry) {
+        ObjectNode result = Json.newObject();
+        result.put("name", entry.cluster.getName());
+        result.put("user", entry.cluster.user);
+        result.put("uri", entry.cluster.getUri());
+        result.put("healthy", entry.healthy);
+        result.put("gone", entry.gone);
+        result.put("probes", entry.probes.get());
+        result.put("failures", entry.failures);
+        result.put("refreshes", entry.refreshes.get());
+        result.put("lastProbeMicros", entry.lastProbeMicros);
+        result.put("lastProbedAt", entry.lastProbedAt);
+        Date expiry = carinaClient.getCertificateExpiry(entry.cluster);
+        if(expiry != null)
+            result.put("certificatesExpireAt", expiry.getTime());
+        else
+            result.putNull("certificatesExpireAt");
+        result.put("lastError", entry.lastError);
+        result.set("latencyMicros", entry.latencies.toJson());
+        return result;
+    }
+
+    private static String getKey(Cluster cluster) {
+        return cluster.user + "/" + cluster.getName();
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final Long clusterId;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicLong probes = new AtomicLong();
+        private final AtomicLong refreshes = new AtomicLong();
+        //instances the probes replaced that the cluster cache may still hold, guarded by the entries map
+        private final Set<Cluster> superseded = Collections.newSetFromMap(new IdentityHashMap<>());
+        private volatile Cluster cluster;
+        private volatile User user;
+        private volatile long lastSeen;
+        private volatile boolean healthy = true;
+        private volatile boolean gone;
+        private volatile int failures;
+        private volatile long lastProbeMicros;
+        private volatile long lastProbedAt;
+        private volatile String lastError;
+        private volatile ScheduledFuture<?> next;
+        private volatile boolean closed;
+
+        private Entry(String key, Cluster cluster) {
+            this.key = key;
+            this.clusterId = cluster.id;
+            this.cluster = cluster;
+        }
+
+        private boolean isFor(Cluster cluster) {
+            return Objects.equals(clusterId, cluster.id) &&
+                    (Objects.equals(this.cluster.getUri(), cluster.getUri()) || superseded.contains(cluster));
+        }
+
+        /***
+         * @return the instance to hand out for the cluster the cache holds.  A cluster loaded again is taken
+         * over, one the probes replaced is swapped for its replacement.
+         */
+        private Cluster use(Cluster cluster) {
+            if(!superseded.contains(cluster)) {
+                this.cluster = cluster;
+                superseded.clear();
+            }
+            return this.cluster;
+        }
+
+        private void replace(Cluster replacement) {
+            superseded.add(cluster);
+            cluster = replacement;
+        }
+
+        private void close() {
+            closed = true;
+            if(next != null)
+                next.cancel(false);
+        }
+    }
+}
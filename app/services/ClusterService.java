@@ -1,31 +1,71 @@
 package services;
 
+import clients.DockerClientCache;
 import clients.ICarinaClient;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import exceptions.InternalServerException;
 import exceptions.NotFoundException;
 import factories.IClusterFactory;
 import models.Cluster;
 import models.User;
 import play.Logger;
+import play.libs.F;
+import play.libs.Json;
 import repositories.IClusterRepository;
 
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Created by dimi5963 on 2/29/16.
+ *
+ * Every list, stats, start, stop and test call resolves the user's cluster, so resolved clusters are cached by
+ * user and cluster name for docker.cluster.cache.ttl.minutes instead of going to the database every time.
+ *
+ * A first-time user's cluster is provisioned while the request waits.  getClusterByNameAsync hands back a promise
+ * instead, so callers that can reply later don't hold a thread for the minutes that takes.
  */
+@Singleton
 public class ClusterService implements IClusterService {
 
+    private static final long LOAD_TIMEOUT_MARGIN_MILLIS = 120000;
+
     private final IClusterRepository clusterRepository;
     private final ICarinaClient carinaClient;
     private final IClusterFactory clusterFactory;
+    private final DockerClientCache dockerClientCache;
+    private final ClusterHealthService clusterHealthService;
+    private final Cache<ClusterKey, Cluster> clusters;
+    private final ConcurrentMap<ClusterKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+    //clusters are put into the cache by the flights rather than loaded through it, so loads are counted here
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
 
     @Inject
     public ClusterService(IClusterRepository clusterRepository,
-                          ICarinaClient carinaClient, IClusterFactory clusterFactory) {
+                          ICarinaClient carinaClient, IClusterFactory clusterFactory,
+                          DockerClientCache dockerClientCache, ClusterHealthService clusterHealthService) {
         this.clusterRepository = clusterRepository;
         this.carinaClient = carinaClient;
         this.clusterFactory = clusterFactory;
+        this.dockerClientCache = dockerClientCache;
+        this.clusterHealthService = clusterHealthService;
+        this.clusters = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(0, clusterFactory.getClusterCacheMaxSize()))
+                .expireAfterWrite(Math.max(0, clusterFactory.getClusterCacheTtlMinutes()), TimeUnit.MINUTES)
+                .recordStats()
+                .build();
     }
 
 
@@ -45,48 +85,287 @@ public class ClusterService implements IClusterService {
         if(user == null)
             throw new InternalServerException("User not provided.");
 
-        Logger.debug("check to see if a cluster exists for this user");
-        Cluster reposeCluster = clusterRepository.findByUserandName(user.id, clusterName);
-        if(reposeCluster == null) {
-            //does it exist?
-            if(!doesClusterExist(clusterName, user)) {
-                if (createIfDoesNotExist) {
-                    try {
-                        carinaClient.createCluster(clusterName, user);
-                    } catch (InterruptedException ie) {
-                        ie.printStackTrace();
-                        throw new InternalServerException(ie.getLocalizedMessage());
-                    }
-                } else {
-                    //oops
-                    throw new InternalServerException("Cluster doesn't exist.");
-                }
+        ClusterKey key = new ClusterKey(user.id, clusterName);
+        Cluster cluster = clusters.getIfPresent(key);
+        if(cluster == null) {
+            try {
+                //concurrent lookups of the same cluster wait for one load
+                cluster = resolveCluster(key, clusterName, user, createIfDoesNotExist).get(getLoadTimeoutMillis());
+            } catch (Exception e) {
+                throw toInternalServerException(clusterName, e);
             }
+        }
+        return checkHealth(key, cluster, user);
+    }
+
+    @Override
+    public F.Promise<Cluster> getClusterByNameAsync(String clusterName, User user, boolean createIfDoesNotExist) {
+        Logger.debug("Get cluster " + clusterName + " without waiting");
+
+        if(user == null)
+            return F.Promise.throwing(new InternalServerException("User not provided."));
+
+        ClusterKey key = new ClusterKey(user.id, clusterName);
+        Cluster cluster = clusters.getIfPresent(key);
+        if(cluster != null) {
             try {
-                reposeCluster = carinaClient.getClusterWithZip(user, clusterName);
-                if(reposeCluster != null)
-                    clusterRepository.save(reposeCluster);
-                else
-                    throw new InternalServerException("No cluster available to save.");
-            }catch(NotFoundException | InternalServerException e ){
-                Logger.error("Unable to save new cluster. " + e.getLocalizedMessage());
-                e.printStackTrace();
-                throw new InternalServerException("Unable to save new cluster.");
+                return F.Promise.pure(checkHealth(key, cluster, user));
+            } catch (InternalServerException ise) {
+                return F.Promise.throwing(ise);
             }
         }
-        Logger.debug("Return cluster " + reposeCluster);
-        return reposeCluster;
+
+        return resolveCluster(key, clusterName, user, createIfDoesNotExist)
+                .map(resolvedCluster -> checkHealth(key, resolvedCluster, user));
+    }
+
+    @Override
+    public void invalidate(String clusterName, User user) {
+        if(user == null)
+            return;
+        ClusterKey key = new ClusterKey(user.id, clusterName);
+        Cluster cluster = clusters.getIfPresent(key);
+        Logger.debug("Invalidate cluster " + key);
+        clusters.invalidate(key);
+        //the re-provisioned cluster comes with new certificates
+        dockerClientCache.invalidate(cluster);
+    }
+
+    @Override
+    public ObjectNode getHealth(User user) {
+        return clusterHealthService.getHealth(user);
+    }
+
+    @Override
+    public ObjectNode getCacheStats() {
+        CacheStats cacheStats = clusters.stats();
+        ObjectNode stats = Json.newObject();
+        stats.put("size", clusters.size());
+        stats.put("hits", cacheStats.hitCount());
+        stats.put("misses", cacheStats.missCount());
+        stats.put("hitRate", cacheStats.hitRate());
+        long loadCount = loads.get();
+        stats.put("loads", loadCount);
+        stats.put("loadFailures", loadFailures.get());
+        stats.put("averageLoadMillis", loadCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(loadNanos.get() / loadCount));
+        stats.put("evictions", cacheStats.evictionCount());
+        stats.put("inFlight", inFlight.size());
+        stats.put("coalesced", coalesced.get());
+        stats.put("ttlMinutes", clusterFactory.getClusterCacheTtlMinutes());
+        stats.put("maxSize", clusterFactory.getClusterCacheMaxSize());
+        return stats;
+    }
+
+    /***
+     * Single-flight around loadClusterByName.  The first caller for a user and cluster name starts the load, the
+     * others get the same promise until it completes, so carina sees one create and one zip download and the
+     * cluster is saved once.  A caller that may create the cluster doesn't settle for a lookup-only flight that
+     * failed: it starts a creating one.
+     */
+    private F.Promise<Cluster> resolveCluster(ClusterKey key, String clusterName, User user,
+                                              boolean createIfDoesNotExist) {
+        Flight flight = new Flight(createIfDoesNotExist);
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if(existing != null) {
+            Logger.debug("Join the load of cluster " + key);
+            coalesced.incrementAndGet();
+            if(existing.creates || !createIfDoesNotExist)
+                return existing.cluster;
+            return existing.cluster.recoverWith(
+                    throwable -> resolveCluster(key, clusterName, user, createIfDoesNotExist));
+        }
+
+        //a flight that just finished has already cached the cluster
+        Cluster cluster = clusters.asMap().get(key);
+        if(cluster != null) {
+            inFlight.remove(key, flight);
+            flight.cluster.success(cluster);
+            return flight.cluster;
+        }
+
+        long loadStart = System.nanoTime();
+        F.Promise<Cluster> load;
+        try {
+            load = loadClusterByName(clusterName, user, createIfDoesNotExist);
+        } catch (InternalServerException | RuntimeException e) {
+            load = F.Promise.throwing(e);
+        }
+        load.onRedeem(loadedCluster -> {
+            recordLoad(loadStart, true);
+            //cache before leaving the flight so that nobody starts another load in between
+            clusters.asMap().putIfAbsent(key, loadedCluster);
+            inFlight.remove(key, flight);
+            flight.cluster.success(loadedCluster);
+        });
+        load.onFailure(throwable -> {
+            recordLoad(loadStart, false);
+            inFlight.remove(key, flight);
+            flight.cluster.failure(toInternalServerException(clusterName, throwable));
+        });
+        return flight.cluster;
+    }
+
+    private void recordLoad(long loadStart, boolean succeeded) {
+        loadNanos.addAndGet(System.nanoTime() - loadStart);
+        loads.incrementAndGet();
+        if(!succeeded)
+            loadFailures.incrementAndGet();
+    }
+
+    /***
+     * Look the cluster up in the database, otherwise in carina, creating it if asked to.  Nothing here waits on
+     * carina: the status check, the provisioning and the zip download are chained promises.
+     */
+    private F.Promise<Cluster> loadClusterByName(String clusterName, User user, boolean createIfDoesNotExist)
+            throws InternalServerException {
+        Logger.debug("check to see if a cluster exists for this user");
+        Cluster reposeCluster = clusterRepository.findByUserandName(user.id, clusterName);
+        if(reposeCluster != null) {
+            if(carinaClient.isMissingCertificates(reposeCluster))
+                return refreshCertificates(reposeCluster, clusterName, user);
+            Logger.debug("Return cluster " + reposeCluster);
+            warmDockerClient(reposeCluster);
+            return F.Promise.pure(reposeCluster);
+        }
+        return carinaClient.getClusterStatus(clusterName, user).flatMap(statusNode -> {
+            //does it exist?
+            if(statusNode != null && statusNode.asText().equals("active"))
+                return F.Promise.pure(true);
+            if(!createIfDoesNotExist)
+                //oops
+                throw new InternalServerException("Cluster doesn't exist.");
+            return carinaClient.createCluster(clusterName, user);
+        }).flatMap(active -> saveClusterWithZip(clusterName, user)).map(cluster -> {
+            Logger.debug("Return cluster " + cluster);
+            warmDockerClient(cluster);
+            return cluster;
+        });
+    }
+
+    /***
+     * The certificates of a stored cluster were only kept in memory.  Download them again instead of failing
+     * every docker call.
+     */
+    private F.Promise<Cluster> refreshCertificates(Cluster reposeCluster, String clusterName, User user) {
+        Logger.debug("Certificates of " + reposeCluster + " are gone.  Download them again");
+        F.Promise<Cluster> clusterWithZip;
+        try {
+            clusterWithZip = carinaClient.getClusterWithZipAsync(user, clusterName);
+        } catch (InternalServerException ise) {
+            clusterWithZip = F.Promise.throwing(ise);
+        }
+        return clusterWithZip.map(cluster -> {
+            if(cluster == null)
+                throw new InternalServerException("Unable to download cluster certificates.");
+            reposeCluster.setDockerCertificates(cluster.getDockerCertificates());
+            warmDockerClient(reposeCluster);
+            return reposeCluster;
+        });
     }
 
-    private boolean doesClusterExist(String clusterName, User user) throws InternalServerException {
-        JsonNode statusNode = carinaClient.getCluster(clusterName, user);
-        if(statusNode != null) {
-            return statusNode.asText().equals("active");
-        }else {
-            return false;
+    private F.Promise<Cluster> saveClusterWithZip(String clusterName, User user) {
+        F.Promise<Cluster> clusterWithZip;
+        try {
+            clusterWithZip = carinaClient.getClusterWithZipAsync(user, clusterName);
+        } catch (InternalServerException ise) {
+            clusterWithZip = F.Promise.throwing(ise);
         }
+        return clusterWithZip.map(cluster -> {
+            if(cluster == null)
+                throw new InternalServerException("No cluster available to save.");
+            clusterRepository.save(cluster);
+            return cluster;
+        }).recover(throwable -> {
+            if(!(throwable instanceof NotFoundException || throwable instanceof InternalServerException))
+                throw throwable;
+            Logger.error("Unable to save new cluster. " + throwable.getLocalizedMessage());
+            throwable.printStackTrace();
+            throw new InternalServerException("Unable to save new cluster.");
+        });
+    }
 
+    /***
+     * Hand the cluster out only if its last probes were fine.  An unhealthy cluster isn't kept in the cache either,
+     * so the next lookup sees what the health checks did to it, e.g. a gone cluster provisioned again.  A cluster
+     * whose credentials were refreshed is swapped for its new instance, unless the cache moved on already.
+     */
+    private Cluster checkHealth(ClusterKey key, Cluster cluster, User user) throws InternalServerException {
+        try {
+            Cluster current = clusterHealthService.check(cluster, user);
+            if(current != null && current != cluster)
+                clusters.asMap().replace(key, cluster, current);
+            return current;
+        } catch (InternalServerException ise) {
+            clusters.invalidate(key);
+            throw ise;
+        }
     }
 
+    /***
+     * Provisioning is bounded by its own deadline.  On top of it a blocking caller allows for the status check
+     * and the zip download.
+     */
+    private long getLoadTimeoutMillis() {
+        return TimeUnit.SECONDS.toMillis(Math.max(0, clusterFactory.getClusterProvisionDeadlineSeconds())) +
+                LOAD_TIMEOUT_MARGIN_MILLIS;
+    }
+
+    private InternalServerException toInternalServerException(String clusterName, Throwable throwable) {
+        //promises box interrupts and errors
+        while(throwable instanceof ExecutionException && throwable.getCause() != null)
+            throwable = throwable.getCause();
+        if(throwable instanceof InternalServerException)
+            return (InternalServerException) throwable;
+        Logger.error("Unable to get cluster " + clusterName + ": " + throwable);
+        return new InternalServerException(throwable.getLocalizedMessage());
+    }
 
+    /***
+     * Build the cluster's docker client along with the cluster, so the first docker call doesn't pay for the
+     * TLS setup.  A cluster that can't get a client yet is still returned.
+     */
+    private void warmDockerClient(Cluster cluster) {
+        try {
+            dockerClientCache.lease(cluster).close();
+        } catch (InternalServerException ise) {
+            Logger.warn("Unable to warm the docker client for " + cluster + ": " + ise.getLocalizedMessage());
+        }
+    }
+
+    private static final class Flight {
+        private final F.RedeemablePromise<Cluster> cluster = F.RedeemablePromise.empty();
+        private final boolean creates;
+
+        private Flight(boolean creates) {
+            this.creates = creates;
+        }
+    }
+
+    private static final class ClusterKey {
+        private final Long userId;
+        private final String name;
+
+        private ClusterKey(Long userId, String name) {
+            this.userId = userId;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ClusterKey)) return false;
+            ClusterKey that = (ClusterKey) o;
+            return Objects.equals(userId, that.userId) && Objects.equals(name, that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, name);
+        }
+
+        @Override
+        public String toString() {
+            return name + " (user " + userId + ")";
+        }
+    }
 }
@@ -1,11 +1,12 @@
 package services;
 
 import com.google.inject.ImplementedBy;
-import exceptions.InternalServerException;
 import models.Configuration;
 import models.User;
+import play.libs.F;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by dimi5963 on 3/2/16.
@@ -13,5 +14,13 @@ import java.util.List;
 @ImplementedBy(ConfigurationServiceImpl.class)
 public interface ConfigurationService {
 
-    List<Configuration> getConfigurationsForInstance(User user, String containerId) throws InternalServerException;
+    /***
+     * Provisioning the user's cluster doesn't hold a thread, so the promise fails with InternalServerException
+     */
+    F.Promise<List<Configuration>> getConfigurationsForInstance(User user, String containerId, Set<String> names);
+
+    /***
+     * @return promise of true if repose reported the reload.  Fails with InternalServerException.
+     */
+    F.Promise<Boolean> reconfigureInstance(User user, String containerId, List<Configuration> configurationList);
 }
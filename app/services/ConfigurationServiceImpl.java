@@ -1,8 +1,6 @@
 package services;
 
 import clients.IDockerClient;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
 import exceptions.InternalServerException;
 import factories.IClusterFactory;
@@ -10,9 +8,10 @@ import models.Cluster;
 import models.Configuration;
 import models.User;
 import play.Logger;
+import play.libs.F;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by dimi5963 on 3/2/16.
@@ -37,29 +36,52 @@ public class ConfigurationServiceImpl implements ConfigurationService {
      * Get cluster first and then use its creds to start the container
      * @param user
      * @param containerId
-     * @throws InternalServerException
+     * @param names configuration file names to return.  Null or empty returns every configuration.
+     * @return promise of the configurations.  Fails with InternalServerException.
      */
     @Override
-    public List<Configuration> getConfigurationsForInstance(User user, String containerId) throws InternalServerException {
+    public F.Promise<List<Configuration>> getConfigurationsForInstance(User user, String containerId,
+                                                                      Set<String> names) {
         Logger.debug("Get configurations for " + containerId);
-        ObjectNode response = JsonNodeFactory.instance.objectNode();
-        List<Configuration> configurationList = new ArrayList<Configuration>();
+        return getClusterAsync(user).map(cluster ->
+                dockerClient.getConfigurationsForInstance(cluster, user, containerId, names));
+    }
+
+    /***
+     * Push changed configurations into the running repose instance without rebuilding it.
+     * @param user
+     * @param containerId
+     * @param configurationList configurations to overwrite in /etc/repose
+     * @return promise of true if repose reported the reload.  Fails with InternalServerException.
+     */
+    @Override
+    public F.Promise<Boolean> reconfigureInstance(User user, String containerId,
+                                                  List<Configuration> configurationList) {
+        Logger.debug("Reconfigure " + containerId);
+        return getClusterAsync(user).map(cluster ->
+                dockerClient.reconfigureReposeInstance(cluster, user, containerId, configurationList));
+    }
+
+    /***
+     * The user's cluster, without holding a thread while it is provisioned
+     */
+    private F.Promise<Cluster> getClusterAsync(User user) {
         String clusterName = clusterFactory.getClusterName();
         boolean createClusterIfDNE = true;
 
         if(clusterName != null) {
-            Cluster cluster = clusterService.getClusterByName(clusterName, user, createClusterIfDNE);
-            if(cluster != null) {
-                configurationList = dockerClient.getConfigurationsForInstance(cluster, containerId);
-
-            } else {
-                Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
-                throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
-            }
+            return clusterService.getClusterByNameAsync(clusterName, user, createClusterIfDNE).map(cluster -> {
+                if(cluster != null) {
+                    return cluster;
+                } else {
+                    Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
+                    throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
+                }
+            });
         } else {
             Logger.error("What cluster am I supposed to create?  Misconfigured.");
-            throw new InternalServerException("What cluster am I supposed to create?  Misconfigured.");
+            return F.Promise.throwing(
+                    new InternalServerException("What cluster am I supposed to create?  Misconfigured."));
         }
-        return configurationList;
     }
 }
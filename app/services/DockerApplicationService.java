@@ -1,5 +1,6 @@
 package services;
 
+import clients.BuildListener;
 import clients.IDockerClient;
 import com.google.inject.Inject;
 import exceptions.InternalServerException;
@@ -24,15 +25,17 @@ public class DockerApplicationService implements ApplicationService {
 
     @Override
     public String createReposeInstance(Cluster cluster, User user,
-                                       List<Configuration> configurationList, String versionId)
+                                       List<Configuration> configurationList, String versionId,
+                                       BuildListener listener)
             throws InternalServerException {
-        return dockerClient.createReposeInstance(cluster, user, versionId, configurationList);
+        return dockerClient.createReposeInstance(cluster, user, versionId, configurationList, listener);
     }
 
     @Override
-    public String createOriginInstance(Cluster cluster, User user, String versionId) throws InternalServerException {
+    public String createOriginInstance(Cluster cluster, User user, String versionId, BuildListener listener)
+            throws InternalServerException {
         Logger.debug("create origin instance " + user + " for version " + versionId);
-        return dockerClient.createOriginInstance(cluster, user, versionId);
+        return dockerClient.createOriginInstance(cluster, user, versionId, listener);
 
     }
 
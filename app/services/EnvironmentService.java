@@ -1,5 +1,6 @@
 package services;
 
+import clients.BuildListener;
 import com.google.inject.ImplementedBy;
 import exceptions.InternalServerException;
 import models.Cluster;
@@ -15,7 +16,7 @@ import java.util.List;
 public interface EnvironmentService {
 
     String generatedOriginEnvironment(Cluster cluster, String versionId, User user,
-                                      List<Configuration> configurationList)
+                                      List<Configuration> configurationList, BuildListener listener)
             throws InternalServerException;
 
 
@@ -1,5 +1,6 @@
 package services;
 
+import clients.BuildListener;
 import com.google.inject.Inject;
 import exceptions.InternalServerException;
 import models.Cluster;
@@ -23,11 +24,12 @@ public class EnvironmentServiceImpl implements EnvironmentService{
 
     @Override
     public String generatedOriginEnvironment(Cluster cluster, String versionId, User user,
-                                             List<Configuration> configurationList)
+                                             List<Configuration> configurationList, BuildListener listener)
             throws InternalServerException {
-        String originId = applicationService.createOriginInstance(cluster, user, versionId);
+        listener.phase(BuildListener.ORIGIN);
+        String originId = applicationService.createOriginInstance(cluster, user, versionId, listener);
         if (originId != null)
-            return applicationService.createReposeInstance(cluster, user, configurationList, versionId);
+            return applicationService.createReposeInstance(cluster, user, configurationList, versionId, listener);
         else
             throw new InternalServerException("Unable to start origin service.");
 
@@ -1,9 +1,11 @@
 package services;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.ImplementedBy;
 import exceptions.InternalServerException;
 import models.Cluster;
 import models.User;
+import play.libs.F;
 
 /**
  * Created by dimi5963 on 2/29/16.
@@ -11,7 +13,41 @@ import models.User;
 @ImplementedBy(ClusterService.class)
 public interface IClusterService {
 
+    /***
+     * Waits for carina while the cluster is provisioned, so only for background jobs.  Requests use
+     * getClusterByNameAsync.
+     */
     Cluster getClusterByName(String clusterName, User user, boolean createIfDoesNotExist)
             throws InternalServerException;
 
+    /***
+     * Like getClusterByName, but waits for carina without holding a thread.  A cached cluster is returned
+     * right away.  Concurrent lookups of the same cluster, blocking or not, share one load.
+     * @param clusterName cluster name
+     * @param user User model
+     * @param createIfDoesNotExist provision the cluster if carina doesn't have it
+     * @return promise of the cluster.  Fails with InternalServerException.
+     */
+    F.Promise<Cluster> getClusterByNameAsync(String clusterName, User user, boolean createIfDoesNotExist);
+
+    /***
+     * Drop the cached cluster and its docker client, e.g. once the health checks deleted a cluster carina no
+     * longer has.  The next lookup loads it again, and provisions a new one if it is gone.
+     * @param clusterName cluster name
+     * @param user User model
+     */
+    void invalidate(String clusterName, User user);
+
+    /***
+     * @return size, hits, misses, hitRate, loads, loadFailures, averageLoadMillis and evictions of the cluster cache,
+     * inFlight loads and how many lookups were coalesced into a load already in flight
+     */
+    ObjectNode getCacheStats();
+
+    /***
+     * @param user User model
+     * @return probe results of the user's clusters in use, see ClusterHealthService
+     */
+    ObjectNode getHealth(User user);
+
 }
@@ -1,5 +1,8 @@
 package services;
 
+import clients.BuildListener;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.ImplementedBy;
 import exceptions.InternalServerException;
 import models.Configuration;
@@ -7,8 +10,10 @@ import models.Container;
 import models.ContainerStats;
 import models.ReposeEnvironmentType;
 import models.User;
+import play.libs.F;
 
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * Created by dimi5963 on 2/29/16.
@@ -16,20 +21,56 @@ import java.util.List;
 @ImplementedBy(ReposeService.class)
 public interface IReposeService {
 
-    List<Container> getReposeList(User user) throws InternalServerException;
+    /***
+     * List the user's repose containers once the cluster is there.  Provisioning a new cluster doesn't hold a
+     * thread.
+     * @param user User model
+     * @return promise of the containers.  Fails with InternalServerException if the cluster can't be resolved.
+     * @throws InternalServerException if the cluster name is misconfigured
+     */
+    F.Promise<List<Container>> getReposeList(User user) throws InternalServerException;
 
-    boolean stopReposeInstance(User user, String containerId) throws InternalServerException;
+    /***
+     * The calls below resolve the user's cluster first.  Provisioning a new cluster doesn't hold a thread, so they
+     * return promises that fail with InternalServerException.
+     */
+    F.Promise<Boolean> stopReposeInstance(User user, String containerId);
 
-    boolean startReposeInstance(User user, String containerId) throws InternalServerException;
+    F.Promise<Boolean> startReposeInstance(User user, String containerId);
 
-    ContainerStats getInstanceStats(User user, String containerId) throws InternalServerException;
+    F.Promise<ContainerStats> getInstanceStats(User user, String containerId);
+
+    F.Promise<Void> subscribeInstanceStats(User user, String containerId, BiConsumer<String, JsonNode> listener);
+
+    F.Promise<Void> unsubscribeInstanceStats(User user, String containerId, BiConsumer<String, JsonNode> listener);
+
+    F.Promise<ObjectNode> getWarmPoolStats(User user);
+
+    F.Promise<ObjectNode> getContainerCacheStats(User user);
+
+    ObjectNode getClusterCacheStats();
+
+    ObjectNode getClusterHealth(User user);
 
     //boolean deleteReposeInstance(User user, String containerId) throws InternalServerException;
 
     //boolean createReposeInstance(User user, String containerId) throws InternalServerException;
 
+    /***
+     * Runs in a background build job, so it waits for the cluster on the job's thread
+     */
     String setUpReposeEnvironment(ReposeEnvironmentType reposeEnvironmentType,
-                                  User user, String versionId, List<Configuration> configs)
+                                  User user, String versionId, List<Configuration> configs,
+                                  BuildListener listener)
             throws InternalServerException;
 
+    /***
+     * Same as setUpReposeEnvironment, for requests.  The build starts once the cluster is resolved instead of
+     * holding the request thread while it is provisioned.
+     * @return promise of the repose id.  Fails with InternalServerException.
+     */
+    F.Promise<String> setUpReposeEnvironmentAsync(ReposeEnvironmentType reposeEnvironmentType,
+                                                  User user, String versionId, List<Configuration> configs,
+                                                  BuildListener listener);
+
 }
@@ -10,4 +10,21 @@ import models.User;
 public interface IUserService {
     boolean isValid(String token);
     User findByToken(String token);
+
+    /***
+     * EventSource can't set headers, and a token in the url ends up in access logs and browser history.
+     * Trade a valid token for a short-lived ticket that opens one stream, once.
+     * @param token user's token
+     * @param stream the stream the ticket opens, e.g. repose/stats/{id}
+     * @return ticket or null if the token is not valid
+     */
+    String issueStreamTicket(String token, String stream);
+
+    /***
+     * Use up a stream ticket
+     * @param ticket ticket from issueStreamTicket
+     * @param stream the stream being opened
+     * @return User or null if the ticket is unknown, used, expired, for another stream or its token expired
+     */
+    User redeemStreamTicket(String ticket, String stream);
 }
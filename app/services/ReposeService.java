@@ -1,14 +1,19 @@
 package services;
 
+import clients.BuildListener;
 import clients.IDockerClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
 import exceptions.InternalServerException;
 import factories.ConfigurationFactory;
 import factories.IClusterFactory;
 import models.*;
 import play.Logger;
+import play.libs.F;
 
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * Created by dimi5963 on 2/29/16.
@@ -34,7 +39,7 @@ public class ReposeService implements IReposeService {
     }
 
     @Override
-    public List<Container> getReposeList(User user) throws InternalServerException {
+    public F.Promise<List<Container>> getReposeList(User user) throws InternalServerException {
         Logger.debug("Get repose instances");
 
         Logger.debug("We want to create the cluster if it doesn't already exist");
@@ -42,13 +47,14 @@ public class ReposeService implements IReposeService {
         String clusterName = clusterFactory.getClusterName();
 
         if (clusterName != null) {
-            Cluster cluster = clusterService.getClusterByName(clusterName, user, createClusterIfDNE);
-            if (cluster != null)
-                return dockerClient.getReposeContainers(cluster, user);
-            else {
-                Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
-                throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
-            }
+            return clusterService.getClusterByNameAsync(clusterName, user, createClusterIfDNE).map(cluster -> {
+                if (cluster != null)
+                    return dockerClient.getReposeContainers(cluster, user);
+                else {
+                    Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
+                    throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
+                }
+            });
         } else {
             Logger.error("What cluster am I supposed to create?  Misconfigured.");
             throw new InternalServerException("What cluster am I supposed to create?  Misconfigured.");
@@ -57,61 +63,87 @@ public class ReposeService implements IReposeService {
     }
 
     @Override
-    public boolean stopReposeInstance(User user, String containerId) throws InternalServerException {
+    public F.Promise<Boolean> stopReposeInstance(User user, String containerId) {
         Logger.debug("Stop repose instance " + containerId);
+        return getClusterAsync(user).map(cluster -> dockerClient.stopReposeInstance(cluster, user, containerId));
+    }
 
-        Logger.debug("We want to create the cluster if it doesn't already exist");
-        boolean createClusterIfDNE = true;
-        String clusterName = clusterFactory.getClusterName();
+    @Override
+    public F.Promise<Boolean> startReposeInstance(User user, String containerId) {
+        Logger.debug("Start repose instance " + containerId);
+        return getClusterAsync(user).map(cluster -> dockerClient.startReposeInstance(cluster, user, containerId));
+    }
 
-        if (clusterName != null) {
-            Cluster cluster = clusterService.getClusterByName(clusterName, user, createClusterIfDNE);
-            if (cluster != null)
-                return dockerClient.stopReposeInstance(cluster, containerId);
-            else {
-                Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
-                throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
-            }
-        } else {
-            Logger.error("What cluster am I supposed to create?  Misconfigured.");
-            throw new InternalServerException("What cluster am I supposed to create?  Misconfigured.");
-        }
+    @Override
+    public F.Promise<ContainerStats> getInstanceStats(User user, String containerId) {
+        Logger.debug("Return repose instance stats for " + containerId);
+        return getClusterAsync(user).map(cluster -> dockerClient.getReposeInstanceStats(cluster, user, containerId));
     }
 
     @Override
-    public boolean startReposeInstance(User user, String containerId) throws InternalServerException {
-        Logger.debug("Start repose instance " + containerId);
+    public F.Promise<Void> subscribeInstanceStats(User user, String containerId,
+                                                  BiConsumer<String, JsonNode> listener) {
+        Logger.debug("Stream repose instance stats for " + containerId);
+        return getClusterAsync(user).<Void>map(cluster -> {
+            dockerClient.subscribeReposeInstanceStats(cluster, user, containerId, listener);
+            return null;
+        });
+    }
 
-        Logger.debug("We want to create the cluster if it doesn't already exist");
-        boolean createClusterIfDNE = true;
-        String clusterName = clusterFactory.getClusterName();
+    @Override
+    public F.Promise<Void> unsubscribeInstanceStats(User user, String containerId,
+                                                    BiConsumer<String, JsonNode> listener) {
+        Logger.debug("Stop streaming repose instance stats for " + containerId);
+        return getClusterAsync(user).<Void>map(cluster -> {
+            dockerClient.unsubscribeReposeInstanceStats(cluster, containerId, listener);
+            return null;
+        });
+    }
 
-        if (clusterName != null) {
-            Cluster cluster = clusterService.getClusterByName(clusterName, user, createClusterIfDNE);
-            if (cluster != null)
-                return dockerClient.startReposeInstance(cluster, containerId);
-            else {
-                Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
-                throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
-            }
-        } else {
-            Logger.error("What cluster am I supposed to create?  Misconfigured.");
-            throw new InternalServerException("What cluster am I supposed to create?  Misconfigured.");
-        }
+    @Override
+    public F.Promise<ObjectNode> getWarmPoolStats(User user) {
+        Logger.debug("Get warm pool stats");
+        return getClusterAsync(user).map(dockerClient::getWarmPoolStats);
     }
 
     @Override
-    public ContainerStats getInstanceStats(User user, String containerId) throws InternalServerException {
-        Logger.debug("Return repose instance stats for " + containerId);
+    public F.Promise<ObjectNode> getContainerCacheStats(User user) {
+        Logger.debug("Get container cache stats");
+        return getClusterAsync(user).map(dockerClient::getContainerCacheStats);
+    }
+
+    @Override
+    public ObjectNode getClusterCacheStats() {
+        Logger.debug("Get cluster cache stats");
+        return clusterService.getCacheStats();
+    }
+
+    @Override
+    public ObjectNode getClusterHealth(User user) {
+        Logger.debug("Get cluster health");
+        return clusterService.getHealth(user);
+    }
+
+    @Override
+    public String setUpReposeEnvironment(ReposeEnvironmentType reposeEnvironmentType,
+                                         User user, String versionId, List<Configuration> configurationList,
+                                         BuildListener listener)
+            throws InternalServerException {
+        Logger.debug("Set up repose instance for version " + versionId + " with type " + reposeEnvironmentType);
+        if(reposeEnvironmentType == null)
+            throw new InternalServerException("Environment type not defined.");
 
         Logger.debug("We want to create the cluster if it doesn't already exist");
+        listener.phase(BuildListener.CLUSTER);
         boolean createClusterIfDNE = true;
         String clusterName = clusterFactory.getClusterName();
+
         if (clusterName != null) {
             Cluster cluster = clusterService.getClusterByName(clusterName, user, createClusterIfDNE);
-            if (cluster != null)
-                return dockerClient.getReposeInstanceStats(cluster, containerId);
-            else {
+            if (cluster != null) {
+                return setUpReposeEnvironment(reposeEnvironmentType, cluster, user, versionId, configurationList,
+                        listener);
+            } else {
                 Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
                 throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
             }
@@ -122,48 +154,65 @@ public class ReposeService implements IReposeService {
     }
 
     @Override
-    public String setUpReposeEnvironment(ReposeEnvironmentType reposeEnvironmentType,
-                                         User user, String versionId, List<Configuration> configurationList)
-            throws InternalServerException {
+    public F.Promise<String> setUpReposeEnvironmentAsync(ReposeEnvironmentType reposeEnvironmentType,
+                                                         User user, String versionId,
+                                                         List<Configuration> configurationList,
+                                                         BuildListener listener) {
         Logger.debug("Set up repose instance for version " + versionId + " with type " + reposeEnvironmentType);
         if(reposeEnvironmentType == null)
-            throw new InternalServerException("Environment type not defined.");
+            return F.Promise.throwing(new InternalServerException("Environment type not defined."));
+
+        listener.phase(BuildListener.CLUSTER);
+        return getClusterAsync(user).map(cluster -> setUpReposeEnvironment(reposeEnvironmentType, cluster, user,
+                versionId, configurationList, listener));
+    }
+
+    private String setUpReposeEnvironment(ReposeEnvironmentType reposeEnvironmentType, Cluster cluster,
+                                          User user, String versionId, List<Configuration> configurationList,
+                                          BuildListener listener)
+            throws InternalServerException {
+        switch(reposeEnvironmentType){
+            case GENERATED_ORIGIN:
+                return environmentService.generatedOriginEnvironment(cluster,
+                        versionId, user, configurationList, listener);
+            case GENERATED_THIRDPARTIES:
+                throw new InternalServerException("Currently not implemented.");
+            case MIXED_THIRD_PARTIES:
+                throw new InternalServerException("Currently not implemented.");
+            case SPECIFIED_ORIGIN:
+                throw new InternalServerException("Currently not implemented.");
+            case SPECIFIED_ORIGIN_GENERATED_THIRD_PARTIES:
+                throw new InternalServerException("Currently not implemented.");
+            case SPECIFIED_ORIGIN_MIXED_THIRD_PARTIES:
+                throw new InternalServerException("Currently not implemented.");
+            case SPECIFIED_ORIGIN_SPECIFIED_THIRD_PARTIES:
+                throw new InternalServerException("Currently not implemented.");
+            default:
+                return environmentService.generatedOriginEnvironment(cluster,
+                        versionId, user, configurationList, listener);
+        }
+    }
 
+    /***
+     * The user's cluster, without holding a thread while it is provisioned
+     * @return promise of the cluster.  Fails with InternalServerException if it can't be resolved or the cluster
+     * name is misconfigured.
+     */
+    private F.Promise<Cluster> getClusterAsync(User user) {
         Logger.debug("We want to create the cluster if it doesn't already exist");
         boolean createClusterIfDNE = true;
         String clusterName = clusterFactory.getClusterName();
-
         if (clusterName != null) {
-            Cluster cluster = clusterService.getClusterByName(clusterName, user, createClusterIfDNE);
-            if (cluster != null) {
-                switch(reposeEnvironmentType){
-                    case GENERATED_ORIGIN:
-                        return environmentService.generatedOriginEnvironment(cluster,
-                                versionId, user, configurationList);
-                    case GENERATED_THIRDPARTIES:
-                        throw new InternalServerException("Currently not implemented.");
-                    case MIXED_THIRD_PARTIES:
-                        throw new InternalServerException("Currently not implemented.");
-                    case SPECIFIED_ORIGIN:
-                        throw new InternalServerException("Currently not implemented.");
-                    case SPECIFIED_ORIGIN_GENERATED_THIRD_PARTIES:
-                        throw new InternalServerException("Currently not implemented.");
-                    case SPECIFIED_ORIGIN_MIXED_THIRD_PARTIES:
-                        throw new InternalServerException("Currently not implemented.");
-                    case SPECIFIED_ORIGIN_SPECIFIED_THIRD_PARTIES:
-                        throw new InternalServerException("Currently not implemented.");
-                    default:
-                        return environmentService.generatedOriginEnvironment(cluster,
-                                versionId, user, configurationList);
-
-                }
-            } else {
+            return clusterService.getClusterByNameAsync(clusterName, user, createClusterIfDNE).map(cluster -> {
+                if (cluster != null)
+                    return cluster;
                 Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
                 throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
-            }
+            });
         } else {
             Logger.error("What cluster am I supposed to create?  Misconfigured.");
-            throw new InternalServerException("What cluster am I supposed to create?  Misconfigured.");
+            return F.Promise.throwing(
+                    new InternalServerException("What cluster am I supposed to create?  Misconfigured."));
         }
     }
 }
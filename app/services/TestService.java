@@ -3,8 +3,8 @@ package services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.ImplementedBy;
-import exceptions.InternalServerException;
 import models.User;
+import play.libs.F;
 
 /**
  * Created by dimi5963 on 3/6/16.
@@ -12,5 +12,38 @@ import models.User;
 @ImplementedBy(TestServiceImpl.class)
 public interface TestService {
 
-    ObjectNode testReposeInstance(User user, String containerId, JsonNode requestBody) throws InternalServerException;
+    /***
+     * Run a test request against the repose instance once the user's cluster is there.  Provisioning the cluster
+     * doesn't hold a thread.
+     * @param user User model
+     * @param containerId container id
+     * @param requestBody test request
+     * @return promise of the test result.  Fails with InternalServerException if the request is malformed or the
+     * instance can't be tested.
+     */
+    F.Promise<ObjectNode> testReposeInstance(User user, String containerId, JsonNode requestBody);
+
+    /***
+     * Run several test requests against the repose instance in one go
+     * @param user User model
+     * @param containerId container id
+     * @param requestBody array of test requests, or {"requests": [...], "concurrency": n}.
+     *                    Without concurrency the requests run in sequence.  Either way each gets the log
+     *                    entries of its own x-trans-id.
+     * @return promise of the batch result with one response per request.  Fails with InternalServerException if
+     * the batch is malformed or too big, or the instance can't be tested.
+     */
+    F.Promise<ObjectNode> testReposeInstanceBatch(User user, String containerId, JsonNode requestBody);
+
+    /***
+     * Load test the repose instance with copies of one test request
+     * @param user User model
+     * @param containerId container id
+     * @param requestBody {"request": {...}, "concurrency": n, "rate": r, "durationSeconds": d}.  Concurrency
+     *                    defaults to 1, rate to 0 (as fast as the concurrency allows) and duration to 10 seconds,
+     *                    all of them are capped by the docker.loadtest settings.
+     * @return promise of the load test result with throughput, error and status code counts and latency
+     * percentiles.  Fails with InternalServerException if the request is malformed or the instance can't be tested.
+     */
+    F.Promise<ObjectNode> loadTestReposeInstance(User user, String containerId, JsonNode requestBody);
 }
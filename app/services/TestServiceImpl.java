@@ -1,5 +1,6 @@
 package services;
 
+import clients.ClusterExecutors;
 import clients.IDockerClient;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
@@ -12,6 +13,12 @@ import models.Cluster;
 import models.TestRequest;
 import models.User;
 import play.Logger;
+import play.libs.F;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by dimi5963 on 3/6/16.
@@ -22,38 +29,116 @@ public class TestServiceImpl implements  TestService {
     private final IClusterService clusterService;
     private final IDockerClient dockerClient;
     private final TestFactory testFactory;
+    private final ClusterExecutors clusterExecutors;
 
     @Inject
     public TestServiceImpl(IClusterService clusterService, IClusterFactory clusterFactory,
-                           IDockerClient dockerClient, TestFactory testFactory) {
+                           IDockerClient dockerClient, TestFactory testFactory, ClusterExecutors clusterExecutors) {
         this.clusterService = clusterService;
         this.clusterFactory = clusterFactory;
         this.dockerClient = dockerClient;
         this.testFactory = testFactory;
+        this.clusterExecutors = clusterExecutors;
     }
 
-    public ObjectNode testReposeInstance(User user, String containerId, JsonNode requestBody) throws InternalServerException {
+    public F.Promise<ObjectNode> testReposeInstance(User user, String containerId, JsonNode requestBody) {
         Logger.debug("test repose instance " + containerId);
 
         if(requestBody == null)
-            throw new InternalServerException("Request is malformed.");
+            return F.Promise.throwing(new InternalServerException("Request is malformed."));
+
+        return getClusterAsync(user).map(cluster -> {
+            ObjectNode response = JsonNodeFactory.instance.objectNode();
+            response.putPOJO("request", requestBody);
+            TestRequest testRequest = testFactory.translateRequest(requestBody);
+            return dockerClient.executeTestAgainstRepose(cluster, user, containerId, testRequest, response);
+        });
+    }
+
+    @Override
+    public F.Promise<ObjectNode> testReposeInstanceBatch(User user, String containerId, JsonNode requestBody) {
+        Logger.debug("test repose instance " + containerId + " with a batch");
+
+        JsonNode requests = requestBody != null && requestBody.isObject() ? requestBody.get("requests") : requestBody;
+        if(requests == null || !requests.isArray() || requests.size() == 0)
+            return F.Promise.throwing(new InternalServerException("Request is malformed."));
+        if(requests.size() > clusterFactory.getTestBatchMaxRequests())
+            return F.Promise.throwing(new InternalServerException("A batch can have at most " +
+                    clusterFactory.getTestBatchMaxRequests() + " requests."));
+        int concurrency = requestBody.isObject() ? requestBody.path("concurrency").asInt(1) : 1;
+
+        return getClusterAsync(user).map(cluster -> {
+            List<TestRequest> testRequests = new ArrayList<>();
+            List<ObjectNode> responses = new ArrayList<>();
+            for(JsonNode request: requests) {
+                ObjectNode response = JsonNodeFactory.instance.objectNode();
+                response.set("request", request);
+                responses.add(response);
+                testRequests.add(testFactory.translateRequest(request));
+            }
+            return dockerClient.executeTestsAgainstRepose(cluster, user, containerId, testRequests, responses,
+                    concurrency);
+        });
+    }
+
+    @Override
+    public F.Promise<ObjectNode> loadTestReposeInstance(User user, String containerId, JsonNode requestBody) {
+        Logger.debug("load test repose instance " + containerId);
+
+        if(requestBody == null || !requestBody.isObject() || !requestBody.path("request").isObject())
+            return F.Promise.throwing(new InternalServerException("Request is malformed."));
+        int concurrency = requestBody.path("concurrency").asInt(1);
+        int rate = requestBody.path("rate").asInt(0);
+        long durationSeconds = requestBody.path("durationSeconds").asLong(10);
+        if(concurrency < 1 || rate < 0 || durationSeconds < 1)
+            return F.Promise.throwing(new InternalServerException("Request is malformed."));
+
+        //the run and the logging reconfigurations around it take minutes, so they wait on the cluster's test
+        //executor instead of a request thread
+        return getClusterAsync(user).flatMap(cluster -> {
+            F.RedeemablePromise<ObjectNode> result = F.RedeemablePromise.empty();
+            try {
+                clusterExecutors.getTestExecutor(cluster).execute(() -> {
+                    try {
+                        TestRequest testRequest = testFactory.translateRequest(requestBody.get("request"));
+                        ObjectNode response = dockerClient.executeLoadTestAgainstRepose(cluster, user, containerId,
+                                testRequest, Math.min(concurrency, clusterFactory.getLoadTestMaxConcurrency()),
+                                Math.min(rate, clusterFactory.getLoadTestMaxRate()),
+                                TimeUnit.SECONDS.toMillis(Math.min(durationSeconds,
+                                        clusterFactory.getLoadTestMaxDurationSeconds())));
+                        response.set("request", requestBody.get("request"));
+                        result.success(response);
+                    } catch (InternalServerException | RuntimeException e) {
+                        result.failure(e);
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                Logger.warn("Unable to run the load test against " + containerId + ": " + ree.getLocalizedMessage());
+                return F.Promise.throwing(new InternalServerException("Unable to run the load test, shutting down."));
+            }
+            return result;
+        });
+    }
 
+    /***
+     * The user's cluster, without holding a thread while it is provisioned
+     */
+    private F.Promise<Cluster> getClusterAsync(User user) {
         boolean createClusterIfDNE = true;
         String clusterName = clusterFactory.getClusterName();
         if (clusterName != null) {
-            Cluster cluster = clusterService.getClusterByName(clusterName, user, createClusterIfDNE);
-            if (cluster != null) {
-                ObjectNode response = JsonNodeFactory.instance.objectNode();
-                response.putPOJO("request", requestBody);
-                TestRequest testRequest = testFactory.translateRequest(requestBody);
-                return dockerClient.executeTestAgainstRepose(cluster, containerId, testRequest, response);
-            } else {
-                Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
-                throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
-            }
+            return clusterService.getClusterByNameAsync(clusterName, user, createClusterIfDNE).map(cluster -> {
+                if (cluster != null) {
+                    return cluster;
+                } else {
+                    Logger.error("No cluster found.  Cluster creation failed and didn't throw an error.");
+                    throw new InternalServerException("No cluster found.  Cluster creation failed and didn't throw an error.");
+                }
+            });
         } else {
             Logger.error("What cluster am I supposed to create?  Misconfigured.");
-            throw new InternalServerException("What cluster am I supposed to create?  Misconfigured.");
+            return F.Promise.throwing(
+                    new InternalServerException("What cluster am I supposed to create?  Misconfigured."));
         }
     }
-}
\ No newline at end of file
+}
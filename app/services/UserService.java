@@ -1,14 +1,25 @@
 package services;
 
+import com.google.common.io.BaseEncoding;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import models.User;
 import repositories.IUserRepository;
 
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Created by dimi5963 on 2/28/16.
  */
+@Singleton
 public class UserService implements IUserService{
+    static final long STREAM_TICKET_MILLIS = 30000;
+
     private final IUserRepository IUserRepository;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentMap<String, StreamTicket> streamTickets = new ConcurrentHashMap<>();
 
     @Inject
     public UserService(IUserRepository IUserRepository) {
@@ -24,4 +35,42 @@ public class UserService implements IUserService{
     public User findByToken(String token) {
         return IUserRepository.findByToken(token);
     }
+
+    @Override
+    public String issueStreamTicket(String token, String stream) {
+        if(!isValid(token))
+            return null;
+        long now = System.currentTimeMillis();
+        //tickets nobody used
+        streamTickets.values().removeIf(streamTicket -> streamTicket.expiresAt < now);
+
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String ticket = BaseEncoding.base64Url().omitPadding().encode(bytes);
+        streamTickets.put(ticket, new StreamTicket(token, stream, now + STREAM_TICKET_MILLIS));
+        return ticket;
+    }
+
+    @Override
+    public User redeemStreamTicket(String ticket, String stream) {
+        if(ticket == null)
+            return null;
+        StreamTicket streamTicket = streamTickets.remove(ticket);
+        if(streamTicket == null || !streamTicket.stream.equals(stream) ||
+                streamTicket.expiresAt < System.currentTimeMillis())
+            return null;
+        return isValid(streamTicket.token) ? findByToken(streamTicket.token) : null;
+    }
+
+    private static final class StreamTicket {
+        private final String token;
+        private final String stream;
+        private final long expiresAt;
+
+        private StreamTicket(String token, String stream, long expiresAt) {
+            this.token = token;
+            this.stream = stream;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
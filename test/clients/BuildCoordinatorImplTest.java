@@ -0,0 +1,164 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import exceptions.InternalServerException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class BuildCoordinatorImplTest {
+
+    private BuildCoordinator buildCoordinator;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        buildCoordinator = new BuildCoordinatorImpl();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRunSuccess() throws Exception {
+        assertEquals("repose-id", buildCoordinator.run("111", "7.3.0.0", "hash", () -> "repose-id"));
+
+        ObjectNode stats = buildCoordinator.getQueueStats("111");
+        assertEquals(0, stats.get("depth").asInt());
+        assertEquals(1, stats.get("builds").asLong());
+        assertEquals(0, stats.get("coalesced").asLong());
+        //idle lanes are dropped
+        assertEquals(0, stats.get("lanes").size());
+    }
+
+    @Test
+    public void testIdenticalBuildsCoalesced() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger builds = new AtomicInteger();
+        BuildCoordinator.Build build = () -> {
+            builds.incrementAndGet();
+            started.countDown();
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new InternalServerException("Interrupted");
+            }
+            return "repose-id";
+        };
+
+        Future<String> first = executor.submit(() -> buildCoordinator.run("111", "7.3.0.0", "hash", build));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> second = executor.submit(() -> buildCoordinator.run("111", "7.3.0.0", "hash", build));
+        waitFor(() -> buildCoordinator.getQueueStats("111").get("waiting").asInt() == 1);
+
+        ObjectNode stats = buildCoordinator.getQueueStats("111");
+        assertEquals(1, stats.get("running").asInt());
+        assertEquals(1, stats.get("lanes").get("7.3.0.0").get("waiting").asInt());
+
+        finish.countDown();
+        assertEquals("repose-id", first.get(5, TimeUnit.SECONDS));
+        assertEquals("repose-id", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, builds.get());
+        assertEquals(1, buildCoordinator.getQueueStats("111").get("coalesced").asLong());
+    }
+
+    @Test
+    public void testConflictingBuildsQueued() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        Future<String> first = executor.submit(() -> buildCoordinator.run("111", "7.3.0.0", "hash-1", () -> {
+            order.add("start-1");
+            started.countDown();
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new InternalServerException("Interrupted");
+            }
+            order.add("end-1");
+            return "1";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> second = executor.submit(() -> buildCoordinator.run("111", "7.3.0.0", "hash-2", () -> {
+            order.add("start-2");
+            return "2";
+        }));
+        waitFor(() -> buildCoordinator.getQueueStats("111").get("queued").asInt() == 1);
+
+        //other versions and tenants are not held up
+        assertEquals("3", buildCoordinator.run("111", "8.0.0.1", "hash-1", () -> "3"));
+        assertEquals("4", buildCoordinator.run("222", "7.3.0.0", "hash-1", () -> "4"));
+        assertEquals(2, buildCoordinator.getQueueStats("111").get("depth").asInt());
+        assertEquals(0, buildCoordinator.getQueueStats("222").get("depth").asInt());
+
+        finish.countDown();
+        assertEquals("1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("2", second.get(5, TimeUnit.SECONDS));
+        assertEquals(3, order.size());
+        assertEquals("end-1", order.get(1));
+        assertEquals("start-2", order.get(2));
+        assertEquals(0, buildCoordinator.getQueueStats("111").get("coalesced").asLong());
+    }
+
+    @Test
+    public void testFailureSharedAndNotRemembered() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        BuildCoordinator.Build build = () -> {
+            started.countDown();
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new InternalServerException("Interrupted");
+            }
+            throw new InternalServerException("Build failed");
+        };
+
+        Future<String> first = executor.submit(() -> buildCoordinator.run("111", "7.3.0.0", "hash", build));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> second = executor.submit(() -> buildCoordinator.run("111", "7.3.0.0", "hash", build));
+        waitFor(() -> buildCoordinator.getQueueStats("111").get("waiting").asInt() == 1);
+        finish.countDown();
+
+        for (Future<String> future : Arrays.asList(first, second)) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Expected the build to fail");
+            } catch (ExecutionException ee) {
+                assertTrue(ee.getCause() instanceof InternalServerException);
+                assertEquals("Build failed", ee.getCause().getLocalizedMessage());
+            }
+        }
+
+        //the next identical request builds again
+        assertEquals("repose-id", buildCoordinator.run("111", "7.3.0.0", "hash", () -> "repose-id"));
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting for the build queue", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package clients;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.spotify.docker.client.DockerCertificates;
 import exceptions.InternalServerException;
 import exceptions.NotFoundException;
 import factories.ICarinaFactory;
@@ -12,6 +13,7 @@ import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import play.api.routing.Router;
 import play.libs.Json;
 import play.libs.ws.WS;
@@ -21,12 +23,21 @@ import play.server.Server;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import static junit.framework.Assert.*;
 import static junit.framework.TestCase.fail;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 import static play.mvc.Results.*;
@@ -46,8 +57,10 @@ public class CarinaClientTest {
 
     @After
     public void tearDown() {
-        ws.close();
-        server.stop();
+        if(ws != null)
+            ws.close();
+        if(server != null)
+            server.stop();
     }
 
     @Test
@@ -74,12 +87,13 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         try {
-            assertTrue(carinaClient.createCluster("fake-name", user));
-        }catch(InterruptedException | InternalServerException e) {
+            assertTrue(carinaClient.createCluster("fake-name", user).get(5000));
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
@@ -106,12 +120,13 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Required parameters were no provided.");
-        carinaClient.createCluster("fake-name", user);
+        carinaClient.createCluster("fake-name", user).get(5000);
 
         verify(clusterFactoryMock, never()).getCarinaUserUrl(anyString());
         verify(clusterFactoryMock, never()).getCarinaClusterUrl(anyString(), anyString());
@@ -141,12 +156,13 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Required parameters were no provided.");
-        carinaClient.createCluster(null, user);
+        carinaClient.createCluster(null, user).get(5000);
 
         verify(clusterFactoryMock, times(1)).getCarinaUserUrl(anyString());
         verify(clusterFactoryMock, never()).getCarinaClusterUrl(anyString(), anyString());
@@ -176,12 +192,13 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Carina user url is misconfigured.");
-        carinaClient.createCluster("fake-name", user);
+        carinaClient.createCluster("fake-name", user).get(5000);
 
         verify(clusterFactoryMock, times(1)).getCarinaUserUrl(anyString());
         verify(clusterFactoryMock, never()).getCarinaClusterUrl(anyString(), anyString());
@@ -209,12 +226,13 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("We are currently experiencing difficulties.  Please try again later.");
-        carinaClient.createCluster("fake-name", user);
+        carinaClient.createCluster("fake-name", user).get(5000);
 
         verify(clusterFactoryMock, times(1)).getCarinaUserUrl(anyString());
         verify(clusterFactoryMock, never()).getCarinaClusterUrl(anyString(), anyString());
@@ -243,12 +261,13 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("We are currently experiencing difficulties.  Please try again later.");
-        carinaClient.createCluster("fake-name", user);
+        carinaClient.createCluster("fake-name", user).get(5000);
 
         verify(clusterFactoryMock, times(1)).getCarinaUserUrl(anyString());
         verify(clusterFactoryMock, never()).getCarinaClusterUrl(anyString(), anyString());
@@ -278,12 +297,13 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Cluster ended up in error state");
-        carinaClient.createCluster("fake-cluster", user);
+        carinaClient.createCluster("fake-cluster", user).get(5000);
 
         verify(clusterFactoryMock, times(1)).getCarinaUserUrl(anyString());
         verify(clusterFactoryMock, never()).getCarinaClusterUrl(anyString(), anyString());
@@ -303,6 +323,9 @@ public class CarinaClientTest {
 
         when(clusterFactoryMock.getCarinaUserUrl(anyString())).thenReturn("/test-cluster-create");
         when(clusterFactoryMock.getCarinaClusterUrl(anyString(), anyString())).thenReturn("/test-cluster-get");
+        when(clusterFactoryMock.getClusterProvisionInitialBackoffMillis()).thenReturn(10L);
+        when(clusterFactoryMock.getClusterProvisionMaxBackoffMillis()).thenReturn(20L);
+        when(clusterFactoryMock.getClusterProvisionDeadlineSeconds()).thenReturn(60L);
 
         Router router = new RoutingDsl()
                 .POST("/test-cluster-create").routeTo(() -> {
@@ -319,15 +342,160 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
-        assertTrue(carinaClient.createCluster("fake-cluster", user));
+        assertTrue(carinaClient.createCluster("fake-cluster", user).get(5000));
 
         verify(clusterFactoryMock, times(1)).getCarinaUserUrl(anyString());
         verify(clusterFactoryMock, times(1)).getCarinaClusterUrl(anyString(), anyString());
     }
 
+    @Test
+    public void testCreateClusterPollsUntilActive() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.setPassword("pass");
+        user.setToken("fake-token");
+        user.setUserid("1");
+        user.setUsername("fake-user");
+
+        IClusterFactory clusterFactoryMock = mock(IClusterFactory.class);
+        ICarinaFactory carinaFactoryMock = mock(ICarinaFactory.class);
+
+        when(clusterFactoryMock.getCarinaUserUrl(anyString())).thenReturn("/test-cluster-create");
+        when(clusterFactoryMock.getCarinaClusterUrl(anyString(), anyString())).thenReturn("/test-cluster-get");
+        when(clusterFactoryMock.getClusterProvisionInitialBackoffMillis()).thenReturn(10L);
+        when(clusterFactoryMock.getClusterProvisionMaxBackoffMillis()).thenReturn(20L);
+        when(clusterFactoryMock.getClusterProvisionDeadlineSeconds()).thenReturn(60L);
+
+        AtomicInteger statusChecks = new AtomicInteger();
+        Router router = new RoutingDsl()
+                .POST("/test-cluster-create").routeTo(() -> {
+                    ObjectNode jsonNode = Json.newObject();
+                    jsonNode.put("status", "new");
+                    return ok(Json.toJson(jsonNode));
+                })
+                .GET("/test-cluster-get").routeTo(() -> {
+                    ObjectNode jsonNode = Json.newObject();
+                    jsonNode.put("status", statusChecks.incrementAndGet() < 3 ? "building" : "active");
+                    return ok(Json.toJson(jsonNode));
+                })
+                .build();
+
+        server = Server.forRouter(router);
+        ws = WS.newClient(server.httpPort());
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
+        carinaClient.wsClient = ws;
+
+        assertTrue(carinaClient.createCluster("fake-cluster", user).get(5000));
+        assertEquals(3, statusChecks.get());
+
+        verify(clusterFactoryMock, times(1)).getCarinaUserUrl(anyString());
+        verify(clusterFactoryMock, times(3)).getCarinaClusterUrl(anyString(), anyString());
+    }
+
+    @Test
+    public void testCreateClusterPollsUntilError() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.setPassword("pass");
+        user.setToken("fake-token");
+        user.setUserid("1");
+        user.setUsername("fake-user");
+
+        IClusterFactory clusterFactoryMock = mock(IClusterFactory.class);
+        ICarinaFactory carinaFactoryMock = mock(ICarinaFactory.class);
+
+        when(clusterFactoryMock.getCarinaUserUrl(anyString())).thenReturn("/test-cluster-create");
+        when(clusterFactoryMock.getCarinaClusterUrl(anyString(), anyString())).thenReturn("/test-cluster-get");
+        when(clusterFactoryMock.getClusterProvisionInitialBackoffMillis()).thenReturn(10L);
+        when(clusterFactoryMock.getClusterProvisionMaxBackoffMillis()).thenReturn(20L);
+        when(clusterFactoryMock.getClusterProvisionDeadlineSeconds()).thenReturn(60L);
+
+        Router router = new RoutingDsl()
+                .POST("/test-cluster-create").routeTo(() -> {
+                    ObjectNode jsonNode = Json.newObject();
+                    jsonNode.put("status", "new");
+                    return ok(Json.toJson(jsonNode));
+                })
+                .GET("/test-cluster-get").routeTo(() -> {
+                    ObjectNode jsonNode = Json.newObject();
+                    jsonNode.put("status", "error");
+                    return ok(Json.toJson(jsonNode));
+                })
+                .build();
+
+        server = Server.forRouter(router);
+        ws = WS.newClient(server.httpPort());
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
+        carinaClient.wsClient = ws;
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Cluster ended up in error state");
+        carinaClient.createCluster("fake-cluster", user).get(5000);
+    }
+
+    @Test
+    public void testCreateClusterDeadlinePassed() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.setPassword("pass");
+        user.setToken("fake-token");
+        user.setUserid("1");
+        user.setUsername("fake-user");
+
+        IClusterFactory clusterFactoryMock = mock(IClusterFactory.class);
+        ICarinaFactory carinaFactoryMock = mock(ICarinaFactory.class);
+
+        when(clusterFactoryMock.getCarinaUserUrl(anyString())).thenReturn("/test-cluster-create");
+        when(clusterFactoryMock.getClusterProvisionDeadlineSeconds()).thenReturn(0L);
+
+        Router router = new RoutingDsl()
+                .POST("/test-cluster-create").routeTo(() -> {
+                    ObjectNode jsonNode = Json.newObject();
+                    jsonNode.put("status", "building");
+                    return ok(Json.toJson(jsonNode));
+                })
+                .build();
+
+        server = Server.forRouter(router);
+        ws = WS.newClient(server.httpPort());
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
+        carinaClient.wsClient = ws;
+
+        try {
+            carinaClient.createCluster("fake-cluster", user).get(5000);
+            fail("Expected the provisioning deadline to pass");
+        } catch (InternalServerException ise) {
+            assertEquals("Cluster is still building after 0 seconds", ise.getLocalizedMessage());
+        }
+
+        verify(clusterFactoryMock, never()).getCarinaClusterUrl(anyString(), anyString());
+    }
+
+    @Test
+    public void testGetBackoffMillis() {
+        IClusterFactory clusterFactoryMock = mock(IClusterFactory.class);
+        when(clusterFactoryMock.getClusterProvisionInitialBackoffMillis()).thenReturn(100L);
+        when(clusterFactoryMock.getClusterProvisionMaxBackoffMillis()).thenReturn(1000L);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, mock(ICarinaFactory.class),
+                mock(DockerClientCache.class), mock(ClusterExecutors.class));
+
+        for (int run = 0; run < 100; run++) {
+            long first = carinaClient.getBackoffMillis(0);
+            assertTrue(first >= 50 && first <= 100);
+            long fourth = carinaClient.getBackoffMillis(3);
+            assertTrue(fourth >= 400 && fourth <= 800);
+            long capped = carinaClient.getBackoffMillis(40);
+            assertTrue(capped >= 500 && capped <= 1000);
+        }
+    }
+
     @Test
     public void testGetClusterWithZipSuccess() throws Exception {
         User user = new User();
@@ -360,7 +528,9 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        DockerClientCache dockerClientCacheMock = mock(DockerClientCache.class);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                dockerClientCacheMock, new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         Cluster returnedCluster = carinaClient.getClusterWithZip(user, "fake-name");
@@ -371,6 +541,8 @@ public class CarinaClientTest {
         verify(clusterFactoryMock, times(1)).getCarinaZipUrl(anyString(), anyString());
         verify(carinaFactoryMock, times(5)).getCarinaDirectoryWithCluster(anyString(), anyString());
         verify(carinaFactoryMock, times(5)).createFileInCarina(any(), any(), any());
+        verify(carinaFactoryMock).createDockerCertificates(Paths.get("/tmp"));
+        verify(dockerClientCacheMock, times(1)).invalidate(returnedCluster);
 
     }
 
@@ -404,7 +576,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         Cluster returnedCluster = carinaClient.getClusterWithZip(user, "fake-name");
@@ -417,6 +590,96 @@ public class CarinaClientTest {
         verify(carinaFactoryMock, times(5)).createFileInCarina(any(), any(), any());
     }
 
+    @Test
+    public void testGetClusterWithZipCertificatesInMemory() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.setPassword("pass");
+        user.setToken("fake-token");
+        user.setUserid("1");
+        user.setUsername("fake-user");
+        user.id = 1L;
+
+        IClusterFactory clusterFactoryMock = mock(IClusterFactory.class);
+        ICarinaFactory carinaFactoryMock = mock(ICarinaFactory.class);
+        DockerCertificates dockerCertificates = mock(DockerCertificates.class);
+
+        when(clusterFactoryMock.getCarinaZipUrl(anyString(), anyString())).thenReturn("/test-cluster-get");
+        when(clusterFactoryMock.isClusterCertificatesInMemory()).thenReturn(true);
+        when(carinaFactoryMock.getCarinaDirectoryWithCluster(anyString(), anyString())).thenReturn(Paths.get("/tmp"));
+        when(carinaFactoryMock.createDockerCertificates(anyMapOf(String.class, byte[].class)))
+                .thenReturn(dockerCertificates);
+
+        Router router = new RoutingDsl()
+                .GET("/test-cluster-get").routeTo(() -> {
+                    ObjectNode jsonNode = Json.newObject();
+                    jsonNode.put("zip_url", "/test-cluster-zip");
+                    return created(Json.toJson(jsonNode));
+                })
+                .GET("/test-cluster-zip").routeTo(() -> {
+                    return ok(getZipFiles(
+                            "test/ca.pem", "test/cert.pem",
+                            "test/key.pem", "test/ca-key.pem", "test/docker.env"));
+                })
+                .build();
+
+        server = Server.forRouter(router);
+        ws = WS.newClient(server.httpPort());
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
+        carinaClient.wsClient = ws;
+
+        Cluster returnedCluster = carinaClient.getClusterWithZip(user, "fake-name");
+        assertEquals("fake-uri", returnedCluster.uri);
+        assertSame(dockerCertificates, returnedCluster.getDockerCertificates());
+
+        ArgumentCaptor<Map> certificates = ArgumentCaptor.forClass(Map.class);
+        verify(carinaFactoryMock).createDockerCertificates(certificates.capture());
+        assertEquals(new HashSet<>(Arrays.asList("ca.pem", "cert.pem", "key.pem")), certificates.getValue().keySet());
+        assertArrayEquals("privkeytest".getBytes(), (byte[]) certificates.getValue().get("key.pem"));
+        verify(carinaFactoryMock, never()).createFileInCarina(any(), any(), any());
+        verify(carinaFactoryMock, never()).createDockerCertificates(any(Path.class));
+    }
+
+    @Test
+    public void testIsMissingCertificates() {
+        IClusterFactory clusterFactoryMock = mock(IClusterFactory.class);
+        ICarinaFactory carinaFactoryMock = mock(ICarinaFactory.class);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), mock(ClusterExecutors.class));
+
+        Cluster cluster = new Cluster();
+        cluster.setCert_directory("/tmp/test");
+        assertTrue(carinaClient.isMissingCertificates(cluster));
+
+        when(carinaFactoryMock.hasDockerCertificates(Paths.get("/tmp/test"))).thenReturn(true);
+        assertFalse(carinaClient.isMissingCertificates(cluster));
+
+        when(carinaFactoryMock.hasDockerCertificates(Paths.get("/tmp/test"))).thenReturn(false);
+        cluster.setDockerCertificates(mock(DockerCertificates.class));
+        assertFalse(carinaClient.isMissingCertificates(cluster));
+    }
+
+    @Test
+    public void testGetCertificateExpiry() throws Exception {
+        IClusterFactory clusterFactoryMock = mock(IClusterFactory.class);
+        ICarinaFactory carinaFactoryMock = mock(ICarinaFactory.class);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), mock(ClusterExecutors.class));
+        Date expiry = new Date();
+
+        Cluster cluster = new Cluster();
+        cluster.setCert_directory("/tmp/test");
+        assertNull(carinaClient.getCertificateExpiry(cluster));
+
+        when(carinaFactoryMock.hasDockerCertificates(Paths.get("/tmp/test"))).thenReturn(true);
+        when(carinaFactoryMock.getCertificateExpiry(Paths.get("/tmp/test"))).thenReturn(expiry);
+        assertSame(expiry, carinaClient.getCertificateExpiry(cluster));
+        //read once, then kept with the cluster
+        assertSame(expiry, carinaClient.getCertificateExpiry(cluster));
+        verify(carinaFactoryMock, times(1)).getCertificateExpiry(Paths.get("/tmp/test"));
+    }
+
     @Test
     public void testGetClusterWithZipUnknownZip() throws Exception {
         User user = new User();
@@ -447,7 +710,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         Cluster returnedCluster = carinaClient.getClusterWithZip(user, "fake-name");
@@ -485,7 +749,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -524,7 +789,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -564,7 +830,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -597,7 +864,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -635,7 +903,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -678,7 +947,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -721,7 +991,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient  = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -758,7 +1029,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         JsonNode jsonNode = carinaClient.getCluster("fake-name", user);
@@ -792,7 +1064,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -824,7 +1097,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -854,7 +1128,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(NotFoundException.class);
@@ -885,7 +1160,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         exception.expect(InternalServerException.class);
@@ -918,7 +1194,8 @@ public class CarinaClientTest {
 
         server = Server.forRouter(router);
         ws = WS.newClient(server.httpPort());
-        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock);
+        CarinaClient carinaClient = new CarinaClient(clusterFactoryMock, carinaFactoryMock,
+                mock(DockerClientCache.class), new ClusterExecutorsImpl(clusterFactoryMock));
         carinaClient.wsClient = ws;
 
         assertNull(carinaClient.getCluster("fake-name", user));
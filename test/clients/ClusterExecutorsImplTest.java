@@ -0,0 +1,178 @@
+package clients;
+
+import factories.IClusterFactory;
+import models.Cluster;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ClusterExecutorsImplTest {
+
+    @Test
+    public void testGetStatsExecutorPerCluster() {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        Cluster otherCluster = new Cluster();
+        otherCluster.setName("fake-name2");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getStatsParallelism("fake-name")).thenReturn(2);
+        when(clusterFactory.getStatsParallelism("fake-name2")).thenReturn(8);
+
+        ClusterExecutors clusterExecutors = new ClusterExecutorsImpl(clusterFactory);
+        ExecutorService executor = clusterExecutors.getStatsExecutor(cluster);
+
+        assertSame(executor, clusterExecutors.getStatsExecutor(cluster));
+        assertEquals(2, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+        assertEquals(8, ((ThreadPoolExecutor) clusterExecutors.getStatsExecutor(otherCluster)).getMaximumPoolSize());
+        verify(clusterFactory, times(1)).getStatsParallelism("fake-name");
+
+        clusterExecutors.shutdown();
+        assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void testGetStatsExecutorPerClusterUri() {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+        Cluster otherUsersCluster = new Cluster();
+        otherUsersCluster.setName("fake-name");
+        otherUsersCluster.setUri("fake-uri2");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getStatsParallelism("fake-name")).thenReturn(2);
+
+        ClusterExecutors clusterExecutors = new ClusterExecutorsImpl(clusterFactory);
+        ExecutorService executor = clusterExecutors.getStatsExecutor(cluster);
+
+        assertNotSame(executor, clusterExecutors.getStatsExecutor(otherUsersCluster));
+        assertTrue(((ThreadPoolExecutor) executor).allowsCoreThreadTimeOut());
+        verify(clusterFactory, times(2)).getStatsParallelism("fake-name");
+
+        clusterExecutors.shutdown();
+    }
+
+    @Test
+    public void testGetStatsExecutorPerUserOnSharedDaemon() {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("unix:///var/run/docker.sock");
+        cluster.setUser(1L);
+        Cluster otherUsersCluster = new Cluster();
+        otherUsersCluster.setName("fake-name");
+        otherUsersCluster.setUri("unix:///var/run/docker.sock");
+        otherUsersCluster.setUser(2L);
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getStatsParallelism("fake-name")).thenReturn(2);
+
+        ClusterExecutors clusterExecutors = new ClusterExecutorsImpl(clusterFactory);
+
+        assertNotSame(clusterExecutors.getStatsExecutor(cluster), clusterExecutors.getStatsExecutor(otherUsersCluster));
+        assertSame(clusterExecutors.getStatsExecutor(cluster), clusterExecutors.getStatsExecutor(cluster));
+
+        clusterExecutors.shutdown();
+    }
+
+    @Test
+    public void testEvict() {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+        Cluster otherUsersCluster = new Cluster();
+        otherUsersCluster.setName("fake-name");
+        otherUsersCluster.setUri("fake-uri2");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getStatsParallelism("fake-name")).thenReturn(2);
+        when(clusterFactory.getBuildParallelism()).thenReturn(2);
+        when(clusterFactory.getTestParallelism()).thenReturn(2);
+
+        ClusterExecutors clusterExecutors = new ClusterExecutorsImpl(clusterFactory);
+        ExecutorService statsExecutor = clusterExecutors.getStatsExecutor(cluster);
+        ExecutorService buildExecutor = clusterExecutors.getBuildExecutor(cluster);
+        ExecutorService testExecutor = clusterExecutors.getTestExecutor(cluster);
+        ExecutorService otherExecutor = clusterExecutors.getStatsExecutor(otherUsersCluster);
+
+        clusterExecutors.evict(cluster);
+
+        assertTrue(statsExecutor.isShutdown());
+        assertTrue(buildExecutor.isShutdown());
+        assertTrue(testExecutor.isShutdown());
+        assertFalse(otherExecutor.isShutdown());
+        assertNotSame(statsExecutor, clusterExecutors.getStatsExecutor(cluster));
+
+        clusterExecutors.shutdown();
+    }
+
+    @Test
+    public void testGetStatsExecutorInvalidParallelism() {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getStatsParallelism(anyString())).thenReturn(0);
+
+        ExecutorService executor = new ClusterExecutorsImpl(clusterFactory).getStatsExecutor(cluster);
+        assertEquals(1, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+    }
+
+    @Test
+    public void testGetBuildExecutorPerCluster() {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getBuildParallelism()).thenReturn(3);
+
+        ClusterExecutors clusterExecutors = new ClusterExecutorsImpl(clusterFactory);
+        ExecutorService executor = clusterExecutors.getBuildExecutor(cluster);
+
+        assertSame(executor, clusterExecutors.getBuildExecutor(cluster));
+        assertNotSame(executor, clusterExecutors.getStatsExecutor(cluster));
+        assertEquals(3, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+
+        clusterExecutors.shutdown();
+        assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void testGetTestExecutorPerCluster() {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getTestParallelism()).thenReturn(5);
+
+        ClusterExecutors clusterExecutors = new ClusterExecutorsImpl(clusterFactory);
+        ExecutorService executor = clusterExecutors.getTestExecutor(cluster);
+
+        assertSame(executor, clusterExecutors.getTestExecutor(cluster));
+        assertNotSame(executor, clusterExecutors.getBuildExecutor(cluster));
+        assertEquals(5, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+
+        clusterExecutors.shutdown();
+        assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void testGetJobExecutorShared() {
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getBuildJobParallelism()).thenReturn(4);
+
+        ClusterExecutors clusterExecutors = new ClusterExecutorsImpl(clusterFactory);
+        ExecutorService executor = clusterExecutors.getJobExecutor();
+
+        assertSame(executor, clusterExecutors.getJobExecutor());
+        assertEquals(4, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+
+        clusterExecutors.shutdown();
+        assertTrue(executor.isShutdown());
+        assertNotSame(executor, clusterExecutors.getJobExecutor());
+    }
+}
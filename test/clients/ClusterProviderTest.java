@@ -0,0 +1,45 @@
+package clients;
+
+import com.google.inject.Guice;
+import com.google.inject.Provider;
+import factories.IClusterFactory;
+import org.junit.Test;
+import play.inject.ApplicationLifecycle;
+import play.libs.ws.WSClient;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ClusterProviderTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetCarina() throws Exception {
+        CarinaClient carinaClient = mock(CarinaClient.class);
+        Provider<CarinaClient> carinaClientProvider = mock(Provider.class);
+        Provider<LocalDockerClient> localDockerClientProvider = mock(Provider.class);
+        when(carinaClientProvider.get()).thenReturn(carinaClient);
+
+        for(String provider : new String[] {null, "carina", "CARINA", "mesos"}) {
+            IClusterFactory clusterFactory = mock(IClusterFactory.class);
+            when(clusterFactory.getClusterProvider()).thenReturn(provider);
+            assertSame(provider, carinaClient,
+                    new ClusterProvider(clusterFactory, carinaClientProvider, localDockerClientProvider).get());
+        }
+        verify(localDockerClientProvider, never()).get();
+    }
+
+    @Test
+    public void testGetLocalInjected() throws Exception {
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getClusterProvider()).thenReturn("local");
+
+        ICarinaClient carinaClient = Guice.createInjector(binder -> {
+            binder.bind(IClusterFactory.class).toInstance(clusterFactory);
+            binder.bind(ApplicationLifecycle.class).toInstance(mock(ApplicationLifecycle.class));
+            binder.bind(WSClient.class).toInstance(mock(WSClient.class));
+        }).getInstance(ICarinaClient.class);
+
+        assertTrue(carinaClient instanceof LocalDockerClient);
+    }
+}
@@ -0,0 +1,148 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import exceptions.InternalServerException;
+import factories.IClusterFactory;
+import models.Cluster;
+import models.Container;
+import models.ContainerStatus;
+import models.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ContainerStateCacheImplTest {
+
+    private Cluster cluster;
+    private User user;
+    private ClusterExecutors clusterExecutors;
+    private ContainerStateCache containerStateCache;
+
+    @Before
+    public void setUp() {
+        cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("http://localhost:2375");
+        cluster.setUser(1L);
+
+        user = new User();
+        user.setTenant("111");
+        user.setUsername("fake-user");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getStatsParallelism(anyString())).thenReturn(1);
+        //no background resync during the test
+        when(clusterFactory.getContainerCacheResyncMillis()).thenReturn(60000L);
+        when(clusterFactory.getContainerCacheIdleMinutes()).thenReturn(10L);
+
+        clusterExecutors = new ClusterExecutorsImpl(clusterFactory);
+        containerStateCache = new ContainerStateCacheImpl(clusterExecutors, clusterFactory);
+    }
+
+    @After
+    public void tearDown() {
+        clusterExecutors.shutdown();
+    }
+
+    @Test
+    public void testGetContainersFromMemory() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ContainerStateCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return Arrays.asList(new Container("repose-111-7_3_0_0", true, "Up 2 minutes", "7.3.0.0", "1"));
+        };
+
+        List<Container> containers = containerStateCache.getContainers(cluster, user, loader);
+        assertEquals(1, containers.size());
+        assertEquals("1", containers.get(0).getId());
+
+        //callers get copies they can put stats on
+        assertNotSame(containers.get(0), containerStateCache.getContainers(cluster, user, loader).get(0));
+        assertEquals(1, loads.get());
+
+        ObjectNode stats = containerStateCache.getStats(cluster);
+        assertEquals(1, stats.get("tenants").asInt());
+        assertEquals(1, stats.get("containers").asInt());
+        assertEquals(1, stats.get("hits").asLong());
+        assertEquals(1, stats.get("misses").asLong());
+        assertEquals(1, stats.get("resyncs").asLong());
+        assertEquals(0, stats.get("resyncFailures").asLong());
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        ContainerStateCache.Loader loader = () ->
+                Arrays.asList(new Container("repose-111-7_3_0_0", true, "Up 2 minutes", "7.3.0.0", "1"),
+                        new Container("repose-111-8_0_0_1", true, "Up 2 minutes", "8.0.0.1", "2"));
+        containerStateCache.getContainers(cluster, user, loader);
+
+        containerStateCache.update(cluster, "1", false);
+
+        List<Container> containers = containerStateCache.getContainers(cluster, user, loader);
+        assertEquals(ContainerStatus.STOPPED, containers.get(0).getContainerStatus());
+        assertEquals("Exited", containers.get(0).getMessage());
+        assertEquals(ContainerStatus.STARTED, containers.get(1).getContainerStatus());
+    }
+
+    @Test
+    public void testStatsPerUserOnSharedDaemon() throws Exception {
+        Cluster otherUsersCluster = new Cluster();
+        otherUsersCluster.setName("fake-name");
+        otherUsersCluster.setUri("http://localhost:2375");
+        otherUsersCluster.setUser(2L);
+        User otherUser = new User();
+        otherUser.setTenant("222");
+
+        containerStateCache.getContainers(cluster, user, () ->
+                Arrays.asList(new Container("repose-111-7_3_0_0", true, "Up 2 minutes", "7.3.0.0", "1")));
+        containerStateCache.getContainers(otherUsersCluster, otherUser, () ->
+                Arrays.asList(new Container("repose-222-7_3_0_0", true, "Up 2 minutes", "7.3.0.0", "2")));
+
+        ObjectNode stats = containerStateCache.getStats(cluster);
+        assertEquals(1, stats.get("tenants").asInt());
+        assertEquals(1, stats.get("containers").asInt());
+        assertEquals(1, stats.get("misses").asLong());
+    }
+
+    @Test
+    public void testGetContainersAfterFailedResync() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ContainerStateCache.Loader loader = () -> {
+            if (loads.incrementAndGet() == 1)
+                throw new InternalServerException("Connection refused");
+            return Arrays.asList(new Container("repose-111-7_3_0_0", true, "Up 2 minutes", "7.3.0.0", "1"));
+        };
+
+        try {
+            containerStateCache.getContainers(cluster, user, loader);
+            fail("Expected the first listing to fail");
+        } catch (InternalServerException ise) {
+            assertEquals("Connection refused", ise.getLocalizedMessage());
+        }
+
+        assertEquals(1, containerStateCache.getContainers(cluster, user, loader).size());
+        assertEquals(2, loads.get());
+        assertEquals(1, containerStateCache.getStats(cluster).get("resyncFailures").asLong());
+    }
+
+    @Test
+    public void testTenantsCachedSeparately() throws Exception {
+        User otherUser = new User();
+        otherUser.setTenant("222");
+
+        containerStateCache.getContainers(cluster, user, () ->
+                Arrays.asList(new Container("repose-111-7_3_0_0", true, "Up 2 minutes", "7.3.0.0", "1")));
+        assertTrue(containerStateCache.getContainers(cluster, otherUser, () -> Arrays.asList()).isEmpty());
+
+        assertEquals(2, containerStateCache.getStats(cluster).get("tenants").asInt());
+    }
+}
@@ -0,0 +1,114 @@
+package clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.spotify.docker.client.DockerClient;
+import factories.IClusterFactory;
+import factories.IContainerFactory;
+import models.*;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ContainerStatsStreamImplTest {
+
+    @Test
+    public void testDiff() {
+        ObjectNode previous = Json.newObject();
+        previous.put("unchanged", 1);
+        previous.put("changed", 1);
+        previous.put("removed", 1);
+        previous.putObject("nested").put("unchanged", 1).put("changed", 1);
+
+        ObjectNode current = Json.newObject();
+        current.put("unchanged", 1);
+        current.put("changed", 2);
+        current.put("added", 3);
+        current.putObject("nested").put("unchanged", 1).put("changed", 2);
+
+        JsonNode delta = ContainerStatsStreamImpl.diff(previous, current);
+
+        assertEquals(4, delta.size());
+        assertEquals(2, delta.get("changed").asInt());
+        assertEquals(3, delta.get("added").asInt());
+        assertTrue(delta.get("removed").isNull());
+        assertEquals(1, delta.get("nested").size());
+        assertEquals(2, delta.get("nested").get("changed").asInt());
+    }
+
+    @Test
+    public void testDiffNoChanges() {
+        ObjectNode previous = Json.newObject();
+        previous.putObject("nested").put("value", 1);
+
+        assertEquals(0, ContainerStatsStreamImpl.diff(previous, previous.deepCopy()).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSubscribersShareUpstream() throws Exception {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("http://localhost:2375");
+
+        ContainerStats containerStats = new ContainerStats(
+                new CpuStats(new CpuUsage(ImmutableList.copyOf(singletonList(1L)), 2L, 3L, 4L), 5L),
+                new MemoryStats(1L, 2L, 3L, 4L),
+                new NetworkStats(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L),
+                null);
+
+        DockerClient docker = mock(DockerClient.class);
+        DockerClientCache dockerClientCache = mock(DockerClientCache.class);
+        IContainerFactory<com.spotify.docker.client.messages.Container,
+                com.spotify.docker.client.messages.ContainerStats> containerFactory = mock(IContainerFactory.class);
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+
+        DockerClientCache.Lease lease = mock(DockerClientCache.Lease.class);
+        when(lease.client()).thenReturn(docker);
+        when(dockerClientCache.lease(cluster)).thenReturn(lease);
+        when(docker.stats("1")).thenReturn(new com.spotify.docker.client.messages.ContainerStats());
+        when(containerFactory.translateContainerStats(any())).thenReturn(containerStats);
+        when(clusterFactory.getStatsParallelism(anyString())).thenReturn(1);
+        when(clusterFactory.getStatsStreamIntervalMillis()).thenReturn(60000L);
+
+        ClusterExecutors clusterExecutors = new ClusterExecutorsImpl(clusterFactory);
+        ContainerStatsStream containerStatsStream =
+                new ContainerStatsStreamImpl(dockerClientCache, containerFactory, clusterExecutors, clusterFactory);
+
+        CountDownLatch firstFrame = new CountDownLatch(1);
+        List<String> firstFrames = new CopyOnWriteArrayList<>();
+        List<String> secondFrames = new CopyOnWriteArrayList<>();
+        BiConsumer<String, JsonNode> firstListener = (type, stats) -> {
+            firstFrames.add(type);
+            firstFrame.countDown();
+        };
+        BiConsumer<String, JsonNode> secondListener = (type, stats) -> secondFrames.add(type);
+
+        containerStatsStream.subscribe(cluster, "1", firstListener);
+        assertTrue(firstFrame.await(5, TimeUnit.SECONDS));
+        containerStatsStream.subscribe(cluster, "1", secondListener);
+
+        assertEquals(singletonList(ContainerStatsStream.FULL), firstFrames);
+        assertEquals(singletonList(ContainerStatsStream.FULL), secondFrames);
+        assertEquals(2, containerStatsStream.getSubscriberCount(cluster, "1"));
+        verify(docker, times(1)).stats("1");
+
+        containerStatsStream.unsubscribe(cluster, "1", firstListener);
+        assertEquals(1, containerStatsStream.getSubscriberCount(cluster, "1"));
+        containerStatsStream.unsubscribe(cluster, "1", secondListener);
+        assertEquals(0, containerStatsStream.getSubscriberCount(cluster, "1"));
+
+        clusterExecutors.shutdown();
+    }
+}
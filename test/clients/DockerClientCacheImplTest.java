@@ -0,0 +1,163 @@
+package clients;
+
+import com.spotify.docker.client.DockerCertificates;
+import com.spotify.docker.client.DockerClient;
+import exceptions.InternalServerException;
+import models.Cluster;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import javax.net.ssl.SSLContext;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DockerClientCacheImplTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testGetClientReused() throws Exception {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("http://localhost:2375");
+
+        DockerClientCache dockerClientCache = new DockerClientCacheImpl(10L);
+
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster);
+             DockerClientCache.Lease otherLease = dockerClientCache.lease(cluster)) {
+            assertSame(lease.client(), otherLease.client());
+        }
+        assertEquals(1L, dockerClientCache.size());
+    }
+
+    @Test
+    public void testGetClientKeyedByUri() throws Exception {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("http://localhost:2375");
+
+        Cluster otherCluster = new Cluster();
+        otherCluster.setName("fake-name");
+        otherCluster.setUri("http://localhost:2376");
+
+        DockerClientCache dockerClientCache = new DockerClientCacheImpl(10L);
+
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster);
+             DockerClientCache.Lease otherLease = dockerClientCache.lease(otherCluster)) {
+            assertNotSame(lease.client(), otherLease.client());
+        }
+        assertEquals(2L, dockerClientCache.size());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("http://localhost:2375");
+
+        DockerClientCache dockerClientCache = new DockerClientCacheImpl(10L);
+
+        DockerClient docker;
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            docker = lease.client();
+        }
+        dockerClientCache.invalidate(cluster);
+        assertEquals(0L, dockerClientCache.size());
+        try (DockerClientCache.Lease lease = dockerClientCache.lease(cluster)) {
+            assertNotSame(docker, lease.client());
+        }
+    }
+
+    @Test
+    public void testGetClientMissingCerts() throws Exception {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("https://localhost:2376");
+        cluster.setCert_directory("/tmp/does-not-exist");
+
+        exception.expect(InternalServerException.class);
+        new DockerClientCacheImpl(10L).lease(cluster);
+    }
+
+    @Test
+    public void testGetClientParsedCerts() throws Exception {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("https://localhost:2376");
+        cluster.setCert_directory("/tmp/does-not-exist");
+        DockerCertificates dockerCertificates = mock(DockerCertificates.class);
+        when(dockerCertificates.sslContext()).thenReturn(SSLContext.getDefault());
+        cluster.setDockerCertificates(dockerCertificates);
+
+        //the cert directory isn't read
+        try (DockerClientCache.Lease lease = new DockerClientCacheImpl(10L).lease(cluster)) {
+            assertNotNull(lease.client());
+        }
+        verify(dockerCertificates, atLeastOnce()).sslContext();
+    }
+
+    @Test
+    public void testGetClientClusterNull() throws Exception {
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Cluster is not provisioned.");
+        new DockerClientCacheImpl(10L).lease(null);
+    }
+
+    @Test
+    public void testInvalidateLeasedClient() throws Exception {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("http://localhost:2375");
+        DockerClient docker = mock(DockerClient.class);
+        DockerClient otherDocker = mock(DockerClient.class);
+        DockerClientCache dockerClientCache = getDockerClientCache(docker, otherDocker);
+
+        DockerClientCache.Lease lease = dockerClientCache.lease(cluster);
+        DockerClientCache.Lease otherLease = dockerClientCache.lease(cluster);
+        dockerClientCache.invalidate(cluster);
+
+        //still in use
+        verify(docker, never()).close();
+        try (DockerClientCache.Lease newLease = dockerClientCache.lease(cluster)) {
+            assertSame(otherDocker, newLease.client());
+        }
+        lease.close();
+        lease.close();
+        verify(docker, never()).close();
+        otherLease.close();
+        verify(docker).close();
+        verify(otherDocker, never()).close();
+    }
+
+    @Test
+    public void testInvalidateUnusedClient() throws Exception {
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("http://localhost:2375");
+        DockerClient docker = mock(DockerClient.class);
+        DockerClientCache dockerClientCache = getDockerClientCache(docker);
+
+        dockerClientCache.lease(cluster).close();
+        verify(docker, never()).close();
+        dockerClientCache.invalidateAll();
+        verify(docker).close();
+    }
+
+    private DockerClientCache getDockerClientCache(DockerClient... dockers) {
+        AtomicInteger built = new AtomicInteger();
+        return new DockerClientCacheImpl(10L) {
+            @Override
+            DockerClient buildClient(String uri, String certDirectory, DockerCertificates dockerCertificates) {
+                return dockers[built.getAndIncrement()];
+            }
+        };
+    }
+}
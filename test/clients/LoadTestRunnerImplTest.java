@@ -0,0 +1,96 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import factories.IClusterFactory;
+import models.TestRequest;
+import org.junit.After;
+import org.junit.Test;
+import play.libs.F;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class LoadTestRunnerImplTest {
+
+    private final TestRequest testRequest = new TestRequest("GET", "/", null, null);
+    private final TestClient testClient = mock(TestClient.class);
+    private final ClusterExecutors clusterExecutors = new ClusterExecutorsImpl(mock(IClusterFactory.class));
+
+    @After
+    public void tearDown() {
+        clusterExecutors.shutdown();
+    }
+
+    @Test
+    public void testRunClosedLoop() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        when(testClient.sendTestRequest(any(), anyString(), anyString(), anyLong())).thenAnswer(invocation ->
+                calls.incrementAndGet() % 3 == 0 ?
+                        F.Promise.throwing(new RuntimeException("connection refused")) : F.Promise.pure(200));
+
+        ObjectNode result = new LoadTestRunnerImpl(testClient, clusterExecutors)
+                .run(testRequest, "127.0.0.1", "8080", 2, 0, 500, 1000);
+
+        long sent = result.get("sent").asLong();
+        long completed = result.get("completed").asLong();
+        //every slot keeps sending until the time is up
+        assertTrue("sent " + sent, sent > 2);
+        assertEquals(sent, completed + result.get("errors").asLong());
+        assertTrue(result.get("errors").asLong() > 0);
+        assertEquals(0, result.get("unfinished").asLong());
+        assertEquals(0, result.get("dropped").asLong());
+        assertEquals(completed, result.get("statusCodes").get("200").asLong());
+        assertEquals(completed, result.get("latencyMicros").get("count").asLong());
+        assertTrue(result.get("throughput").asDouble() > 0);
+        verify(testClient, times((int) sent)).sendTestRequest(testRequest, "127.0.0.1", "8080", 1000);
+    }
+
+    @Test
+    public void testRunFixedRate() throws Exception {
+        when(testClient.sendTestRequest(any(), anyString(), anyString(), anyLong()))
+                .thenReturn(F.Promise.pure(200), F.Promise.pure(404));
+
+        ObjectNode result = new LoadTestRunnerImpl(testClient, clusterExecutors)
+                .run(testRequest, "127.0.0.1", "8080", 4, 20, 500, 1000);
+
+        long sent = result.get("sent").asLong();
+        assertTrue("sent " + sent, sent >= 2 && sent <= 12);
+        assertEquals(sent, result.get("completed").asLong());
+        assertEquals(1, result.get("statusCodes").get("200").asLong());
+        assertEquals(sent - 1, result.get("statusCodes").get("404").asLong());
+        assertEquals(0, result.get("dropped").asLong());
+    }
+
+    @Test
+    public void testRunFixedRateDropsWhenSlotsAreTaken() throws Exception {
+        //never answers, so the only slot stays taken
+        when(testClient.sendTestRequest(any(), anyString(), anyString(), anyLong()))
+                .thenReturn(F.RedeemablePromise.empty());
+
+        ObjectNode result = new LoadTestRunnerImpl(testClient, clusterExecutors)
+                .run(testRequest, "127.0.0.1", "8080", 1, 100, 500, 0);
+
+        assertEquals(1, result.get("sent").asLong());
+        assertEquals(1, result.get("unfinished").asLong());
+        assertTrue(result.get("dropped").asLong() > 0);
+        assertEquals(0, result.get("latencyMicros").get("count").asLong());
+    }
+
+    @Test
+    public void testRunGivesSlotsUpWhenRequestsCannotBeSent() throws Exception {
+        when(testClient.sendTestRequest(any(), anyString(), anyString(), anyLong()))
+                .thenThrow(new IllegalArgumentException("bad url"));
+
+        ObjectNode result = new LoadTestRunnerImpl(testClient, clusterExecutors)
+                .run(testRequest, "127.0.0.1", "8080", 3, 0, 10000, 1000);
+
+        assertEquals(3, result.get("sent").asLong());
+        assertEquals(3, result.get("errors").asLong());
+        assertTrue(result.get("durationMillis").asLong() < 10000);
+    }
+}
@@ -0,0 +1,81 @@
+package clients;
+
+import exceptions.InternalServerException;
+import factories.IClusterFactory;
+import models.Cluster;
+import models.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalDockerClientTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testCreateCluster() throws Exception {
+        assertTrue(new LocalDockerClient(mock(IClusterFactory.class))
+                .createCluster("fake-name", getUser()).get(0));
+    }
+
+    @Test
+    public void testCreateClusterUserNull() throws Exception {
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Required parameters were not provided.");
+        new LocalDockerClient(mock(IClusterFactory.class)).createCluster("fake-name", null);
+    }
+
+    @Test
+    public void testGetClusterStatus() throws Exception {
+        assertEquals("active", new LocalDockerClient(mock(IClusterFactory.class))
+                .getClusterStatus("fake-name", getUser()).get(0).asText());
+    }
+
+    @Test
+    public void testGetClusterStatusNameNull() throws Exception {
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Required parameters were not provided.");
+        new LocalDockerClient(mock(IClusterFactory.class)).getClusterStatus(null, getUser());
+    }
+
+    @Test
+    public void testGetClusterWithZipAsync() throws Exception {
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getLocalDockerUri()).thenReturn("unix:///var/run/docker.sock");
+
+        Cluster cluster = new LocalDockerClient(clusterFactory).getClusterWithZipAsync(getUser(), "fake-name").get(0);
+
+        assertEquals("fake-name", cluster.getName());
+        assertEquals(Long.valueOf(1L), cluster.user);
+        assertEquals("unix:///var/run/docker.sock", cluster.getUri());
+        assertNull(cluster.getCert_directory());
+    }
+
+    @Test
+    public void testGetClusterWithZipCertPath() throws Exception {
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getLocalDockerUri()).thenReturn("https://localhost:2376");
+        when(clusterFactory.getLocalDockerCertPath()).thenReturn("/tmp/docker-certs");
+
+        LocalDockerClient localDockerClient = new LocalDockerClient(clusterFactory);
+        Cluster cluster = localDockerClient.getClusterWithZip(getUser(), "fake-name");
+
+        assertEquals("https://localhost:2376", cluster.getUri());
+        assertEquals("/tmp/docker-certs", cluster.getCert_directory());
+        //the files don't exist but they are not ours to download
+        assertFalse(localDockerClient.isMissingCertificates(cluster));
+    }
+
+    private User getUser() {
+        User user = new User();
+        user.id = 1L;
+        user.setTenant("111");
+        user.username = "fake-user";
+        return user;
+    }
+}
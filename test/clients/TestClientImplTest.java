@@ -13,6 +13,7 @@ import play.api.routing.Router;
 import play.libs.Json;
 import play.libs.ws.WS;
 import play.libs.ws.WSClient;
+import play.mvc.Controller;
 import play.routing.RoutingDsl;
 import play.server.Server;
 
@@ -113,4 +114,87 @@ public class TestClientImplTest {
 
         verify(testFactory, times(1)).getTestUrl(anyString(), anyString(), anyString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMakeTestRequestSendsTransId() throws Exception {
+        TestRequest testRequest = new TestRequest("GET", "/trans", "", new HashMap<>());
+
+        TestFactory testFactory = mock(TestFactory.class);
+
+        when(testFactory.getTestUrl(anyString(), anyString(), anyString())).thenReturn("/trans");
+        when(testFactory.getTransIdHeader(anyString())).thenAnswer(invocation -> "encoded-" + invocation.getArguments()[0]);
+
+        Router router = new RoutingDsl()
+                .GET("/trans").routeTo(() -> ok(Controller.request().getHeader("x-trans-id")))
+                .build();
+
+        server = Server.forRouter(router);
+        ws = WS.newClient(server.httpPort());
+        TestClientImpl testClient = new TestClientImpl(testFactory);
+        testClient.wsClient = ws;
+
+        JsonNode response = testClient.makeTestRequest(testRequest, "127.0.0.1", "8080");
+        String transId = response.get("transId").asText();
+        assertEquals(36, transId.length());
+        assertEquals("encoded-" + transId, response.get("responseBody").asText());
+        assertNotEquals(transId, testClient.makeTestRequest(testRequest, "127.0.0.1", "8080").get("transId").asText());
+    }
+
+    @Test
+    public void testMakeTestRequestKeepsOwnTransId() throws Exception {
+        TestRequest testRequest = new TestRequest("GET", "/trans", "", new HashMap<String, String>(){
+            {
+                put("X-Trans-Id", "my-trans-id");
+            }
+        });
+
+        TestFactory testFactory = mock(TestFactory.class);
+
+        when(testFactory.getTestUrl(anyString(), anyString(), anyString())).thenReturn("/trans");
+        when(testFactory.getTransId("my-trans-id")).thenReturn("my-trans-id");
+
+        Router router = new RoutingDsl()
+                .GET("/trans").routeTo(() -> ok(Controller.request().getHeader("x-trans-id")))
+                .build();
+
+        server = Server.forRouter(router);
+        ws = WS.newClient(server.httpPort());
+        TestClientImpl testClient = new TestClientImpl(testFactory);
+        testClient.wsClient = ws;
+
+        JsonNode response = testClient.makeTestRequest(testRequest, "127.0.0.1", "8080");
+        assertEquals("my-trans-id", response.get("transId").asText());
+        assertEquals("my-trans-id", response.get("responseBody").asText());
+        verify(testFactory, never()).getTransIdHeader(anyString());
+    }
+
+    @Test
+    public void testMakeTestRequestDecodesOwnTransId() throws Exception {
+        String header = "eyJyZXF1ZXN0SWQiOiIyOTNmMzYwMS1jOWUxLTQ5ZjctOWJhMC01MGE5OTVjZGJkNzkiLCJvcmlnaW4iOm51bGx9";
+        TestRequest testRequest = new TestRequest("GET", "/trans", "", new HashMap<String, String>(){
+            {
+                put("x-trans-id", header);
+            }
+        });
+
+        TestFactory testFactory = mock(TestFactory.class);
+
+        when(testFactory.getTestUrl(anyString(), anyString(), anyString())).thenReturn("/trans");
+        when(testFactory.getTransId(header)).thenReturn("293f3601-c9e1-49f7-9ba0-50a995cdbd79");
+
+        Router router = new RoutingDsl()
+                .GET("/trans").routeTo(() -> ok(Controller.request().getHeader("x-trans-id")))
+                .build();
+
+        server = Server.forRouter(router);
+        ws = WS.newClient(server.httpPort());
+        TestClientImpl testClient = new TestClientImpl(testFactory);
+        testClient.wsClient = ws;
+
+        //the header goes out as it is, the logs are matched by the request id repose decodes from it
+        JsonNode response = testClient.makeTestRequest(testRequest, "127.0.0.1", "8080");
+        assertEquals("293f3601-c9e1-49f7-9ba0-50a995cdbd79", response.get("transId").asText());
+        assertEquals(header, response.get("responseBody").asText());
+        verify(testFactory, never()).getTransIdHeader(anyString());
+    }
+}
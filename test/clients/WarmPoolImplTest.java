@@ -0,0 +1,114 @@
+package clients;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import factories.IClusterFactory;
+import models.Cluster;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class WarmPoolImplTest {
+
+    private Cluster cluster;
+    private IClusterFactory clusterFactory;
+
+    @Before
+    public void setUp() {
+        cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("http://localhost:2375");
+        cluster.setUser(1L);
+
+        clusterFactory = mock(IClusterFactory.class);
+        when(clusterFactory.getWarmPoolSize()).thenReturn(2);
+        when(clusterFactory.getWarmPoolVersions()).thenReturn(1);
+    }
+
+    @Test
+    public void testClaimCountsHitsAndMisses() {
+        WarmPool warmPool = new WarmPoolImpl(clusterFactory);
+        warmPool.recordUsage(cluster, "7.3.0.0");
+
+        assertNull(warmPool.claim(cluster, "7.3.0.0"));
+
+        warmPool.add(cluster, "7.3.0.0", "container-1");
+        assertTrue(warmPool.isIdle(cluster, "container-1"));
+        assertEquals("container-1", warmPool.claim(cluster, "7.3.0.0"));
+        assertFalse(warmPool.isIdle(cluster, "container-1"));
+
+        ObjectNode stats = warmPool.getStats(cluster);
+        assertEquals(1, stats.get("hits").asLong());
+        assertEquals(1, stats.get("misses").asLong());
+    }
+
+    @Test
+    public void testReserveUpToTarget() {
+        WarmPool warmPool = new WarmPoolImpl(clusterFactory);
+        warmPool.recordUsage(cluster, "7.3.0.0");
+
+        assertTrue(warmPool.reserve(cluster, "7.3.0.0"));
+        warmPool.add(cluster, "7.3.0.0", "container-1");
+        warmPool.release(cluster, "7.3.0.0");
+        assertTrue(warmPool.reserve(cluster, "7.3.0.0"));
+        assertFalse(warmPool.reserve(cluster, "7.3.0.0"));
+
+        //pending creation failed
+        warmPool.release(cluster, "7.3.0.0");
+        assertTrue(warmPool.reserve(cluster, "7.3.0.0"));
+    }
+
+    @Test
+    public void testTargetsFollowMostUsedVersions() {
+        WarmPool warmPool = new WarmPoolImpl(clusterFactory);
+        warmPool.recordUsage(cluster, "7.3.0.0");
+        warmPool.add(cluster, "7.3.0.0", "container-1");
+        assertEquals(Collections.singletonList("7.3.0.0"), warmPool.getTargetVersions(cluster));
+        assertTrue(warmPool.trim(cluster).isEmpty());
+
+        warmPool.recordUsage(cluster, "6.2.0.0");
+        warmPool.recordUsage(cluster, "6.2.0.0");
+        assertEquals(Collections.singletonList("6.2.0.0"), warmPool.getTargetVersions(cluster));
+        assertFalse(warmPool.reserve(cluster, "7.3.0.0"));
+        assertEquals(Arrays.asList("container-1"), warmPool.trim(cluster));
+        assertFalse(warmPool.isIdle(cluster, "container-1"));
+
+        ObjectNode stats = warmPool.getStats(cluster);
+        assertEquals(2, stats.get("size").asInt());
+        assertEquals("6.2.0.0", stats.get("versions").get(0).get("version").asText());
+        assertEquals(2, stats.get("versions").get(0).get("target").asInt());
+        assertEquals(2, stats.get("versions").get(0).get("uses").asLong());
+        assertEquals(0, stats.get("versions").get(1).get("target").asInt());
+    }
+
+    @Test
+    public void testDisabled() {
+        when(clusterFactory.getWarmPoolSize()).thenReturn(0);
+
+        WarmPool warmPool = new WarmPoolImpl(clusterFactory);
+        warmPool.recordUsage(cluster, "7.3.0.0");
+
+        assertTrue(warmPool.getTargetVersions(cluster).isEmpty());
+        assertFalse(warmPool.reserve(cluster, "7.3.0.0"));
+    }
+
+    @Test
+    public void testPoolPerUserOnSharedDaemon() {
+        Cluster otherUsersCluster = new Cluster();
+        otherUsersCluster.setName("fake-name");
+        otherUsersCluster.setUri("http://localhost:2375");
+        otherUsersCluster.setUser(2L);
+
+        WarmPool warmPool = new WarmPoolImpl(clusterFactory);
+        warmPool.recordUsage(cluster, "7.3.0.0");
+        warmPool.add(cluster, "7.3.0.0", "container-1");
+
+        assertFalse(warmPool.isIdle(otherUsersCluster, "container-1"));
+        assertNull(warmPool.claim(otherUsersCluster, "7.3.0.0"));
+        assertEquals("container-1", warmPool.claim(cluster, "7.3.0.0"));
+    }
+}
@@ -3,16 +3,13 @@ package controllers;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import exceptions.InternalServerException;
-import exceptions.NotFoundException;
-import factories.ConfigurationFactory;
 import models.*;
-import models.Configuration;
 import org.junit.Test;
 import play.api.mvc.RequestHeader;
 import play.mvc.Http;
 import play.mvc.Result;
+import services.BuildJobService;
 import services.FilterService;
-import services.IReposeService;
 import services.IUserService;
 
 import java.util.ArrayList;
@@ -20,8 +17,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.fail;
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 import static play.test.Helpers.*;
@@ -55,8 +51,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             try {
@@ -73,8 +68,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).versions();
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).versions();
             assertEquals(200, result.status());
             assertEquals("[\"1.0\",\"2.0\",\"3.0\"]", contentAsString(result));
 
@@ -93,8 +88,7 @@ public class ApplicationTest {
         running(fakeApplication(inMemoryDatabase("test")), () -> {
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(false);
 
@@ -106,8 +100,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).versions();
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).versions();
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -136,8 +130,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             try {
@@ -154,8 +147,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).versions();
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).versions();
             assertEquals(404, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -181,8 +174,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
@@ -201,8 +193,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).versions();
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).versions();
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
@@ -240,8 +232,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             try {
@@ -258,8 +249,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).componentsByVersion("1");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).componentsByVersion("1");
             assertEquals(200, result.status());
             assertEquals("[\"add-header\",\"ip-user\",\"compression\"]",
                     contentAsString(result));
@@ -279,8 +270,7 @@ public class ApplicationTest {
         running(fakeApplication(inMemoryDatabase("test")), () -> {
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(false);
 
@@ -292,8 +282,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).componentsByVersion("1");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).componentsByVersion("1");
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -322,8 +312,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             try {
@@ -340,8 +329,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).componentsByVersion("1");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).componentsByVersion("1");
             assertEquals(404, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -367,8 +356,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
@@ -387,8 +375,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).componentsByVersion("1");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).componentsByVersion("1");
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
@@ -426,8 +414,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             try {
@@ -445,8 +432,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).component("1", "2");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).component("1", "2");
             assertEquals(200, result.status());
             assertEquals("{\"test\":\"data\"}",
                     contentAsString(result));
@@ -466,8 +453,7 @@ public class ApplicationTest {
         running(fakeApplication(inMemoryDatabase("test")), () -> {
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(false);
 
@@ -479,8 +465,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).component("1", "3");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).component("1", "3");
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -508,8 +494,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             try {
@@ -527,8 +512,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).component("1", "2");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).component("1", "2");
             assertEquals(404, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -554,8 +539,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
@@ -574,8 +558,8 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).component("1", "2");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).component("1", "2");
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
@@ -603,35 +587,19 @@ public class ApplicationTest {
             user.setUserid("1");
             user.setUsername("fake-user");
 
-            List<models.Configuration> configurationList = new ArrayList<Configuration>(){
-                {
-                    add(new Configuration("add-header", "lotsaxml"));
-                    add(new Configuration("ip-user", "lotsaxml"));
-                }
-            };
-
             ObjectNode requestJson = JsonNodeFactory.instance.objectNode();
             requestJson.put("request", "yes");
             requestJson.put("message", "test");
 
-            String reposeId = "1";
+            BuildJob job = new BuildJob("fake-job", "fake-user", "1", 0L);
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
-            try {
-                when(userServiceMock.findByToken(any())).thenReturn(user);
-                when(reposeService.setUpReposeEnvironment(any(), any(),
-                        anyString(), any())).
-                        thenReturn(reposeId);
-                when(configurationFactory.translateConfigurationsFromJson(any(), anyString(),
-                        any())).thenReturn(configurationList);
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(userServiceMock.findByToken(any())).thenReturn(user);
+            when(buildJobService.submit(any(), anyString(), any())).thenReturn(job);
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -644,23 +612,16 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).build("1");
-            assertEquals(200, result.status());
-            assertEquals("{\"message\":\"success\",\"id\":\"1\"}",
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).build("1");
+            assertEquals(202, result.status());
+            assertEquals("{\"message\":\"accepted\",\"job\":\"fake-job\"}",
                     contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(userServiceMock).findByToken(anyString());
-                verify(reposeService).setUpReposeEnvironment(any(), any(), anyString(),
-                        any());
-                verify(configurationFactory).translateConfigurationsFromJson(any(),
-                        any(), any());
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(userServiceMock).findByToken(anyString());
+            verify(buildJobService).submit(user, "1", requestJson);
         });
     }
 
@@ -670,8 +631,7 @@ public class ApplicationTest {
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -681,21 +641,14 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).build("1");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).build("1");
             assertEquals(400, result.status());
 
             verify(userServiceMock, never()).isValid(anyString());
             verify(request, never()).getHeader(anyString());
-            try {
-                verify(reposeService, never()).setUpReposeEnvironment(any(), any(), anyString(),
-                        any());
-                verify(configurationFactory, never()).translateConfigurationsFromJson(any(),
-                        any(), any());
-                verify(userServiceMock, never()).findByToken(any());
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(buildJobService, never()).submit(any(), anyString(), any());
+            verify(userServiceMock, never()).findByToken(any());
         });
     }
 
@@ -704,8 +657,7 @@ public class ApplicationTest {
         running(fakeApplication(inMemoryDatabase("test")), () -> {
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             ObjectNode requestJson = JsonNodeFactory.instance.objectNode();
             requestJson.put("request", "yes");
@@ -724,21 +676,14 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).build("1");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).build("1");
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(request).getHeader(anyString());
-            try {
-                verify(reposeService, never()).setUpReposeEnvironment(any(), any(), anyString(),
-                        any());
-                verify(configurationFactory, never()).translateConfigurationsFromJson(any(),
-                        any(), any());
-                verify(userServiceMock, never()).findByToken(any());
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(buildJobService, never()).submit(any(), anyString(), any());
+            verify(userServiceMock, never()).findByToken(any());
         });
     }
 
@@ -750,22 +695,12 @@ public class ApplicationTest {
             requestJson.put("request", "yes");
             requestJson.put("message", "test");
 
-            String reposeId = "1";
-
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
-            try {
-                when(userServiceMock.findByToken(any())).thenReturn(null);
-                when(reposeService.setUpReposeEnvironment(any(), any(),
-                        anyString(), any())).
-                        thenReturn(reposeId);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(userServiceMock.findByToken(any())).thenReturn(null);
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -778,236 +713,151 @@ public class ApplicationTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).build("1");
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).build("1");
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(userServiceMock).findByToken(anyString());
-                verify(reposeService, never()).setUpReposeEnvironment(any(), any(), anyString(),
-                        any());
-                verify(configurationFactory, never()).translateConfigurationsFromJson(any(),
-                        any(), any());
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(userServiceMock).findByToken(anyString());
+            verify(buildJobService, never()).submit(any(), anyString(), any());
         });
     }
 
+    //test build status
+
     @Test
-    public void testBuildNull() {
+    public void testBuildStatusSuccess() {
         running(fakeApplication(inMemoryDatabase("test")), () -> {
 
             //set up mock user
             User user = new User();
             user.setTenant("111");
-            user.setPassword("pass");
             user.setToken("fake-token");
-            user.setUserid("1");
             user.setUsername("fake-user");
 
-            List<models.Configuration> configurationList = new ArrayList<Configuration>(){
-                {
-                    add(new Configuration("add-header", "lotsaxml"));
-                    add(new Configuration("ip-user", "lotsaxml"));
-                }
-            };
-
-            ObjectNode requestJson = JsonNodeFactory.instance.objectNode();
-            requestJson.put("request", "yes");
-            requestJson.put("message", "test");
+            BuildJob job = new BuildJob("fake-job", "fake-user", "1", 0L);
+            job.setStatus(BuildJob.Status.SUCCEEDED);
+            job.setReposeId("1");
+            job.setMessage("success");
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
-            try {
-                when(userServiceMock.findByToken(any())).thenReturn(user);
-                when(reposeService.setUpReposeEnvironment(any(), any(),
-                        anyString(), any())).
-                        thenReturn(null);
-                when(configurationFactory.translateConfigurationsFromJson(any(), anyString(),
-                        any())).thenReturn(configurationList);
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(userServiceMock.findByToken(any())).thenReturn(user);
+            when(buildJobService.getJob(user, "fake-job")).thenReturn(job);
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
             RequestHeader header = mock(RequestHeader.class);
-            Http.RequestBody requestBody = mock(Http.RequestBody.class);
-            when(requestBody.asJson()).thenReturn(requestJson);
             Http.Request request = mock(Http.Request.class);
-            when(request.body()).thenReturn(requestBody);
             when(request.getHeader("Token")).thenReturn("fake-token");
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).build("1");
-            assertEquals(500, result.status());
-            assertEquals("{\"message\":\"unable to create repose environment.\"}",
-                    contentAsString(result));
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).buildStatus("fake-job");
+            assertEquals(200, result.status());
+            assertTrue(contentAsString(result).contains("\"id\":\"fake-job\""));
+            assertTrue(contentAsString(result).contains("\"status\":\"SUCCEEDED\""));
+            assertTrue(contentAsString(result).contains("\"reposeId\":\"1\""));
+            assertFalse(contentAsString(result).contains("fake-user"));
 
-            verify(userServiceMock).isValid(anyString());
-            verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(userServiceMock).findByToken(anyString());
-                verify(reposeService).setUpReposeEnvironment(any(), any(), anyString(),
-                        any());
-                verify(configurationFactory).translateConfigurationsFromJson(any(),
-                        any(), any());
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(buildJobService).getJob(user, "fake-job");
         });
     }
 
     @Test
-    public void testBuildNotFoundException() {
+    public void testBuildQueueSuccess() {
         running(fakeApplication(inMemoryDatabase("test")), () -> {
 
-            //set up mock user
             User user = new User();
             user.setTenant("111");
-            user.setPassword("pass");
             user.setToken("fake-token");
-            user.setUserid("1");
             user.setUsername("fake-user");
 
-            List<models.Configuration> configurationList = new ArrayList<Configuration>(){
-                {
-                    add(new Configuration("add-header", "lotsaxml"));
-                    add(new Configuration("ip-user", "lotsaxml"));
-                }
-            };
-
-            ObjectNode requestJson = JsonNodeFactory.instance.objectNode();
-            requestJson.put("request", "yes");
-            requestJson.put("message", "test");
-
-            String reposeId = "1";
+            ObjectNode stats = JsonNodeFactory.instance.objectNode();
+            stats.put("tenant", "111");
+            stats.put("depth", 2);
 
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
-            try {
-                when(userServiceMock.findByToken(any())).thenReturn(user);
-                when(reposeService.setUpReposeEnvironment(any(), any(),
-                        anyString(), any())).
-                        thenReturn(reposeId);
-                when(configurationFactory.translateConfigurationsFromJson(any(), anyString(),
-                        any())).thenThrow(new NotFoundException("configs not found"));
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(userServiceMock.findByToken(any())).thenReturn(user);
+            when(buildJobService.getQueueStats(user)).thenReturn(stats);
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
             RequestHeader header = mock(RequestHeader.class);
-            Http.RequestBody requestBody = mock(Http.RequestBody.class);
-            when(requestBody.asJson()).thenReturn(requestJson);
             Http.Request request = mock(Http.Request.class);
-            when(request.body()).thenReturn(requestBody);
             when(request.getHeader("Token")).thenReturn("fake-token");
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).build("1");
-            assertEquals(400, result.status());
-            assertEquals("{\"message\":\"configs not found\"}",
-                    contentAsString(result));
-
-            verify(userServiceMock).isValid(anyString());
-            verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(userServiceMock).findByToken(anyString());
-                verify(reposeService, never()).setUpReposeEnvironment(any(), any(), anyString(),
-                        any());
-                verify(configurationFactory).translateConfigurationsFromJson(any(),
-                        any(), any());
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).buildQueue();
+            assertEquals(200, result.status());
+            assertTrue(contentAsString(result).contains("\"depth\":2"));
         });
     }
 
     @Test
-    public void testBuildInternalServerException() {
+    public void testBuildStatusNotFound() {
         running(fakeApplication(inMemoryDatabase("test")), () -> {
 
-            //set up mock user
             User user = new User();
             user.setTenant("111");
-            user.setPassword("pass");
             user.setToken("fake-token");
-            user.setUserid("1");
             user.setUsername("fake-user");
 
-            List<models.Configuration> configurationList = new ArrayList<Configuration>(){
-                {
-                    add(new Configuration("add-header", "lotsaxml"));
-                    add(new Configuration("ip-user", "lotsaxml"));
-                }
-            };
+            IUserService userServiceMock = mock(IUserService.class);
+            FilterService filterService = mock(FilterService.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
-            ObjectNode requestJson = JsonNodeFactory.instance.objectNode();
-            requestJson.put("request", "yes");
-            requestJson.put("message", "test");
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(any())).thenReturn(user);
+            when(buildJobService.getJob(any(), anyString())).thenReturn(null);
 
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).buildStatus("fake-job");
+            assertEquals(404, result.status());
+        });
+    }
+
+    @Test
+    public void testBuildStatusUnauthorized() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
             IUserService userServiceMock = mock(IUserService.class);
             FilterService filterService = mock(FilterService.class);
-            IReposeService reposeService = mock(IReposeService.class);
-            ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+            BuildJobService buildJobService = mock(BuildJobService.class);
 
-            when(userServiceMock.isValid(anyString())).thenReturn(true);
-            try {
-                when(userServiceMock.findByToken(any())).thenReturn(user);
-                when(reposeService.setUpReposeEnvironment(any(), any(),
-                        anyString(), any())).
-                        thenThrow(new InternalServerException("failed all the things"));
-                when(configurationFactory.translateConfigurationsFromJson(any(), anyString(),
-                        any())).thenReturn(configurationList);
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(userServiceMock.isValid(anyString())).thenReturn(false);
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
             RequestHeader header = mock(RequestHeader.class);
-            Http.RequestBody requestBody = mock(Http.RequestBody.class);
-            when(requestBody.asJson()).thenReturn(requestJson);
             Http.Request request = mock(Http.Request.class);
-            when(request.body()).thenReturn(requestBody);
             when(request.getHeader("Token")).thenReturn("fake-token");
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Application(configurationFactory, filterService,
-                    userServiceMock, reposeService).build("1");
-            assertEquals(500, result.status());
-            assertEquals("{\"message\":\"failed all the things\"}",
-                    contentAsString(result));
+            Result result = new Application(filterService,
+                    userServiceMock, buildJobService).buildStatus("fake-job");
+            assertEquals(401, result.status());
 
-            verify(userServiceMock).isValid(anyString());
-            verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(userServiceMock).findByToken(anyString());
-                verify(reposeService).setUpReposeEnvironment(any(), any(), anyString(),
-                        any());
-                verify(configurationFactory).translateConfigurationsFromJson(any(),
-                        any(), any());
-            }catch(InternalServerException | NotFoundException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(buildJobService, never()).getJob(any(), anyString());
         });
     }
-}
\ No newline at end of file
+}
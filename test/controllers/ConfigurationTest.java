@@ -1,5 +1,6 @@
 package controllers;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import exceptions.InternalServerException;
 import exceptions.NotFoundException;
 import factories.ConfigurationFactory;
@@ -7,7 +8,10 @@ import models.User;
 import org.apache.http.HttpEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.junit.Test;
+import org.mockito.ArgumentMatcher;
 import play.api.mvc.RequestHeader;
+import play.libs.F;
+import play.libs.Json;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.test.WithApplication;
@@ -16,10 +20,7 @@ import services.IReposeService;
 import services.IUserService;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -64,12 +65,8 @@ public class ConfigurationTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(configurationServiceMock.getConfigurationsForInstance(any(), anyString())).
-                        thenReturn(configurationList);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(configurationServiceMock.getConfigurationsForInstance(any(), anyString(), any())).
+                    thenReturn(F.Promise.pure(configurationList));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -80,7 +77,7 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).configurations("1");
+                    configurationServiceMock, configurationFactoryMock).configurations("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("[{\"name\":\"filter-name\",\"xml\":\"filter-xml\"}," +
                     "{\"name\":\"filter-name2\",\"xml\":\"filter-xml2\"}," +
@@ -89,11 +86,52 @@ public class ConfigurationTest extends WithApplication {
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(configurationServiceMock).getConfigurationsForInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(configurationServiceMock).getConfigurationsForInstance(any(), anyString(), any());
+        });
+    }
+
+    @Test
+    public void testConfigurationsFilteredByName() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            //set up mock user
+            User user = new User();
+            user.setTenant("111");
+            user.setPassword("pass");
+            user.setToken("fake-token");
+            user.setUserid("1");
+            user.setUsername("fake-user");
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+            ConfigurationService configurationServiceMock = mock(ConfigurationService.class);
+            ConfigurationFactory configurationFactoryMock = mock(ConfigurationFactory.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            Set<String> names = new HashSet<>(Arrays.asList(
+                    "system-model.cfg.xml", "container.cfg.xml", "ip-user.cfg.xml"));
+            when(configurationServiceMock.getConfigurationsForInstance(any(), anyString(), eq(names))).
+                    thenReturn(F.Promise.pure(Collections.singletonList(
+                            new models.Configuration("ip-user.cfg.xml", "filter-xml"))));
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            Map<String, String[]> queryString = new HashMap<>();
+            queryString.put("name", new String[]{"system-model.cfg.xml,container.cfg.xml", "ip-user.cfg.xml"});
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            when(request.queryString()).thenReturn(queryString);
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Configuration(userServiceMock, reposeServiceMock,
+                    configurationServiceMock, configurationFactoryMock).configurations("1").get(5000);
+            assertEquals(200, result.status());
+            assertEquals("[{\"name\":\"ip-user.cfg.xml\",\"xml\":\"filter-xml\"}]", contentAsString(result));
+
+            verify(configurationServiceMock).getConfigurationsForInstance(any(), anyString(), eq(names));
         });
     }
 
@@ -117,18 +155,14 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).configurations("1");
+                    configurationServiceMock, configurationFactoryMock).configurations("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(configurationServiceMock, never()).getConfigurationsForInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(configurationServiceMock, never()).getConfigurationsForInstance(any(), anyString(), any());
         });
     }
 
@@ -152,18 +186,14 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).configurations("1");
+                    configurationServiceMock, configurationFactoryMock).configurations("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(configurationServiceMock, never()).getConfigurationsForInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(configurationServiceMock, never()).getConfigurationsForInstance(any(), anyString(), any());
         });
 
     }
@@ -191,18 +221,14 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).configurations("1");
+                    configurationServiceMock, configurationFactoryMock).configurations("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(configurationServiceMock, never()).getConfigurationsForInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(configurationServiceMock, never()).getConfigurationsForInstance(any(), anyString(), any());
         });
     }
 
@@ -225,13 +251,9 @@ public class ConfigurationTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(configurationServiceMock.
-                        getConfigurationsForInstance(any(), anyString())).
-                        thenReturn(new ArrayList<models.Configuration>());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(configurationServiceMock.
+                    getConfigurationsForInstance(any(), anyString(), any())).
+                    thenReturn(F.Promise.pure(new ArrayList<models.Configuration>()));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -242,18 +264,14 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).configurations("1");
+                    configurationServiceMock, configurationFactoryMock).configurations("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("[]", contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(configurationServiceMock).getConfigurationsForInstance(any(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(configurationServiceMock).getConfigurationsForInstance(any(), any(), any());
         });
     }
 
@@ -276,12 +294,8 @@ public class ConfigurationTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(configurationServiceMock.
-                        getConfigurationsForInstance(any(), anyString())).thenReturn(null);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(configurationServiceMock.
+                    getConfigurationsForInstance(any(), anyString(), any())).thenReturn(F.Promise.pure(null));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -292,18 +306,14 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).configurations("1");
+                    configurationServiceMock, configurationFactoryMock).configurations("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("[]", contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(configurationServiceMock).getConfigurationsForInstance(any(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(configurationServiceMock).getConfigurationsForInstance(any(), any(), any());
         });
     }
 
@@ -325,12 +335,8 @@ public class ConfigurationTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(configurationServiceMock.getConfigurationsForInstance(any(), anyString()))
-                        .thenThrow(new InternalServerException("all the things!"));
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(configurationServiceMock.getConfigurationsForInstance(any(), anyString(), any()))
+                    .thenReturn(F.Promise.throwing(new InternalServerException("all the things!")));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -341,18 +347,14 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).configurations("1");
+                    configurationServiceMock, configurationFactoryMock).configurations("1").get(5000);
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(configurationServiceMock).getConfigurationsForInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(configurationServiceMock).getConfigurationsForInstance(any(), anyString(), any());
         });
     }
 
@@ -391,8 +393,8 @@ public class ConfigurationTest extends WithApplication {
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
             try {
-                when(reposeServiceMock.setUpReposeEnvironment(any(), any(), anyString(), anyList())).
-                        thenReturn(reposeId);
+                when(reposeServiceMock.setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any())).
+                        thenReturn(F.Promise.pure(reposeId));
                 when(configurationFactoryMock.translateConfigurationsFromUpload(any(), anyString(), any())).
                         thenReturn(configurationList);
             }catch(InternalServerException | NotFoundException ise){
@@ -436,7 +438,7 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1");
+                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("{\"message\":\"success\",\"id\":\"1\"}", contentAsString(result));
 
@@ -444,7 +446,7 @@ public class ConfigurationTest extends WithApplication {
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
             try {
-                verify(reposeServiceMock).setUpReposeEnvironment(any(), any(), anyString(), anyList());
+                verify(reposeServiceMock).setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any());
                 verify(configurationFactoryMock).translateConfigurationsFromUpload(any(), anyString(), any());
             }catch(InternalServerException | NotFoundException ise){
                 fail(ise.getLocalizedMessage());
@@ -490,7 +492,7 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1");
+                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -498,7 +500,7 @@ public class ConfigurationTest extends WithApplication {
             verify(request, times(1)).getHeader(anyString());
 
             try {
-                verify(reposeServiceMock, never()).setUpReposeEnvironment(any(), any(), anyString(), anyList());
+                verify(reposeServiceMock, never()).setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any());
                 verify(configurationFactoryMock, never()).translateConfigurationsFromUpload(any(), anyString(), any());
             }catch(InternalServerException | NotFoundException ise){
                 fail(ise.getLocalizedMessage());
@@ -544,7 +546,7 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1");
+                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -552,7 +554,7 @@ public class ConfigurationTest extends WithApplication {
             verify(request, times(1)).getHeader(anyString());
 
             try {
-                verify(reposeServiceMock, never()).setUpReposeEnvironment(any(), any(), anyString(), anyList());
+                verify(reposeServiceMock, never()).setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any());
                 verify(configurationFactoryMock, never()).translateConfigurationsFromUpload(any(), anyString(), any());
             }catch(InternalServerException | NotFoundException ise){
                 fail(ise.getLocalizedMessage());
@@ -602,7 +604,7 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1");
+                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -610,7 +612,7 @@ public class ConfigurationTest extends WithApplication {
             verify(request, times(1)).getHeader(anyString());
 
             try {
-                verify(reposeServiceMock, never()).setUpReposeEnvironment(any(), any(), anyString(), anyList());
+                verify(reposeServiceMock, never()).setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any());
                 verify(configurationFactoryMock, never()).translateConfigurationsFromUpload(any(), anyString(), any());
             }catch(InternalServerException | NotFoundException ise){
                 fail(ise.getLocalizedMessage());
@@ -671,7 +673,7 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1");
+                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1").get(5000);
             assertEquals(400, result.status());
             assertEquals("{\"message\":\"Configurations Not found\"}", contentAsString(result));
 
@@ -679,7 +681,7 @@ public class ConfigurationTest extends WithApplication {
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
             try {
-                verify(reposeServiceMock, never()).setUpReposeEnvironment(any(), any(), anyString(), anyList());
+                verify(reposeServiceMock, never()).setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any());
                 verify(configurationFactoryMock).translateConfigurationsFromUpload(any(), anyString(), any());
             }catch(InternalServerException | NotFoundException ise){
                 fail(ise.getLocalizedMessage());
@@ -707,8 +709,8 @@ public class ConfigurationTest extends WithApplication {
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
             try {
-                when(reposeServiceMock.setUpReposeEnvironment(any(), any(), anyString(), anyList())).
-                        thenReturn(null);
+                when(reposeServiceMock.setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any())).
+                        thenReturn(F.Promise.pure(null));
                 when(configurationFactoryMock.translateConfigurationsFromUpload(any(), anyString(), any())).
                         thenReturn(new ArrayList<models.Configuration>());
             }catch(InternalServerException | NotFoundException ise){
@@ -742,7 +744,7 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1");
+                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1").get(5000);
             assertEquals(500, result.status());
             assertEquals("{\"message\":\"unable to create repose environment.\"}", contentAsString(result));
 
@@ -750,7 +752,7 @@ public class ConfigurationTest extends WithApplication {
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
             try {
-                verify(reposeServiceMock).setUpReposeEnvironment(any(), any(), anyString(), anyList());
+                verify(reposeServiceMock).setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any());
                 verify(configurationFactoryMock).translateConfigurationsFromUpload(any(), anyString(), any());
             }catch(InternalServerException | NotFoundException ise){
                 fail(ise.getLocalizedMessage());
@@ -779,8 +781,8 @@ public class ConfigurationTest extends WithApplication {
             try {
                 when(configurationFactoryMock.translateConfigurationsFromUpload(any(), anyString(), any())).
                         thenReturn(new ArrayList<models.Configuration>());
-                when(reposeServiceMock.setUpReposeEnvironment(any(), any(), anyString(), anyList()))
-                        .thenThrow(new InternalServerException("all the things!"));
+                when(reposeServiceMock.setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any()))
+                        .thenReturn(F.Promise.throwing(new InternalServerException("all the things!")));
             }catch(NotFoundException | InternalServerException ise){
                 fail(ise.getLocalizedMessage());
             }
@@ -812,7 +814,7 @@ public class ConfigurationTest extends WithApplication {
             Http.Context.current.set(context);
 
             Result result = new Configuration(userServiceMock, reposeServiceMock,
-                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1");
+                    configurationServiceMock, configurationFactoryMock).uploadReposeConfigs("1").get(5000);
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
@@ -820,11 +822,126 @@ public class ConfigurationTest extends WithApplication {
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
             try {
-                verify(reposeServiceMock).setUpReposeEnvironment(any(), any(), anyString(), anyList());
+                verify(reposeServiceMock).setUpReposeEnvironmentAsync(any(), any(), anyString(), anyList(), any());
                 verify(configurationFactoryMock).translateConfigurationsFromUpload(any(), anyString(), any());
             }catch(NotFoundException | InternalServerException ise){
                 fail(ise.getLocalizedMessage());
             }
         });
     }
-}
\ No newline at end of file
+
+    //test reconfigure
+
+    @Test
+    public void testReconfigureSuccess() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            //set up mock user
+            User user = new User();
+            user.setTenant("111");
+            user.setToken("fake-token");
+            user.setUsername("fake-user");
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+            ConfigurationService configurationServiceMock = mock(ConfigurationService.class);
+            ConfigurationFactory configurationFactoryMock = mock(ConfigurationFactory.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(configurationServiceMock.reconfigureInstance(any(), anyString(), any())).thenReturn(F.Promise.pure(true));
+
+            ArrayNode requestJson = Json.newArray();
+            requestJson.addObject().put("name", "ip-user.cfg.xml").put("xml", "<ip-user/>");
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            Http.RequestBody requestBody = mock(Http.RequestBody.class);
+            when(requestBody.asJson()).thenReturn(requestJson);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            when(request.body()).thenReturn(requestBody);
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Configuration(userServiceMock, reposeServiceMock,
+                    configurationServiceMock, configurationFactoryMock).reconfigure("1").get(5000);
+            assertEquals(200, result.status());
+            assertEquals("{\"message\":\"success\",\"id\":\"1\",\"reloaded\":true}", contentAsString(result));
+
+            verify(configurationServiceMock).reconfigureInstance(eq(user), eq("1"), argThat(
+                    new ArgumentMatcher<List<models.Configuration>>() {
+                        @Override
+                        public boolean matches(Object argument) {
+                            List<?> configurationList = (List<?>) argument;
+                            models.Configuration configuration = (models.Configuration) configurationList.get(0);
+                            return configurationList.size() == 1 &&
+                                    configuration.getName().equals("ip-user.cfg.xml") &&
+                                    configuration.getXml().equals("<ip-user/>");
+                        }
+                    }));
+        });
+    }
+
+    @Test
+    public void testReconfigureInvalidName() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+            ConfigurationService configurationServiceMock = mock(ConfigurationService.class);
+            ConfigurationFactory configurationFactoryMock = mock(ConfigurationFactory.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(new User());
+
+            ArrayNode requestJson = Json.newArray();
+            requestJson.addObject().put("name", "../../etc/passwd").put("xml", "<ip-user/>");
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            Http.RequestBody requestBody = mock(Http.RequestBody.class);
+            when(requestBody.asJson()).thenReturn(requestJson);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            when(request.body()).thenReturn(requestBody);
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Configuration(userServiceMock, reposeServiceMock,
+                    configurationServiceMock, configurationFactoryMock).reconfigure("1").get(5000);
+            assertEquals(400, result.status());
+
+            verify(configurationServiceMock, never()).reconfigureInstance(any(), anyString(), any());
+        });
+    }
+
+    @Test
+    public void testReconfigureUnauthorized() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+            ConfigurationService configurationServiceMock = mock(ConfigurationService.class);
+            ConfigurationFactory configurationFactoryMock = mock(ConfigurationFactory.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(false);
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Configuration(userServiceMock, reposeServiceMock,
+                    configurationServiceMock, configurationFactoryMock).reconfigure("1").get(5000);
+            assertEquals(401, result.status());
+
+            verify(configurationServiceMock, never()).reconfigureInstance(any(), anyString(), any());
+        });
+    }
+}
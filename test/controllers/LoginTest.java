@@ -70,7 +70,7 @@ public class LoginTest {
 
         verify(userServiceMock).isValid(anyString());
         verify(userServiceMock, times(2)).findByToken(anyString());
-        verify(request, times(2)).getHeader(anyString());
+        verify(request, times(1)).getHeader(anyString());
     }
 
     @Test
@@ -91,7 +91,7 @@ public class LoginTest {
 
         verify(userServiceMock).isValid(anyString());
         verify(userServiceMock, times(1)).findByToken(anyString());
-        verify(request, times(2)).getHeader(anyString());
+        verify(request, times(1)).getHeader(anyString());
     }
 
     @Test
@@ -113,7 +113,7 @@ public class LoginTest {
 
         verify(userServiceMock).isValid(anyString());
         verify(userServiceMock, times(1)).findByToken(anyString());
-        verify(request, times(2)).getHeader(anyString());
+        verify(request, times(1)).getHeader(anyString());
     }
 
     @Test
@@ -138,7 +138,7 @@ public class LoginTest {
 
         verify(userServiceMock).isValid(anyString());
         verify(userServiceMock, times(2)).findByToken(anyString());
-        verify(request, times(2)).getHeader(anyString());
+        verify(request, times(1)).getHeader(anyString());
     }
 
     @Test
@@ -1,10 +1,13 @@
 package controllers;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
 import exceptions.InternalServerException;
 import models.*;
 import org.junit.Test;
 import play.api.mvc.RequestHeader;
+import play.libs.F;
+import play.libs.Json;
 import play.mvc.Http;
 import play.mvc.Result;
 import play.test.WithApplication;
@@ -48,7 +51,7 @@ public class ReposeTest extends WithApplication {
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
             try {
-                when(reposeServiceMock.getReposeList(any())).thenReturn(containerList);
+                when(reposeServiceMock.getReposeList(any())).thenReturn(F.Promise.pure(containerList));
             }catch(InternalServerException ise){
                 fail(ise.getLocalizedMessage());
             }
@@ -61,7 +64,7 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).list();
+            Result result = new Repose(userServiceMock, reposeServiceMock).list().get(5000);
             assertEquals(200, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -91,7 +94,7 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).list();
+            Result result = new Repose(userServiceMock, reposeServiceMock).list().get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -122,7 +125,7 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).list();
+            Result result = new Repose(userServiceMock, reposeServiceMock).list().get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -158,7 +161,7 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).list();
+            Result result = new Repose(userServiceMock, reposeServiceMock).list().get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -194,7 +197,7 @@ public class ReposeTest extends WithApplication {
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
             try {
-                when(reposeServiceMock.getReposeList(any())).thenReturn(containerList);
+                when(reposeServiceMock.getReposeList(any())).thenReturn(F.Promise.pure(containerList));
             }catch(InternalServerException ise){
                 fail(ise.getLocalizedMessage());
             }
@@ -207,7 +210,7 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).list();
+            Result result = new Repose(userServiceMock, reposeServiceMock).list().get(5000);
             assertEquals(200, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -240,7 +243,7 @@ public class ReposeTest extends WithApplication {
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
             try {
-                when(reposeServiceMock.getReposeList(any())).thenReturn(null);
+                when(reposeServiceMock.getReposeList(any())).thenReturn(F.Promise.pure(null));
             }catch(InternalServerException ise){
                 fail(ise.getLocalizedMessage());
             }
@@ -253,7 +256,7 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).list();
+            Result result = new Repose(userServiceMock, reposeServiceMock).list().get(5000);
             assertEquals(200, result.status());
 
             verify(userServiceMock).isValid(anyString());
@@ -298,7 +301,7 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).list();
+            Result result = new Repose(userServiceMock, reposeServiceMock).list().get(5000);
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
@@ -313,12 +316,9 @@ public class ReposeTest extends WithApplication {
         });
     }
 
-    //test start repose instance
-
     @Test
-    public void testStartSuccess() {
+    public void testListProvisioningFailed() {
         running(fakeApplication(inMemoryDatabase("test")), () -> {
-
             //set up mock user
             User user = new User();
             user.setTenant("111");
@@ -334,7 +334,8 @@ public class ReposeTest extends WithApplication {
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
             try {
-                when(reposeServiceMock.startReposeInstance(any(), anyString())).thenReturn(true);
+                when(reposeServiceMock.getReposeList(any())).thenReturn(
+                        F.Promise.throwing(new InternalServerException("Cluster ended up in error state")));
             }catch(InternalServerException ise){
                 fail(ise.getLocalizedMessage());
             }
@@ -347,18 +348,53 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).start("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).list().get(5000);
+            assertEquals(500, result.status());
+            assertEquals(contentAsString(result), "{\"message\":\"Cluster ended up in error state\"}");
+
+            verify(userServiceMock).isValid(anyString());
+            verify(userServiceMock, times(1)).findByToken(anyString());
+        });
+    }
+
+    //test start repose instance
+
+    @Test
+    public void testStartSuccess() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            //set up mock user
+            User user = new User();
+            user.setTenant("111");
+            user.setPassword("pass");
+            user.setToken("fake-token");
+            user.setUserid("1");
+            user.setUsername("fake-user");
+
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(reposeServiceMock.startReposeInstance(any(), anyString())).thenReturn(F.Promise.pure(true));
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).start("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("{\"message\":\"success\"}", contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(reposeServiceMock).startReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock).startReposeInstance(any(), anyString());
         });
     }
 
@@ -378,18 +414,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).start("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).start("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(reposeServiceMock, never()).startReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock, never()).startReposeInstance(any(), anyString());
         });
     }
 
@@ -409,18 +441,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).start("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).start("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(reposeServiceMock, never()).startReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock, never()).startReposeInstance(any(), anyString());
         });
 
     }
@@ -445,18 +473,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).start("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).start("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(reposeServiceMock, never()).startReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock, never()).startReposeInstance(any(), anyString());
         });
     }
 
@@ -478,11 +502,7 @@ public class ReposeTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(reposeServiceMock.startReposeInstance(any(), anyString())).thenReturn(false);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(reposeServiceMock.startReposeInstance(any(), anyString())).thenReturn(F.Promise.pure(false));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -492,18 +512,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).start("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).start("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("{\"message\":\"failed to start\"}", contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(reposeServiceMock).startReposeInstance(any(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock).startReposeInstance(any(), any());
         });
     }
 
@@ -524,12 +540,8 @@ public class ReposeTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(reposeServiceMock.startReposeInstance(any(), anyString()))
-                        .thenThrow(new InternalServerException("all the things!"));
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(reposeServiceMock.startReposeInstance(any(), anyString()))
+                    .thenReturn(F.Promise.throwing(new InternalServerException("all the things!")));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -539,18 +551,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).start("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).start("1").get(5000);
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(reposeServiceMock).startReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock).startReposeInstance(any(), anyString());
         });
     }
 
@@ -575,11 +583,7 @@ public class ReposeTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(reposeServiceMock.stopReposeInstance(any(), anyString())).thenReturn(true);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(reposeServiceMock.stopReposeInstance(any(), anyString())).thenReturn(F.Promise.pure(true));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -589,18 +593,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("{\"message\":\"success\"}", contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(reposeServiceMock).stopReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock).stopReposeInstance(any(), anyString());
         });
     }
 
@@ -620,18 +620,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(reposeServiceMock, never()).stopReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock, never()).stopReposeInstance(any(), anyString());
         });
     }
 
@@ -651,18 +647,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(reposeServiceMock, never()).stopReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock, never()).stopReposeInstance(any(), anyString());
         });
 
     }
@@ -687,18 +679,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(reposeServiceMock, never()).stopReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock, never()).stopReposeInstance(any(), anyString());
         });
     }
 
@@ -720,11 +708,7 @@ public class ReposeTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(reposeServiceMock.stopReposeInstance(any(), anyString())).thenReturn(false);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(reposeServiceMock.stopReposeInstance(any(), anyString())).thenReturn(F.Promise.pure(false));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -734,18 +718,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("{\"message\":\"failed to stop\"}", contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(reposeServiceMock).stopReposeInstance(any(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock).stopReposeInstance(any(), any());
         });
     }
 
@@ -766,12 +746,8 @@ public class ReposeTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(reposeServiceMock.stopReposeInstance(any(), anyString()))
-                        .thenThrow(new InternalServerException("all the things!"));
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(reposeServiceMock.stopReposeInstance(any(), anyString()))
+                    .thenReturn(F.Promise.throwing(new InternalServerException("all the things!")));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -781,18 +757,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stop("1").get(5000);
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(reposeServiceMock).stopReposeInstance(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock).stopReposeInstance(any(), anyString());
         });
     }
 
@@ -828,11 +800,7 @@ public class ReposeTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(reposeServiceMock.getInstanceStats(any(), anyString())).thenReturn(containerStats);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(reposeServiceMock.getInstanceStats(any(), anyString())).thenReturn(F.Promise.pure(containerStats));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -842,7 +810,7 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("{\"cpuStats\":{\"cpuUsage\":{\"perCpu\":[1],\"total\":2," +
                     "\"inKernelMode\":3,\"inUserMode\":4},\"systemUsage\":5},\"memoryStats\":" +
@@ -855,11 +823,149 @@ public class ReposeTest extends WithApplication {
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(reposeServiceMock).getInstanceStats(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock).getInstanceStats(any(), anyString());
+        });
+    }
+
+    @Test
+    public void testPoolSuccess() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            //set up mock user
+            User user = new User();
+            user.setTenant("111");
+            user.setToken("fake-token");
+            user.setUsername("fake-user");
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            ObjectNode stats = Json.newObject();
+            stats.put("size", 1);
+            stats.put("hits", 2);
+            stats.put("misses", 3);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(reposeServiceMock.getWarmPoolStats(user)).thenReturn(F.Promise.pure(stats));
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).pool().get(5000);
+            assertEquals(200, result.status());
+            assertEquals("{\"size\":1,\"hits\":2,\"misses\":3}", contentAsString(result));
+        });
+    }
+
+    @Test
+    public void testCacheSuccess() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            //set up mock user
+            User user = new User();
+            user.setTenant("111");
+            user.setToken("fake-token");
+            user.setUsername("fake-user");
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            ObjectNode stats = Json.newObject();
+            stats.put("tenants", 1);
+            stats.put("hits", 2);
+            stats.put("misses", 3);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(reposeServiceMock.getContainerCacheStats(user)).thenReturn(F.Promise.pure(stats));
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).cache().get(5000);
+            assertEquals(200, result.status());
+            assertEquals("{\"tenants\":1,\"hits\":2,\"misses\":3}", contentAsString(result));
+        });
+    }
+
+    @Test
+    public void testClusterCacheSuccess() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            //set up mock user
+            User user = new User();
+            user.setTenant("111");
+            user.setToken("fake-token");
+            user.setUsername("fake-user");
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            ObjectNode stats = Json.newObject();
+            stats.put("size", 1);
+            stats.put("hitRate", 0.5);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(reposeServiceMock.getClusterCacheStats()).thenReturn(stats);
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).clusterCache();
+            assertEquals(200, result.status());
+            assertEquals("{\"size\":1,\"hitRate\":0.5}", contentAsString(result));
+        });
+    }
+
+    @Test
+    public void testClusterHealth() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            //set up mock user
+            User user = new User();
+            user.setTenant("111");
+            user.setToken("fake-token");
+            user.setUsername("fake-user");
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            ObjectNode stats = Json.newObject();
+            stats.put("intervalMillis", 60000);
+            stats.putArray("clusters");
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(reposeServiceMock.getClusterHealth(user)).thenReturn(stats);
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).clusterHealth();
+            assertEquals(200, result.status());
+            assertEquals("{\"intervalMillis\":60000,\"clusters\":[]}", contentAsString(result));
         });
     }
 
@@ -879,18 +985,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(reposeServiceMock, never()).getInstanceStats(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock, never()).getInstanceStats(any(), anyString());
         });
     }
 
@@ -910,18 +1012,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(reposeServiceMock, never()).getInstanceStats(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock, never()).getInstanceStats(any(), anyString());
         });
 
     }
@@ -946,18 +1044,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(reposeServiceMock, never()).getInstanceStats(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock, never()).getInstanceStats(any(), anyString());
         });
     }
 
@@ -979,11 +1073,7 @@ public class ReposeTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(reposeServiceMock.getInstanceStats(any(), anyString())).thenReturn(null);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(reposeServiceMock.getInstanceStats(any(), anyString())).thenReturn(F.Promise.pure(null));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -993,18 +1083,14 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("{\"message\":\"No stats found.\"}", contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(reposeServiceMock).getInstanceStats(any(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock).getInstanceStats(any(), any());
         });
     }
 
@@ -1025,12 +1111,8 @@ public class ReposeTest extends WithApplication {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(reposeServiceMock.getInstanceStats(any(), anyString()))
-                        .thenThrow(new InternalServerException("all the things!"));
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(reposeServiceMock.getInstanceStats(any(), anyString()))
+                    .thenReturn(F.Promise.throwing(new InternalServerException("all the things!")));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -1040,18 +1122,167 @@ public class ReposeTest extends WithApplication {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1");
+            Result result = new Repose(userServiceMock, reposeServiceMock).stats("1").get(5000);
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(reposeServiceMock).getInstanceStats(any(), anyString());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(reposeServiceMock).getInstanceStats(any(), anyString());
+        });
+    }
+
+    @Test
+    public void testStreamStatsUnauthorized() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(false);
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).streamStats("1");
+            assertEquals(401, result.status());
+
+            verify(userServiceMock).isValid("fake-token");
+            verify(userServiceMock, never()).findByToken(anyString());
+            verify(request, never()).getQueryString(anyString());
+
+            verify(reposeServiceMock, never()).subscribeInstanceStats(any(), anyString(), any());
+        });
+    }
+
+    @Test
+    public void testStreamStatsTicketFromQuery() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+            //set up mock user
+            User user = new User();
+            user.setTenant("111");
+            user.setPassword("pass");
+            user.setToken("fake-token");
+            user.setUserid("1");
+            user.setUsername("fake-user");
+
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            when(userServiceMock.redeemStreamTicket("fake-ticket", "repose/stats/1")).thenReturn(user);
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn(null);
+            when(request.getQueryString("ticket")).thenReturn("fake-ticket");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).streamStats("1");
+            assertEquals(200, result.status());
+
+            verify(userServiceMock).redeemStreamTicket("fake-ticket", "repose/stats/1");
+            verify(userServiceMock, never()).findByToken(anyString());
+            verify(request, never()).getQueryString("token");
+        });
+    }
+
+    @Test
+    public void testStreamStatsTicketUsed() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            when(userServiceMock.redeemStreamTicket("fake-ticket", "repose/stats/1")).thenReturn(null);
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn(null);
+            when(request.getQueryString("ticket")).thenReturn("fake-ticket");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).streamStats("1");
+            assertEquals(401, result.status());
+
+            verify(reposeServiceMock, never()).subscribeInstanceStats(any(), anyString(), any());
+        });
+    }
+
+    @Test
+    public void testStreamStatsTicket() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            when(userServiceMock.issueStreamTicket("fake-token", "repose/stats/1")).thenReturn("fake-ticket");
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).streamStatsTicket("1");
+            assertEquals(200, result.status());
+            assertEquals("{\"ticket\":\"fake-ticket\"}", contentAsString(result));
+        });
+    }
+
+    @Test
+    public void testStreamStatsTicketUnauthorized() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            when(userServiceMock.issueStreamTicket(anyString(), anyString())).thenReturn(null);
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).streamStatsTicket("1");
+            assertEquals(401, result.status());
+        });
+    }
+
+    @Test
+    public void testStreamStatsNoToken() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+            IUserService userServiceMock = mock(IUserService.class);
+            IReposeService reposeServiceMock = mock(IReposeService.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(false);
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.Request request = mock(Http.Request.class);
+            when(request.getHeader("Token")).thenReturn(null);
+            when(request.getQueryString("ticket")).thenReturn(null);
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Repose(userServiceMock, reposeServiceMock).streamStats("1");
+            assertEquals(401, result.status());
+
+            verify(userServiceMock, never()).findByToken(anyString());
+            verify(userServiceMock, never()).redeemStreamTicket(anyString(), anyString());
         });
     }
 }
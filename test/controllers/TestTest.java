@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import exceptions.InternalServerException;
 import models.User;
+import play.libs.F;
 import play.api.mvc.RequestHeader;
 import play.mvc.Http;
 import play.mvc.Result;
@@ -52,11 +53,7 @@ public class TestTest {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(testServiceMock.testReposeInstance(any(), anyString(), any())).thenReturn(responseJson);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(testServiceMock.testReposeInstance(any(), anyString(), any())).thenReturn(F.Promise.pure(responseJson));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -69,18 +66,14 @@ public class TestTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Test(userServiceMock, testServiceMock).test("1");
+            Result result = new Test(userServiceMock, testServiceMock).test("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("{\"response\":\"yes\",\"message\":\"test\"}", contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(testServiceMock).testReposeInstance(any(), anyString(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(testServiceMock).testReposeInstance(any(), anyString(), any());
         });
     }
 
@@ -109,11 +102,7 @@ public class TestTest {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(testServiceMock.testReposeInstance(any(), anyString(), any())).thenReturn(responseJson);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(testServiceMock.testReposeInstance(any(), anyString(), any())).thenReturn(F.Promise.pure(responseJson));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -123,18 +112,14 @@ public class TestTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Test(userServiceMock, testServiceMock).test("1");
+            Result result = new Test(userServiceMock, testServiceMock).test("1").get(5000);
             assertEquals(400, result.status());
             assertEquals("Not a proper request.", contentAsString(result));
 
             verify(userServiceMock, never()).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, never()).getHeader(anyString());
-            try {
-                verify(testServiceMock, never()).testReposeInstance(any(), anyString(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(testServiceMock, never()).testReposeInstance(any(), anyString(), any());
         });
     }
 
@@ -161,18 +146,14 @@ public class TestTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Test(userServiceMock, testServiceMock).test("1");
+            Result result = new Test(userServiceMock, testServiceMock).test("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(testServiceMock, never()).testReposeInstance(any(), anyString(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(testServiceMock, never()).testReposeInstance(any(), anyString(), any());
         });
     }
 
@@ -199,18 +180,14 @@ public class TestTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Test(userServiceMock, testServiceMock).test("1");
+            Result result = new Test(userServiceMock, testServiceMock).test("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, never()).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(testServiceMock, never()).testReposeInstance(any(), anyString(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(testServiceMock, never()).testReposeInstance(any(), anyString(), any());
         });
 
     }
@@ -240,18 +217,14 @@ public class TestTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Test(userServiceMock, testServiceMock).test("1");
+            Result result = new Test(userServiceMock, testServiceMock).test("1").get(5000);
             assertEquals(401, result.status());
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
 
-            try {
-                verify(testServiceMock, never()).testReposeInstance(any(), anyString(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(testServiceMock, never()).testReposeInstance(any(), anyString(), any());
         });
     }
 
@@ -276,11 +249,7 @@ public class TestTest {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(testServiceMock.testReposeInstance(any(), anyString(), any())).thenReturn(null);
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(testServiceMock.testReposeInstance(any(), anyString(), any())).thenReturn(F.Promise.pure(null));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -293,18 +262,14 @@ public class TestTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Test(userServiceMock, testServiceMock).test("1");
+            Result result = new Test(userServiceMock, testServiceMock).test("1").get(5000);
             assertEquals(200, result.status());
             assertEquals("", contentAsString(result));
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(testServiceMock).testReposeInstance(any(), any(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(testServiceMock).testReposeInstance(any(), any(), any());
         });
     }
 
@@ -328,12 +293,8 @@ public class TestTest {
 
             when(userServiceMock.isValid(anyString())).thenReturn(true);
             when(userServiceMock.findByToken(anyString())).thenReturn(user);
-            try {
-                when(testServiceMock.testReposeInstance(any(), anyString(), any()))
-                        .thenThrow(new InternalServerException("all the things!"));
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            when(testServiceMock.testReposeInstance(any(), anyString(), any()))
+                    .thenReturn(F.Promise.throwing(new InternalServerException("all the things!")));
 
             Map<String, String> flashData = Collections.emptyMap();
             Map<String, Object> argData = Collections.emptyMap();
@@ -346,18 +307,168 @@ public class TestTest {
             Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
             Http.Context.current.set(context);
 
-            Result result = new Test(userServiceMock, testServiceMock).test("1");
+            Result result = new Test(userServiceMock, testServiceMock).test("1").get(5000);
             assertEquals(500, result.status());
             assertEquals(contentAsString(result), "{\"message\":\"all the things!\"}");
 
             verify(userServiceMock).isValid(anyString());
             verify(userServiceMock, times(1)).findByToken(anyString());
             verify(request, times(1)).getHeader(anyString());
-            try {
-                verify(testServiceMock).testReposeInstance(any(), anyString(), any());
-            }catch(InternalServerException ise){
-                fail(ise.getLocalizedMessage());
-            }
+            verify(testServiceMock).testReposeInstance(any(), anyString(), any());
         });
     }
-}
\ No newline at end of file
+
+    @org.junit.Test
+    public void testBatchSuccess() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            //set up mock user
+            User user = new User();
+            user.setTenant("111");
+            user.setToken("fake-token");
+            user.setUsername("fake-user");
+
+            ObjectNode requestJson = JsonNodeFactory.instance.objectNode();
+            requestJson.put("concurrency", 2);
+            requestJson.putArray("requests").addObject().put("method", "GET");
+
+            ObjectNode responseJson = JsonNodeFactory.instance.objectNode();
+            responseJson.put("concurrency", 2);
+
+            IUserService userServiceMock = mock(IUserService.class);
+            TestService testServiceMock = mock(TestService.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(testServiceMock.testReposeInstanceBatch(any(), anyString(), any())).thenReturn(F.Promise.pure(responseJson));
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.RequestBody requestBody = mock(Http.RequestBody.class);
+            when(requestBody.asJson()).thenReturn(requestJson);
+            Http.Request request = mock(Http.Request.class);
+            when(request.body()).thenReturn(requestBody);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Test(userServiceMock, testServiceMock).batch("1").get(5000);
+            assertEquals(200, result.status());
+            assertEquals("{\"concurrency\":2}", contentAsString(result));
+
+            verify(testServiceMock).testReposeInstanceBatch(user, "1", requestJson);
+            verify(testServiceMock, never()).testReposeInstance(any(), anyString(), any());
+        });
+    }
+
+    @org.junit.Test
+    public void testBatchInternalServerException() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            User user = new User();
+            user.setTenant("111");
+            user.setToken("fake-token");
+            user.setUsername("fake-user");
+
+            IUserService userServiceMock = mock(IUserService.class);
+            TestService testServiceMock = mock(TestService.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(testServiceMock.testReposeInstanceBatch(any(), anyString(), any()))
+                    .thenReturn(F.Promise.throwing(new InternalServerException("A batch can have at most 100 requests.")));
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.RequestBody requestBody = mock(Http.RequestBody.class);
+            when(requestBody.asJson()).thenReturn(JsonNodeFactory.instance.arrayNode());
+            Http.Request request = mock(Http.Request.class);
+            when(request.body()).thenReturn(requestBody);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Test(userServiceMock, testServiceMock).batch("1").get(5000);
+            assertEquals(500, result.status());
+            assertEquals("{\"message\":\"A batch can have at most 100 requests.\"}", contentAsString(result));
+        });
+    }
+
+    @org.junit.Test
+    public void testLoadSuccess() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            User user = new User();
+            user.setTenant("111");
+            user.setToken("fake-token");
+            user.setUsername("fake-user");
+
+            ObjectNode requestJson = JsonNodeFactory.instance.objectNode();
+            requestJson.putObject("request").put("method", "GET");
+            requestJson.put("concurrency", 5);
+
+            ObjectNode responseJson = JsonNodeFactory.instance.objectNode();
+            responseJson.put("completed", 42);
+
+            IUserService userServiceMock = mock(IUserService.class);
+            TestService testServiceMock = mock(TestService.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(testServiceMock.loadTestReposeInstance(any(), anyString(), any())).thenReturn(F.Promise.pure(responseJson));
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.RequestBody requestBody = mock(Http.RequestBody.class);
+            when(requestBody.asJson()).thenReturn(requestJson);
+            Http.Request request = mock(Http.Request.class);
+            when(request.body()).thenReturn(requestBody);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Test(userServiceMock, testServiceMock).load("1").get(5000);
+            assertEquals(200, result.status());
+            assertEquals("{\"completed\":42}", contentAsString(result));
+
+            verify(testServiceMock).loadTestReposeInstance(user, "1", requestJson);
+        });
+    }
+
+    @org.junit.Test
+    public void testLoadInternalServerException() {
+        running(fakeApplication(inMemoryDatabase("test")), () -> {
+
+            User user = new User();
+            user.setTenant("111");
+            user.setToken("fake-token");
+            user.setUsername("fake-user");
+
+            IUserService userServiceMock = mock(IUserService.class);
+            TestService testServiceMock = mock(TestService.class);
+
+            when(userServiceMock.isValid(anyString())).thenReturn(true);
+            when(userServiceMock.findByToken(anyString())).thenReturn(user);
+            when(testServiceMock.loadTestReposeInstance(any(), anyString(), any()))
+                    .thenReturn(F.Promise.throwing(new InternalServerException("Request is malformed.")));
+
+            Map<String, String> flashData = Collections.emptyMap();
+            Map<String, Object> argData = Collections.emptyMap();
+            RequestHeader header = mock(RequestHeader.class);
+            Http.RequestBody requestBody = mock(Http.RequestBody.class);
+            when(requestBody.asJson()).thenReturn(JsonNodeFactory.instance.objectNode());
+            Http.Request request = mock(Http.Request.class);
+            when(request.body()).thenReturn(requestBody);
+            when(request.getHeader("Token")).thenReturn("fake-token");
+            Http.Context context = new Http.Context(2L, header, request, flashData, flashData, argData);
+            Http.Context.current.set(context);
+
+            Result result = new Test(userServiceMock, testServiceMock).load("1").get(5000);
+            assertEquals(500, result.status());
+            assertEquals("{\"message\":\"Request is malformed.\"}", contentAsString(result));
+        });
+    }
+}
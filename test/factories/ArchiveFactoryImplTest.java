@@ -0,0 +1,67 @@
+package factories;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArchiveFactoryImplTest {
+
+    @Test
+    public void testReadTextFiles() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(archive);
+        tarOutputStream.putArchiveEntry(new TarArchiveEntry("repose/"));
+        tarOutputStream.closeArchiveEntry();
+        addFile(tarOutputStream, "repose/current.log", "current log");
+        addFile(tarOutputStream, "repose/error.log", "");
+        tarOutputStream.close();
+
+        Map<String, String> files = new ArchiveFactoryImpl().readTextFiles(
+                new ByteArrayInputStream(archive.toByteArray()), fileName -> true);
+
+        assertEquals(2, files.size());
+        assertEquals("current log", files.get("current.log"));
+        assertEquals("", files.get("error.log"));
+    }
+
+    @Test
+    public void testReadTextFilesFiltered() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(archive);
+        addFile(tarOutputStream, "repose/system-model.cfg.xml", "<system-model/>");
+        addFile(tarOutputStream, "repose/container.cfg.xml", "<repose-container/>");
+        addFile(tarOutputStream, "repose/notes.txt", "not a config");
+        tarOutputStream.close();
+
+        Map<String, String> files = new ArchiveFactoryImpl().readTextFiles(
+                new ByteArrayInputStream(archive.toByteArray()), fileName -> fileName.endsWith(".xml"));
+
+        assertEquals(2, files.size());
+        assertEquals("<system-model/>", files.get("system-model.cfg.xml"));
+        assertEquals("<repose-container/>", files.get("container.cfg.xml"));
+    }
+
+    @Test
+    public void testReadTextFilesEmpty() throws IOException {
+        assertTrue(new ArchiveFactoryImpl().readTextFiles(new ByteArrayInputStream(new byte[0]),
+                fileName -> true).isEmpty());
+    }
+
+    private void addFile(TarArchiveOutputStream tarOutputStream, String name, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(bytes.length);
+        tarOutputStream.putArchiveEntry(entry);
+        tarOutputStream.write(bytes);
+        tarOutputStream.closeArchiveEntry();
+    }
+}
@@ -0,0 +1,130 @@
+package factories;
+
+import com.spotify.docker.client.DockerCertificates;
+import exceptions.InternalServerException;
+import models.User;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.*;
+
+public class CarinaFactoryTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testCreateDockerCertificatesInMemory() throws Exception {
+        DockerCertificates dockerCertificates = new CarinaFactory().createDockerCertificates(getCertificates());
+
+        assertNotNull(dockerCertificates.sslContext());
+    }
+
+    @Test
+    public void testCreateDockerCertificatesMissingKey() throws Exception {
+        Map<String, byte[]> certificates = getCertificates();
+        certificates.remove("key.pem");
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Cluster credentials have no key.pem");
+        new CarinaFactory().createDockerCertificates(certificates);
+    }
+
+    @Test
+    public void testCreateDockerCertificatesInvalid() throws Exception {
+        Map<String, byte[]> certificates = getCertificates();
+        certificates.put("cert.pem", "privkeytest".getBytes(StandardCharsets.UTF_8));
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Unable to load cluster certificates.");
+        new CarinaFactory().createDockerCertificates(certificates);
+    }
+
+    @Test
+    public void testGetCertificateExpiry() throws Exception {
+        Date expiry = new CarinaFactory().getCertificateExpiry(getCertificates().get("cert.pem"));
+
+        //valid for an hour, to the second
+        assertEquals(System.currentTimeMillis() + 3600000, expiry.getTime(), 60000);
+    }
+
+    @Test
+    public void testGetCertificateExpiryInvalid() throws Exception {
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Unable to read the cluster certificate expiry.");
+        new CarinaFactory().getCertificateExpiry("privkeytest".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCreateFileInCarina() throws Exception {
+        User user = new User();
+        user.setTenant("carina-test-" + UUID.randomUUID());
+        CarinaFactory carinaFactory = new CarinaFactory();
+        Path clusterDirectory = carinaFactory.getCarinaDirectoryWithCluster(user.tenant, "fake-cluster");
+        Map<String, byte[]> certificates = getCertificates();
+
+        try {
+            assertFalse(carinaFactory.hasDockerCertificates(clusterDirectory));
+            for (Map.Entry<String, byte[]> certificate : certificates.entrySet())
+                assertTrue(carinaFactory.createFileInCarina(
+                        new ZipEntry("fake-cluster/" + certificate.getKey()), certificate.getValue(), user));
+
+            assertTrue(carinaFactory.hasDockerCertificates(clusterDirectory));
+            //written byte for byte, trailing line break and all
+            assertArrayEquals(certificates.get("key.pem"), Files.readAllBytes(clusterDirectory.resolve("key.pem")));
+            assertNotNull(carinaFactory.createDockerCertificates(clusterDirectory).sslContext());
+            assertEquals(carinaFactory.getCertificateExpiry(certificates.get("cert.pem")),
+                    carinaFactory.getCertificateExpiry(clusterDirectory));
+        } finally {
+            for (String name : certificates.keySet())
+                Files.deleteIfExists(clusterDirectory.resolve(name));
+            Files.deleteIfExists(clusterDirectory);
+            Files.deleteIfExists(carinaFactory.getCarinaDirectory(user.tenant));
+        }
+    }
+
+    private Map<String, byte[]> getCertificates() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(1024);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        X500Name name = new X500Name("CN=fake-cluster");
+        X509Certificate certificate = new JcaX509CertificateConverter().getCertificate(
+                new JcaX509v3CertificateBuilder(name, BigInteger.ONE, new Date(System.currentTimeMillis() - 60000),
+                        new Date(System.currentTimeMillis() + 3600000), name, keyPair.getPublic())
+                        .build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+
+        Map<String, byte[]> certificates = new HashMap<>();
+        certificates.put("ca.pem", toPem(certificate));
+        certificates.put("cert.pem", toPem(certificate));
+        certificates.put("key.pem", toPem(keyPair));
+        return certificates;
+    }
+
+    private byte[] toPem(Object object) throws Exception {
+        StringWriter writer = new StringWriter();
+        try (JcaPEMWriter pemWriter = new JcaPEMWriter(writer)) {
+            pemWriter.writeObject(object);
+        }
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
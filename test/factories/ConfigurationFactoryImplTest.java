@@ -328,4 +328,36 @@ public class ConfigurationFactoryImplTest {
                 filter(t -> "system-model.cfg.xml".equals(t.getName())).findFirst().get().getXml();
         assertFalse(systemModelXml.contains("add-header"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDisableWireLoggingSuccess() throws Exception {
+        ConfigurationFactoryImpl configurationFactory =
+                new ConfigurationFactoryImpl(new XmlFactoryImpl(), filterRepository);
+        String loggingXml = configurationFactory.disableWireLogging(configurationFactory.generateLoggingXml(7));
+
+        assertTrue(loggingXml.contains("<Logger level=\"off\" name=\"org.apache.http.wire\"/>"));
+        assertTrue(loggingXml.contains("intrafilter-logging"));
+
+        //already disabled, still a single wire logger
+        String disabledAgain = configurationFactory.disableWireLogging(loggingXml);
+        assertEquals(loggingXml.split("org.apache.http.wire", -1).length,
+                disabledAgain.split("org.apache.http.wire", -1).length);
+    }
+
+    @Test
+    public void testDisableWireLoggingNoLoggers() throws Exception {
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Logging configuration has no loggers");
+
+        new ConfigurationFactoryImpl(new XmlFactoryImpl(), filterRepository)
+                .disableWireLogging("<Configuration><Appenders/></Configuration>");
+    }
+
+    @Test
+    public void testDisableWireLoggingMalformed() throws Exception {
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Unable to parse logging configuration");
+
+        new ConfigurationFactoryImpl(new XmlFactoryImpl(), filterRepository).disableWireLogging("log4j.rootLogger");
+    }
+}
@@ -0,0 +1,99 @@
+package factories;
+
+import models.BuildContext;
+import models.Configuration;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ImageFactoryImplTest {
+
+    private final List<String> dockerfileLines = Arrays.asList("FROM java:7", "RUN apt-get install repose-valve=7.3.0.0");
+
+    @Test
+    public void testGetReposeImageHashIgnoresConfigurationOrder() {
+        ImageFactory imageFactory = new ImageFactoryImpl();
+
+        String hash = imageFactory.getReposeImageHash("7.3.0.0", dockerfileLines, Arrays.asList(
+                new Configuration("system-model.cfg.xml", "<system-model/>"),
+                new Configuration("container.cfg.xml", "<repose-container/>")));
+
+        assertEquals(64, hash.length());
+        assertEquals(hash, imageFactory.getReposeImageHash("7.3.0.0", dockerfileLines, Arrays.asList(
+                new Configuration("container.cfg.xml", "<repose-container/>"),
+                new Configuration("system-model.cfg.xml", "<system-model/>"))));
+    }
+
+    @Test
+    public void testGetReposeImageHashChangesWithContent() {
+        ImageFactory imageFactory = new ImageFactoryImpl();
+        List<Configuration> configurationList = Arrays.asList(
+                new Configuration("system-model.cfg.xml", "<system-model/>"));
+
+        String hash = imageFactory.getReposeImageHash("7.3.0.0", dockerfileLines, configurationList);
+
+        assertNotEquals(hash, imageFactory.getReposeImageHash("7.3.0.1", dockerfileLines, configurationList));
+        assertNotEquals(hash, imageFactory.getReposeImageHash("7.3.0.0",
+                Arrays.asList("FROM java:8"), configurationList));
+        assertNotEquals(hash, imageFactory.getReposeImageHash("7.3.0.0", dockerfileLines, Arrays.asList(
+                new Configuration("system-model.cfg.xml", "<system-model rewrite=\"true\"/>"))));
+    }
+
+    @Test
+    public void testGetReposeBuildContext() {
+        ImageFactory imageFactory = new ImageFactoryImpl();
+        List<String> dockerfileTemplate = Arrays.asList("FROM java:7",
+                "RUN apt-get install repose-valve=REPOSE_VERSION", "COPY repose_config /etc/repose");
+        List<Configuration> configurationList = Arrays.asList(
+                new Configuration("system-model.cfg.xml", "<system-model/>"),
+                new Configuration("container.cfg.xml", "<repose-container/>"));
+
+        BuildContext buildContext = imageFactory.getReposeBuildContext("7.3.0.0", dockerfileTemplate, configurationList);
+
+        assertEquals(imageFactory.getReposeImageHash("7.3.0.0", Arrays.asList("FROM java:7",
+                "RUN apt-get install repose-valve=7.3.0.0", "COPY repose_config /etc/repose"), configurationList),
+                buildContext.getContentHash());
+        assertEquals(3, buildContext.getFiles().size());
+        String dockerfile = new String(buildContext.getFiles().get("Dockerfile"), StandardCharsets.UTF_8);
+        assertTrue(dockerfile.contains("repose-valve=7.3.0.0\n"));
+        assertTrue(dockerfile.contains("LABEL " + ImageFactory.CONTENT_HASH_LABEL + "=" +
+                buildContext.getContentHash() + "\n"));
+        assertTrue(dockerfile.contains(IContainerFactory.VERSION_LABEL + "=7.3.0.0"));
+        assertFalse(dockerfile.contains(IContainerFactory.TENANT_LABEL));
+        assertEquals("<system-model/>", new String(
+                buildContext.getFiles().get("repose_config/system-model.cfg.xml"), StandardCharsets.UTF_8));
+        assertEquals("<repose-container/>", new String(
+                buildContext.getFiles().get("repose_config/container.cfg.xml"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testGetOriginBuildContext() throws IOException {
+        Path directory = Files.createTempDirectory("origin-image");
+        Path dockerfile = Files.write(directory.resolve("Dockerfile"), "FROM node:argon".getBytes(StandardCharsets.UTF_8));
+        Path backend = Files.write(directory.resolve("backend.js"), "console.log('hi')".getBytes(StandardCharsets.UTF_8));
+
+        ImageFactory imageFactory = new ImageFactoryImpl();
+        BuildContext buildContext = imageFactory.getOriginBuildContext(Arrays.asList(dockerfile, backend));
+        String hash = buildContext.getContentHash();
+        assertEquals(hash, imageFactory.getOriginBuildContext(Arrays.asList(dockerfile, backend)).getContentHash());
+        assertEquals("FROM node:argon\nLABEL " + ImageFactory.CONTENT_HASH_LABEL + "=" + hash + "\n" +
+                        "LABEL " + IContainerFactory.ROLE_LABEL + "=" + IContainerFactory.ROLE_ORIGIN + "\n",
+                new String(buildContext.getFiles().get("Dockerfile"), StandardCharsets.UTF_8));
+        assertEquals("console.log('hi')",
+                new String(buildContext.getFiles().get("backend.js"), StandardCharsets.UTF_8));
+
+        Files.write(backend, "console.log('bye')".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(hash, imageFactory.getOriginBuildContext(Arrays.asList(dockerfile, backend)).getContentHash());
+
+        Files.delete(dockerfile);
+        Files.delete(backend);
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,134 @@
+package factories;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LogFactoryImplTest {
+
+    private InputStream log(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private <T> T collect(LogFactory.LineCollector<T> collector, InputStream log, long maxBytes) throws IOException {
+        return collector.finish(new LogFactoryImpl().readLines(log, maxBytes, collector));
+    }
+
+    @Test
+    public void testReadLines() throws IOException {
+        List<String> lines = new ArrayList<>();
+        assertFalse(new LogFactoryImpl().readLines(log("first\nsecond\n"), 1024, lines::add));
+        assertEquals(2, lines.size());
+        assertEquals("second", lines.get(1));
+    }
+
+    @Test
+    public void testReadLinesTruncated() throws IOException {
+        List<String> lines = new ArrayList<>();
+        assertTrue(new LogFactoryImpl().readLines(log("first\nsecond\n"), 8, lines::add));
+        assertEquals(2, lines.size());
+        assertEquals("first", lines.get(0));
+        assertEquals("se", lines.get(1));
+    }
+
+    @Test
+    public void testTextCollector() throws IOException {
+        LogFactory logFactory = new LogFactoryImpl();
+        assertEquals("current log\n", collect(logFactory.newTextCollector(12), log("current log\n"), 12));
+        assertEquals("current\n" + logFactory.getTruncationMarker(7),
+                collect(logFactory.newTextCollector(7), log("current log\n"), 7));
+    }
+
+    @Test
+    public void testErrorEntriesCollector() throws IOException {
+        List<String> entries = collect(new LogFactoryImpl().newErrorEntriesCollector(1024),
+                log("starting\n2016 ERROR one\n  at stack\n2016 ERROR two\n"), 1024);
+
+        assertEquals(3, entries.size());
+        assertEquals("starting\n2016 ", entries.get(0));
+        assertEquals(" one\n  at stack\n2016 ", entries.get(1));
+        assertEquals(" two\n", entries.get(2));
+    }
+
+    @Test
+    public void testErrorEntriesCollectorEmpty() throws IOException {
+        List<String> entries = collect(new LogFactoryImpl().newErrorEntriesCollector(1024), log(""), 1024);
+        assertEquals(1, entries.size());
+        assertEquals("", entries.get(0));
+    }
+
+    @Test
+    public void testIntraFilterCollector() throws IOException {
+        List<JsonNode> entries = collect(new LogFactoryImpl().newIntraFilterCollector(1024), log(
+                "2016 TRACE intrafilter-logging - {\"currentFilter\":\"add-header\"}\n" +
+                        "2016 TRACE something else\n" +
+                        "2016 TRACE intrafilter-logging - {\"currentFilter\":\n" +
+                        "\n" +
+                        "2016 TRACE intrafilter-logging - {\"currentFilter\":\"header-normalization\"}\n"), 1024);
+
+        assertEquals(2, entries.size());
+        assertEquals("add-header", entries.get(0).get("currentFilter").asText());
+        assertEquals("header-normalization", entries.get(1).get("currentFilter").asText());
+    }
+
+    @Test
+    public void testIntraFilterCollectorTruncated() throws IOException {
+        String line = "2016 TRACE intrafilter-logging - {\"currentFilter\":\"add-header\"}\n";
+        LogFactory logFactory = new LogFactoryImpl();
+        List<JsonNode> entries = collect(logFactory.newIntraFilterCollector(line.length() + 10), log(line + line),
+                line.length() + 10);
+
+        assertEquals(2, entries.size());
+        assertEquals("add-header", entries.get(0).get("currentFilter").asText());
+        assertEquals(logFactory.getTruncationMarker(line.length() + 10), entries.get(1).get("truncated").asText());
+    }
+
+    @Test
+    public void testReadTransactions() throws IOException {
+        LogFactory logFactory = new LogFactoryImpl();
+        Map<String, LogFactory.LineCollector<List<String>>> collectors = new HashMap<>();
+        collectors.put("trans-1", logFactory.newErrorEntriesCollector(1024));
+        collectors.put("trans-2", logFactory.newErrorEntriesCollector(1024));
+        collectors.put("trans-3", logFactory.newErrorEntriesCollector(1024));
+        List<String> unattributed = new ArrayList<>();
+
+        assertFalse(logFactory.readTransactions(log(
+                "starting\n" +
+                        "2016-03-22 07:13:14,384 [trans-1] ERROR one\n" +
+                        "  at stack\n" +
+                        "2016-03-22 07:13:14,385 [trans-2] ERROR two\n" +
+                        "2016-03-22 07:13:14,386 [trans-4] ERROR four\n"), 1024, collectors, unattributed::add));
+
+        assertEquals(" one\n  at stack\n", collectors.get("trans-1").finish(false).get(1));
+        assertEquals(" two\n", collectors.get("trans-2").finish(false).get(1));
+        assertTrue(collectors.get("trans-3").isEmpty());
+        assertTrue(unattributed.isEmpty());
+    }
+
+    @Test
+    public void testReadTransactionsUnattributed() throws IOException {
+        LogFactory logFactory = new LogFactoryImpl();
+        LogFactory.LineCollector<String> collector = logFactory.newTextCollector(30);
+        LogFactory.LineCollector<String> unattributed = logFactory.newTextCollector(30);
+
+        boolean truncated = logFactory.readTransactions(log(
+                "2016-03-22 07:13:14,384 one\n2016-03-22 07:13:14,385 two\n"), 30,
+                Collections.singletonMap("trans-1", collector), unattributed);
+
+        assertTrue(truncated);
+        assertTrue(collector.isEmpty());
+        assertEquals("2016-03-22 07:13:14,384 one\n20\n" + logFactory.getTruncationMarker(30),
+                unattributed.finish(truncated));
+    }
+}
@@ -0,0 +1,68 @@
+package factories;
+
+import com.google.common.collect.ImmutableList;
+import models.Container;
+import models.ContainerStatus;
+import models.User;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpotifyContainerFactoryTest {
+
+    private com.spotify.docker.client.messages.Container dockerContainer(String id, String name, String status,
+                                                                         String tenant, String role, String version) {
+        Map<String, String> labels = new HashMap<>();
+        if(tenant != null)
+            labels.put(IContainerFactory.TENANT_LABEL, tenant);
+        if(role != null)
+            labels.put(IContainerFactory.ROLE_LABEL, role);
+        if(version != null)
+            labels.put(IContainerFactory.VERSION_LABEL, version);
+
+        com.spotify.docker.client.messages.Container container =
+                mock(com.spotify.docker.client.messages.Container.class);
+        when(container.id()).thenReturn(id);
+        when(container.names()).thenReturn(ImmutableList.of("/" + name));
+        when(container.status()).thenReturn(status);
+        when(container.labels()).thenReturn(labels);
+        return container;
+    }
+
+    @Test
+    public void testTranslateContainersByLabels() {
+        User user = new User();
+        user.setTenant("111");
+
+        List<Container> containerList = new SpotifyContainerFactory().translateContainers(Arrays.asList(
+                dockerContainer("1", "repose-111-7_3_0_0", "Up 2 minutes", "111", "repose", "7.3.0.0"),
+                dockerContainer("2", "repose-111-8_0_0_1", "Exited (0) 1 minute ago", "111", "repose", "8.0.0.1"),
+                dockerContainer("3", "repose-origin-111-7-3-0-0", "Up 2 minutes", "111", "origin", "7.3.0.0"),
+                dockerContainer("4", "repose-222-7_3_0_0", "Up 2 minutes", "222", "repose", "7.3.0.0"),
+                dockerContainer("5", "repose-111-unlabeled", "Up 2 minutes", null, null, null)), user);
+
+        assertEquals(2, containerList.size());
+        assertEquals("1", containerList.get(0).getId());
+        assertEquals("repose-111-7_3_0_0", containerList.get(0).getName());
+        assertEquals("7.3.0.0", containerList.get(0).getVersion());
+        assertEquals(ContainerStatus.STARTED, containerList.get(0).getContainerStatus());
+        assertEquals("2", containerList.get(1).getId());
+        assertEquals("8.0.0.1", containerList.get(1).getVersion());
+        assertEquals(ContainerStatus.STOPPED, containerList.get(1).getContainerStatus());
+    }
+
+    @Test
+    public void testTranslateContainersNull() {
+        User user = new User();
+        user.setTenant("111");
+
+        assertTrue(new SpotifyContainerFactory().translateContainers(null, user).isEmpty());
+    }
+}
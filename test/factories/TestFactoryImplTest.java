@@ -432,4 +432,74 @@ public class TestFactoryImplTest {
         assertEquals(0, externalRequests.size());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGenerateDebugMessageMapOfTransaction() {
+        List<String> httpDebugLogList = new ArrayList<String>(){
+            {
+                add("2016-03-07 21:57:25,645 263018283 [qtp285433336-4446] [trans-1] DEBUG org.apache.http.impl.conn.PoolingClientConnectionManager - Connection request: [route: {}->http://repose-origin-732438-7-3-2-0:8000]");
+                add("2016-03-07 21:57:25,645 263018283 [qtp285433336-4447] [trans-2] DEBUG org.apache.http.impl.conn.PoolingClientConnectionManager - Connection request: [route: {}->http://repose-origin-732438-7-3-2-0:8000]");
+                add("2016-03-07 21:57:25,723 263018361 [qtp285433336-4446] [trans-1] DEBUG org.apache.http.wire -  >> \"GET / HTTP/1.1[\\r][\\n]\"");
+                add("2016-03-07 21:57:25,723 263018361 [qtp285433336-4447] [trans-2] DEBUG org.apache.http.wire -  >> \"POST / HTTP/1.1[\\r][\\n]\"");
+                add("2016-03-07 21:57:25,723 263018361 [qtp285433336-4446] [trans-1] DEBUG org.apache.http.wire -  >> \"Host: repose-origin-732438-7-3-2-0:8000[\\r][\\n]\"");
+                add("2016-03-07 21:57:25,723 263018361 [qtp285433336-4447] [trans-2] DEBUG org.apache.http.wire -  << \"HTTP/1.1 201 Created[\\r][\\n]\"");
+                add("2016-03-07 21:57:25,723 263018361 [qtp285433336-4446] [trans-1] DEBUG org.apache.http.wire -  << \"HTTP/1.1 200 OK[\\r][\\n]\"");
+            }
+        };
+
+        Map<?,?> debugMessageMap = new TestFactoryImpl().generateDebugMessageMap(httpDebugLogList, "trans-1");
+
+        assertEquals(1, ((List<String>)debugMessageMap.get("poolMessages")).size());
+
+        List<Map<String, List<String>>> externalRequests =
+                (List<Map<String, List<String>>>)debugMessageMap.get("externalRequests");
+        assertEquals(1, externalRequests.size());
+        assertEquals(2, externalRequests.get(0).get("request").size());
+        assertEquals(">> \"GET / HTTP/1.1[\\r][\\n]\"", externalRequests.get(0).get("request").get(0));
+        assertEquals(1, externalRequests.get(0).get("response").size());
+        assertEquals("<< \"HTTP/1.1 200 OK[\\r][\\n]\"", externalRequests.get(0).get("response").get(0));
+
+        //no transaction id, every line
+        assertEquals(2, ((List<String>) new TestFactoryImpl().generateDebugMessageMap(httpDebugLogList, null)
+                .get("poolMessages")).size());
+    }
+
+    @Test
+    public void testGetTransIdHeader() {
+        String header = new TestFactoryImpl().getTransIdHeader("293f3601-c9e1-49f7-9ba0-50a995cdbd79");
+
+        //same header repose sends to the origin for its own requests
+        assertEquals("eyJyZXF1ZXN0SWQiOiIyOTNmMzYwMS1jOWUxLTQ5ZjctOWJhMC01MGE5OTVjZGJkNzkiLCJvcmlnaW4iOm51bGx9", header);
+    }
+
+    @Test
+    public void testGetTransId() {
+        TestFactory testFactory = new TestFactoryImpl();
+
+        assertEquals("293f3601-c9e1-49f7-9ba0-50a995cdbd79", testFactory.getTransId(
+                "eyJyZXF1ZXN0SWQiOiIyOTNmMzYwMS1jOWUxLTQ5ZjctOWJhMC01MGE5OTVjZGJkNzkiLCJvcmlnaW4iOm51bGx9"));
+        assertEquals("my-trans-id", testFactory.getTransId(testFactory.getTransIdHeader("my-trans-id")));
+        //not a tracing header, repose logs it as it is
+        assertEquals("my-trans-id", testFactory.getTransId("my-trans-id"));
+        assertEquals("abcd", testFactory.getTransId("abcd"));
+        assertEquals("e30=", testFactory.getTransId("e30="));
+    }
+
+    @Test
+    public void testParseLogOffsetsSuccess() {
+        Map<String, Long> logOffsets = new TestFactoryImpl().parseLogOffsets(
+                "1024 /var/log/repose/current.log\n" +
+                "0 /var/log/repose/http-debug.log\n" +
+                "stat: cannot stat '/var/log/repose/error.log': No such file or directory\n");
+
+        assertEquals(2, logOffsets.size());
+        assertEquals(Long.valueOf(1024L), logOffsets.get("current.log"));
+        assertEquals(Long.valueOf(0L), logOffsets.get("http-debug.log"));
+        assertNull(logOffsets.get("error.log"));
+    }
+
+    @Test
+    public void testParseLogOffsetsNull() {
+        assertTrue(new TestFactoryImpl().parseLogOffsets(null).isEmpty());
+    }
+}
@@ -0,0 +1,58 @@
+package models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        long previousHighest = -1;
+        for (int index = 0; index < 128 + 33 * 64; index++) {
+            long highest = LatencyHistogram.getHighestEquivalentValue(index);
+            assertTrue(highest > previousHighest);
+            assertEquals(index, LatencyHistogram.getIndex(previousHighest + 1));
+            assertEquals(index, LatencyHistogram.getIndex(highest));
+            previousHighest = highest;
+        }
+        assertEquals((1L << 40) - 1, previousHighest);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++)
+            histogram.record(value);
+
+        assertEquals(10000, histogram.getTotalCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+        assertEquals(5000, histogram.getValueAtPercentile(50), 5000 / 64);
+        assertEquals(9900, histogram.getValueAtPercentile(99), 9900 / 64);
+        assertEquals(10000, histogram.getValueAtPercentile(100));
+        assertEquals(100, histogram.getValueAtPercentile(1));
+    }
+
+    @Test
+    public void testRecordClampsValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getMin());
+        assertEquals((1L << 40) - 1, histogram.getMax());
+        assertEquals((1L << 40) - 1, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testToJsonEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.toJson().get("count").asLong());
+        assertEquals(0, histogram.toJson().get("min").asLong());
+        assertEquals(0, histogram.toJson().get("p99").asLong());
+        assertEquals(0, histogram.toJson().get("max").asLong());
+    }
+}
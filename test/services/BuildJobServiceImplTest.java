@@ -0,0 +1,263 @@
+package services;
+
+import clients.BuildCoordinator;
+import clients.BuildListener;
+import clients.ClusterExecutors;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.MoreExecutors;
+import exceptions.InternalServerException;
+import exceptions.NotFoundException;
+import factories.ConfigurationFactory;
+import factories.IClusterFactory;
+import models.BuildJob;
+import models.Configuration;
+import models.ReposeEnvironmentType;
+import models.User;
+import org.junit.Before;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class BuildJobServiceImplTest {
+
+    private User user;
+    private List<Configuration> configurationList;
+    private IReposeService reposeService;
+    private ConfigurationFactory configurationFactory;
+    private ClusterExecutors clusterExecutors;
+    private IClusterFactory clusterFactory;
+    private BuildCoordinator buildCoordinator;
+
+    @Before
+    public void setUp() {
+        //set up mock user
+        user = new User();
+        user.setTenant("111");
+        user.setToken("fake-token");
+        user.setUserid("1");
+        user.setUsername("fake-user");
+
+        configurationList = new ArrayList<Configuration>(){
+            {
+                add(new Configuration("add-header", "lotsaxml"));
+            }
+        };
+
+        reposeService = mock(IReposeService.class);
+        configurationFactory = mock(ConfigurationFactory.class);
+        clusterExecutors = mock(ClusterExecutors.class);
+        clusterFactory = mock(IClusterFactory.class);
+        buildCoordinator = mock(BuildCoordinator.class);
+
+        //run jobs on the calling thread
+        when(clusterExecutors.getJobExecutor()).thenReturn(MoreExecutors.newDirectExecutorService());
+        when(clusterFactory.getBuildJobRetentionMinutes()).thenReturn(60L);
+    }
+
+    @Test
+    public void testSubmitSuccess() throws Exception {
+        when(configurationFactory.translateConfigurationsFromJson(any(), anyString(), any()))
+                .thenReturn(configurationList);
+        when(reposeService.setUpReposeEnvironment(any(), any(), anyString(), any(), any())).thenAnswer(invocation -> {
+            BuildListener listener = (BuildListener) invocation.getArguments()[4];
+            listener.phase(BuildListener.IMAGE);
+            listener.progress("Step 1 : FROM ubuntu\n");
+            listener.progress("  ");
+            listener.phase(BuildListener.CONTAINER);
+            return "repose-id";
+        });
+
+        BuildJob job = new BuildJobServiceImpl(reposeService, configurationFactory, clusterExecutors, clusterFactory,
+                buildCoordinator)
+                .submit(user, "1", Json.newObject());
+
+        assertEquals(BuildJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals("repose-id", job.getReposeId());
+        assertEquals("success", job.getMessage());
+        assertEquals(3, job.getPhases().size());
+        assertEquals(BuildListener.CONFIGURATION, job.getPhases().get(0).getName());
+        assertEquals(BuildListener.IMAGE, job.getPhases().get(1).getName());
+        assertEquals("Step 1 : FROM ubuntu", job.getPhases().get(1).getProgress());
+        assertEquals(BuildListener.CONTAINER, job.getPhases().get(2).getName());
+        job.getPhases().forEach(phase -> assertNotNull(phase.getDurationMillis()));
+
+        verify(reposeService).setUpReposeEnvironment(eq(ReposeEnvironmentType.GENERATED_ORIGIN), eq(user),
+                eq("1"), eq(configurationList), any());
+    }
+
+    @Test
+    public void testSubmitNull() throws Exception {
+        when(configurationFactory.translateConfigurationsFromJson(any(), anyString(), any()))
+                .thenReturn(configurationList);
+        when(reposeService.setUpReposeEnvironment(any(), any(), anyString(), any(), any())).thenReturn(null);
+
+        BuildJob job = new BuildJobServiceImpl(reposeService, configurationFactory, clusterExecutors, clusterFactory,
+                buildCoordinator)
+                .submit(user, "1", Json.newObject());
+
+        assertEquals(BuildJob.Status.FAILED, job.getStatus());
+        assertNull(job.getReposeId());
+        assertEquals("unable to create repose environment.", job.getMessage());
+    }
+
+    @Test
+    public void testSubmitNotFoundException() throws Exception {
+        when(configurationFactory.translateConfigurationsFromJson(any(), anyString(), any()))
+                .thenThrow(new NotFoundException("Not found"));
+
+        BuildJob job = new BuildJobServiceImpl(reposeService, configurationFactory, clusterExecutors, clusterFactory,
+                buildCoordinator)
+                .submit(user, "1", Json.newObject());
+
+        assertEquals(BuildJob.Status.FAILED, job.getStatus());
+        assertEquals("Not found", job.getMessage());
+        assertEquals(1, job.getPhases().size());
+        verify(reposeService, never()).setUpReposeEnvironment(any(), any(), anyString(), any(), any());
+    }
+
+    @Test
+    public void testSubmitInternalServerException() throws Exception {
+        when(configurationFactory.translateConfigurationsFromJson(any(), anyString(), any()))
+                .thenReturn(configurationList);
+        when(reposeService.setUpReposeEnvironment(any(), any(), anyString(), any(), any()))
+                .thenThrow(new InternalServerException("Failed"));
+
+        BuildJob job = new BuildJobServiceImpl(reposeService, configurationFactory, clusterExecutors, clusterFactory,
+                buildCoordinator)
+                .submit(user, "1", Json.newObject());
+
+        assertEquals(BuildJob.Status.FAILED, job.getStatus());
+        assertEquals("Failed", job.getMessage());
+    }
+
+    @Test
+    public void testGetJobOtherUser() throws Exception {
+        when(configurationFactory.translateConfigurationsFromJson(any(), anyString(), any()))
+                .thenReturn(configurationList);
+        when(reposeService.setUpReposeEnvironment(any(), any(), anyString(), any(), any())).thenReturn("repose-id");
+
+        BuildJobService buildJobService =
+                new BuildJobServiceImpl(reposeService, configurationFactory, clusterExecutors, clusterFactory,
+                        buildCoordinator);
+        BuildJob job = buildJobService.submit(user, "1", Json.newObject());
+
+        User otherUser = new User();
+        otherUser.setUsername("other-user");
+
+        assertSame(job, buildJobService.getJob(user, job.getId()));
+        assertNull(buildJobService.getJob(otherUser, job.getId()));
+        assertNull(buildJobService.getJob(user, "does-not-exist"));
+    }
+
+    @Test
+    public void testSubscribeFinishedJob() throws Exception {
+        when(configurationFactory.translateConfigurationsFromJson(any(), anyString(), any()))
+                .thenReturn(configurationList);
+        when(reposeService.setUpReposeEnvironment(any(), any(), anyString(), any(), any())).thenReturn("repose-id");
+
+        BuildJobService buildJobService =
+                new BuildJobServiceImpl(reposeService, configurationFactory, clusterExecutors, clusterFactory,
+                        buildCoordinator);
+        BuildJob job = buildJobService.submit(user, "1", Json.newObject());
+
+        List<String> events = new ArrayList<>();
+        assertTrue(buildJobService.subscribe(user, job.getId(), (type, payload) -> events.add(type)));
+        assertEquals(2, events.size());
+        assertEquals(BuildJobService.STATUS, events.get(0));
+        assertEquals(BuildJobService.DONE, events.get(1));
+
+        assertFalse(buildJobService.subscribe(user, "does-not-exist", (type, payload) -> events.add(type)));
+    }
+
+    @Test
+    public void testSubscribeRunningJob() throws Exception {
+        when(configurationFactory.translateConfigurationsFromJson(any(), anyString(), any()))
+                .thenReturn(configurationList);
+        //queue the job until the subscriber is there
+        List<Runnable> queued = new ArrayList<>();
+        when(clusterExecutors.getJobExecutor()).thenReturn(new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return queued;
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return true;
+            }
+        });
+        when(reposeService.setUpReposeEnvironment(any(), any(), anyString(), any(), any())).thenAnswer(invocation -> {
+            BuildListener listener = (BuildListener) invocation.getArguments()[4];
+            listener.phase(BuildListener.IMAGE);
+            listener.progress("Successfully built 1234");
+            return "repose-id";
+        });
+
+        BuildJobService buildJobService =
+                new BuildJobServiceImpl(reposeService, configurationFactory, clusterExecutors, clusterFactory,
+                        buildCoordinator);
+        BuildJob job = buildJobService.submit(user, "1", Json.newObject());
+        assertEquals(BuildJob.Status.PENDING, job.getStatus());
+
+        List<String> events = new ArrayList<>();
+        List<JsonNode> payloads = new ArrayList<>();
+        BiConsumer<String, JsonNode> listener = (type, payload) -> {
+            events.add(type);
+            payloads.add(payload);
+        };
+        assertTrue(buildJobService.subscribe(user, job.getId(), listener));
+        queued.forEach(Runnable::run);
+
+        assertEquals(BuildJobService.STATUS, events.get(0));
+        assertEquals(BuildJobService.PHASE, events.get(1));
+        assertEquals(BuildJobService.PHASE, events.get(2));
+        assertEquals(BuildJobService.PROGRESS, events.get(3));
+        assertEquals(BuildListener.IMAGE, payloads.get(3).get("phase").asText());
+        assertEquals("Successfully built 1234", payloads.get(3).get("message").asText());
+        assertEquals(BuildJobService.DONE, events.get(events.size() - 1));
+        assertEquals("repose-id", payloads.get(events.size() - 1).get("reposeId").asText());
+    }
+
+    @Test
+    public void testGetQueueStats() throws Exception {
+        ObjectNode stats = Json.newObject();
+        stats.put("depth", 2);
+        when(buildCoordinator.getQueueStats("111")).thenReturn(stats);
+
+        BuildJobService buildJobService = new BuildJobServiceImpl(reposeService, configurationFactory,
+                clusterExecutors, clusterFactory, buildCoordinator);
+
+        assertEquals(2, buildJobService.getQueueStats(user).get("depth").asInt());
+    }
+}
@@ -0,0 +1,272 @@
+package services;
+
+import clients.ClusterExecutors;
+import clients.DockerClientCache;
+import clients.ICarinaClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.spotify.docker.client.DockerCertificates;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.DockerException;
+import exceptions.InternalServerException;
+import exceptions.NotFoundException;
+import factories.IClusterFactory;
+import models.Cluster;
+import models.User;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import play.libs.F;
+import repositories.IClusterRepository;
+
+import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ClusterHealthServiceImplTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    private final ICarinaClient carinaClient = mock(ICarinaClient.class);
+    private final IClusterRepository clusterRepository = mock(IClusterRepository.class);
+    private final DockerClientCache dockerClientCache = mock(DockerClientCache.class);
+    private final ClusterExecutors clusterExecutors = mock(ClusterExecutors.class);
+    private final IClusterFactory clusterFactory = mock(IClusterFactory.class);
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    private final DockerClient dockerClient = mock(DockerClient.class);
+    private final IClusterService clusterService = mock(IClusterService.class);
+
+    private ClusterHealthServiceImpl clusterHealthService;
+    private Cluster cluster;
+    private User user;
+
+    @Before
+    public void setUp() throws Exception {
+        when(clusterExecutors.getScheduler()).thenReturn(scheduler);
+        when(clusterExecutors.getStatsExecutor(any())).thenReturn(MoreExecutors.newDirectExecutorService());
+        when(clusterFactory.getClusterHealthIntervalMillis()).thenReturn(10000L);
+        when(clusterFactory.getClusterHealthIdleMinutes()).thenReturn(30L);
+        when(clusterFactory.getClusterHealthFailureThreshold()).thenReturn(2);
+        when(clusterFactory.getClusterCertificateRefreshHours()).thenReturn(24L);
+        DockerClientCache.Lease lease = mock(DockerClientCache.Lease.class);
+        when(lease.client()).thenReturn(dockerClient);
+        when(dockerClientCache.lease(any())).thenReturn(lease);
+
+        cluster = getCluster(1L, "fake-uri");
+        user = new User();
+        user.id = 1L;
+        user.setTenant("111");
+
+        clusterHealthService = new ClusterHealthServiceImpl(carinaClient, clusterRepository, dockerClientCache,
+                clusterExecutors, clusterFactory, () -> clusterService);
+    }
+
+    @Test
+    public void testProbeHealthy() throws Exception {
+        when(dockerClient.ping()).thenReturn("OK");
+
+        clusterHealthService.check(cluster, user);
+        clusterHealthService.probe(cluster).get(5000);
+
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(10000L), eq(TimeUnit.MILLISECONDS));
+        verify(carinaClient, never()).getClusterWithZipAsync(any(), anyString());
+        JsonNode health = getHealth();
+        assertEquals("fake-name", health.get("name").asText());
+        assertTrue(health.get("healthy").asBoolean());
+        assertEquals(1, health.get("probes").asLong());
+        assertEquals(0, health.get("failures").asInt());
+        assertTrue(health.get("lastError").isNull());
+        assertEquals(1, health.get("latencyMicros").get("count").asLong());
+    }
+
+    @Test
+    public void testCheckOnce() throws Exception {
+        clusterHealthService.check(cluster, user);
+        clusterHealthService.check(getCluster(1L, "fake-uri"), user);
+
+        //the same cluster loaded again isn't probed twice
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), any());
+        assertEquals(1, clusterHealthService.getHealth(user).get("clusters").size());
+    }
+
+    @Test
+    public void testCheckNotProvisioned() throws Exception {
+        clusterHealthService.check(new Cluster(), user);
+
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any());
+        assertEquals(0, clusterHealthService.getHealth(user).get("clusters").size());
+    }
+
+    @Test
+    public void testProbeFailingRefreshesCredentials() throws Exception {
+        DockerCertificates dockerCertificates = mock(DockerCertificates.class);
+        Cluster refreshed = getCluster(null, "new-uri");
+        refreshed.setDockerCertificates(dockerCertificates);
+        when(dockerClient.ping()).thenThrow(new DockerException("connection refused"))
+                .thenThrow(new DockerException("connection refused")).thenReturn("OK");
+        when(carinaClient.getClusterWithZipAsync(user, "fake-name")).thenReturn(F.Promise.pure(refreshed));
+
+        clusterHealthService.check(cluster, user);
+        clusterHealthService.probe(cluster).get(5000);
+        //one failure is not enough
+        verify(carinaClient, never()).getClusterWithZipAsync(any(), anyString());
+        assertTrue(getHealth().get("healthy").asBoolean());
+        assertEquals("connection refused", getHealth().get("lastError").asText());
+
+        clusterHealthService.probe(cluster).get(5000);
+
+        //the cached cluster is left alone, lookups get the replacement
+        assertEquals("fake-uri", cluster.getUri());
+        Cluster replacement = clusterHealthService.check(cluster, user);
+        assertNotSame(cluster, replacement);
+        assertEquals(cluster.id, replacement.id);
+        assertEquals("new-uri", replacement.getUri());
+        assertSame(dockerCertificates, replacement.getDockerCertificates());
+        verify(dockerClientCache).invalidate(cluster);
+        verify(clusterExecutors).evict(cluster);
+        verify(clusterRepository).update(replacement);
+        verify(clusterRepository, never()).save(any());
+        JsonNode health = getHealth();
+        assertTrue(health.get("healthy").asBoolean());
+        assertEquals("new-uri", health.get("uri").asText());
+        assertEquals(3, health.get("probes").asLong());
+        assertEquals(1, health.get("refreshes").asLong());
+        assertSame(replacement, clusterHealthService.check(replacement, user));
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(10000L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testProbeRefreshDoesNotWait() throws Exception {
+        F.RedeemablePromise<Cluster> download = F.RedeemablePromise.empty();
+        when(dockerClient.ping()).thenThrow(new DockerException("connection refused"));
+        when(carinaClient.getClusterWithZipAsync(user, "fake-name")).thenReturn(download);
+
+        clusterHealthService.check(cluster, user);
+        clusterHealthService.probe(cluster).get(5000);
+        F.Promise<Void> probe = clusterHealthService.probe(cluster);
+
+        //still waiting for carina, without a thread
+        assertEquals(0, getHealth().get("refreshes").asLong());
+        assertSame(cluster, clusterHealthService.check(cluster, user));
+
+        download.failure(new InternalServerException("Timed out downloading cluster certificates."));
+        probe.get(5000);
+
+        assertFalse(getHealth().get("healthy").asBoolean());
+        assertEquals("connection refused", getHealth().get("lastError").asText());
+    }
+
+    @Test
+    public void testHealthOnlyForUser() throws Exception {
+        User otherUser = new User();
+        otherUser.id = 2L;
+        otherUser.setTenant("222");
+        Cluster otherCluster = getCluster(2L, "other-uri");
+        otherCluster.setUser(2L);
+
+        clusterHealthService.check(cluster, user);
+        clusterHealthService.check(otherCluster, otherUser);
+
+        assertEquals(1, clusterHealthService.getHealth(user).get("clusters").size());
+        assertEquals("fake-uri", getHealth().get("uri").asText());
+        assertEquals("other-uri", clusterHealthService.getHealth(otherUser).get("clusters").get(0).get("uri").asText());
+        assertEquals(0, clusterHealthService.getHealth(null).get("clusters").size());
+    }
+
+    @Test
+    public void testProbeUnhealthy() throws Exception {
+        when(dockerClient.ping()).thenThrow(new DockerException("connection refused"));
+        when(carinaClient.getClusterWithZipAsync(user, "fake-name"))
+                .thenReturn(F.Promise.throwing(new InternalServerException("Didn't expect that!")));
+
+        clusterHealthService.check(cluster, user);
+        clusterHealthService.probe(cluster).get(5000);
+        clusterHealthService.probe(cluster).get(5000);
+
+        JsonNode health = getHealth();
+        assertFalse(health.get("healthy").asBoolean());
+        assertEquals(2, health.get("failures").asInt());
+        assertEquals(0, health.get("refreshes").asLong());
+        verify(clusterRepository, never()).update(any());
+        verify(clusterService, never()).invalidate(anyString(), any());
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Cluster fake-name is unhealthy: connection refused");
+        clusterHealthService.check(cluster, user);
+    }
+
+    @Test
+    public void testProbeGone() throws Exception {
+        when(dockerClient.ping()).thenThrow(new DockerException("connection refused"));
+        when(carinaClient.getClusterWithZipAsync(user, "fake-name"))
+                .thenReturn(F.Promise.throwing(new NotFoundException("Cluster not found.")));
+
+        clusterHealthService.check(cluster, user);
+        clusterHealthService.probe(cluster).get(5000);
+        clusterHealthService.probe(cluster).get(5000);
+
+        verify(clusterRepository).delete(cluster);
+        verify(clusterExecutors).evict(cluster);
+        //the next lookup provisions a new cluster instead of failing on the cached one
+        verify(clusterService).invalidate("fake-name", user);
+        assertTrue(getHealth().get("gone").asBoolean());
+        try {
+            clusterHealthService.check(cluster, user);
+            fail("gone cluster passed the check");
+        } catch (InternalServerException ise) {
+            assertTrue(ise.getLocalizedMessage().contains("gone"));
+        }
+
+        //the cluster provisioned in its place starts over
+        clusterHealthService.check(getCluster(2L, "new-uri"), user);
+        verify(scheduler, times(2)).schedule(any(Runnable.class), eq(10000L), eq(TimeUnit.MILLISECONDS));
+        assertTrue(getHealth().get("healthy").asBoolean());
+    }
+
+    @Test
+    public void testProbeRefreshesExpiringCertificates() throws Exception {
+        Date expiry = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        Date refreshedExpiry = new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(30));
+        Cluster refreshed = getCluster(null, "fake-uri");
+        refreshed.setDockerCertificates(mock(DockerCertificates.class));
+        refreshed.setCertificatesExpireAt(refreshedExpiry);
+        when(dockerClient.ping()).thenReturn("OK");
+        when(carinaClient.getCertificateExpiry(cluster)).thenReturn(expiry);
+        when(carinaClient.getClusterWithZipAsync(user, "fake-name")).thenReturn(F.Promise.pure(refreshed));
+
+        clusterHealthService.check(cluster, user);
+        clusterHealthService.probe(cluster).get(5000);
+
+        assertNull(cluster.getCertificatesExpireAt());
+        Cluster replacement = clusterHealthService.check(cluster, user);
+        assertSame(refreshedExpiry, replacement.getCertificatesExpireAt());
+        assertSame(refreshed.getDockerCertificates(), replacement.getDockerCertificates());
+        //same uri and cert directory, nothing to save
+        verify(clusterRepository, never()).update(any());
+        verify(clusterExecutors, never()).evict(any());
+        assertEquals(1, getHealth().get("refreshes").asLong());
+        assertTrue(getHealth().get("healthy").asBoolean());
+    }
+
+    private JsonNode getHealth() {
+        return clusterHealthService.getHealth(user).get("clusters").get(0);
+    }
+
+    private Cluster getCluster(Long id, String uri) {
+        Cluster cluster = new Cluster();
+        cluster.id = id;
+        cluster.setUser(1L);
+        cluster.setName("fake-name");
+        cluster.setUri(uri);
+        cluster.setCert_directory("/tmp/111/fake-name");
+        return cluster;
+    }
+}
@@ -1,20 +1,32 @@
 package services;
 
+import clients.DockerClientCache;
 import clients.ICarinaClient;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.spotify.docker.client.DockerCertificates;
 import exceptions.InternalServerException;
 import exceptions.NotFoundException;
 import factories.IClusterFactory;
 import models.Cluster;
 import models.User;
 import org.joda.time.DateTime;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import play.libs.F;
 import play.libs.Json;
 import repositories.IClusterRepository;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
@@ -26,6 +38,15 @@ import static org.mockito.Mockito.*;
  */
 public class ClusterServiceTest {
 
+    private final DockerClientCache dockerClientCache = mock(DockerClientCache.class);
+    private final ClusterHealthService clusterHealthService = mock(ClusterHealthService.class);
+
+    @Before
+    public void setUp() throws Exception {
+        when(dockerClientCache.lease(any())).thenReturn(mock(DockerClientCache.Lease.class));
+        when(clusterHealthService.check(any(), any())).thenAnswer(invocation -> invocation.getArguments()[0]);
+    }
+
     @Rule
     public final ExpectedException exception = ExpectedException.none();
 
@@ -58,15 +79,15 @@ public class ClusterServiceTest {
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
         try {
-            when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(cluster);
-            when(carinaClient.createCluster(anyString(), any())).thenReturn(true);
-            when(carinaClient.getCluster(anyString(), any())).thenReturn(jsonNode);
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+            when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+            when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+            when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(jsonNode));
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
         try {
-        Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, true);
             assertEquals(returnedCluster.cert_directory, cluster.cert_directory);
             assertEquals(returnedCluster.uri, cluster.uri);
@@ -78,10 +99,10 @@ public class ClusterServiceTest {
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
         try {
-            verify(carinaClient).getClusterWithZip(any(), anyString());
-            verify(carinaClient, times(1)).getCluster(anyString(), any());
+            verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+            verify(carinaClient, times(1)).getClusterStatus(anyString(), any());
             verify(carinaClient).createCluster(anyString(), any());
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
     }
@@ -111,7 +132,7 @@ public class ClusterServiceTest {
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(cluster);
 
         try {
-            Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory)
+            Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                     .getClusterByName("fake-cluster", user, true);
             assertEquals(returnedCluster.cert_directory, cluster.cert_directory);
             assertEquals(returnedCluster.uri, cluster.uri);
@@ -124,10 +145,10 @@ public class ClusterServiceTest {
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
         try {
-            verify(carinaClient, never()).getClusterWithZip(any(), anyString());
-            verify(carinaClient, never()).getCluster(anyString(), any());
+            verify(carinaClient, never()).getClusterWithZipAsync(any(), anyString());
+            verify(carinaClient, never()).getClusterStatus(anyString(), any());
             verify(carinaClient, never()).createCluster(anyString(), any());
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
     }
@@ -143,17 +164,17 @@ public class ClusterServiceTest {
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("User not provided.");
-        new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, true);
 
 
         verify(clusterRepository,never()).findByUserandName(anyLong(), anyString());
 
         try {
-            verify(carinaClient, never()).getClusterWithZip(any(), anyString());
-            verify(carinaClient, never()).getCluster(anyString(), any());
+            verify(carinaClient, never()).getClusterWithZipAsync(any(), anyString());
+            verify(carinaClient, never()).getClusterStatus(anyString(), any());
             verify(carinaClient,never()).createCluster(anyString(), any());
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
     }
@@ -183,15 +204,15 @@ public class ClusterServiceTest {
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
         try {
-            when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(cluster);
-            when(carinaClient.getCluster(anyString(), any())).thenReturn(null);
-            when(carinaClient.createCluster(anyString(), any())).thenReturn(true);
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+            when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+            when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(null));
+            when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
         try {
-            Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory)
+            Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                     .getClusterByName("fake-cluster", user, true);
             assertEquals(returnedCluster.cert_directory, cluster.cert_directory);
             assertEquals(returnedCluster.uri, cluster.uri);
@@ -204,10 +225,10 @@ public class ClusterServiceTest {
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
         try {
-            verify(carinaClient).getClusterWithZip(any(), anyString());
-            verify(carinaClient, times(1)).getCluster(anyString(), any());
+            verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+            verify(carinaClient, times(1)).getClusterStatus(anyString(), any());
             verify(carinaClient).createCluster(anyString(), any());
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
     }
@@ -241,15 +262,15 @@ public class ClusterServiceTest {
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
         try {
-            when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(cluster);
-            when(carinaClient.getCluster(anyString(), any())).thenReturn(jsonNode);
-            when(carinaClient.createCluster(anyString(), any())).thenReturn(true);
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+            when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+            when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(jsonNode));
+            when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
         try {
-            Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory)
+            Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                     .getClusterByName("fake-cluster", user, true);
             assertEquals(returnedCluster.cert_directory, cluster.cert_directory);
             assertEquals(returnedCluster.uri, cluster.uri);
@@ -262,10 +283,10 @@ public class ClusterServiceTest {
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
         try {
-            verify(carinaClient).getClusterWithZip(any(), anyString());
-            verify(carinaClient, times(1)).getCluster(anyString(), any());
+            verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+            verify(carinaClient, times(1)).getClusterStatus(anyString(), any());
             verify(carinaClient).createCluster(anyString(), any());
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
     }
@@ -295,26 +316,26 @@ public class ClusterServiceTest {
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
         try {
-            when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(cluster);
-            when(carinaClient.getCluster(anyString(), any())).thenThrow(new InternalServerException("Oops failed"));;
-            when(carinaClient.createCluster(anyString(), any())).thenReturn(true);
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+            when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+            when(carinaClient.getClusterStatus(anyString(), any())).thenThrow(new InternalServerException("Oops failed"));;
+            when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Oops failed");
-        new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, true);
 
 
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
         try {
-            verify(carinaClient).getClusterWithZip(any(), anyString());
-            verify(carinaClient).getCluster(anyString(), any());
+            verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+            verify(carinaClient).getClusterStatus(anyString(), any());
             verify(carinaClient, never()).createCluster(anyString(), any());
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
     }
@@ -344,27 +365,27 @@ public class ClusterServiceTest {
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
         try {
-            when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(cluster);
-            when(carinaClient.getCluster(anyString(), any())).thenReturn(null);;
+            when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+            when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(null));;
             when(carinaClient.createCluster(anyString(), any())).
-                    thenThrow(new InterruptedException("interrupted creation"));
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+                    thenReturn(F.Promise.throwing(new InterruptedException("interrupted creation")));
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("interrupted creation");
-        new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, true);
 
 
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
         try {
-            verify(carinaClient).getClusterWithZip(any(), anyString());
-            verify(carinaClient).getCluster(anyString(), any());
+            verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+            verify(carinaClient).getClusterStatus(anyString(), any());
             verify(carinaClient).createCluster(anyString(), any());
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
     }
@@ -398,20 +419,20 @@ public class ClusterServiceTest {
 
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
-        when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(cluster);
-        when(carinaClient.createCluster(anyString(), any())).thenReturn(true);
-        when(carinaClient.getCluster(anyString(), any())).thenReturn(null);
+        when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+        when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(null));
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Cluster doesn't exist.");
-        new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, false);
 
 
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
-        verify(carinaClient).getClusterWithZip(any(), anyString());
-        verify(carinaClient, times(1)).getCluster(anyString(), any());
+        verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+        verify(carinaClient, times(1)).getClusterStatus(anyString(), any());
         verify(carinaClient).createCluster(anyString(), any());
 
     }
@@ -445,20 +466,20 @@ public class ClusterServiceTest {
 
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
-        when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(cluster);
-        when(carinaClient.createCluster(anyString(), any())).thenReturn(true);
-        when(carinaClient.getCluster(anyString(), any())).thenReturn(jsonNode);
+        when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+        when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(jsonNode));
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Cluster doesn't exist.");
-        new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, false);
 
 
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
-        verify(carinaClient).getClusterWithZip(any(), anyString());
-        verify(carinaClient, times(1)).getCluster(anyString(), any());
+        verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+        verify(carinaClient, times(1)).getClusterStatus(anyString(), any());
         verify(carinaClient).createCluster(anyString(), any());
 
     }
@@ -492,19 +513,19 @@ public class ClusterServiceTest {
 
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
-        when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(cluster);
+        when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
         when(carinaClient.createCluster(anyString(), any())).thenThrow(new InternalServerException("failed to create."));
-        when(carinaClient.getCluster(anyString(), any())).thenReturn(jsonNode);
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(jsonNode));
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("failed to create.");
-        new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, true);
 
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
-        verify(carinaClient).getClusterWithZip(any(), anyString());
-        verify(carinaClient, times(1)).getCluster(anyString(), any());
+        verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+        verify(carinaClient, times(1)).getClusterStatus(anyString(), any());
         verify(carinaClient).createCluster(anyString(), any());
 
     }
@@ -538,11 +559,11 @@ public class ClusterServiceTest {
 
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
-        when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(cluster);
-        when(carinaClient.createCluster(anyString(), any())).thenReturn(true);
-        when(carinaClient.getCluster(anyString(), any())).thenReturn(jsonNode);
+        when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+        when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(jsonNode));
 
-        Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        Cluster returnedCluster = new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, true);
         assertEquals(returnedCluster.cert_directory, cluster.cert_directory);
         assertEquals(returnedCluster.uri, cluster.uri);
@@ -551,8 +572,8 @@ public class ClusterServiceTest {
 
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
-        verify(carinaClient).getClusterWithZip(any(), anyString());
-        verify(carinaClient, times(1)).getCluster(anyString(), any());
+        verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+        verify(carinaClient, times(1)).getClusterStatus(anyString(), any());
         verify(carinaClient).createCluster(anyString(), any());
     }
 
@@ -586,23 +607,23 @@ public class ClusterServiceTest {
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
         try {
-            when(carinaClient.getClusterWithZip(any(), anyString())).thenReturn(null);
-            when(carinaClient.createCluster(anyString(), any())).thenReturn(true);
-            when(carinaClient.getCluster(anyString(), any())).thenReturn(jsonNode);
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+            when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(null));
+            when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+            when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(jsonNode));
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Unable to save new cluster.");
-        new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, true);
 
 
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
-        verify(carinaClient).getClusterWithZip(any(), anyString());
-        verify(carinaClient, times(1)).getCluster(anyString(), any());
+        verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+        verify(carinaClient, times(1)).getClusterStatus(anyString(), any());
         verify(carinaClient).createCluster(anyString(), any());
 
     }
@@ -637,24 +658,458 @@ public class ClusterServiceTest {
         when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
 
         try {
-            when(carinaClient.getClusterWithZip(any(), anyString()))
+            when(carinaClient.getClusterWithZipAsync(any(), anyString()))
                     .thenThrow(new InternalServerException("failed to get cluster with zip."));
-            when(carinaClient.createCluster(anyString(), any())).thenReturn(true);
-            when(carinaClient.getCluster(anyString(), any())).thenReturn(jsonNode);
-        }catch(NotFoundException | InternalServerException | InterruptedException e) {
+            when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+            when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(jsonNode));
+        }catch(InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Unable to save new cluster.");
-        new ClusterService(clusterRepository, carinaClient, clusterFactory)
+        new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService)
                 .getClusterByName("fake-cluster", user, true);
 
 
         verify(clusterRepository).findByUserandName(anyLong(), anyString());
 
-        verify(carinaClient).getClusterWithZip(any(), anyString());
-        verify(carinaClient, times(1)).getCluster(anyString(), any());
+        verify(carinaClient).getClusterWithZipAsync(any(), anyString());
+        verify(carinaClient, times(1)).getClusterStatus(anyString(), any());
         verify(carinaClient).createCluster(anyString(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetClusterByNameCached() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+        User otherUser = new User();
+        otherUser.setTenant("222");
+        otherUser.id = 2L;
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+
+        when(clusterFactory.getClusterCacheTtlMinutes()).thenReturn(10L);
+        when(clusterFactory.getClusterCacheMaxSize()).thenReturn(100L);
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(cluster);
+
+        ClusterService clusterService =
+                new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService);
+        assertSame(cluster, clusterService.getClusterByName("fake-name", user, true));
+        assertSame(cluster, clusterService.getClusterByName("fake-name", user, false));
+        clusterService.getClusterByName("fake-name", otherUser, true);
+
+        verify(clusterRepository, times(1)).findByUserandName(1L, "fake-name");
+        verify(clusterRepository, times(1)).findByUserandName(2L, "fake-name");
+        //the docker client is built along with the cluster
+        verify(dockerClientCache, times(2)).lease(cluster);
+
+        ObjectNode stats = clusterService.getCacheStats();
+        assertEquals(2, stats.get("size").asLong());
+        assertEquals(1, stats.get("hits").asLong());
+        assertEquals(2, stats.get("misses").asLong());
+        assertEquals(1.0 / 3, stats.get("hitRate").asDouble(), 0.001);
+        assertEquals(2, stats.get("loads").asLong());
+        assertEquals(10, stats.get("ttlMinutes").asLong());
+    }
+
+    @Test
+    public void testInvalidate() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+
+        when(clusterFactory.getClusterCacheTtlMinutes()).thenReturn(10L);
+        when(clusterFactory.getClusterCacheMaxSize()).thenReturn(100L);
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(cluster);
+
+        ClusterService clusterService =
+                new ClusterService(clusterRepository, mock(ICarinaClient.class), clusterFactory, dockerClientCache, clusterHealthService);
+        clusterService.getClusterByName("fake-name", user, true);
+        clusterService.invalidate("fake-name", user);
+        clusterService.getClusterByName("fake-name", user, true);
+
+        verify(clusterRepository, times(2)).findByUserandName(1L, "fake-name");
+        verify(dockerClientCache).invalidate(cluster);
+    }
+
+    @Test
+    public void testGetClusterByNameFailureNotCached() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+
+        when(clusterFactory.getClusterCacheTtlMinutes()).thenReturn(10L);
+        when(clusterFactory.getClusterCacheMaxSize()).thenReturn(100L);
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(null));
+
+        ClusterService clusterService =
+                new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                clusterService.getClusterByName("fake-name", user, false);
+                fail("Expected the lookup to fail");
+            } catch (InternalServerException ise) {
+                assertEquals("Cluster doesn't exist.", ise.getLocalizedMessage());
+            }
+        }
+
+        verify(clusterRepository, times(2)).findByUserandName(1L, "fake-name");
+        assertEquals(2, clusterService.getCacheStats().get("loadFailures").asLong());
+        verify(dockerClientCache, never()).lease(any());
+    }
+
+    @Test
+    public void testGetClusterByNameAsyncCountsLoads() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+        F.RedeemablePromise<JsonNode> status = F.RedeemablePromise.empty();
+
+        when(clusterFactory.getClusterCacheTtlMinutes()).thenReturn(10L);
+        when(clusterFactory.getClusterCacheMaxSize()).thenReturn(100L);
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(status);
+        when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+        when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+
+        ClusterService clusterService =
+                new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService);
+        F.Promise<Cluster> promise = clusterService.getClusterByNameAsync("fake-name", user, true);
+        Thread.sleep(50);
+        status.success(null);
+        assertSame(cluster, promise.get(5000));
+        assertSame(cluster, clusterService.getClusterByNameAsync("fake-name", user, true).get(5000));
+
+        ObjectNode stats = clusterService.getCacheStats();
+        assertEquals(1, stats.get("hits").asLong());
+        assertEquals(1, stats.get("misses").asLong());
+        assertEquals(1, stats.get("loads").asLong());
+        assertEquals(0, stats.get("loadFailures").asLong());
+        assertTrue(stats.get("averageLoadMillis").asLong() >= 50);
+    }
+
+    @Test
+    public void testGetClusterByNameDockerClientFailure() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(cluster);
+        when(dockerClientCache.lease(cluster)).thenThrow(new InternalServerException("Cluster is not provisioned."));
+
+        assertSame(cluster, new ClusterService(clusterRepository, mock(ICarinaClient.class),
+                mock(IClusterFactory.class), dockerClientCache, clusterHealthService).getClusterByName("fake-name", user, true));
+    }
+
+    @Test
+    public void testGetClusterByNameAsyncProvisions() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+
+        when(clusterFactory.getClusterCacheTtlMinutes()).thenReturn(10L);
+        when(clusterFactory.getClusterCacheMaxSize()).thenReturn(100L);
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(null));
+        F.RedeemablePromise<Boolean> provisioned = F.RedeemablePromise.empty();
+        when(carinaClient.createCluster(anyString(), any())).thenReturn(provisioned);
+        when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+
+        ClusterService clusterService =
+                new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService);
+        F.Promise<Cluster> clusterPromise = clusterService.getClusterByNameAsync("fake-name", user, true);
+
+        //nothing waits for carina while the cluster is provisioned
+        verify(carinaClient, never()).getClusterWithZipAsync(any(), anyString());
+        provisioned.success(true);
+
+        assertSame(cluster, clusterPromise.get(5000));
+        verify(clusterRepository).save(cluster);
+        verify(dockerClientCache).lease(cluster);
+
+        //the provisioned cluster is cached
+        assertSame(cluster, clusterService.getClusterByNameAsync("fake-name", user, true).get(5000));
+        assertSame(cluster, clusterService.getClusterByName("fake-name", user, true));
+        verify(clusterRepository, times(1)).findByUserandName(1L, "fake-name");
+        verify(carinaClient, times(1)).createCluster("fake-name", user);
+    }
+
+    @Test
+    public void testGetClusterByNameAsyncFailure() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(null));
+        when(carinaClient.createCluster(anyString(), any())).thenReturn(
+                F.Promise.throwing(new InternalServerException("Cluster ended up in error state")));
+
+        ClusterService clusterService =
+                new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService);
+        try {
+            clusterService.getClusterByNameAsync("fake-name", user, true).get(5000);
+            fail("Expected provisioning to fail");
+        } catch (Exception e) {
+            assertEquals(InternalServerException.class, e.getClass());
+            assertEquals("Cluster ended up in error state", e.getLocalizedMessage());
+        }
+
+        verify(carinaClient, never()).getClusterWithZipAsync(any(), anyString());
+        verify(clusterRepository, never()).save(any());
+        assertEquals(0, clusterService.getCacheStats().get("size").asLong());
+    }
+
+    @Test
+    public void testGetClusterByNameAsyncUserNull() throws Exception {
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("User not provided.");
+        new ClusterService(mock(IClusterRepository.class), carinaClient, mock(IClusterFactory.class),
+                dockerClientCache, clusterHealthService).getClusterByNameAsync("fake-name", null, true).get(5000);
+    }
+
+    @Test
+    public void testGetClusterByNameSingleFlight() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+
+        when(clusterFactory.getClusterCacheTtlMinutes()).thenReturn(10L);
+        when(clusterFactory.getClusterCacheMaxSize()).thenReturn(100L);
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(F.Promise.pure(null));
+        F.RedeemablePromise<Boolean> provisioned = F.RedeemablePromise.empty();
+        when(carinaClient.createCluster(anyString(), any())).thenReturn(provisioned);
+        when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+
+        ClusterService clusterService =
+                new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService);
+        F.Promise<Cluster> first = clusterService.getClusterByNameAsync("fake-name", user, true);
+        F.Promise<Cluster> second = clusterService.getClusterByNameAsync("fake-name", user, true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Cluster> blocking = executor.submit(() -> clusterService.getClusterByName("fake-name", user, true));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (clusterService.getCacheStats().get("coalesced").asLong() < 2 &&
+                    System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(1, clusterService.getCacheStats().get("inFlight").asLong());
+
+            provisioned.success(true);
+
+            assertSame(cluster, first.get(5000));
+            assertSame(cluster, second.get(5000));
+            assertSame(cluster, blocking.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(carinaClient, times(1)).getClusterStatus("fake-name", user);
+        verify(carinaClient, times(1)).createCluster("fake-name", user);
+        verify(carinaClient, times(1)).getClusterWithZipAsync(user, "fake-name");
+        verify(clusterRepository, times(1)).save(cluster);
+
+        ObjectNode stats = clusterService.getCacheStats();
+        assertEquals(0, stats.get("inFlight").asLong());
+        assertEquals(2, stats.get("coalesced").asLong());
+        assertEquals(1, stats.get("size").asLong());
+    }
+
+    @Test
+    public void testGetClusterByNameSingleFlightCreatesAfterFailedLookup() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(null);
+        F.RedeemablePromise<JsonNode> status = F.RedeemablePromise.empty();
+        when(carinaClient.getClusterStatus(anyString(), any())).thenReturn(status);
+        when(carinaClient.createCluster(anyString(), any())).thenReturn(F.Promise.pure(true));
+        when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(cluster));
+
+        ClusterService clusterService =
+                new ClusterService(clusterRepository, carinaClient, clusterFactory, dockerClientCache, clusterHealthService);
+        F.Promise<Cluster> lookup = clusterService.getClusterByNameAsync("fake-name", user, false);
+        F.Promise<Cluster> create = clusterService.getClusterByNameAsync("fake-name", user, true);
+
+        status.success(null);
+
+        try {
+            lookup.get(5000);
+            fail("Expected the lookup to fail");
+        } catch (Exception e) {
+            assertEquals("Cluster doesn't exist.", e.getLocalizedMessage());
+        }
+        assertSame(cluster, create.get(5000));
+
+        verify(carinaClient, times(2)).getClusterStatus("fake-name", user);
+        verify(carinaClient, times(1)).createCluster("fake-name", user);
+        verify(clusterRepository, times(1)).save(cluster);
+    }
+
+    @Test
+    public void testGetClusterByNameDownloadsMissingCertificates() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        Cluster storedCluster = new Cluster();
+        storedCluster.setName("fake-name");
+        storedCluster.setUri("fake-uri");
+        storedCluster.setCert_directory("/tmp/111/fake-name");
+        Cluster downloadedCluster = new Cluster();
+        downloadedCluster.setDockerCertificates(mock(DockerCertificates.class));
+
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(storedCluster);
+        when(carinaClient.isMissingCertificates(storedCluster)).thenReturn(true);
+        when(carinaClient.getClusterWithZipAsync(any(), anyString())).thenReturn(F.Promise.pure(downloadedCluster));
+
+        Cluster cluster = new ClusterService(clusterRepository, carinaClient, mock(IClusterFactory.class),
+                dockerClientCache, clusterHealthService).getClusterByName("fake-name", user, false);
+
+        assertSame(storedCluster, cluster);
+        assertSame(downloadedCluster.getDockerCertificates(), cluster.getDockerCertificates());
+        verify(carinaClient).getClusterWithZipAsync(user, "fake-name");
+        verify(carinaClient, never()).getClusterStatus(anyString(), any());
+        verify(clusterRepository, never()).save(any());
+        verify(dockerClientCache).lease(storedCluster);
+    }
+
+    @Test
+    public void testGetClusterByNameUnhealthy() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        Cluster storedCluster = new Cluster();
+        storedCluster.setName("fake-name");
+        storedCluster.setUri("fake-uri");
+
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ICarinaClient carinaClient = mock(ICarinaClient.class);
+        ClusterHealthService clusterHealthService = mock(ClusterHealthService.class);
+
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(storedCluster);
+        doThrow(new InternalServerException("Cluster fake-name is unhealthy: connection refused"))
+                .when(clusterHealthService).check(storedCluster, user);
+
+        ClusterService clusterService = new ClusterService(clusterRepository, carinaClient,
+                mock(IClusterFactory.class), dockerClientCache, clusterHealthService);
+        for(int attempt = 0; attempt < 2; attempt++) {
+            try {
+                clusterService.getClusterByName("fake-name", user, false);
+                fail("unhealthy cluster was handed out");
+            } catch (InternalServerException ise) {
+                assertEquals("Cluster fake-name is unhealthy: connection refused", ise.getLocalizedMessage());
+            }
+        }
+        try {
+            clusterService.getClusterByNameAsync("fake-name", user, false).get(1000);
+            fail("unhealthy cluster was handed out");
+        } catch (Exception e) {
+            assertEquals(InternalServerException.class, e.getClass());
+        }
+
+        //not cached, every lookup sees what the health checks did
+        verify(clusterRepository, times(3)).findByUserandName(1L, "fake-name");
+        assertEquals(0, clusterService.getCacheStats().get("size").asLong());
+    }
+
+    @Test
+    public void testGetClusterByNameReplacedByHealthChecks() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+        user.id = 1L;
+
+        Cluster storedCluster = new Cluster();
+        storedCluster.setName("fake-name");
+        storedCluster.setUri("fake-uri");
+        Cluster refreshedCluster = new Cluster();
+        refreshedCluster.setName("fake-name");
+        refreshedCluster.setUri("new-uri");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterRepository clusterRepository = mock(IClusterRepository.class);
+        ClusterHealthService clusterHealthService = mock(ClusterHealthService.class);
+
+        when(clusterFactory.getClusterCacheTtlMinutes()).thenReturn(10L);
+        when(clusterFactory.getClusterCacheMaxSize()).thenReturn(100L);
+        when(clusterRepository.findByUserandName(anyLong(), anyString())).thenReturn(storedCluster);
+        when(clusterHealthService.check(storedCluster, user)).thenReturn(refreshedCluster);
+        when(clusterHealthService.check(refreshedCluster, user)).thenReturn(refreshedCluster);
+
+        ClusterService clusterService = new ClusterService(clusterRepository, mock(ICarinaClient.class),
+                clusterFactory, dockerClientCache, clusterHealthService);
+
+        assertSame(refreshedCluster, clusterService.getClusterByName("fake-name", user, false));
+        assertSame(refreshedCluster, clusterService.getClusterByNameAsync("fake-name", user, false).get(1000));
+
+        //the cache holds the new instance, the stored one isn't looked up again
+        verify(clusterHealthService).check(refreshedCluster, user);
+        verify(clusterRepository, times(1)).findByUserandName(1L, "fake-name");
+    }
+}
@@ -1,5 +1,6 @@
 package services;
 
+import play.libs.F;
 import clients.IDockerClient;
 import exceptions.InternalServerException;
 import factories.IClusterFactory;
@@ -15,6 +16,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 import static junit.framework.TestCase.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
@@ -62,8 +64,8 @@ public class ConfigurationServiceImplTest {
         IDockerClient dockerClient = mock(IDockerClient.class);
 
         try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-            when(dockerClient.getConfigurationsForInstance(any(), anyString())).thenReturn(configurationList);
+            when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+            when(dockerClient.getConfigurationsForInstance(any(), any(), anyString(), any())).thenReturn(configurationList);
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
@@ -71,9 +73,9 @@ public class ConfigurationServiceImplTest {
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
         try {
-            when(dockerClient.stopReposeInstance(any(), any())).thenReturn(true);
+            when(dockerClient.stopReposeInstance(any(), any(), any())).thenReturn(true);
             assertEquals(configurationList, new ConfigurationServiceImpl(clusterService, clusterFactory, dockerClient).
-                    getConfigurationsForInstance(user, "1"));
+                    getConfigurationsForInstance(user, "1", null).get(5000));
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
@@ -81,8 +83,8 @@ public class ConfigurationServiceImplTest {
         verify(clusterFactory).getClusterName();
 
         try{
-            verify(dockerClient).getConfigurationsForInstance(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(dockerClient).getConfigurationsForInstance(any(), any(), any(), any());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -110,29 +112,21 @@ public class ConfigurationServiceImplTest {
         IClusterFactory clusterFactory = mock(IClusterFactory.class);
         IDockerClient dockerClient = mock(IDockerClient.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn(null);
-        when(dockerClient.getConfigurationsForInstance(any(), any())).thenReturn(null);
+        when(dockerClient.getConfigurationsForInstance(any(), any(), any(), any())).thenReturn(null);
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("What cluster am I supposed to create?  Misconfigured.");
         new ConfigurationServiceImpl(clusterService, clusterFactory, dockerClient).
-                getConfigurationsForInstance(user, "1");
+                getConfigurationsForInstance(user, "1", null).get(5000);
 
 
         verify(clusterFactory).getClusterName();
-        verify(dockerClient).getConfigurationsForInstance(any(), any());
+        verify(dockerClient).getConfigurationsForInstance(any(), any(), any(), any());
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
     }
 
     @Test
@@ -157,11 +151,7 @@ public class ConfigurationServiceImplTest {
         IClusterFactory clusterFactory = mock(IClusterFactory.class);
         IDockerClient dockerClient = mock(IDockerClient.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(null);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(null));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
@@ -169,15 +159,11 @@ public class ConfigurationServiceImplTest {
         exception.expect(InternalServerException.class);
         exception.expectMessage("No cluster found.  Cluster creation failed and didn't throw an error.");
         new ConfigurationServiceImpl(clusterService, clusterFactory, dockerClient).
-                getConfigurationsForInstance(user, "1");
+                getConfigurationsForInstance(user, "1", null).get(5000);
 
         verify(clusterFactory).getClusterName();
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
 
     }
 
@@ -203,31 +189,70 @@ public class ConfigurationServiceImplTest {
         IClusterFactory clusterFactory = mock(IClusterFactory.class);
         IDockerClient dockerClient = mock(IDockerClient.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
-        when(dockerClient.getConfigurationsForInstance(any(), any())).
+        when(dockerClient.getConfigurationsForInstance(any(), any(), any(), any())).
                 thenThrow(new InternalServerException("Get configs failed."));
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Get configs failed.");
         new ConfigurationServiceImpl(clusterService, clusterFactory, dockerClient).
-                getConfigurationsForInstance(user, "1");
+                getConfigurationsForInstance(user, "1", null).get(5000);
 
         verify(clusterFactory).getClusterName();
 
         try{
-            verify(dockerClient).getConfigurationsForInstance(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(dockerClient).getConfigurationsForInstance(any(), any(), any(), any());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
     }
 
-}
\ No newline at end of file
+    //testReconfigureInstance
+
+    @Test
+    public void testReconfigureInstanceSuccess() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+        user.setToken("fake-token");
+        user.setUsername("fake-user");
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        List<Configuration> configurationList = new ArrayList<>();
+        configurationList.add(new Configuration("ip-user.cfg.xml", "filter-xml"));
+
+        IClusterService clusterService = mock(IClusterService.class);
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(dockerClient.reconfigureReposeInstance(cluster, user, "1", configurationList)).thenReturn(true);
+
+        assertTrue(new ConfigurationServiceImpl(clusterService, clusterFactory, dockerClient).
+                reconfigureInstance(user, "1", configurationList).get(5000));
+
+        verify(dockerClient).reconfigureReposeInstance(cluster, user, "1", configurationList);
+    }
+
+    @Test
+    public void testReconfigureInstanceClusterNameNull() throws InternalServerException {
+        IClusterService clusterService = mock(IClusterService.class);
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+
+        when(clusterFactory.getClusterName()).thenReturn(null);
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("What cluster am I supposed to create?  Misconfigured.");
+        new ConfigurationServiceImpl(clusterService, clusterFactory, dockerClient).
+                reconfigureInstance(new User(), "1", new ArrayList<>()).get(5000);
+    }
+}
@@ -1,5 +1,6 @@
 package services;
 
+import clients.BuildListener;
 import clients.IDockerClient;
 import exceptions.InternalServerException;
 import models.Cluster;
@@ -62,17 +63,17 @@ public class DockerApplicationServiceTest {
         String reposeId = "2";
 
         try {
-            when(dockerClient.createReposeInstance(any(), any(), anyString(), anyList())).thenReturn(reposeId);
+            when(dockerClient.createReposeInstance(any(), any(), anyString(), anyList(), any())).thenReturn(reposeId);
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
 
         assertEquals(reposeId,
                 new DockerApplicationService(dockerClient).
-                        createReposeInstance(cluster, user, configurationList, "1"));
+                        createReposeInstance(cluster, user, configurationList, "1", BuildListener.NONE));
 
         try{
-            verify(dockerClient).createReposeInstance(any(), any(), anyString(), anyList());
+            verify(dockerClient).createReposeInstance(any(), any(), anyString(), anyList(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -108,7 +109,7 @@ public class DockerApplicationServiceTest {
         IDockerClient dockerClient = mock(IDockerClient.class);
 
         try {
-            when(dockerClient.createReposeInstance(any(), any(), anyString(), anyList())).
+            when(dockerClient.createReposeInstance(any(), any(), anyString(), anyList(), any())).
                     thenThrow(new InternalServerException("repose creation failed."));
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
@@ -117,10 +118,10 @@ public class DockerApplicationServiceTest {
         exception.expect(InternalServerException.class);
         exception.expectMessage("repose creation failed.");
         new DockerApplicationService(dockerClient).
-                createReposeInstance(cluster, user, configurationList, "1");
+                createReposeInstance(cluster, user, configurationList, "1", BuildListener.NONE);
 
         try{
-            verify(dockerClient).createReposeInstance(any(), any(), anyString(), anyList());
+            verify(dockerClient).createReposeInstance(any(), any(), anyString(), anyList(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -149,17 +150,17 @@ public class DockerApplicationServiceTest {
         String originId = "2";
 
         try {
-            when(dockerClient.createOriginInstance(any(), any(), anyString())).thenReturn(originId);
+            when(dockerClient.createOriginInstance(any(), any(), anyString(), any())).thenReturn(originId);
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
 
         assertEquals(originId,
                 new DockerApplicationService(dockerClient).
-                        createOriginInstance(cluster, user, "1"));
+                        createOriginInstance(cluster, user, "1", BuildListener.NONE));
 
         try{
-            verify(dockerClient).createOriginInstance(any(), any(), anyString());
+            verify(dockerClient).createOriginInstance(any(), any(), anyString(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -186,7 +187,7 @@ public class DockerApplicationServiceTest {
         IDockerClient dockerClient = mock(IDockerClient.class);
 
         try {
-            when(dockerClient.createOriginInstance(any(), any(), anyString())).
+            when(dockerClient.createOriginInstance(any(), any(), anyString(), any())).
                     thenThrow(new InternalServerException("origin creation failed."));
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
@@ -195,10 +196,10 @@ public class DockerApplicationServiceTest {
         exception.expect(InternalServerException.class);
         exception.expectMessage("origin creation failed.");
         new DockerApplicationService(dockerClient).
-                createOriginInstance(cluster, user, "1");
+                createOriginInstance(cluster, user, "1", BuildListener.NONE);
 
         try{
-            verify(dockerClient).createOriginInstance(any(), any(), anyString());
+            verify(dockerClient).createOriginInstance(any(), any(), anyString(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
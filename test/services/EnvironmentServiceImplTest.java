@@ -1,5 +1,6 @@
 package services;
 
+import clients.BuildListener;
 import exceptions.InternalServerException;
 import models.Cluster;
 import models.Configuration;
@@ -60,19 +61,19 @@ public class EnvironmentServiceImplTest {
         String reposeId = "2";
 
         try {
-            when(applicationService.createOriginInstance(any(), any(), anyString())).thenReturn(originId);
-            when(applicationService.createReposeInstance(any(), any(), anyList(), anyString())).thenReturn(reposeId);
+            when(applicationService.createOriginInstance(any(), any(), anyString(), any())).thenReturn(originId);
+            when(applicationService.createReposeInstance(any(), any(), anyList(), anyString(), any())).thenReturn(reposeId);
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
 
         assertEquals(reposeId,
                 new EnvironmentServiceImpl(applicationService).
-                        generatedOriginEnvironment(cluster, "1", user, configurationList));
+                        generatedOriginEnvironment(cluster, "1", user, configurationList, BuildListener.NONE));
 
         try{
-            verify(applicationService).createOriginInstance(any(), any(), anyString());
-            verify(applicationService).createReposeInstance(any(), any(), anyList(), anyString());
+            verify(applicationService).createOriginInstance(any(), any(), anyString(), any());
+            verify(applicationService).createReposeInstance(any(), any(), anyList(), anyString(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -108,7 +109,7 @@ public class EnvironmentServiceImplTest {
         ApplicationService applicationService = mock(ApplicationService.class);
 
         try {
-            when(applicationService.createOriginInstance(any(), any(), anyString())).thenReturn(null);
+            when(applicationService.createOriginInstance(any(), any(), anyString(), any())).thenReturn(null);
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
@@ -116,11 +117,11 @@ public class EnvironmentServiceImplTest {
         exception.expect(InternalServerException.class);
         exception.expectMessage("Unable to start origin service.");
         new EnvironmentServiceImpl(applicationService).
-                        generatedOriginEnvironment(cluster, "1", user, configurationList);
+                        generatedOriginEnvironment(cluster, "1", user, configurationList, BuildListener.NONE);
 
         try{
-            verify(applicationService).createOriginInstance(any(), any(), anyString());
-            verify(applicationService, never()).createReposeInstance(any(), any(), anyList(), anyString());
+            verify(applicationService).createOriginInstance(any(), any(), anyString(), any());
+            verify(applicationService, never()).createReposeInstance(any(), any(), anyList(), anyString(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -156,7 +157,7 @@ public class EnvironmentServiceImplTest {
         ApplicationService applicationService = mock(ApplicationService.class);
 
         try {
-            when(applicationService.createOriginInstance(any(), any(), anyString())).thenThrow(
+            when(applicationService.createOriginInstance(any(), any(), anyString(), any())).thenThrow(
                     new InternalServerException("origin failed."));
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
@@ -165,11 +166,11 @@ public class EnvironmentServiceImplTest {
         exception.expect(InternalServerException.class);
         exception.expectMessage("origin failed.");
         new EnvironmentServiceImpl(applicationService).
-                generatedOriginEnvironment(cluster, "1", user, configurationList);
+                generatedOriginEnvironment(cluster, "1", user, configurationList, BuildListener.NONE);
 
         try{
-            verify(applicationService).createOriginInstance(any(), any(), anyString());
-            verify(applicationService, never()).createReposeInstance(any(), any(), anyList(), anyString());
+            verify(applicationService).createOriginInstance(any(), any(), anyString(), any());
+            verify(applicationService, never()).createReposeInstance(any(), any(), anyList(), anyString(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -206,8 +207,8 @@ public class EnvironmentServiceImplTest {
         String originId = "1";
 
         try {
-            when(applicationService.createOriginInstance(any(), any(), anyString())).thenReturn(originId);
-            when(applicationService.createReposeInstance(any(), any(), anyList(), anyString())).
+            when(applicationService.createOriginInstance(any(), any(), anyString(), any())).thenReturn(originId);
+            when(applicationService.createReposeInstance(any(), any(), anyList(), anyString(), any())).
                     thenThrow(new InternalServerException("repose failed."));
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
@@ -216,11 +217,11 @@ public class EnvironmentServiceImplTest {
         exception.expect(InternalServerException.class);
         exception.expectMessage("repose failed.");
         new EnvironmentServiceImpl(applicationService).
-                generatedOriginEnvironment(cluster, "1", user, configurationList);
+                generatedOriginEnvironment(cluster, "1", user, configurationList, BuildListener.NONE);
 
         try{
-            verify(applicationService).createOriginInstance(any(), any(), anyString());
-            verify(applicationService).createReposeInstance(any(), any(), anyList(), anyString());
+            verify(applicationService).createOriginInstance(any(), any(), anyString(), any());
+            verify(applicationService).createReposeInstance(any(), any(), anyList(), anyString(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
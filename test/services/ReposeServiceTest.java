@@ -1,6 +1,9 @@
 package services;
 
+import clients.BuildListener;
 import clients.IDockerClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
 import exceptions.InternalServerException;
 import factories.ConfigurationFactory;
@@ -10,10 +13,13 @@ import org.joda.time.DateTime;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import play.libs.F;
+import play.libs.Json;
 
 import javax.ws.rs.HEAD;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import static java.util.Collections.singletonList;
 import static junit.framework.Assert.assertEquals;
@@ -65,11 +71,7 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
@@ -77,7 +79,7 @@ public class ReposeServiceTest {
             when(dockerClient.getReposeContainers(any(), any())).thenReturn(containerList);
             List<Container> returnedContainerList =
                     new ReposeService(clusterFactory, clusterService, dockerClient,
-                            environmentService, configurationFactory).getReposeList(user);
+                            environmentService, configurationFactory).getReposeList(user).get(5000);
             assertEquals(returnedContainerList.size(), containerList.size());
             assertArrayEquals(containerList.toArray(), returnedContainerList.toArray());
         }catch(InternalServerException e ){
@@ -88,7 +90,7 @@ public class ReposeServiceTest {
 
         try{
             verify(dockerClient).getReposeContainers(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -126,11 +128,7 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn(null);
         when(dockerClient.getReposeContainers(any(), any())).thenReturn(containerList);
@@ -138,17 +136,13 @@ public class ReposeServiceTest {
         exception.expect(InternalServerException.class);
         exception.expectMessage("What cluster am I supposed to create?  Misconfigured.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).getReposeList(user);
+                environmentService, configurationFactory).getReposeList(user).get(5000);
 
 
         verify(clusterFactory).getClusterName();
         verify(dockerClient).getReposeContainers(any(), any());
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
     }
 
     @Test
@@ -183,11 +177,7 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(null);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(null));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
         when(dockerClient.getReposeContainers(any(), any())).thenReturn(containerList);
@@ -196,16 +186,12 @@ public class ReposeServiceTest {
         exception.expect(InternalServerException.class);
         exception.expectMessage("No cluster found.  Cluster creation failed and didn't throw an error.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).getReposeList(user);
+                environmentService, configurationFactory).getReposeList(user).get(5000);
 
         verify(clusterFactory).getClusterName();
         verify(dockerClient).getReposeContainers(any(), any());
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
 
     }
 
@@ -233,18 +219,14 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
         try {
             when(dockerClient.getReposeContainers(any(), any())).thenReturn(null);
             new ReposeService(clusterFactory, clusterService, dockerClient,
-                    environmentService, configurationFactory).getReposeList(user);
+                    environmentService, configurationFactory).getReposeList(user).get(5000);
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
@@ -253,7 +235,7 @@ public class ReposeServiceTest {
 
         try{
             verify(dockerClient).getReposeContainers(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -285,18 +267,14 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
         try {
-            when(dockerClient.startReposeInstance(any(), any())).thenReturn(true);
+            when(dockerClient.startReposeInstance(any(), any(), any())).thenReturn(true);
             assertTrue(new ReposeService(clusterFactory, clusterService, dockerClient,
-                    environmentService, configurationFactory).startReposeInstance(user, "1"));
+                    environmentService, configurationFactory).startReposeInstance(user, "1").get(5000));
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
@@ -304,8 +282,8 @@ public class ReposeServiceTest {
         verify(clusterFactory).getClusterName();
 
         try{
-            verify(dockerClient).startReposeInstance(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(dockerClient).startReposeInstance(any(), any(), any());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -335,29 +313,21 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn(null);
-        when(dockerClient.startReposeInstance(any(), any())).thenReturn(true);
+        when(dockerClient.startReposeInstance(any(), any(), any())).thenReturn(true);
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("What cluster am I supposed to create?  Misconfigured.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).startReposeInstance(user, "1");
+                environmentService, configurationFactory).startReposeInstance(user, "1").get(5000);
 
 
         verify(clusterFactory).getClusterName();
-        verify(dockerClient).startReposeInstance(any(), any());
+        verify(dockerClient).startReposeInstance(any(), any(), any());
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
     }
 
     @Test
@@ -384,29 +354,21 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(null);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(null));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
-        when(dockerClient.startReposeInstance(any(), any())).thenReturn(true);
+        when(dockerClient.startReposeInstance(any(), any(), any())).thenReturn(true);
 
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("No cluster found.  Cluster creation failed and didn't throw an error.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).startReposeInstance(user, "1");
+                environmentService, configurationFactory).startReposeInstance(user, "1").get(5000);
 
         verify(clusterFactory).getClusterName();
-        verify(dockerClient).startReposeInstance(any(), any());
+        verify(dockerClient).startReposeInstance(any(), any(), any());
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
 
     }
 
@@ -434,26 +396,22 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
-        when(dockerClient.startReposeInstance(any(), any())).thenThrow(new InternalServerException("Start repose instance"));
+        when(dockerClient.startReposeInstance(any(), any(), any())).thenThrow(new InternalServerException("Start repose instance"));
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Start repose instance");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).startReposeInstance(user, "1");
+                environmentService, configurationFactory).startReposeInstance(user, "1").get(5000);
 
         verify(clusterFactory).getClusterName();
 
         try{
-            verify(dockerClient).startReposeInstance(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(dockerClient).startReposeInstance(any(), any(), any());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -485,18 +443,14 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
         try {
-            when(dockerClient.stopReposeInstance(any(), any())).thenReturn(true);
+            when(dockerClient.stopReposeInstance(any(), any(), any())).thenReturn(true);
             assertTrue(new ReposeService(clusterFactory, clusterService, dockerClient,
-                    environmentService, configurationFactory).stopReposeInstance(user, "1"));
+                    environmentService, configurationFactory).stopReposeInstance(user, "1").get(5000));
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
@@ -504,8 +458,8 @@ public class ReposeServiceTest {
         verify(clusterFactory).getClusterName();
 
         try{
-            verify(dockerClient).stopReposeInstance(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(dockerClient).stopReposeInstance(any(), any(), any());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -535,29 +489,21 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn(null);
-        when(dockerClient.stopReposeInstance(any(), any())).thenReturn(true);
+        when(dockerClient.stopReposeInstance(any(), any(), any())).thenReturn(true);
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("What cluster am I supposed to create?  Misconfigured.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).stopReposeInstance(user, "1");
+                environmentService, configurationFactory).stopReposeInstance(user, "1").get(5000);
 
 
         verify(clusterFactory).getClusterName();
-        verify(dockerClient).stopReposeInstance(any(), any());
+        verify(dockerClient).stopReposeInstance(any(), any(), any());
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
     }
 
     @Test
@@ -584,29 +530,21 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(null);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(null));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
-        when(dockerClient.stopReposeInstance(any(), any())).thenReturn(true);
+        when(dockerClient.stopReposeInstance(any(), any(), any())).thenReturn(true);
 
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("No cluster found.  Cluster creation failed and didn't throw an error.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).stopReposeInstance(user, "1");
+                environmentService, configurationFactory).stopReposeInstance(user, "1").get(5000);
 
         verify(clusterFactory).getClusterName();
-        verify(dockerClient).stopReposeInstance(any(), any());
+        verify(dockerClient).stopReposeInstance(any(), any(), any());
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
 
     }
 
@@ -634,26 +572,22 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
-        when(dockerClient.stopReposeInstance(any(), any())).thenThrow(new InternalServerException("Stop repose instance"));
+        when(dockerClient.stopReposeInstance(any(), any(), any())).thenThrow(new InternalServerException("Stop repose instance"));
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Stop repose instance");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).stopReposeInstance(user, "1");
+                environmentService, configurationFactory).stopReposeInstance(user, "1").get(5000);
 
         verify(clusterFactory).getClusterName();
 
         try{
-            verify(dockerClient).stopReposeInstance(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(dockerClient).stopReposeInstance(any(), any(), any());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -699,29 +633,25 @@ public class ReposeServiceTest {
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
         try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-            when(dockerClient.getReposeInstanceStats(any(), any())).thenReturn(containerStats);
+            when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+            when(dockerClient.getReposeInstanceStats(any(), any(), any())).thenReturn(containerStats);
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
-        try {
-            ContainerStats returnedContainerStats =
-                    new ReposeService(clusterFactory, clusterService, dockerClient,
-                            environmentService, configurationFactory).getInstanceStats(user, "1");
+        ContainerStats returnedContainerStats =
+                new ReposeService(clusterFactory, clusterService, dockerClient,
+                        environmentService, configurationFactory).getInstanceStats(user, "1").get(5000);
 
-            assertEquals(containerStats, returnedContainerStats);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        assertEquals(containerStats, returnedContainerStats);
 
         verify(clusterFactory).getClusterName();
 
         try{
-            verify(dockerClient).getReposeInstanceStats(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(dockerClient).getReposeInstanceStats(any(), any(), any());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -767,7 +697,7 @@ public class ReposeServiceTest {
         try {
             when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
             when(environmentService.generatedOriginEnvironment(
-                    any(), anyString(), any(), any())).thenReturn(reposeId);
+                    any(), anyString(), any(), any(), any())).thenReturn(reposeId);
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
@@ -778,7 +708,7 @@ public class ReposeServiceTest {
             assertEquals(reposeId, new ReposeService(clusterFactory, clusterService, dockerClient,
                     environmentService,
                     configurationFactory).setUpReposeEnvironment(
-                    ReposeEnvironmentType.GENERATED_ORIGIN, user, "1", configurationList));
+                    ReposeEnvironmentType.GENERATED_ORIGIN, user, "1", configurationList, BuildListener.NONE));
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
@@ -787,13 +717,46 @@ public class ReposeServiceTest {
 
         try{
             verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-            verify(environmentService).generatedOriginEnvironment(any(), anyString(), any(), any());
+            verify(environmentService).generatedOriginEnvironment(any(), anyString(), any(), any(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
 
     }
 
+    @Test
+    public void testSetupReposeEnvironmentAsyncSuccess() throws InternalServerException{
+        User user = new User();
+        user.setTenant("111");
+        user.setToken("fake-token");
+        user.setUsername("fake-user");
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        List<Configuration> configurationList = new ArrayList<>();
+        configurationList.add(new Configuration("filter-name", "filter-xml"));
+
+        IClusterService clusterService = mock(IClusterService.class);
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        EnvironmentService environmentService = mock(EnvironmentService.class);
+        ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(environmentService.generatedOriginEnvironment(eq(cluster), eq("1"), eq(user), eq(configurationList),
+                any())).thenReturn("repose-id");
+
+        assertEquals("repose-id", new ReposeService(clusterFactory, clusterService, dockerClient,
+                environmentService, configurationFactory).setUpReposeEnvironmentAsync(
+                ReposeEnvironmentType.GENERATED_ORIGIN, user, "1", configurationList, BuildListener.NONE).get(5000));
+
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
+        verify(clusterService, never()).getClusterByName(anyString(), any(), anyBoolean());
+    }
+
     @Test
     public void testSetupReposeEnvironmentGeneratedThirdPartiesSuccess() throws InternalServerException{
         //set up mock user
@@ -835,13 +798,13 @@ public class ReposeServiceTest {
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService,
                 configurationFactory).setUpReposeEnvironment(
-                ReposeEnvironmentType.GENERATED_THIRDPARTIES, user, "1", configurationList);
+                ReposeEnvironmentType.GENERATED_THIRDPARTIES, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
         try{
             verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any());
+            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -889,13 +852,13 @@ public class ReposeServiceTest {
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService,
                 configurationFactory).setUpReposeEnvironment(
-                ReposeEnvironmentType.MIXED_THIRD_PARTIES, user, "1", configurationList);
+                ReposeEnvironmentType.MIXED_THIRD_PARTIES, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
         try{
             verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any());
+            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -943,13 +906,13 @@ public class ReposeServiceTest {
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService,
                 configurationFactory).setUpReposeEnvironment(
-                ReposeEnvironmentType.SPECIFIED_ORIGIN, user, "1", configurationList);
+                ReposeEnvironmentType.SPECIFIED_ORIGIN, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
         try{
             verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any());
+            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -997,13 +960,13 @@ public class ReposeServiceTest {
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService,
                 configurationFactory).setUpReposeEnvironment(
-                ReposeEnvironmentType.SPECIFIED_ORIGIN_GENERATED_THIRD_PARTIES, user, "1", configurationList);
+                ReposeEnvironmentType.SPECIFIED_ORIGIN_GENERATED_THIRD_PARTIES, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
         try{
             verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any());
+            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -1051,13 +1014,13 @@ public class ReposeServiceTest {
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService,
                 configurationFactory).setUpReposeEnvironment(
-                ReposeEnvironmentType.SPECIFIED_ORIGIN_MIXED_THIRD_PARTIES, user, "1", configurationList);
+                ReposeEnvironmentType.SPECIFIED_ORIGIN_MIXED_THIRD_PARTIES, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
         try{
             verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any());
+            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -1105,13 +1068,13 @@ public class ReposeServiceTest {
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService,
                 configurationFactory).setUpReposeEnvironment(
-                ReposeEnvironmentType.SPECIFIED_ORIGIN_SPECIFIED_THIRD_PARTIES, user, "1", configurationList);
+                ReposeEnvironmentType.SPECIFIED_ORIGIN_SPECIFIED_THIRD_PARTIES, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
         try{
             verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any());
+            verify(environmentService, never()).generatedOriginEnvironment(any(), anyString(), any(), any(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -1155,7 +1118,7 @@ public class ReposeServiceTest {
         try {
             when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
             when(environmentService.generatedOriginEnvironment(
-                    any(), anyString(), any(), any())).thenReturn(reposeId);
+                    any(), anyString(), any(), any(), any())).thenReturn(reposeId);
         }catch(InternalServerException e ){
             fail(e.getLocalizedMessage());
         }
@@ -1167,13 +1130,13 @@ public class ReposeServiceTest {
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService,
                 configurationFactory).setUpReposeEnvironment(
-                null, user, "1", configurationList);
+                null, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
         try{
             verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-            verify(environmentService).generatedOriginEnvironment(any(), anyString(), any(), any());
+            verify(environmentService).generatedOriginEnvironment(any(), anyString(), any(), any(), any());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -1216,29 +1179,21 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn(null);
 
-        when(dockerClient.getReposeInstanceStats(any(), any())).thenReturn(containerStats);
+        when(dockerClient.getReposeInstanceStats(any(), any(), any())).thenReturn(containerStats);
         exception.expect(InternalServerException.class);
         exception.expectMessage("What cluster am I supposed to create?  Misconfigured.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).getInstanceStats(user, "1");
+                environmentService, configurationFactory).getInstanceStats(user, "1").get(5000);
 
 
         verify(clusterFactory).getClusterName();
-        verify(dockerClient).getReposeInstanceStats(any(), any());
+        verify(dockerClient).getReposeInstanceStats(any(), any(), any());
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
     }
 
     @Test
@@ -1285,7 +1240,7 @@ public class ReposeServiceTest {
         exception.expectMessage("What cluster am I supposed to create?  Misconfigured.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService, configurationFactory).setUpReposeEnvironment(
-                ReposeEnvironmentType.GENERATED_ORIGIN, user, "1", configurationList);
+                ReposeEnvironmentType.GENERATED_ORIGIN, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
@@ -1320,26 +1275,18 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(null);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(null));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
         exception.expect(InternalServerException.class);
         exception.expectMessage("No cluster found.  Cluster creation failed and didn't throw an error.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).getInstanceStats(user, "1");
+                environmentService, configurationFactory).getInstanceStats(user, "1").get(5000);
 
         verify(clusterFactory).getClusterName();
-        verify(dockerClient).getReposeInstanceStats(any(), any());
+        verify(dockerClient).getReposeInstanceStats(any(), any(), any());
 
-        try{
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
-        } catch (InternalServerException e) {
-            fail(e.getLocalizedMessage());
-        }
+        verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
 
     }
 
@@ -1388,7 +1335,7 @@ public class ReposeServiceTest {
         exception.expectMessage("No cluster found.  Cluster creation failed and didn't throw an error.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService, configurationFactory).setUpReposeEnvironment(
-                ReposeEnvironmentType.GENERATED_ORIGIN, user, "1", configurationList);
+                ReposeEnvironmentType.GENERATED_ORIGIN, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
@@ -1424,27 +1371,23 @@ public class ReposeServiceTest {
         EnvironmentService environmentService = mock(EnvironmentService.class);
         ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
 
-        try {
-            when(clusterService.getClusterByName(anyString(), any(), anyBoolean())).thenReturn(cluster);
-        }catch(InternalServerException e ){
-            fail(e.getLocalizedMessage());
-        }
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
-        when(dockerClient.getReposeInstanceStats(any(), any())).
+        when(dockerClient.getReposeInstanceStats(any(), any(), any())).
                 thenThrow(new InternalServerException("Failed to get stats."));
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Failed to get stats.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
-                environmentService, configurationFactory).getInstanceStats(user, "1");
+                environmentService, configurationFactory).getInstanceStats(user, "1").get(5000);
 
         verify(clusterFactory).getClusterName();
 
         try{
-            verify(dockerClient).getReposeInstanceStats(any(), any());
-            verify(clusterService).getClusterByName(anyString(), any(), anyBoolean());
+            verify(dockerClient).getReposeInstanceStats(any(), any(), any());
+            verify(clusterService).getClusterByNameAsync(anyString(), any(), anyBoolean());
         } catch (InternalServerException e) {
             fail(e.getLocalizedMessage());
         }
@@ -1492,14 +1435,14 @@ public class ReposeServiceTest {
 
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
 
-        when(environmentService.generatedOriginEnvironment(any(), any(), any(), any())).
+        when(environmentService.generatedOriginEnvironment(any(), any(), any(), any(), any())).
                 thenThrow(new InternalServerException("Setup repose environment."));
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Setup repose environment.");
         new ReposeService(clusterFactory, clusterService, dockerClient,
                 environmentService, configurationFactory).setUpReposeEnvironment(
-                ReposeEnvironmentType.GENERATED_ORIGIN, user, "1", configurationList);
+                ReposeEnvironmentType.GENERATED_ORIGIN, user, "1", configurationList, BuildListener.NONE);
 
         verify(clusterFactory).getClusterName();
 
@@ -1511,4 +1454,147 @@ public class ReposeServiceTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSubscribeStatsSuccess() throws InternalServerException{
+        //set up mock user
+        User user = new User();
+        user.setTenant("111");
+        user.setToken("fake-token");
+        user.setUsername("fake-user");
+        user.setExpireDate(DateTime.now().plus(1000));
+
+        //mock cluster
+        Cluster cluster = new Cluster();
+        cluster.setCert_directory("/tmp/test");
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        IClusterService clusterService = mock(IClusterService.class);
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        EnvironmentService environmentService = mock(EnvironmentService.class);
+        ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+
+        BiConsumer<String, JsonNode> listener = (type, stats) -> { };
+        ReposeService reposeService = new ReposeService(clusterFactory, clusterService, dockerClient,
+                environmentService, configurationFactory);
+        reposeService.subscribeInstanceStats(user, "1", listener).get(5000);
+        reposeService.unsubscribeInstanceStats(user, "1", listener).get(5000);
+
+        verify(dockerClient).subscribeReposeInstanceStats(cluster, user, "1", listener);
+        verify(dockerClient).unsubscribeReposeInstanceStats(cluster, "1", listener);
+    }
+
+    @Test
+    public void testSubscribeStatsClusterNameNull() throws InternalServerException{
+        User user = new User();
+        user.setTenant("111");
+        user.setToken("fake-token");
+
+        IClusterService clusterService = mock(IClusterService.class);
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        EnvironmentService environmentService = mock(EnvironmentService.class);
+        ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+
+        when(clusterFactory.getClusterName()).thenReturn(null);
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("What cluster am I supposed to create?  Misconfigured.");
+        new ReposeService(clusterFactory, clusterService, dockerClient,
+                environmentService, configurationFactory).subscribeInstanceStats(user, "1", (type, stats) -> { }).get(5000);
+    }
+
+    @Test
+    public void testSubscribeStatsClusterNull() throws InternalServerException{
+        User user = new User();
+        user.setTenant("111");
+        user.setToken("fake-token");
+
+        IClusterService clusterService = mock(IClusterService.class);
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        EnvironmentService environmentService = mock(EnvironmentService.class);
+        ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(null));
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("No cluster found.  Cluster creation failed and didn't throw an error.");
+        new ReposeService(clusterFactory, clusterService, dockerClient,
+                environmentService, configurationFactory).subscribeInstanceStats(user, "1", (type, stats) -> { }).get(5000);
+    }
+
+    @Test
+    public void testGetWarmPoolStatsSuccess() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+        user.setToken("fake-token");
+        user.setUsername("fake-user");
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        IClusterService clusterService = mock(IClusterService.class);
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        EnvironmentService environmentService = mock(EnvironmentService.class);
+        ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+
+        ObjectNode stats = Json.newObject();
+        stats.put("hits", 1);
+
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(dockerClient.getWarmPoolStats(cluster)).thenReturn(stats);
+
+        assertEquals(stats, new ReposeService(clusterFactory, clusterService, dockerClient,
+                environmentService, configurationFactory).getWarmPoolStats(user).get(5000));
+    }
+
+    @Test
+    public void testGetContainerCacheStatsSuccess() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+        user.setToken("fake-token");
+        user.setUsername("fake-user");
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        IClusterService clusterService = mock(IClusterService.class);
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        EnvironmentService environmentService = mock(EnvironmentService.class);
+        ConfigurationFactory configurationFactory = mock(ConfigurationFactory.class);
+
+        ObjectNode stats = Json.newObject();
+        stats.put("hits", 1);
+
+        when(clusterService.getClusterByNameAsync(anyString(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(dockerClient.getContainerCacheStats(cluster)).thenReturn(stats);
+
+        assertEquals(stats, new ReposeService(clusterFactory, clusterService, dockerClient,
+                environmentService, configurationFactory).getContainerCacheStats(user).get(5000));
+    }
+
+    @Test
+    public void testGetClusterCacheStatsSuccess() {
+        IClusterService clusterService = mock(IClusterService.class);
+
+        ObjectNode stats = Json.newObject();
+        stats.put("hits", 1);
+
+        when(clusterService.getCacheStats()).thenReturn(stats);
+
+        assertEquals(stats, new ReposeService(mock(IClusterFactory.class), clusterService, mock(IDockerClient.class),
+                mock(EnvironmentService.class), mock(ConfigurationFactory.class)).getClusterCacheStats());
+    }
+}
@@ -1,9 +1,13 @@
 package services;
 
+import play.libs.F;
+import clients.ClusterExecutors;
 import clients.IDockerClient;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.MoreExecutors;
 import exceptions.InternalServerException;
 import factories.IClusterFactory;
 import factories.TestFactory;
@@ -11,9 +15,15 @@ import models.Cluster;
 import models.TestRequest;
 import models.User;
 import org.joda.time.DateTime;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
@@ -27,6 +37,13 @@ public class TestServiceImplTest {
     @Rule
     public final ExpectedException exception = ExpectedException.none();
 
+    private final ClusterExecutors clusterExecutors = mock(ClusterExecutors.class);
+
+    @Before
+    public void setUp() {
+        when(clusterExecutors.getTestExecutor(any())).thenReturn(MoreExecutors.newDirectExecutorService());
+    }
+
     @Test
     public void testTestReposeInstanceSuccess() throws InternalServerException{
         //set up mock user
@@ -60,18 +77,19 @@ public class TestServiceImplTest {
 
         when(testFactory.translateRequest(any())).thenReturn(testRequest);
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
-        when(clusterService.getClusterByName(any(),any(),anyBoolean())).thenReturn(cluster);
-        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any())).thenReturn(responseNode);
+        when(clusterService.getClusterByNameAsync(any(),any(),anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any(), any())).thenReturn(responseNode);
 
-        JsonNode returnedResult = new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory)
-                .testReposeInstance(user, "1", requestNode);
+        JsonNode returnedResult = new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory,
+                clusterExecutors)
+                .testReposeInstance(user, "1", requestNode).get(5000);
 
         assertEquals(responseNode, returnedResult);
 
         verify(testFactory).translateRequest(any());
         verify(clusterFactory).getClusterName();
-        verify(clusterService).getClusterByName(any(), any(), anyBoolean());
-        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any());
+        verify(clusterService).getClusterByNameAsync(any(), any(), anyBoolean());
+        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -107,18 +125,19 @@ public class TestServiceImplTest {
 
         when(testFactory.translateRequest(any())).thenReturn(testRequest);
         when(clusterFactory.getClusterName()).thenReturn(null);
-        when(clusterService.getClusterByName(any(),any(),anyBoolean())).thenReturn(cluster);
-        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any())).thenReturn(null);
+        when(clusterService.getClusterByNameAsync(any(),any(),anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any(), any())).thenReturn(null);
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("What cluster am I supposed to create?  Misconfigured.");
-        new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory)
-                .testReposeInstance(user, "1", requestNode);
+        new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory,
+                clusterExecutors)
+                .testReposeInstance(user, "1", requestNode).get(5000);
 
         verify(testFactory).translateRequest(any());
         verify(clusterFactory).getClusterName();
-        verify(clusterService).getClusterByName(any(), any(), anyBoolean());
-        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any());
+        verify(clusterService).getClusterByNameAsync(any(), any(), anyBoolean());
+        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -154,18 +173,19 @@ public class TestServiceImplTest {
 
         when(testFactory.translateRequest(any())).thenReturn(testRequest);
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
-        when(clusterService.getClusterByName(any(),any(),anyBoolean())).thenReturn(null);
-        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any())).thenReturn(null);
+        when(clusterService.getClusterByNameAsync(any(),any(),anyBoolean())).thenReturn(F.Promise.pure(null));
+        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any(), any())).thenReturn(null);
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("No cluster found.  Cluster creation failed and didn't throw an error.");
-        new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory)
-                .testReposeInstance(user, "1", requestNode);
+        new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory,
+                clusterExecutors)
+                .testReposeInstance(user, "1", requestNode).get(5000);
 
         verify(testFactory).translateRequest(any());
         verify(clusterFactory).getClusterName();
-        verify(clusterService).getClusterByName(any(), any(), anyBoolean());
-        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any());
+        verify(clusterService).getClusterByNameAsync(any(), any(), anyBoolean());
+        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -198,18 +218,19 @@ public class TestServiceImplTest {
 
         when(testFactory.translateRequest(any())).thenReturn(testRequest);
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
-        when(clusterService.getClusterByName(any(),any(),anyBoolean())).thenReturn(cluster);
-        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any())).thenReturn(null);
+        when(clusterService.getClusterByNameAsync(any(),any(),anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any(), any())).thenReturn(null);
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("Request is malformed.");
-        new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory)
-                .testReposeInstance(user, "1", null);
+        new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory,
+                clusterExecutors)
+                .testReposeInstance(user, "1", null).get(5000);
 
         verify(testFactory).translateRequest(any());
         verify(clusterFactory).getClusterName();
-        verify(clusterService).getClusterByName(any(), any(), anyBoolean());
-        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any());
+        verify(clusterService).getClusterByNameAsync(any(), any(), anyBoolean());
+        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -245,18 +266,274 @@ public class TestServiceImplTest {
 
         when(testFactory.translateRequest(any())).thenReturn(testRequest);
         when(clusterFactory.getClusterName()).thenReturn("fake-name");
-        when(clusterService.getClusterByName(any(),any(),anyBoolean())).thenReturn(cluster);
-        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any())).
+        when(clusterService.getClusterByNameAsync(any(),any(),anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(dockerClient.executeTestAgainstRepose(any(), any(), any(), any(), any())).
                 thenThrow(new InternalServerException("failed to execute."));
 
         exception.expect(InternalServerException.class);
         exception.expectMessage("failed to execute.");
-        new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory)
-                .testReposeInstance(user, "1", requestNode);
+        new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory,
+                clusterExecutors)
+                .testReposeInstance(user, "1", requestNode).get(5000);
 
         verify(testFactory).translateRequest(any());
         verify(clusterFactory).getClusterName();
-        verify(clusterService).getClusterByName(any(), any(), anyBoolean());
-        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any());
+        verify(clusterService).getClusterByNameAsync(any(), any(), anyBoolean());
+        verify(dockerClient).executeTestAgainstRepose(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testTestReposeInstanceBatchInSequence() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+        user.setUsername("fake-user");
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+        cluster.setUri("fake-uri");
+
+        ObjectNode batchNode = JsonNodeFactory.instance.objectNode();
+        batchNode.put("concurrency", 1);
+
+        ArrayNode requestNode = JsonNodeFactory.instance.arrayNode();
+        requestNode.addObject().put("method", "GET");
+        requestNode.addObject().put("method", "POST");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        TestFactory testFactory = mock(TestFactory.class);
+        IClusterService clusterService = mock(IClusterService.class);
+
+        when(testFactory.translateRequest(any())).thenReturn(new TestRequest("GET", "/", null, null));
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(clusterFactory.getTestBatchMaxRequests()).thenReturn(10);
+        when(clusterService.getClusterByNameAsync(any(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(dockerClient.executeTestsAgainstRepose(any(), any(), any(), any(), any(), anyInt())).thenReturn(batchNode);
+
+        JsonNode returnedResult = new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory,
+                clusterExecutors)
+                .testReposeInstanceBatch(user, "1", requestNode).get(5000);
+
+        assertEquals(batchNode, returnedResult);
+
+        ArgumentCaptor<List> responses = ArgumentCaptor.forClass(List.class);
+        verify(testFactory, times(2)).translateRequest(any());
+        verify(dockerClient).executeTestsAgainstRepose(eq(cluster), eq(user), eq("1"), any(), responses.capture(), eq(1));
+        assertEquals(2, responses.getValue().size());
+        assertEquals("POST", ((ObjectNode) responses.getValue().get(1)).get("request").get("method").asText());
+        verify(dockerClient, never()).executeTestAgainstRepose(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testTestReposeInstanceBatchConcurrent() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+        user.setUsername("fake-user");
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+
+        ObjectNode requestNode = JsonNodeFactory.instance.objectNode();
+        requestNode.put("concurrency", 4);
+        ArrayNode requests = requestNode.putArray("requests");
+        for (int index = 0; index < 3; index++)
+            requests.addObject().put("method", "GET");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        TestFactory testFactory = mock(TestFactory.class);
+        IClusterService clusterService = mock(IClusterService.class);
+
+        when(testFactory.translateRequest(any())).thenReturn(new TestRequest("GET", "/", null, null));
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(clusterFactory.getTestBatchMaxRequests()).thenReturn(10);
+        when(clusterService.getClusterByNameAsync(any(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+
+        new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory,
+                clusterExecutors)
+                .testReposeInstanceBatch(user, "1", requestNode).get(5000);
+
+        verify(dockerClient).executeTestsAgainstRepose(eq(cluster), eq(user), eq("1"), any(), any(), eq(4));
+    }
+
+    @Test
+    public void testTestReposeInstanceBatchTooBig() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+
+        ArrayNode requestNode = JsonNodeFactory.instance.arrayNode();
+        for (int index = 0; index < 3; index++)
+            requestNode.addObject().put("method", "GET");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        IClusterService clusterService = mock(IClusterService.class);
+        when(clusterFactory.getTestBatchMaxRequests()).thenReturn(2);
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("A batch can have at most 2 requests.");
+        new TestServiceImpl(clusterService, clusterFactory, dockerClient, mock(TestFactory.class),
+                clusterExecutors)
+                .testReposeInstanceBatch(user, "1", requestNode).get(5000);
+    }
+
+    @Test
+    public void testTestReposeInstanceBatchMalformed() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+
+        ObjectNode requestNode = JsonNodeFactory.instance.objectNode();
+        requestNode.put("method", "GET");
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Request is malformed.");
+        new TestServiceImpl(mock(IClusterService.class), mock(IClusterFactory.class), mock(IDockerClient.class),
+                mock(TestFactory.class), clusterExecutors).testReposeInstanceBatch(user, "1", requestNode).get(5000);
+    }
+
+    @Test
+    public void testLoadTestReposeInstanceCapped() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+        user.setUsername("fake-user");
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+
+        ObjectNode requestNode = JsonNodeFactory.instance.objectNode();
+        requestNode.putObject("request").put("method", "GET");
+        requestNode.put("concurrency", 500);
+        requestNode.put("rate", 20);
+        requestNode.put("durationSeconds", 600);
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        TestFactory testFactory = mock(TestFactory.class);
+        IClusterService clusterService = mock(IClusterService.class);
+
+        TestRequest testRequest = new TestRequest("GET", "/", null, null);
+        when(testFactory.translateRequest(any())).thenReturn(testRequest);
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(clusterFactory.getLoadTestMaxConcurrency()).thenReturn(50);
+        when(clusterFactory.getLoadTestMaxRate()).thenReturn(1000);
+        when(clusterFactory.getLoadTestMaxDurationSeconds()).thenReturn(60L);
+        when(clusterService.getClusterByNameAsync(any(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(dockerClient.executeLoadTestAgainstRepose(any(), any(), any(), any(), anyInt(), anyInt(), anyLong()))
+                .thenReturn(JsonNodeFactory.instance.objectNode().put("completed", 10));
+
+        ObjectNode returnedResult = new TestServiceImpl(clusterService, clusterFactory, dockerClient, testFactory,
+                clusterExecutors)
+                .loadTestReposeInstance(user, "1", requestNode).get(5000);
+
+        assertEquals(10, returnedResult.get("completed").asInt());
+        assertEquals("GET", returnedResult.get("request").get("method").asText());
+        verify(dockerClient).executeLoadTestAgainstRepose(cluster, user, "1", testRequest, 50, 20, 60000L);
+    }
+
+    @Test
+    public void testLoadTestReposeInstanceDefaults() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+
+        ObjectNode requestNode = JsonNodeFactory.instance.objectNode();
+        requestNode.putObject("request").put("method", "GET");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        IClusterService clusterService = mock(IClusterService.class);
+
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(clusterFactory.getLoadTestMaxConcurrency()).thenReturn(50);
+        when(clusterFactory.getLoadTestMaxRate()).thenReturn(1000);
+        when(clusterFactory.getLoadTestMaxDurationSeconds()).thenReturn(60L);
+        when(clusterService.getClusterByNameAsync(any(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(dockerClient.executeLoadTestAgainstRepose(any(), any(), any(), any(), anyInt(), anyInt(), anyLong()))
+                .thenReturn(JsonNodeFactory.instance.objectNode());
+
+        new TestServiceImpl(clusterService, clusterFactory, dockerClient, mock(TestFactory.class),
+                clusterExecutors)
+                .loadTestReposeInstance(user, "1", requestNode).get(5000);
+
+        verify(dockerClient).executeLoadTestAgainstRepose(eq(cluster), eq(user), eq("1"), any(), eq(1), eq(0), eq(10000L));
+    }
+
+    @Test
+    public void testLoadTestReposeInstanceMalformed() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+
+        ObjectNode requestNode = JsonNodeFactory.instance.objectNode();
+        requestNode.putObject("request").put("method", "GET");
+        requestNode.put("concurrency", 0);
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Request is malformed.");
+        new TestServiceImpl(mock(IClusterService.class), mock(IClusterFactory.class), mock(IDockerClient.class),
+                mock(TestFactory.class), clusterExecutors).loadTestReposeInstance(user, "1", requestNode).get(5000);
+    }
+
+    @Test
+    public void testLoadTestReposeInstanceOnTestExecutor() throws Exception {
+        User user = new User();
+        user.setTenant("111");
+
+        Cluster cluster = new Cluster();
+        cluster.setName("fake-name");
+
+        ObjectNode requestNode = JsonNodeFactory.instance.objectNode();
+        requestNode.putObject("request").put("method", "GET");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IDockerClient dockerClient = mock(IDockerClient.class);
+        IClusterService clusterService = mock(IClusterService.class);
+        ExecutorService testExecutor = mock(ExecutorService.class);
+
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(clusterFactory.getLoadTestMaxConcurrency()).thenReturn(50);
+        when(clusterFactory.getLoadTestMaxRate()).thenReturn(1000);
+        when(clusterFactory.getLoadTestMaxDurationSeconds()).thenReturn(60L);
+        when(clusterService.getClusterByNameAsync(any(), any(), anyBoolean())).thenReturn(F.Promise.pure(cluster));
+        when(clusterExecutors.getTestExecutor(cluster)).thenReturn(testExecutor);
+        when(dockerClient.executeLoadTestAgainstRepose(any(), any(), any(), any(), anyInt(), anyInt(), anyLong()))
+                .thenReturn(JsonNodeFactory.instance.objectNode().put("completed", 10));
+
+        F.Promise<ObjectNode> result = new TestServiceImpl(clusterService, clusterFactory, dockerClient,
+                mock(TestFactory.class), clusterExecutors).loadTestReposeInstance(user, "1", requestNode);
+
+        //the calling thread is back before the run started
+        ArgumentCaptor<Runnable> run = ArgumentCaptor.forClass(Runnable.class);
+        verify(testExecutor, timeout(5000)).execute(run.capture());
+        verify(dockerClient, never()).executeLoadTestAgainstRepose(any(), any(), any(), any(), anyInt(), anyInt(),
+                anyLong());
+
+        run.getValue().run();
+        assertEquals(10, result.get(5000).get("completed").asInt());
+    }
+
+    @Test
+    public void testLoadTestReposeInstanceShuttingDown() throws InternalServerException {
+        User user = new User();
+        user.setTenant("111");
+
+        ObjectNode requestNode = JsonNodeFactory.instance.objectNode();
+        requestNode.putObject("request").put("method", "GET");
+
+        IClusterFactory clusterFactory = mock(IClusterFactory.class);
+        IClusterService clusterService = mock(IClusterService.class);
+        ExecutorService testExecutor = mock(ExecutorService.class);
+
+        when(clusterFactory.getClusterName()).thenReturn("fake-name");
+        when(clusterService.getClusterByNameAsync(any(), any(), anyBoolean()))
+                .thenReturn(F.Promise.pure(new Cluster()));
+        when(clusterExecutors.getTestExecutor(any())).thenReturn(testExecutor);
+        doThrow(new RejectedExecutionException()).when(testExecutor).execute(any());
+
+        exception.expect(InternalServerException.class);
+        exception.expectMessage("Unable to run the load test, shutting down.");
+        new TestServiceImpl(clusterService, clusterFactory, mock(IDockerClient.class), mock(TestFactory.class),
+                clusterExecutors).loadTestReposeInstance(user, "1", requestNode).get(5000);
     }
-}
\ No newline at end of file
+}
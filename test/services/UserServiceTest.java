@@ -113,4 +113,58 @@ public class UserServiceTest {
         verify(repositoryMock).findByToken(anyString());
     }
 
+    @Test
+    public void testStreamTicketOpensOneStreamOnce() {
+        //set up mock user
+        User user = new User();
+        user.setToken("fake-token");
+        user.setUsername("fake-user");
+        user.setExpireDate(DateTime.now().plusHours(1));
+
+        //set up mocks
+        IUserRepository repositoryMock = mock(IUserRepository.class);
+        when(repositoryMock.findByToken("fake-token")).thenReturn(user);
+
+        UserService userService = new UserService(repositoryMock);
+        String ticket = userService.issueStreamTicket("fake-token", "repose/stats/1");
+        String otherTicket = userService.issueStreamTicket("fake-token", "repose/stats/1");
+
+        assertNotNull(ticket);
+        assertNotEquals(ticket, otherTicket);
+        assertFalse(ticket.contains("fake-token"));
+        assertSame(user, userService.redeemStreamTicket(ticket, "repose/stats/1"));
+        assertNull(userService.redeemStreamTicket(ticket, "repose/stats/1"));
+        //a ticket for another stream is used up too
+        assertNull(userService.redeemStreamTicket(otherTicket, "repose/stats/2"));
+        assertNull(userService.redeemStreamTicket(otherTicket, "repose/stats/1"));
+        assertNull(userService.redeemStreamTicket(null, "repose/stats/1"));
+    }
+
+    @Test
+    public void testStreamTicketInvalidToken() {
+
+        //set up mocks
+        IUserRepository repositoryMock = mock(IUserRepository.class);
+        when(repositoryMock.findByToken(anyString())).thenReturn(null);
+
+        assertNull(new UserService(repositoryMock).issueStreamTicket("fake-token", "repose/stats/1"));
+    }
+
+    @Test
+    public void testStreamTicketTokenExpired() {
+        //set up mock user
+        User user = new User();
+        user.setToken("fake-token");
+        user.setExpireDate(DateTime.now().plusHours(1));
+
+        //set up mocks
+        IUserRepository repositoryMock = mock(IUserRepository.class);
+        when(repositoryMock.findByToken("fake-token")).thenReturn(user);
+
+        UserService userService = new UserService(repositoryMock);
+        String ticket = userService.issueStreamTicket("fake-token", "builds/1");
+        user.setExpireDate(DateTime.now().minusHours(1));
+
+        assertNull(userService.redeemStreamTicket(ticket, "builds/1"));
+    }
 }